@@ -0,0 +1,200 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency limit for one source that adapts to its observed latency
+ * (the gradient algorithm of Netflix's Gradient2 limit).
+ *
+ * Every successful call feeds its round trip time (RTT). A slow moving average of
+ * RTTs is the source's healthy latency; when recent calls get slower than
+ * {@code tolerance} times that, the limit shrinks in proportion (at most halving
+ * per sample), otherwise it grows by a small queue allowance. Calls beyond the
+ * limit are rejected up front instead of piling onto a degrading source. A call that
+ * timed out or found the source unavailable has no usable RTT; it counts as the
+ * slowest possible sample and shrinks the limit by the largest step. While
+ * fewer than half the permitted calls are in flight the source has not shown it can
+ * take more, so the limit does not grow, but it still shrinks when latency rises:
+ * callers such as the connector scheduler may cap concurrency well below the limit.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Samples averaged plainly before the long RTT becomes an exponential average
+    private static final int WARMUP_SAMPLES = 10;
+    // Lowest gradient, so the limit at most halves per sample
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double longRttAlpha;
+    private final LongSupplier clock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    // Guarded by this
+    private double estimatedLimit;
+    private double longRttNanos;
+    private long samples;
+    private volatile int limit;
+
+    /**
+     * A limiter with defaults suited to remote APIs: starts at 8 calls (the
+     * connector scheduler's default concurrency), adapts between 1 and 200,
+     * tolerates RTTs up to 1.5 times the long-term average.
+     */
+    public AdaptiveConcurrencyLimiter() {
+        this(8, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+    }
+
+    /**
+     * @param initialLimit calls allowed before any latency is known
+     * @param minLimit lowest limit, so the source is still probed when degraded
+     * @param maxLimit highest limit
+     * @param tolerance how much slower than the long-term RTT a call may be before
+     *                  the limit shrinks
+     * @param smoothing weight of each new limit estimate, 0 to 1
+     * @param longRttWindow samples in the long-term RTT average
+     * @param clock nanosecond time source
+     */
+    public AdaptiveConcurrencyLimiter(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double tolerance,
+            double smoothing,
+            int longRttWindow,
+            LongSupplier clock) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longRttAlpha = 2.0 / (longRttWindow + 1);
+        this.clock = clock;
+        this.estimatedLimit = initialLimit;
+        this.limit = initialLimit;
+    }
+
+    /**
+     * Start a call if the source is below its limit.
+     *
+     * @return the call's listener, to be told how it ended; null if the call must be shed
+     */
+    public Listener tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Listener(clock.getAsLong(), current + 1);
+            }
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Calls shed because the limit was reached.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Adjust the limit for one call's RTT, given how many calls were in flight
+     * when it started.
+     */
+    synchronized void onSample(long rttNanos, int callsInFlight) {
+        if (rttNanos <= 0) {
+            return;
+        }
+        samples++;
+        if (samples <= WARMUP_SAMPLES) {
+            longRttNanos += (rttNanos - longRttNanos) / samples;
+        } else {
+            longRttNanos += (rttNanos - longRttNanos) * longRttAlpha;
+        }
+        // Let a long RTT inflated by a past overload recover
+        if (longRttNanos / rttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / rttNanos));
+        // Only grow a limit the callers are close to using
+        double queueSize = callsInFlight < estimatedLimit / 2 ? 0 : Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - smoothing) + newLimit * smoothing;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Shrink the limit for a call dropped by an overloaded source, as for a sample
+     * at the lowest gradient.
+     */
+    synchronized void onDrop() {
+        double newLimit = estimatedLimit * (1 - smoothing) + estimatedLimit * MIN_GRADIENT * smoothing;
+        estimatedLimit = Math.max(minLimit, newLimit);
+        limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Tracks one admitted call.
+     */
+    public final class Listener {
+        private final long startNanos;
+        private final int callsInFlight;
+        private boolean done;
+
+        private Listener(long startNanos, int callsInFlight) {
+            this.startNanos = startNanos;
+            this.callsInFlight = callsInFlight;
+        }
+
+        /**
+         * The call completed; its latency adjusts the limit.
+         */
+        public void onSuccess() {
+            if (finish()) {
+                onSample(clock.getAsLong() - startNanos, callsInFlight);
+            }
+        }
+
+        /**
+         * The call timed out or the source was unavailable; the limit shrinks.
+         */
+        public void onDropped() {
+            if (finish()) {
+                onDrop();
+            }
+        }
+
+        /**
+         * The call failed for a reason unrelated to load; its latency is ignored.
+         */
+        public void onIgnore() {
+            finish();
+        }
+
+        private boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            inFlight.decrementAndGet();
+            return true;
+        }
+    }
+}
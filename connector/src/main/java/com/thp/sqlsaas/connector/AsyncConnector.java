@@ -0,0 +1,30 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Connector whose round trips complete asynchronously, so callers hold no thread
+ * while the source answers.
+ *
+ * Futures fail with the {@link ConnectorException} the blocking call would have
+ * thrown (wrapped in a {@link CompletionException} by dependent stages).
+ */
+public interface AsyncConnector extends Connector {
+
+    CompletableFuture<ConnectResult> connectAsync(ConnectRequest req);
+
+    CompletableFuture<RowPage> executeScanAsync(ExecuteScanRequest req);
+
+    /**
+     * Run a blocking connector's calls on {@code executor}; a connector that is
+     * already asynchronous is returned as is.
+     */
+    static AsyncConnector adapt(Connector connector, Executor executor) {
+        if (connector instanceof AsyncConnector async) {
+            return async;
+        }
+        return new BlockingConnectorAdapter(connector, executor);
+    }
+}
@@ -1,15 +1,27 @@
 package com.thp.sqlsaas.connector;
 
+import java.time.Duration;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base implementation providing common functionality for all connectors.
  */
 public abstract class BaseConnector implements Connector {
     
-    protected Map<String, Object> sessionContext;
-    protected boolean connected = false;
+    protected volatile Map<String, Object> sessionContext;
+    protected volatile boolean connected = false;
+    
+    // Simulated source latency; mock connectors answer instantly by default
+    private volatile LatencyModel latencyModel = LatencyModel.NONE;
+    private final AtomicInteger scansInFlight = new AtomicInteger();
+    
+    /**
+     * Set the simulated latency of scans.
+     */
+    public void setLatencyModel(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
     
     /**
      * Get the connector type identifier.
@@ -51,6 +63,24 @@ public abstract class BaseConnector implements Connector {
     
     @Override
     public RowPage executeScan(ExecuteScanRequest req) throws ConnectorException {
+        try (ScanCursor cursor = openScan(req)) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<Map<String, Object>> batch;
+            while (!(batch = cursor.nextBatch(Integer.MAX_VALUE)).isEmpty()) {
+                rows.addAll(batch);
+            }
+            return new RowPage(rows, cursor.nextPageToken(), cursor.freshnessMs(), cursor.rowsPruned());
+        }
+    }
+    
+    /**
+     * Open a streaming scan. Rows are read from {@link #scanRows} only as batches
+     * are pulled, and predicates, projection and pagination are applied to each
+     * row on the way through, so a page of 10 rows reads about 10 matching rows
+     * from the source however large it is.
+     */
+    @Override
+    public ScanCursor openScan(ExecuteScanRequest req) throws ConnectorException {
         if (!connected) {
             throw new ConnectorException(
                 ConnectorException.ErrorCode.CONFIGURATION_ERROR,
@@ -59,40 +89,50 @@ public abstract class BaseConnector implements Connector {
             );
         }
         
+        int inFlight = scansInFlight.incrementAndGet();
         try {
-            // Apply predicate filtering
-            List<Map<String, Object>> allRows = fetchAllRows(req.resource());
-            List<Map<String, Object>> filteredRows = applyPredicates(allRows, req.predicates());
-            
-            // Apply column projection
-            filteredRows = applyProjection(filteredRows, req.columns());
+            simulateLatency(req.resource(), inFlight);
             
-            // Apply pagination
-            PaginationResult paginationResult = applyPagination(
-                filteredRows, 
-                req.limit(), 
-                req.pageToken()
-            );
+            List<Predicate> predicates = req.predicates() != null ? req.predicates() : List.of();
+            Iterator<Map<String, Object>> source = scanRows(req.resource(), predicates);
             
             // Calculate freshness (mock: always 0ms for fresh data)
             long freshnessMs = calculateFreshness(req.maxStalenessMs());
             
-            return new RowPage(
-                paginationResult.rows(),
-                paginationResult.nextPageToken(),
-                freshnessMs
-            );
+            return new RowCursor(source, req, freshnessMs);
             
         } catch (Exception e) {
-            throw new ConnectorException(
-                ConnectorException.ErrorCode.UNKNOWN_ERROR,
-                "Failed to execute scan on " + getDisplayName() + ": " + e.getMessage(),
-                getConnectorId(),
-                e
-            );
+            scansInFlight.decrementAndGet();
+            throw scanFailure(e);
+        }
+    }
+    
+    private ConnectorException scanFailure(Exception e) {
+        return new ConnectorException(
+            ConnectorException.ErrorCode.UNKNOWN_ERROR,
+            "Failed to execute scan on " + getDisplayName() + ": " + e.getMessage(),
+            getConnectorId(),
+            e
+        );
+    }
+    
+    private void simulateLatency(String resource, int inFlight) throws InterruptedException {
+        Duration latency = latencyModel.latency(resource, inFlight);
+        if (!latency.isZero()) {
+            try {
+                Thread.sleep(latency.toMillis(), latency.toNanosPart() % 1_000_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            }
         }
     }
     
+    @Override
+    public boolean isHealthy() {
+        return connected;
+    }
+    
     @Override
     public void close() {
         connected = false;
@@ -127,19 +167,22 @@ public abstract class BaseConnector implements Connector {
     protected abstract List<Map<String, Object>> fetchAllRows(String resource) throws Exception;
     
     /**
-     * Apply predicates to filter rows.
+     * Rows of a resource in scan order, read lazily as the scan advances. Defaults
+     * to {@link #fetchAllRows}; override for sources that can produce rows on demand.
      */
-    protected List<Map<String, Object>> applyPredicates(
-            List<Map<String, Object>> rows, 
-            List<Predicate> predicates) {
-        
-        if (predicates == null || predicates.isEmpty()) {
-            return rows;
-        }
-        
-        return rows.stream()
-                .filter(row -> matchesAllPredicates(row, predicates))
-                .collect(Collectors.toList());
+    protected Iterator<Map<String, Object>> scanRows(String resource) throws Exception {
+        return fetchAllRows(resource).iterator();
+    }
+    
+    /**
+     * Rows of a resource for a scan with the given predicates, which are the ones
+     * declared pushdownable in {@link #buildCapabilities} when the scan comes from
+     * the query engine. Sources that can filter natively override this to read only
+     * matching rows; each row is still checked against the predicates. Defaults to
+     * {@link #scanRows(String)}.
+     */
+    protected Iterator<Map<String, Object>> scanRows(String resource, List<Predicate> predicates) throws Exception {
+        return scanRows(resource);
     }
     
     /**
@@ -158,53 +201,14 @@ public abstract class BaseConnector implements Connector {
      * Check if a row matches a single predicate.
      */
     protected boolean matchesPredicate(Map<String, Object> row, Predicate predicate) {
-        Object value = row.get(predicate.field());
-        Object predicateValue = predicate.value();
-        
-        if (value == null) {
-            return false;
-        }
-        
-        return switch (predicate.op().toUpperCase()) {
-            case "=" -> value.equals(predicateValue);
-            case "!=" -> !value.equals(predicateValue);
-            case ">" -> compareValues(value, predicateValue) > 0;
-            case "<" -> compareValues(value, predicateValue) < 0;
-            case ">=" -> compareValues(value, predicateValue) >= 0;
-            case "<=" -> compareValues(value, predicateValue) <= 0;
-            case "IN" -> predicateValue instanceof Collection && 
-                        ((Collection<?>) predicateValue).contains(value);
-            case "LIKE" -> value.toString().contains(predicateValue.toString());
-            default -> false;
-        };
+        return PredicateEvaluator.matches(row, predicate);
     }
     
     /**
      * Compare two values (handles numbers and strings).
      */
-    @SuppressWarnings("unchecked")
     protected int compareValues(Object v1, Object v2) {
-        if (v1 instanceof Comparable && v2 instanceof Comparable) {
-            return ((Comparable) v1).compareTo(v2);
-        }
-        return v1.toString().compareTo(v2.toString());
-    }
-    
-    /**
-     * Apply column projection to rows.
-     */
-    protected List<Map<String, Object>> applyProjection(
-            List<Map<String, Object>> rows,
-            List<String> columns) {
-        
-        // If columns is null, empty, or contains wildcard, return all columns
-        if (columns == null || columns.isEmpty() || columns.contains("*")) {
-            return rows;
-        }
-        
-        return rows.stream()
-                .map(row -> projectColumns(row, columns))
-                .collect(Collectors.toList());
+        return PredicateEvaluator.compare(v1, v2);
     }
     
     /**
@@ -221,46 +225,137 @@ public abstract class BaseConnector implements Connector {
     }
     
     /**
-     * Apply pagination to results.
+     * Calculate freshness in milliseconds.
+     * For mock connectors, data is always fresh (0ms).
+     */
+    protected long calculateFreshness(Long maxStalenessMs) {
+        // Mock implementation: always return 0 (perfectly fresh)
+        return 0L;
+    }
+    
+    /**
+     * Cursor over the rows of one scan. The page starts at the offset in the page
+     * token and holds up to {@code limit} matching rows (100 by default); one more
+     * match is looked for at the end of the page to tell whether another follows.
      */
-    protected PaginationResult applyPagination(
-            List<Map<String, Object>> rows,
-            Integer limit,
-            String pageToken) {
+    private final class RowCursor implements ScanCursor {
+        private final Iterator<Map<String, Object>> source;
+        private final List<Predicate> predicates;
+        private final List<String> columns;
+        private final long freshnessMs;
+        private int toSkip;
+        private int remaining;
+        // Offset of the next row, in matching rows
+        private int position;
+        private long pruned;
+        private String nextPageToken;
+        private boolean exhausted;
+        private boolean released;
+        
+        RowCursor(Iterator<Map<String, Object>> source, ExecuteScanRequest req, long freshnessMs) {
+            this.source = source;
+            this.predicates = req.predicates() != null ? req.predicates() : List.of();
+            this.columns = req.columns() == null || req.columns().isEmpty() || req.columns().contains("*")
+                ? null
+                : req.columns();
+            this.freshnessMs = freshnessMs;
+            this.toSkip = startIndex(req.pageToken());
+            this.position = toSkip;
+            this.remaining = (req.limit() != null && req.limit() > 0) ? req.limit() : 100;
+        }
         
-        int startIndex = 0;
-        if (pageToken != null && !pageToken.isEmpty()) {
+        private static int startIndex(String pageToken) {
+            if (pageToken != null && !pageToken.isEmpty()) {
+                try {
+                    return Math.max(0, Integer.parseInt(pageToken));
+                } catch (NumberFormatException e) {
+                    // Invalid token, start from beginning
+                }
+            }
+            return 0;
+        }
+        
+        @Override
+        public List<Map<String, Object>> nextBatch(int maxRows) throws ConnectorException {
+            if (maxRows < 1) {
+                throw new IllegalArgumentException("maxRows must be positive: " + maxRows);
+            }
+            if (exhausted) {
+                return List.of();
+            }
             try {
-                startIndex = Integer.parseInt(pageToken);
-            } catch (NumberFormatException e) {
-                // Invalid token, start from beginning
+                for (; toSkip > 0; toSkip--) {
+                    if (nextMatch() == null) {
+                        finish(null);
+                        return List.of();
+                    }
+                }
+                
+                List<Map<String, Object>> batch = new ArrayList<>(Math.min(Math.min(maxRows, remaining), 1024));
+                while (batch.size() < maxRows && remaining > 0) {
+                    Map<String, Object> row = nextMatch();
+                    if (row == null) {
+                        finish(null);
+                        return batch;
+                    }
+                    batch.add(columns == null ? row : projectColumns(row, columns));
+                    remaining--;
+                    position++;
+                }
+                if (remaining == 0) {
+                    finish(nextMatch() != null ? String.valueOf(position) : null);
+                }
+                return batch;
+                
+            } catch (RuntimeException e) {
+                close();
+                throw scanFailure(e);
             }
         }
         
-        int pageSize = (limit != null && limit > 0) ? limit : 100;
-        int endIndex = Math.min(startIndex + pageSize, rows.size());
+        private Map<String, Object> nextMatch() {
+            while (source.hasNext()) {
+                Map<String, Object> row = source.next();
+                if (matchesAllPredicates(row, predicates)) {
+                    return row;
+                }
+                pruned++;
+            }
+            return null;
+        }
         
-        List<Map<String, Object>> pageRows = rows.subList(startIndex, endIndex);
+        private void finish(String nextPageToken) {
+            this.nextPageToken = nextPageToken;
+            exhausted = true;
+            release();
+        }
         
-        String nextPageToken = null;
-        if (endIndex < rows.size()) {
-            nextPageToken = String.valueOf(endIndex);
+        @Override
+        public String nextPageToken() {
+            return nextPageToken;
         }
         
-        return new PaginationResult(pageRows, nextPageToken);
-    }
-    
-    /**
-     * Calculate freshness in milliseconds.
-     * For mock connectors, data is always fresh (0ms).
-     */
-    protected long calculateFreshness(Long maxStalenessMs) {
-        // Mock implementation: always return 0 (perfectly fresh)
-        return 0L;
+        @Override
+        public long freshnessMs() {
+            return freshnessMs;
+        }
+        
+        @Override
+        public long rowsPruned() {
+            return pruned;
+        }
+        
+        @Override
+        public void close() {
+            exhausted = true;
+            release();
+        }
+        
+        private void release() {
+            if (!released) {
+                released = true;
+                scansInFlight.decrementAndGet();
+            }
+        }
     }
-    
-    /**
-     * Helper record for pagination results.
-     */
-    protected record PaginationResult(List<Map<String, Object>> rows, String nextPageToken) {}
 }
@@ -0,0 +1,77 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link AsyncConnector} over a blocking connector, running each call on an
+ * executor (see {@link ConnectorExecutors}) so that the caller's thread is free
+ * while it blocks.
+ */
+final class BlockingConnectorAdapter implements AsyncConnector {
+
+    private final Connector delegate;
+    private final Executor executor;
+
+    BlockingConnectorAdapter(Connector delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<ConnectResult> connectAsync(ConnectRequest req) {
+        return call(() -> delegate.connect(req));
+    }
+
+    @Override
+    public CompletableFuture<RowPage> executeScanAsync(ExecuteScanRequest req) {
+        return call(() -> delegate.executeScan(req));
+    }
+
+    @Override
+    public ConnectResult connect(ConnectRequest req) throws ConnectorException {
+        return delegate.connect(req);
+    }
+
+    @Override
+    public RowPage executeScan(ExecuteScanRequest req) throws ConnectorException {
+        return delegate.executeScan(req);
+    }
+
+    @Override
+    public ScanCursor openScan(ExecuteScanRequest req) throws ConnectorException {
+        return delegate.openScan(req);
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return delegate.isHealthy();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    private <T> CompletableFuture<T> call(BlockingCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    future.complete(call.run());
+                } catch (ConnectorException | RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            // Executor rejected the call, e.g. on shutdown
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @FunctionalInterface
+    private interface BlockingCall<T> {
+        T run() throws ConnectorException;
+    }
+}
@@ -0,0 +1,137 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connector decorator that runs scans within an {@link AdaptiveConcurrencyLimiter}
+ * shared by all connectors of the same type.
+ */
+final class ConcurrencyLimitedConnector implements Connector {
+
+    private final Connector delegate;
+    private final ConnectorType type;
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    ConcurrencyLimitedConnector(Connector delegate, ConnectorType type, AdaptiveConcurrencyLimiter limiter) {
+        this.delegate = delegate;
+        this.type = type;
+        this.limiter = limiter;
+    }
+
+    @Override
+    public ConnectResult connect(ConnectRequest req) throws ConnectorException {
+        return delegate.connect(req);
+    }
+
+    /**
+     * Execute the scan, or shed it with {@link ConnectorException.ErrorCode#CONCURRENCY_LIMIT_EXCEEDED}
+     * when the source already has as many scans in flight as it currently sustains.
+     */
+    @Override
+    public RowPage executeScan(ExecuteScanRequest req) throws ConnectorException {
+        AdaptiveConcurrencyLimiter.Listener listener = acquire();
+        try {
+            RowPage page = delegate.executeScan(req);
+            listener.onSuccess();
+            return page;
+        } catch (ConnectorException e) {
+            onFailure(listener, e);
+            throw e;
+        } finally {
+            listener.onIgnore();
+        }
+    }
+
+    /**
+     * Open the scan within the limit; the scan holds its slot until the cursor is
+     * drained or closed, and its latency is sampled only if it was drained.
+     */
+    @Override
+    public ScanCursor openScan(ExecuteScanRequest req) throws ConnectorException {
+        AdaptiveConcurrencyLimiter.Listener listener = acquire();
+        ScanCursor cursor;
+        try {
+            cursor = delegate.openScan(req);
+        } catch (RuntimeException | ConnectorException e) {
+            onFailure(listener, e);
+            throw e;
+        }
+        return new ScanCursor() {
+            @Override
+            public List<Map<String, Object>> nextBatch(int maxRows) throws ConnectorException {
+                try {
+                    List<Map<String, Object>> batch = cursor.nextBatch(maxRows);
+                    if (batch.isEmpty()) {
+                        listener.onSuccess();
+                    }
+                    return batch;
+                } catch (RuntimeException | ConnectorException e) {
+                    onFailure(listener, e);
+                    throw e;
+                }
+            }
+
+            @Override
+            public String nextPageToken() {
+                return cursor.nextPageToken();
+            }
+
+            @Override
+            public long freshnessMs() {
+                return cursor.freshnessMs();
+            }
+            
+            @Override
+            public long rowsPruned() {
+                return cursor.rowsPruned();
+            }
+
+            @Override
+            public void close() {
+                try {
+                    cursor.close();
+                } finally {
+                    listener.onIgnore();
+                }
+            }
+        };
+    }
+
+    /**
+     * Timeouts and an unavailable source are signs of load and shrink the limit;
+     * other failures (auth, config, bad requests) say nothing about the source's capacity.
+     */
+    private static void onFailure(AdaptiveConcurrencyLimiter.Listener listener, Exception e) {
+        if (e instanceof ConnectorException ce
+                && (ce.getErrorCode() == ConnectorException.ErrorCode.SOURCE_TIMEOUT
+                    || ce.getErrorCode() == ConnectorException.ErrorCode.SOURCE_UNAVAILABLE)) {
+            listener.onDropped();
+        } else {
+            listener.onIgnore();
+        }
+    }
+
+    private AdaptiveConcurrencyLimiter.Listener acquire() throws ConnectorException {
+        AdaptiveConcurrencyLimiter.Listener listener = limiter.tryAcquire();
+        if (listener == null) {
+            throw new ConnectorException(
+                ConnectorException.ErrorCode.CONCURRENCY_LIMIT_EXCEEDED,
+                type.getDisplayName() + " is at its concurrency limit of " + limiter.getLimit()
+                    + " scans. Please retry shortly.",
+                type.getId()
+            );
+        }
+        return listener;
+    }
+
+    @Override
+    public boolean isHealthy() {
+        return delegate.isHealthy();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+}
@@ -12,8 +12,26 @@ public interface Connector {
     RowPage executeScan(ExecuteScanRequest req)
         throws ConnectorException;
 
+    /**
+     * Open a scan whose rows are pulled in batches, with predicates, projection and
+     * limit applied as they flow. Connectors that cannot stream serve the whole
+     * page of {@link #executeScan} through the cursor.
+     */
+    default ScanCursor openScan(ExecuteScanRequest req)
+        throws ConnectorException {
+        return ScanCursor.of(executeScan(req));
+    }
+
     void close();
 
+    /**
+     * Whether a connected instance can still serve scans; checked before a pooled
+     * session is reused.
+     */
+    default boolean isHealthy() {
+        return true;
+    }
+
     public record ConnectRequest(String tenantId, Map<String, String> config){}
 
     public record ConnectResult(
@@ -22,11 +40,51 @@ public interface Connector {
         Map<String, Object> sessionContext      // tokens for real; empty for mock
     ){}
 
+    /**
+     * What a connector serves and which predicates it evaluates at the source.
+     *
+     * A predicate is pushed down if its field is in {@code pushdownableFields} of the
+     * resource and its operator is among the operators declared for the field in
+     * {@code pushdownOperators} ({@link #DEFAULT_PUSHDOWN_OPERATORS} if none are).
+     * The operator {@link #LIKE_PREFIX} accepts LIKE patterns of the form
+     * {@code 'abc%'} only.
+     */
     public record CapabilityDescriptor(
         Set<String> resources,
         Map<String, Set<String>> columns,
-        Map<String, Set<String>> pushdownableFields
-    ){}
+        Map<String, Set<String>> pushdownableFields,
+        Map<String, Map<String, Set<String>>> pushdownOperators   // resource -> field -> operators
+    ){
+        public static final Set<String> DEFAULT_PUSHDOWN_OPERATORS = Set.of("=", "IN");
+        public static final String LIKE_PREFIX = "LIKE_PREFIX";
+
+        public CapabilityDescriptor(
+                Set<String> resources,
+                Map<String, Set<String>> columns,
+                Map<String, Set<String>> pushdownableFields) {
+            this(resources, columns, pushdownableFields, Map.of());
+        }
+
+        /**
+         * Whether the connector evaluates the predicate at the source for the resource.
+         */
+        public boolean canPushDown(String resource, Predicate predicate) {
+            Set<String> fields = pushdownableFields != null ? pushdownableFields.get(resource) : null;
+            if (fields == null || !fields.contains(predicate.field())) {
+                return false;
+            }
+            Set<String> operators = pushdownOperators != null
+                ? pushdownOperators.getOrDefault(resource, Map.of())
+                    .getOrDefault(predicate.field(), DEFAULT_PUSHDOWN_OPERATORS)
+                : DEFAULT_PUSHDOWN_OPERATORS;
+            String op = predicate.op().toUpperCase();
+            if (operators.contains(op)) {
+                return true;
+            }
+            return op.equals("LIKE") && operators.contains(LIKE_PREFIX)
+                && PredicateEvaluator.isPrefixPattern(predicate.value());
+        }
+    }
 
     public record ExecuteScanRequest(
         String tenantId,
@@ -39,5 +97,14 @@ public interface Connector {
     ){}
 
     public record Predicate(String field, String op, Object value) {}
-    public record RowPage(List<Map<String,Object>> rows, String nextPageToken, long freshnessMs){}
+
+    /**
+     * @param rowsPruned rows the source read and dropped because they did not match
+     *                   the predicates
+     */
+    public record RowPage(List<Map<String,Object>> rows, String nextPageToken, long freshnessMs, long rowsPruned){
+        public RowPage(List<Map<String,Object>> rows, String nextPageToken, long freshnessMs) {
+            this(rows, nextPageToken, freshnessMs, 0L);
+        }
+    }
 }
@@ -47,6 +47,7 @@ public class ConnectorException extends Exception {
         AUTHENTICATION_FAILED,
         AUTHORIZATION_FAILED,
         RATE_LIMIT_EXHAUSTED,
+        CONCURRENCY_LIMIT_EXCEEDED,
         SOURCE_TIMEOUT,
         SOURCE_UNAVAILABLE,
         INVALID_REQUEST,
@@ -0,0 +1,52 @@
+package com.thp.sqlsaas.connector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for blocking connector calls.
+ */
+final class ConnectorExecutors {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectorExecutors.class);
+
+    private ConnectorExecutors() {
+    }
+
+    /**
+     * A virtual thread per call when the JVM has them (Java 21+), since a blocked
+     * virtual thread costs next to nothing. Otherwise a pool of up to
+     * {@code maxThreads} platform threads, queueing calls beyond that; the connector
+     * scheduler already bounds how many executions run at once per connector type.
+     */
+    static ExecutorService create(int maxThreads) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ExecutorService executor = (ExecutorService) factory.invoke(null);
+            logger.info("Running blocking connector calls on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available on this JVM (or a preview feature not enabled)
+        }
+
+        AtomicInteger threads = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "connector-io-" + threads.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        logger.info("Running blocking connector calls on up to {} platform threads", maxThreads);
+        return executor;
+    }
+}
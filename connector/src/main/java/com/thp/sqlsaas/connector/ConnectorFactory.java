@@ -2,31 +2,130 @@ package com.thp.sqlsaas.connector;
 
 import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
 import com.thp.sqlsaas.connector.impl.JiraMockConnector;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Factory for creating connector instances.
  * Supports both mock and real connectors.
+ * 
+ * Queries lease connected sessions from a {@link ConnectorSessionPool}, one
+ * connector instance per session, pooled per connector type, tenant and credentials.
+ * Scans of every connector go through an {@link AdaptiveConcurrencyLimiter} per
+ * connector type, shared by all tenants since they share the upstream source.
+ * Connectors are handed out as {@link AsyncConnector}s; blocking ones run their
+ * calls on a shared executor (virtual threads where the JVM has them).
  */
 @Component
 public class ConnectorFactory {
     
-    private final Map<String, Connector> activeConnectors = new HashMap<>();
+    private static final Logger logger = LoggerFactory.getLogger(ConnectorFactory.class);
+    
+    private final Map<String, AsyncConnector> activeConnectors = new ConcurrentHashMap<>();
+    private final Map<ConnectorType, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(ConnectorType.class);
+    private final ExecutorService executor;
+    private final ConnectorSessionPool sessionPool;
+    private final ScheduledExecutorService maintenance;
+    
+    public ConnectorFactory() {
+        this(64, 8, 1, 4, Duration.ofMinutes(5), Duration.ofSeconds(30), Duration.ofSeconds(30));
+    }
     
     /**
-     * Get or create a connector instance for the given type.
-     * Simple version without tenant isolation for now.
+     * @param maxThreads platform threads for blocking connector calls, when virtual
+     *                   threads are not available
+     * @param maxSessions sessions per connector type, tenant and credentials
+     * @param minIdleSessions idle sessions kept per key in use
+     * @param maxIdleSessions idle sessions kept per key
+     * @param idleTimeout idle time after which a session is closed
+     * @param leaseTimeout how long a query waits for a session when all are leased
+     * @param evictionInterval how often idle sessions are evicted
      */
-    public Connector getConnector(ConnectorType type) throws ConnectorException {
-        String key = type.getId();
-        return activeConnectors.computeIfAbsent(key, k -> createConnector(type));
+    @Autowired
+    public ConnectorFactory(
+            @Value("${sqlsaas.connector.executor.max-threads:64}") int maxThreads,
+            @Value("${sqlsaas.connector.pool.max-total:8}") int maxSessions,
+            @Value("${sqlsaas.connector.pool.min-idle:1}") int minIdleSessions,
+            @Value("${sqlsaas.connector.pool.max-idle:4}") int maxIdleSessions,
+            @Value("${sqlsaas.connector.pool.idle-timeout:PT5M}") Duration idleTimeout,
+            @Value("${sqlsaas.connector.pool.lease-timeout:PT30S}") Duration leaseTimeout,
+            @Value("${sqlsaas.connector.pool.eviction-interval:PT30S}") Duration evictionInterval) {
+        this.executor = ConnectorExecutors.create(maxThreads);
+        for (ConnectorType type : ConnectorType.values()) {
+            limiters.put(type, new AdaptiveConcurrencyLimiter());
+        }
+        this.sessionPool = new ConnectorSessionPool(
+            this::createConnector, maxSessions, minIdleSessions, maxIdleSessions,
+            idleTimeout, leaseTimeout, System::nanoTime);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connector-pool-eviction");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = evictionInterval.toMillis();
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                sessionPool.evictIdle();
+            } catch (RuntimeException e) {
+                logger.warn("Connector session eviction failed", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * The executor of blocking connector calls, for work that should not run on the
+     * caller's thread.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+    
+    /**
+     * The concurrency limiter of a connector type.
+     */
+    public AdaptiveConcurrencyLimiter getLimiter(ConnectorType type) {
+        return limiters.get(type);
     }
     
     /**
-     * Get or create a connector instance for the given type and tenant.
+     * Lease a connected session of a connector type for a tenant. Close the session
+     * when done to return it to the pool.
+     *
+     * @param config connection config (credentials); sessions are shared only
+     *               between leases with the same config
+     */
+    public CompletableFuture<ConnectorSessionPool.Session> leaseSession(
+            ConnectorType type,
+            String tenantId,
+            Map<String, String> config) {
+        return sessionPool.lease(type, tenantId, config);
+    }
+    
+    /**
+     * Session counters and current sessions, for metrics.
+     */
+    public ConnectorSessionPool.Stats getSessionStats() {
+        return sessionPool.getStats();
+    }
+    
+    /**
+     * Get or create a long-lived connector instance for the given type and tenant,
+     * connected by the caller. Queries should lease pooled sessions instead.
      */
     public Connector getConnector(ConnectorType type, String tenantId) throws ConnectorException {
         String key = type.getId() + ":" + tenantId;
@@ -37,8 +136,8 @@ public class ConnectorFactory {
     /**
      * Create a new connector instance based on type.
      */
-    private Connector createConnector(ConnectorType type) {
-        return switch (type) {
+    private AsyncConnector createConnector(ConnectorType type) {
+        Connector connector = switch (type) {
             case GITHUB -> new GitHubMockConnector();
             case JIRA -> new JiraMockConnector();
             case SALESFORCE -> throw new UnsupportedOperationException("Salesforce connector not implemented");
@@ -46,6 +145,7 @@ public class ConnectorFactory {
             case SLACK -> throw new UnsupportedOperationException("Slack connector not implemented");
             case NOTION -> throw new UnsupportedOperationException("Notion connector not implemented");
         };
+        return AsyncConnector.adapt(new ConcurrencyLimitedConnector(connector, type, limiters.get(type)), executor);
     }
     
     /**
@@ -60,10 +160,21 @@ public class ConnectorFactory {
     }
     
     /**
-     * Close all connectors.
+     * Close all connectors and idle sessions.
      */
     public void closeAll() {
         activeConnectors.values().forEach(Connector::close);
         activeConnectors.clear();
+        sessionPool.closeAll();
+    }
+    
+    /**
+     * Close all connectors and stop the executor of blocking calls.
+     */
+    @PreDestroy
+    public void shutdown() {
+        maintenance.shutdownNow();
+        closeAll();
+        executor.shutdownNow();
     }
 }
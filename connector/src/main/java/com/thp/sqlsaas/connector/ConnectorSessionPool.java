@@ -0,0 +1,429 @@
+package com.thp.sqlsaas.connector;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Pool of connected connector sessions, keyed by connector type, tenant and a hash
+ * of the connection config (so tenants with several credentials get separate
+ * sessions, and raw credentials are never kept in keys).
+ *
+ * A session is a connector instance of its own, connected once when created, so the
+ * connect cost (token exchange, capability discovery) is paid per session rather
+ * than per query, and concurrent queries never share an instance. Queries lease a
+ * session and close the lease to return it; a session that failed in a way that
+ * may have broken it is invalidated instead.
+ *
+ * Each key has at most {@code maxTotal} sessions, leased or idle. Leases beyond
+ * that wait for a return, for up to {@code leaseTimeout}. Returned sessions are kept
+ * idle up to {@code maxIdle} and reused most recently returned first, and checked
+ * with {@link Connector#isHealthy} before reuse. {@link #evictIdle} closes sessions
+ * idle for longer than {@code idleTimeout}, keeping {@code minIdle} warm for keys
+ * leased within that time and dropping keys that have gone quiet.
+ */
+public class ConnectorSessionPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectorSessionPool.class);
+
+    private final Function<ConnectorType, AsyncConnector> connectors;
+    private final int maxTotal;
+    private final int minIdle;
+    private final int maxIdle;
+    private final long idleTimeoutNanos;
+    private final Duration leaseTimeout;
+    private final LongSupplier clock;
+
+    private final Map<SessionKey, KeyPool> pools = new ConcurrentHashMap<>();
+
+    private final LongAdder created = new LongAdder();
+    private final LongAdder closed = new LongAdder();
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder waits = new LongAdder();
+
+    /**
+     * @param connectors creates an unconnected connector instance of a type
+     * @param maxTotal sessions per key, leased or idle
+     * @param minIdle idle sessions kept for keys in use
+     * @param maxIdle idle sessions kept per key
+     * @param idleTimeout idle time after which a session is closed
+     * @param leaseTimeout how long a lease waits when all sessions are leased
+     * @param clock nanosecond time source
+     */
+    public ConnectorSessionPool(
+            Function<ConnectorType, AsyncConnector> connectors,
+            int maxTotal,
+            int minIdle,
+            int maxIdle,
+            Duration idleTimeout,
+            Duration leaseTimeout,
+            LongSupplier clock) {
+        this.connectors = connectors;
+        this.maxTotal = maxTotal;
+        this.minIdle = Math.min(minIdle, maxIdle);
+        this.maxIdle = maxIdle;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.leaseTimeout = leaseTimeout;
+        this.clock = clock;
+    }
+
+    /**
+     * Lease a connected session for a tenant.
+     *
+     * @return a future completed with the session, or failed with the
+     *         {@link ConnectorException} of a failed connect, or with a
+     *         {@link java.util.concurrent.TimeoutException} if no session was
+     *         returned within the lease timeout
+     */
+    public CompletableFuture<Session> lease(ConnectorType type, String tenantId, Map<String, String> config) {
+        SessionKey key = new SessionKey(type, tenantId, credentialHash(config));
+        Map<String, String> connectConfig = config != null ? Map.copyOf(config) : Map.of();
+        leases.increment();
+        while (true) {
+            KeyPool pool = pools.computeIfAbsent(key, KeyPool::new);
+            List<Session> unhealthy = new ArrayList<>();
+            CompletableFuture<Session> waiter = null;
+            Session session = null;
+            boolean create = false;
+            synchronized (pool) {
+                if (pool.removed) {
+                    continue;
+                }
+                pool.lastLeasedAt = clock.getAsLong();
+                pool.config = connectConfig;
+                while ((session = pool.idle.pollFirst()) != null && !session.connector.isHealthy()) {
+                    pool.total--;
+                    unhealthy.add(session);
+                }
+                if (session == null) {
+                    if (pool.total < maxTotal) {
+                        pool.total++;
+                        create = true;
+                    } else {
+                        waiter = new CompletableFuture<>();
+                        pool.waiters.addLast(waiter);
+                        waits.increment();
+                    }
+                }
+            }
+            unhealthy.forEach(this::discard);
+
+            if (session != null) {
+                session.leased = true;
+                return CompletableFuture.completedFuture(session);
+            }
+            if (create) {
+                return connect(pool, tenantId, connectConfig).thenApply(connected -> {
+                    connected.leased = true;
+                    return connected;
+                });
+            }
+            return waiter.orTimeout(leaseTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Close sessions idle longer than the idle timeout and unhealthy idle ones, top
+     * keys in use back up to the minimum idle sessions, and drop keys that have
+     * been neither leased nor holding sessions for the idle timeout. Run periodically.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        for (KeyPool pool : pools.values()) {
+            List<Session> evicted = new ArrayList<>();
+            int toCreate = 0;
+            synchronized (pool) {
+                boolean inUse = now - pool.lastLeasedAt < idleTimeoutNanos;
+                int keep = inUse ? minIdle : 0;
+                // Oldest returned sessions are at the tail
+                Iterator<Session> oldestFirst = pool.idle.descendingIterator();
+                while (oldestFirst.hasNext()) {
+                    Session session = oldestFirst.next();
+                    boolean expired = now - session.idleSince >= idleTimeoutNanos && pool.idle.size() > keep;
+                    if (expired || !session.connector.isHealthy()) {
+                        oldestFirst.remove();
+                        pool.total--;
+                        evicted.add(session);
+                    }
+                }
+                if (inUse) {
+                    toCreate = Math.max(0, Math.min(minIdle - pool.idle.size() - pool.creating, maxTotal - pool.total));
+                    pool.total += toCreate;
+                    pool.creating += toCreate;
+                } else if (pool.total == 0 && pool.waiters.isEmpty()) {
+                    pool.removed = true;
+                    pools.remove(pool.key, pool);
+                }
+            }
+            evicted.forEach(this::discard);
+            for (int i = 0; i < toCreate; i++) {
+                prewarm(pool);
+            }
+        }
+    }
+
+    /**
+     * Counters and current sessions, for metrics.
+     */
+    public Stats getStats() {
+        int idle = 0;
+        int total = 0;
+        for (KeyPool pool : pools.values()) {
+            synchronized (pool) {
+                idle += pool.idle.size();
+                total += pool.total;
+            }
+        }
+        return new Stats(created.sum(), closed.sum(), leases.sum(), waits.sum(), idle, total - idle);
+    }
+
+    /**
+     * Close all idle sessions and forget all keys; leased sessions are closed when
+     * returned.
+     */
+    public void closeAll() {
+        for (KeyPool pool : pools.values()) {
+            List<Session> idle;
+            synchronized (pool) {
+                pool.removed = true;
+                pools.remove(pool.key, pool);
+                idle = new ArrayList<>(pool.idle);
+                pool.total -= idle.size();
+                pool.idle.clear();
+            }
+            idle.forEach(this::discard);
+        }
+    }
+
+    private CompletableFuture<Session> connect(KeyPool pool, String tenantId, Map<String, String> config) {
+        AsyncConnector connector;
+        try {
+            connector = connectors.apply(pool.key.type());
+        } catch (RuntimeException e) {
+            released(pool);
+            return CompletableFuture.failedFuture(e);
+        }
+        return connector.connectAsync(new Connector.ConnectRequest(tenantId, config))
+            .handle((result, e) -> {
+                if (e != null) {
+                    connector.close();
+                    released(pool);
+                    throw e instanceof CompletionException completion ? completion : new CompletionException(e);
+                }
+                created.increment();
+                logger.debug("Connected session - connector: {}, tenant: {}", pool.key.type(), tenantId);
+                return new Session(pool, connector, result);
+            });
+    }
+
+    private void prewarm(KeyPool pool) {
+        Map<String, String> config;
+        synchronized (pool) {
+            config = pool.config;
+        }
+        connect(pool, pool.key.tenantId(), config).whenComplete((session, e) -> {
+            synchronized (pool) {
+                pool.creating--;
+            }
+            if (session != null) {
+                giveBack(session);
+            } else {
+                logger.warn("Failed to prewarm session - connector: {}, tenant: {}: {}",
+                    pool.key.type(), pool.key.tenantId(), e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Hand a session to the next waiter, or keep it idle. An unhealthy session is
+     * closed and its slot freed.
+     */
+    private void giveBack(Session session) {
+        KeyPool pool = session.pool;
+        if (!session.connector.isHealthy()) {
+            discard(session);
+            released(pool);
+            return;
+        }
+        while (true) {
+            CompletableFuture<Session> waiter;
+            synchronized (pool) {
+                waiter = pool.waiters.pollFirst();
+                if (waiter == null) {
+                    if (pool.removed || pool.idle.size() >= maxIdle) {
+                        pool.total--;
+                        break;
+                    }
+                    session.idleSince = clock.getAsLong();
+                    pool.idle.addFirst(session);
+                    return;
+                }
+            }
+            // Timed out waiters are already completed
+            session.leased = true;
+            if (waiter.complete(session)) {
+                return;
+            }
+            session.leased = false;
+        }
+        discard(session);
+    }
+
+    /**
+     * A session slot was freed without a session to return (connect failed or the
+     * session was discarded); start a session for the next waiter, if any.
+     */
+    private void released(KeyPool pool) {
+        CompletableFuture<Session> waiter;
+        synchronized (pool) {
+            pool.total--;
+            waiter = pool.waiters.pollFirst();
+            if (waiter == null) {
+                return;
+            }
+            pool.total++;
+        }
+        Map<String, String> config;
+        synchronized (pool) {
+            config = pool.config;
+        }
+        connect(pool, pool.key.tenantId(), config).whenComplete((session, e) -> {
+            if (session == null) {
+                waiter.completeExceptionally(e);
+            } else {
+                session.leased = true;
+                if (!waiter.complete(session)) {
+                    session.leased = false;
+                    giveBack(session);
+                }
+            }
+        });
+    }
+
+    private void discard(Session session) {
+        closed.increment();
+        try {
+            session.connector.close();
+        } catch (RuntimeException e) {
+            logger.warn("Error closing connector session", e);
+        }
+    }
+
+    /**
+     * Hex SHA-256 of the connection config, in key order.
+     */
+    static String credentialHash(Map<String, String> config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (config != null) {
+                for (Map.Entry<String, String> entry : new TreeMap<>(config).entrySet()) {
+                    digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '=');
+                    digest.update(String.valueOf(entry.getValue()).getBytes(StandardCharsets.UTF_8));
+                    digest.update((byte) '\n');
+                }
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record SessionKey(ConnectorType type, String tenantId, String credentialHash) {}
+
+    private static final class KeyPool {
+        final SessionKey key;
+        // Most recently returned first
+        final ArrayDeque<Session> idle = new ArrayDeque<>();
+        final ArrayDeque<CompletableFuture<Session>> waiters = new ArrayDeque<>();
+        // Sessions leased, idle or being created
+        int total;
+        int creating;
+        long lastLeasedAt;
+        // Connection config of the key, for sessions started without a lease
+        Map<String, String> config;
+        // Set once dropped from the map; lease() then creates a new pool
+        boolean removed;
+
+        KeyPool(SessionKey key) {
+            this.key = key;
+        }
+    }
+
+    /**
+     * A connected connector leased from the pool. Close it to return it.
+     */
+    public final class Session implements AutoCloseable {
+        private final KeyPool pool;
+        private final AsyncConnector connector;
+        private final Connector.ConnectResult connectResult;
+        private volatile boolean leased;
+        private long idleSince;
+
+        private Session(KeyPool pool, AsyncConnector connector, Connector.ConnectResult connectResult) {
+            this.pool = pool;
+            this.connector = connector;
+            this.connectResult = connectResult;
+        }
+
+        public AsyncConnector connector() {
+            return connector;
+        }
+
+        /**
+         * Result of the session's connect, with the source's capabilities.
+         */
+        public Connector.ConnectResult connectResult() {
+            return connectResult;
+        }
+
+        /**
+         * Return the session to the pool.
+         */
+        @Override
+        public void close() {
+            if (release()) {
+                giveBack(this);
+            }
+        }
+
+        /**
+         * Close the session instead of returning it, after a failure that may have
+         * left it unusable (e.g. expired credentials).
+         */
+        public void invalidate() {
+            if (release()) {
+                discard(this);
+                released(pool);
+            }
+        }
+
+        private synchronized boolean release() {
+            if (!leased) {
+                return false;
+            }
+            leased = false;
+            return true;
+        }
+    }
+
+    public record Stats(long created, long closed, long leases, long waits, int idle, int leased) {}
+}
@@ -0,0 +1,50 @@
+package com.thp.sqlsaas.connector;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Simulated source latency for mock connectors, so behaviour under load (e.g. the
+ * {@link AdaptiveConcurrencyLimiter}) can be exercised without a real upstream.
+ */
+@FunctionalInterface
+public interface LatencyModel {
+
+    /**
+     * No added latency; the default for mock connectors.
+     */
+    LatencyModel NONE = (resource, inFlight) -> Duration.ZERO;
+
+    /**
+     * Latency of one scan.
+     *
+     * @param resource the scanned resource
+     * @param inFlight scans running on the connector, including this one
+     */
+    Duration latency(String resource, int inFlight);
+
+    /**
+     * A source that answers in {@code base} up to {@code capacity} concurrent scans
+     * and degrades quadratically beyond it, as real APIs do once they queue requests.
+     */
+    static LatencyModel congested(Duration base, int capacity) {
+        return (resource, inFlight) -> {
+            if (inFlight <= capacity) {
+                return base;
+            }
+            double overload = (double) inFlight / capacity;
+            return Duration.ofNanos((long) (base.toNanos() * overload * overload));
+        };
+    }
+
+    /**
+     * A source that answers in {@code base} plus a uniformly random share of
+     * {@code jitter}, regardless of load.
+     */
+    static LatencyModel jittered(Duration base, Duration jitter) {
+        long jitterNanos = jitter.toNanos();
+        return (resource, inFlight) -> jitterNanos <= 0
+            ? base
+            : base.plusNanos(ThreadLocalRandom.current().nextLong(jitterNanos + 1));
+    }
+}
@@ -0,0 +1,110 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory evaluation of {@link Connector.Predicate}s against rows.
+ *
+ * This is the evaluation used by {@link BaseConnector}, shared so that rows
+ * held elsewhere (e.g. cached results) are filtered with exactly the same semantics.
+ */
+public final class PredicateEvaluator {
+
+    private PredicateEvaluator() {
+    }
+
+    /**
+     * Check if a row matches all predicates.
+     */
+    public static boolean matchesAll(Map<String, Object> row, List<Connector.Predicate> predicates) {
+        for (Connector.Predicate predicate : predicates) {
+            if (!matches(row, predicate)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check if a row matches a single predicate. A missing or null value never matches.
+     */
+    public static boolean matches(Map<String, Object> row, Connector.Predicate predicate) {
+        Object value = row.get(predicate.field());
+        Object predicateValue = predicate.value();
+
+        if (value == null) {
+            return false;
+        }
+
+        return switch (predicate.op().toUpperCase()) {
+            case "=" -> value.equals(predicateValue);
+            case "!=" -> !value.equals(predicateValue);
+            case ">" -> compare(value, predicateValue) > 0;
+            case "<" -> compare(value, predicateValue) < 0;
+            case ">=" -> compare(value, predicateValue) >= 0;
+            case "<=" -> compare(value, predicateValue) <= 0;
+            case "IN" -> predicateValue instanceof Collection &&
+                        ((Collection<?>) predicateValue).contains(value);
+            case "LIKE" -> like(value.toString(), predicateValue.toString());
+            default -> false;
+        };
+    }
+
+    /**
+     * SQL LIKE, where {@code %} matches any run of characters and {@code _} any one
+     * character. A pattern without wildcards matches values that contain it.
+     */
+    public static boolean like(String value, String pattern) {
+        if (pattern.indexOf('%') < 0 && pattern.indexOf('_') < 0) {
+            return value.contains(pattern);
+        }
+        // Greedy match, backtracking to the last % on a mismatch
+        int v = 0;
+        int p = 0;
+        int starP = -1;
+        int starV = 0;
+        while (v < value.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '_' || pattern.charAt(p) == value.charAt(v))) {
+                v++;
+                p++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '%') {
+                starP = p++;
+                starV = v;
+            } else if (starP >= 0) {
+                p = starP + 1;
+                v = ++starV;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '%') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * Whether a LIKE pattern is a prefix match, {@code 'abc%'}: a single trailing
+     * {@code %} and no other wildcard.
+     */
+    public static boolean isPrefixPattern(Object pattern) {
+        if (!(pattern instanceof String text) || text.length() < 2 || !text.endsWith("%")) {
+            return false;
+        }
+        String prefix = text.substring(0, text.length() - 1);
+        return prefix.indexOf('%') < 0 && prefix.indexOf('_') < 0;
+    }
+
+    /**
+     * Compare two values (handles numbers and strings).
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static int compare(Object v1, Object v2) {
+        if (v1 instanceof Comparable && v2 instanceof Comparable) {
+            return ((Comparable) v1).compareTo(v2);
+        }
+        return v1.toString().compareTo(v2.toString());
+    }
+}
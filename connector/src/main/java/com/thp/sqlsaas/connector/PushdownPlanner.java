@@ -0,0 +1,60 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Splits the predicates of a scan into those the connector evaluates at the source,
+ * as declared by its {@link Connector.CapabilityDescriptor}, and the residual ones
+ * the query engine evaluates over the returned rows (with {@link PredicateEvaluator}).
+ */
+public final class PushdownPlanner {
+
+    private PushdownPlanner() {
+    }
+
+    /**
+     * Split predicates on a resource by the connector's capabilities. Without a
+     * descriptor nothing is pushed down.
+     */
+    public static Split split(
+            Connector.CapabilityDescriptor capabilities,
+            String resource,
+            List<Connector.Predicate> predicates) {
+        List<Connector.Predicate> pushed = new ArrayList<>();
+        List<Connector.Predicate> residual = new ArrayList<>();
+        if (predicates != null) {
+            for (Connector.Predicate predicate : predicates) {
+                if (capabilities != null && capabilities.canPushDown(resource, predicate)) {
+                    pushed.add(predicate);
+                } else {
+                    residual.add(predicate);
+                }
+            }
+        }
+        return new Split(List.copyOf(pushed), List.copyOf(residual));
+    }
+
+    /**
+     * @param pushed predicates sent to the connector
+     * @param residual predicates evaluated by the engine
+     */
+    public record Split(List<Connector.Predicate> pushed, List<Connector.Predicate> residual) {
+
+        public boolean hasResidual() {
+            return !residual.isEmpty();
+        }
+
+        /**
+         * Fields the residual predicates read, which a scan must return even when
+         * they are not selected.
+         */
+        public Set<String> residualFields() {
+            Set<String> fields = new LinkedHashSet<>();
+            residual.forEach(predicate -> fields.add(predicate.field()));
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.thp.sqlsaas.connector;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull-based stream of the rows of one scan, opened with {@link Connector#openScan}.
+ *
+ * Rows are produced only as batches are requested, so the consumer sets the pace
+ * (its backpressure is simply not asking for more) and a scan abandoned early reads
+ * no further from the source. Close the cursor when done, whether or not it was
+ * drained.
+ */
+public interface ScanCursor extends AutoCloseable {
+
+    /**
+     * Next rows of the scan, at most {@code maxRows} of them.
+     *
+     * @return the rows; empty once the scan is exhausted
+     */
+    List<Map<String, Object>> nextBatch(int maxRows) throws ConnectorException;
+
+    /**
+     * Token for the page after this scan, or null if there is none. Known once the
+     * cursor is exhausted.
+     */
+    String nextPageToken();
+
+    /**
+     * Age of the data served, in milliseconds.
+     */
+    long freshnessMs();
+
+    /**
+     * Rows read from the source and dropped by the scan's predicates so far.
+     */
+    default long rowsPruned() {
+        return 0L;
+    }
+
+    @Override
+    void close();
+
+    /**
+     * A cursor over an already materialized page.
+     */
+    static ScanCursor of(Connector.RowPage page) {
+        return new ScanCursor() {
+            private int position;
+
+            @Override
+            public List<Map<String, Object>> nextBatch(int maxRows) {
+                List<Map<String, Object>> rows = page.rows();
+                int end = Math.min(rows.size(), position + maxRows);
+                List<Map<String, Object>> batch = rows.subList(position, end);
+                position = end;
+                return batch;
+            }
+
+            @Override
+            public String nextPageToken() {
+                return page.nextPageToken();
+            }
+
+            @Override
+            public long freshnessMs() {
+                return page.freshnessMs();
+            }
+
+            @Override
+            public long rowsPruned() {
+                return page.rowsPruned();
+            }
+
+            @Override
+            public void close() {
+                position = page.rows().size();
+            }
+        };
+    }
+}
@@ -2,6 +2,7 @@ package com.thp.sqlsaas.connector.impl;
 
 import com.thp.sqlsaas.connector.BaseConnector;
 import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.connector.LatencyModel;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -21,13 +22,37 @@ public class GitHubMockConnector extends BaseConnector {
     private static final String CONNECTOR_ID = "github";
     private static final String DISPLAY_NAME = "GitHub";
     
-    // Mock data storage
-    private Map<String, List<Map<String, Object>>> mockData;
+    private static final List<String> LABELS = List.of(
+        "bug", "enhancement", "documentation", "ci", "security", "refactoring");
+    private static final List<String> LANGUAGES = List.of(
+        "Java", "Python", "JavaScript", "Go", "TypeScript", "Rust");
+    private static final List<String> PULL_STATES = List.of("merged", "open", "closed");
+    
+    // Sample data, built once and shared by every instance
+    private static final MockDataset SAMPLE_DATA = sampleData();
+    
+    private final MockDataset dataset;
     
     public GitHubMockConnector() {
-        this.mockData = new HashMap<>();
-        // Initialize mock data immediately so it's available for tests
-        initializeMockData();
+        this.dataset = SAMPLE_DATA;
+    }
+    
+    /**
+     * Mock connector whose scans take the time given by the latency model.
+     */
+    public GitHubMockConnector(LatencyModel latencyModel) {
+        this();
+        setLatencyModel(latencyModel);
+    }
+    
+    /**
+     * Mock connector serving generated issues, pulls and repositories, with the
+     * generator's latency. Issues and pulls have {@code generator.rows()} rows, over
+     * the dimensions "repository" (default 100 values) and "user" (default 1000).
+     */
+    public GitHubMockConnector(SyntheticDataGenerator generator) {
+        this.dataset = synthetic(generator);
+        setLatencyModel(generator.latencyModel());
     }
     
     @Override
@@ -42,9 +67,6 @@ public class GitHubMockConnector extends BaseConnector {
     
     @Override
     protected Map<String, Object> performConnect(ConnectRequest req) throws Exception {
-        // Initialize mock data
-        initializeMockData();
-        
         // In a real implementation, this would:
         // 1. Validate OAuth token
         // 2. Exchange token for API credentials
@@ -79,11 +101,20 @@ public class GitHubMockConnector extends BaseConnector {
         
         // Define which fields support predicate pushdown
         Map<String, Set<String>> pushdownableFields = new HashMap<>();
-        pushdownableFields.put("issues", Set.of("state", "repository", "assignee", "labels"));
-        pushdownableFields.put("pulls", Set.of("state", "repository", "draft"));
+        pushdownableFields.put("issues", Set.of("state", "repository", "assignee", "labels", "updated_at"));
+        pushdownableFields.put("pulls", Set.of("state", "repository", "draft", "updated_at"));
         pushdownableFields.put("repositories", Set.of("language", "private"));
         
-        return new CapabilityDescriptor(resources, columns, pushdownableFields);
+        // Operators beyond = and IN, as the search API supports them
+        Map<String, Set<String>> issueAndPullOperators = Map.of(
+            "repository", Set.of("=", "IN", CapabilityDescriptor.LIKE_PREFIX),
+            "updated_at", Set.of(">=", ">", "<=", "<")
+        );
+        Map<String, Map<String, Set<String>>> pushdownOperators = new HashMap<>();
+        pushdownOperators.put("issues", issueAndPullOperators);
+        pushdownOperators.put("pulls", issueAndPullOperators);
+        
+        return new CapabilityDescriptor(resources, columns, pushdownableFields, pushdownOperators);
     }
     
     @Override
@@ -99,19 +130,21 @@ public class GitHubMockConnector extends BaseConnector {
     
     @Override
     protected List<Map<String, Object>> fetchAllRows(String resource) throws Exception {
-        List<Map<String, Object>> rows = mockData.get(resource);
-        if (rows == null) {
-            throw new IllegalArgumentException("Unknown resource: " + resource);
-        }
-        // Return a copy to avoid external modification
-        return new ArrayList<>(rows);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        dataset.scan(resource).forEachRemaining(rows::add);
+        return rows;
+    }
+    
+    @Override
+    protected Iterator<Map<String, Object>> scanRows(String resource) throws Exception {
+        return dataset.scan(resource);
     }
     
     /**
-     * Initialize mock data for testing.
+     * Sample data for tests and demos.
      */
-    private void initializeMockData() {
-        mockData = new HashMap<>();
+    private static MockDataset sampleData() {
+        Map<String, List<Map<String, Object>>> mockData = new HashMap<>();
         
         // Mock Issues
         List<Map<String, Object>> issues = new ArrayList<>();
@@ -141,9 +174,67 @@ public class GitHubMockConnector extends BaseConnector {
         repos.add(createRepository(1002, "repo2", "org/repo2", "Documentation site", false, "Python", 89, 12));
         repos.add(createRepository(1003, "personal-project", "user/personal-project", "Personal experiments", true, "JavaScript", 5, 0));
         mockData.put("repositories", repos);
+        
+        return MockDataset.of(mockData);
+    }
+    
+    /**
+     * Generated data; numbers and ids follow the row number.
+     */
+    private static MockDataset synthetic(SyntheticDataGenerator generator) {
+        int repositories = generator.cardinality("repository", 100);
+        int users = generator.cardinality("user", 1000);
+        
+        Map<String, SyntheticDataGenerator.Resource> resources = new HashMap<>();
+        resources.put("issues", new SyntheticDataGenerator.Resource(SyntheticDataGenerator::rows, (n, draw, issue) -> {
+            int number = n + 1;
+            String state = draw.chance(0.3) ? "closed" : "open";
+            String assignee = draw.chance(0.2) ? null : "user_" + draw.index("user", users);
+            issue.put("id", "issue_" + number);
+            issue.put("number", number);
+            issue.put("repository", "org/repo" + draw.index("repository", repositories));
+            issue.put("title", "Issue #" + number);
+            issue.put("state", state);
+            issue.put("labels", List.of(draw.pick(LABELS)));
+            issue.put("assignee", assignee);
+            issue.put("author", "user_" + draw.index("user", users));
+            issue.put("body", "This is the body of issue #" + number);
+            issue.put("created_at", draw.daysAgo(365));
+            issue.put("updated_at", draw.daysAgo(30));
+            issue.put("closed_at", state.equals("closed") ? draw.daysAgo(7) : null);
+        }));
+        resources.put("pulls", new SyntheticDataGenerator.Resource(SyntheticDataGenerator::rows, (n, draw, pr) -> {
+            int number = n + 1;
+            String state = draw.pick(PULL_STATES);
+            pr.put("id", "pr_" + number);
+            pr.put("number", number);
+            pr.put("repository", "org/repo" + draw.index("repository", repositories));
+            pr.put("title", "Pull request #" + number);
+            pr.put("state", state);
+            pr.put("head_ref", "feature/change-" + number);
+            pr.put("base_ref", draw.chance(0.9) ? "main" : "develop");
+            pr.put("draft", draw.chance(0.1));
+            pr.put("author", "user_" + draw.index("user", users));
+            pr.put("created_at", draw.daysAgo(365));
+            pr.put("updated_at", draw.daysAgo(30));
+            pr.put("merged_at", state.equals("merged") ? draw.daysAgo(7) : null);
+        }));
+        resources.put("repositories", new SyntheticDataGenerator.Resource(g -> repositories, (n, draw, repo) -> {
+            repo.put("id", "repo_" + n);
+            repo.put("name", "repo" + n);
+            repo.put("full_name", "org/repo" + n);
+            repo.put("description", "Repository " + n);
+            repo.put("private", draw.chance(0.3));
+            repo.put("language", draw.pick(LANGUAGES));
+            repo.put("stargazers_count", draw.uniform(1000));
+            repo.put("forks_count", draw.uniform(200));
+            repo.put("created_at", draw.daysAgo(5 * 365));
+            repo.put("updated_at", draw.daysAgo(30));
+        }));
+        return generator.dataset(resources);
     }
     
-    private Map<String, Object> createIssue(
+    private static Map<String, Object> createIssue(
             int number, String repo, String title, String state, 
             String label, String assignee) {
         
@@ -164,7 +255,7 @@ public class GitHubMockConnector extends BaseConnector {
         return issue;
     }
     
-    private Map<String, Object> createPullRequest(
+    private static Map<String, Object> createPullRequest(
             int number, String repo, String title, String state,
             String headRef, String baseRef, boolean draft, String author) {
         
@@ -185,7 +276,7 @@ public class GitHubMockConnector extends BaseConnector {
         return pr;
     }
     
-    private Map<String, Object> createRepository(
+    private static Map<String, Object> createRepository(
             int id, String name, String fullName, String description,
             boolean isPrivate, String language, int stars, int forks) {
         
@@ -204,7 +295,7 @@ public class GitHubMockConnector extends BaseConnector {
         return repo;
     }
     
-    private String getCurrentTimestamp(int daysOffset) {
+    private static String getCurrentTimestamp(int daysOffset) {
         LocalDateTime time = LocalDateTime.now().plusDays(daysOffset);
         return time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
@@ -2,6 +2,7 @@ package com.thp.sqlsaas.connector.impl;
 
 import com.thp.sqlsaas.connector.BaseConnector;
 import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.connector.LatencyModel;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
@@ -21,11 +22,37 @@ public class JiraMockConnector extends BaseConnector {
     private static final String CONNECTOR_ID = "jira";
     private static final String DISPLAY_NAME = "Jira";
     
-    // Mock data storage
-    private Map<String, List<Map<String, Object>>> mockData;
+    private static final List<String> ISSUE_TYPES = List.of("Task", "Bug", "Story", "Epic");
+    private static final List<String> STATUSES = List.of("Done", "In Progress", "To Do");
+    private static final List<String> PRIORITIES = List.of("Medium", "High", "Low", "Critical");
+    private static final List<Integer> STORY_POINTS = List.of(3, 5, 1, 8, 2, 13);
+    private static final List<String> CATEGORIES = List.of("Software", "IT", "Business");
+    
+    // Sample data, built once and shared by every instance
+    private static final MockDataset SAMPLE_DATA = sampleData();
+    
+    private final MockDataset dataset;
     
     public JiraMockConnector() {
-        this.mockData = new HashMap<>();
+        this.dataset = SAMPLE_DATA;
+    }
+    
+    /**
+     * Mock connector whose scans take the time given by the latency model.
+     */
+    public JiraMockConnector(LatencyModel latencyModel) {
+        this();
+        setLatencyModel(latencyModel);
+    }
+    
+    /**
+     * Mock connector serving generated issues, projects and users, with the
+     * generator's latency. Issues have {@code generator.rows()} rows, over the
+     * dimensions "project" (default 20 values) and "user" (default 1000).
+     */
+    public JiraMockConnector(SyntheticDataGenerator generator) {
+        this.dataset = synthetic(generator);
+        setLatencyModel(generator.latencyModel());
     }
     
     @Override
@@ -40,9 +67,6 @@ public class JiraMockConnector extends BaseConnector {
     
     @Override
     protected Map<String, Object> performConnect(ConnectRequest req) throws Exception {
-        // Initialize mock data
-        initializeMockData();
-        
         // In a real implementation, this would:
         // 1. Validate API token or OAuth credentials
         // 2. Test connection to Jira instance
@@ -78,11 +102,20 @@ public class JiraMockConnector extends BaseConnector {
         
         // Define which fields support predicate pushdown
         Map<String, Set<String>> pushdownableFields = new HashMap<>();
-        pushdownableFields.put("issues", Set.of("status", "project", "assignee", "priority", "issue_type"));
+        pushdownableFields.put("issues", Set.of("status", "project", "assignee", "priority", "issue_type",
+            "key", "updated_at"));
         pushdownableFields.put("projects", Set.of("category", "lead"));
         pushdownableFields.put("users", Set.of("active", "account_type"));
         
-        return new CapabilityDescriptor(resources, columns, pushdownableFields);
+        // Operators beyond = and IN, as JQL supports them
+        Map<String, Map<String, Set<String>>> pushdownOperators = new HashMap<>();
+        pushdownOperators.put("issues", Map.of(
+            "status", Set.of("=", "!=", "IN"),
+            "key", Set.of("=", "IN", CapabilityDescriptor.LIKE_PREFIX),
+            "updated_at", Set.of(">=", ">", "<=", "<")
+        ));
+        
+        return new CapabilityDescriptor(resources, columns, pushdownableFields, pushdownOperators);
     }
     
     @Override
@@ -94,19 +127,21 @@ public class JiraMockConnector extends BaseConnector {
     
     @Override
     protected List<Map<String, Object>> fetchAllRows(String resource) throws Exception {
-        List<Map<String, Object>> rows = mockData.get(resource);
-        if (rows == null) {
-            throw new IllegalArgumentException("Unknown resource: " + resource);
-        }
-        // Return a copy to avoid external modification
-        return new ArrayList<>(rows);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        dataset.scan(resource).forEachRemaining(rows::add);
+        return rows;
+    }
+    
+    @Override
+    protected Iterator<Map<String, Object>> scanRows(String resource) throws Exception {
+        return dataset.scan(resource);
     }
     
     /**
-     * Initialize mock data for testing.
+     * Sample data for tests and demos.
      */
-    private void initializeMockData() {
-        mockData = new HashMap<>();
+    private static MockDataset sampleData() {
+        Map<String, List<Map<String, Object>>> mockData = new HashMap<>();
         
         // Mock Issues
         List<Map<String, Object>> issues = new ArrayList<>();
@@ -150,9 +185,63 @@ public class JiraMockConnector extends BaseConnector {
         users.add(createUser("alice_admin", "alice.admin@company.com", "Alice Admin", "atlassian", true));
         users.add(createUser("old_user", "old.user@company.com", "Old User", "atlassian", false));
         mockData.put("users", users);
+        
+        return MockDataset.of(mockData);
+    }
+    
+    /**
+     * Generated data; issue keys, project keys and user ids follow the row number.
+     */
+    private static MockDataset synthetic(SyntheticDataGenerator generator) {
+        int projects = generator.cardinality("project", 20);
+        int users = generator.cardinality("user", 1000);
+        
+        Map<String, SyntheticDataGenerator.Resource> resources = new HashMap<>();
+        resources.put("issues", new SyntheticDataGenerator.Resource(SyntheticDataGenerator::rows, (n, draw, issue) -> {
+            String project = "PROJ" + (draw.index("project", projects) + 1);
+            String key = project + "-" + (n + 1);
+            String issueType = draw.pick(ISSUE_TYPES);
+            String status = draw.pick(STATUSES);
+            String priority = draw.pick(PRIORITIES);
+            issue.put("id", key.replace("-", "_"));
+            issue.put("key", key);
+            issue.put("project", project);
+            issue.put("issue_type", issueType);
+            issue.put("summary", issueType + " " + key);
+            issue.put("description", "Detailed description for " + key);
+            issue.put("status", status);
+            issue.put("priority", priority);
+            issue.put("assignee", "user_" + draw.index("user", users));
+            issue.put("reporter", "user_" + draw.index("user", users));
+            issue.put("story_points", draw.pick(STORY_POINTS));
+            issue.put("sprint", "Sprint " + (24 - draw.uniform(12)));
+            issue.put("labels", generateLabels(issueType, priority));
+            issue.put("created_at", draw.daysAgo(365));
+            issue.put("updated_at", draw.daysAgo(30));
+            issue.put("resolved_at", status.equals("Done") ? draw.daysAgo(7) : null);
+        }));
+        resources.put("projects", new SyntheticDataGenerator.Resource(g -> projects, (n, draw, project) -> {
+            String key = "PROJ" + (n + 1);
+            project.put("id", "project_" + key.toLowerCase());
+            project.put("key", key);
+            project.put("name", "Project " + (n + 1));
+            project.put("description", "Project " + key);
+            project.put("lead", "user_" + draw.index("user", users));
+            project.put("category", draw.pick(CATEGORIES));
+            project.put("created_at", draw.daysAgo(5 * 365));
+            project.put("updated_at", draw.daysAgo(30));
+        }));
+        resources.put("users", new SyntheticDataGenerator.Resource(g -> users, (n, draw, user) -> {
+            user.put("id", "user_" + n);
+            user.put("email", "user_" + n + "@company.com");
+            user.put("display_name", "User " + n);
+            user.put("account_type", draw.chance(0.95) ? "atlassian" : "app");
+            user.put("active", draw.chance(0.9));
+        }));
+        return generator.dataset(resources);
     }
     
-    private Map<String, Object> createIssue(
+    private static Map<String, Object> createIssue(
             String key, String project, String issueType, String summary,
             String status, String priority, String assignee, String reporter,
             int storyPoints, String sprint) {
@@ -178,7 +267,7 @@ public class JiraMockConnector extends BaseConnector {
         return issue;
     }
     
-    private List<String> generateLabels(String issueType, String priority) {
+    private static List<String> generateLabels(String issueType, String priority) {
         List<String> labels = new ArrayList<>();
         labels.add(issueType.toLowerCase());
         if (priority.equals("Critical") || priority.equals("High")) {
@@ -187,7 +276,7 @@ public class JiraMockConnector extends BaseConnector {
         return labels;
     }
     
-    private Map<String, Object> createProject(
+    private static Map<String, Object> createProject(
             String key, String name, String description, String lead, String category) {
         
         Map<String, Object> project = new HashMap<>();
@@ -203,7 +292,7 @@ public class JiraMockConnector extends BaseConnector {
         return project;
     }
     
-    private Map<String, Object> createUser(
+    private static Map<String, Object> createUser(
             String id, String email, String displayName, String accountType, boolean active) {
         
         Map<String, Object> user = new HashMap<>();
@@ -216,7 +305,7 @@ public class JiraMockConnector extends BaseConnector {
         return user;
     }
     
-    private String getCurrentTimestamp(int daysOffset) {
+    private static String getCurrentTimestamp(int daysOffset) {
         LocalDateTime time = LocalDateTime.now().plusDays(daysOffset);
         return time.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
     }
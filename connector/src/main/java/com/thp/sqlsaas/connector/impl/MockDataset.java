@@ -0,0 +1,48 @@
+package com.thp.sqlsaas.connector.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rows served by a mock connector, per resource. Datasets are read-only, so one
+ * instance is shared by every connector (and session) that serves it.
+ */
+@FunctionalInterface
+public interface MockDataset {
+
+    /**
+     * Rows of a resource in order, produced as the iterator advances.
+     *
+     * @throws IllegalArgumentException if the resource is unknown
+     */
+    Iterator<Map<String, Object>> scan(String resource);
+
+    /**
+     * A dataset over fixed rows, deep copied into unmodifiable lists and maps.
+     */
+    static MockDataset of(Map<String, List<Map<String, Object>>> rowsByResource) {
+        Map<String, List<Map<String, Object>>> frozen = new HashMap<>();
+        rowsByResource.forEach((resource, rows) -> {
+            List<Map<String, Object>> copy = new ArrayList<>(rows.size());
+            for (Map<String, Object> row : rows) {
+                // Rows may hold nulls, which Map.copyOf rejects
+                Map<String, Object> frozenRow = new HashMap<>();
+                row.forEach((column, value) -> frozenRow.put(column,
+                    value instanceof List<?> list ? Collections.unmodifiableList(new ArrayList<>(list)) : value));
+                copy.add(Collections.unmodifiableMap(frozenRow));
+            }
+            frozen.put(resource, Collections.unmodifiableList(copy));
+        });
+        return resource -> {
+            List<Map<String, Object>> rows = frozen.get(resource);
+            if (rows == null) {
+                throw new IllegalArgumentException("Unknown resource: " + resource);
+            }
+            return rows.iterator();
+        };
+    }
+}
@@ -0,0 +1,281 @@
+package com.thp.sqlsaas.connector.impl;
+
+import com.thp.sqlsaas.connector.LatencyModel;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Seeded generator of synthetic mock data, for load testing against large,
+ * realistically skewed datasets without a network.
+ *
+ * Rows are generated while a scan iterates and never stored, so a dataset of
+ * millions of rows costs no memory, and row {@code n} of a resource is the same on
+ * every scan and every run with the same seed. Values are drawn from dimensions
+ * (e.g. repository, user) with a configured cardinality; with skew {@code s} the
+ * k-th value of a dimension is drawn with probability proportional to 1/k^s (Zipf),
+ * so a few repositories and users dominate as they do in real organizations.
+ * Skew 0 draws uniformly.
+ *
+ * Mock connectors take a generator in their constructor, e.g.
+ * {@code new GitHubMockConnector(SyntheticDataGenerator.builder().seed(42).rows(1_000_000).build())}.
+ */
+public class SyntheticDataGenerator {
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ISO_LOCAL_DATE_TIME;
+
+    private final long seed;
+    private final int rows;
+    private final Map<String, Integer> cardinalities;
+    private final double skew;
+    private final Duration latency;
+    private final Duration jitter;
+    private final LocalDateTime now;
+
+    // Cumulative Zipf weights per cardinality, shared by dimensions of the same size
+    private final Map<Integer, double[]> distributions = new ConcurrentHashMap<>();
+
+    private SyntheticDataGenerator(Builder builder) {
+        this.seed = builder.seed;
+        this.rows = builder.rows;
+        this.cardinalities = Map.copyOf(builder.cardinalities);
+        this.skew = builder.skew;
+        this.latency = builder.latency;
+        this.jitter = builder.jitter;
+        this.now = builder.now;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Rows of the main resources of a connector (issues, pulls).
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Cardinality of a dimension, or {@code defaultCardinality} if not configured.
+     */
+    public int cardinality(String dimension, int defaultCardinality) {
+        return cardinalities.getOrDefault(dimension, defaultCardinality);
+    }
+
+    /**
+     * Scan latency: the configured latency plus up to the configured jitter.
+     */
+    public LatencyModel latencyModel() {
+        if (latency.isZero() && jitter.isZero()) {
+            return LatencyModel.NONE;
+        }
+        return LatencyModel.jittered(latency, jitter);
+    }
+
+    /**
+     * A dataset of generated resources.
+     *
+     * @param resources per resource, its row count (given the generator) and the
+     *                  template that builds its n-th row
+     */
+    public MockDataset dataset(Map<String, Resource> resources) {
+        Map<String, Resource> copy = Map.copyOf(resources);
+        return resource -> {
+            Resource spec = copy.get(resource);
+            if (spec == null) {
+                throw new IllegalArgumentException("Unknown resource: " + resource);
+            }
+            return scan(resource, spec.rows().applyAsInt(this), spec.template());
+        };
+    }
+
+    private Iterator<Map<String, Object>> scan(String resource, int count, RowTemplate template) {
+        long resourceSeed = seed * 31 + resource.hashCode();
+        return new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < count;
+            }
+
+            @Override
+            public Map<String, Object> next() {
+                if (next >= count) {
+                    throw new NoSuchElementException();
+                }
+                int rowNumber = next++;
+                Map<String, Object> row = new HashMap<>();
+                template.fill(rowNumber, new Draw(new SplittableRandom(resourceSeed * 1_000_003 + rowNumber)), row);
+                return row;
+            }
+        };
+    }
+
+    /**
+     * Index in [0, cardinality), Zipf distributed with the configured skew.
+     */
+    private int zipf(SplittableRandom random, int cardinality) {
+        if (skew == 0 || cardinality <= 1) {
+            return random.nextInt(Math.max(1, cardinality));
+        }
+        double[] cumulative = distributions.computeIfAbsent(cardinality, this::cumulativeWeights);
+        double u = random.nextDouble() * cumulative[cardinality - 1];
+        int low = 0;
+        int high = cardinality - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] < u) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private double[] cumulativeWeights(int cardinality) {
+        double[] cumulative = new double[cardinality];
+        double sum = 0;
+        for (int k = 0; k < cardinality; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * A generated resource: its row count and how to build a row.
+     */
+    public record Resource(ToIntFunction<SyntheticDataGenerator> rows, RowTemplate template) {}
+
+    /**
+     * Builds the n-th row of a resource from the draws of that row.
+     */
+    @FunctionalInterface
+    public interface RowTemplate {
+        void fill(int rowNumber, Draw draw, Map<String, Object> row);
+    }
+
+    /**
+     * Random draws of one row, reproducible from the seed and row number.
+     */
+    public final class Draw {
+        private final SplittableRandom random;
+
+        private Draw(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Skewed index into a dimension.
+         */
+        public int index(String dimension, int defaultCardinality) {
+            return zipf(random, cardinality(dimension, defaultCardinality));
+        }
+
+        /**
+         * Skewed pick from fixed values; the first values are the most frequent.
+         */
+        public <T> T pick(List<T> values) {
+            return values.get(zipf(random, values.size()));
+        }
+
+        /**
+         * Uniform int in [0, bound).
+         */
+        public int uniform(int bound) {
+            return random.nextInt(bound);
+        }
+
+        public boolean chance(double probability) {
+            return random.nextDouble() < probability;
+        }
+
+        /**
+         * Timestamp up to {@code maxDaysAgo} days before the generator's now.
+         */
+        public String daysAgo(int maxDaysAgo) {
+            return now.minusMinutes(random.nextLong((long) maxDaysAgo * 24 * 60 + 1)).format(TIMESTAMP);
+        }
+    }
+
+    public static final class Builder {
+        private long seed = 42;
+        private int rows = 10_000;
+        private final Map<String, Integer> cardinalities = new HashMap<>();
+        private double skew = 1.0;
+        private Duration latency = Duration.ZERO;
+        private Duration jitter = Duration.ZERO;
+        private LocalDateTime now = LocalDateTime.of(2025, 1, 1, 0, 0);
+
+        private Builder() {
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Rows of the main resources (issues, pulls).
+         */
+        public Builder rows(int rows) {
+            this.rows = rows;
+            return this;
+        }
+
+        /**
+         * Distinct values of a dimension, e.g. {@code cardinality("repository", 500)}.
+         */
+        public Builder cardinality(String dimension, int cardinality) {
+            if (cardinality < 1) {
+                throw new IllegalArgumentException("Cardinality must be positive: " + dimension);
+            }
+            cardinalities.put(dimension, cardinality);
+            return this;
+        }
+
+        /**
+         * Zipf exponent of value frequencies; 0 is uniform, 1 is typical of real data.
+         */
+        public Builder skew(double skew) {
+            if (skew < 0) {
+                throw new IllegalArgumentException("Skew must not be negative: " + skew);
+            }
+            this.skew = skew;
+            return this;
+        }
+
+        /**
+         * Scan latency of the source, plus up to {@code jitter} at random.
+         */
+        public Builder latency(Duration latency, Duration jitter) {
+            this.latency = latency;
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * Reference time of generated timestamps, fixed so data is reproducible.
+         */
+        public Builder now(LocalDateTime now) {
+            this.now = now;
+            return this;
+        }
+
+        public SyntheticDataGenerator build() {
+            return new SyntheticDataGenerator(this);
+        }
+    }
+}
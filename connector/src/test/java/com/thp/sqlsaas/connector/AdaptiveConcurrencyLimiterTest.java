@@ -0,0 +1,197 @@
+package com.thp.sqlsaas.connector;
+
+import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    void testShedsCallsBeyondLimit() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 1.5, 0.2, 600, System::nanoTime);
+
+        // When
+        AdaptiveConcurrencyLimiter.Listener first = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Listener second = limiter.tryAcquire();
+        AdaptiveConcurrencyLimiter.Listener third = limiter.tryAcquire();
+
+        // Then
+        assertNotNull(first);
+        assertNotNull(second);
+        assertNull(third);
+        assertEquals(1, limiter.getRejected());
+
+        first.onIgnore();
+        first.onIgnore(); // Released once only
+        assertEquals(1, limiter.getInFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        // Given: a source answering in 10ms at full load
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(10 * MS, limiter.getLimit());
+        }
+        int healthyLimit = limiter.getLimit();
+        assertTrue(healthyLimit > 20, "limit grows while latency is stable");
+
+        // When: it slows down to 50ms
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(50 * MS, limiter.getLimit());
+        }
+
+        // Then
+        assertTrue(limiter.getLimit() < healthyLimit / 2, "limit was " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 1);
+    }
+
+    @Test
+    void testLimitDoesNotGrowWhileSourceIsUnderused() {
+        // Given
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+
+        // When: few calls in flight at a stable latency
+        for (int i = 0; i < 50; i++) {
+            limiter.onSample(10 * MS, 2);
+        }
+
+        // Then
+        assertEquals(20, limiter.getLimit());
+    }
+
+    @Test
+    void testLimitShrinksWhileSourceIsUnderused() {
+        // Given: callers never run more than 4 calls, well under half the limit
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(10 * MS, 4);
+        }
+
+        // When: the source slows down to 50ms
+        for (int i = 0; i < 20; i++) {
+            limiter.onSample(50 * MS, 4);
+        }
+
+        // Then
+        assertTrue(limiter.getLimit() < 8, "limit was " + limiter.getLimit());
+    }
+
+    @Test
+    void testShedsScansWhenMockSourceDegrades() throws Exception {
+        // Given: a GitHub mock that answers in 2ms up to 4 concurrent scans and degrades beyond
+        GitHubMockConnector github = new GitHubMockConnector(LatencyModel.congested(Duration.ofMillis(2), 4));
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+        Connector connector = new ConcurrencyLimitedConnector(github, ConnectorType.GITHUB, limiter);
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, 10, null, null);
+
+        // Healthy latency learned from sequential scans; a scheduling hiccup may trim the limit slightly
+        for (int i = 0; i < 20; i++) {
+            connector.executeScan(request);
+        }
+        assertTrue(limiter.getLimit() >= 16, "healthy limit was " + limiter.getLimit());
+
+        // When: 16 clients scan concurrently
+        int clients = 16;
+        AtomicInteger shed = new AtomicInteger();
+        AtomicInteger lowestLimit = new AtomicInteger(Integer.MAX_VALUE);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < clients; c++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 15; i++) {
+                    try {
+                        connector.executeScan(request);
+                        lowestLimit.accumulateAndGet(limiter.getLimit(), Math::min);
+                    } catch (ConnectorException e) {
+                        assertEquals(ConnectorException.ErrorCode.CONCURRENCY_LIMIT_EXCEEDED, e.getErrorCode());
+                        shed.incrementAndGet();
+                        Thread.sleep(2);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then: the limit drops well below the client count and excess scans are shed
+        assertTrue(lowestLimit.get() < 12, "lowest limit was " + lowestLimit.get());
+        assertTrue(shed.get() > 0);
+        assertEquals(shed.get(), limiter.getRejected());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void testTimeoutsShrinkTheLimitButCallerErrorsDoNot() throws Exception {
+        // Given: a source failing every scan with the configured error
+        AtomicReference<ConnectorException.ErrorCode> failure = new AtomicReference<>();
+        Connector failing = new Connector() {
+            @Override
+            public ConnectResult connect(ConnectRequest req) {
+                return null;
+            }
+
+            @Override
+            public RowPage executeScan(ExecuteScanRequest req) throws ConnectorException {
+                throw new ConnectorException(failure.get(), "scan failed");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(20, 1, 200, 1.5, 0.2, 600, System::nanoTime);
+        Connector connector = new ConcurrencyLimitedConnector(failing, ConnectorType.GITHUB, limiter);
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, 10, null, null);
+
+        // When: the caller's own errors
+        for (ConnectorException.ErrorCode code : List.of(ConnectorException.ErrorCode.AUTHENTICATION_FAILED,
+                ConnectorException.ErrorCode.CONFIGURATION_ERROR, ConnectorException.ErrorCode.INVALID_REQUEST)) {
+            failure.set(code);
+            assertThrows(ConnectorException.class, () -> connector.executeScan(request));
+        }
+
+        // Then
+        assertEquals(20, limiter.getLimit());
+
+        // When: the source times out or is unavailable, on either scan path
+        failure.set(ConnectorException.ErrorCode.SOURCE_TIMEOUT);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConnectorException.class, () -> connector.executeScan(request));
+        }
+        failure.set(ConnectorException.ErrorCode.SOURCE_UNAVAILABLE);
+        for (int i = 0; i < 3; i++) {
+            assertThrows(ConnectorException.class, () -> connector.openScan(request));
+        }
+
+        // Then: each drop shrinks the limit by a tenth, 20 * 0.9^6
+        assertEquals(10, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
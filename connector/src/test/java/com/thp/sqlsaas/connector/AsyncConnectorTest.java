@@ -0,0 +1,87 @@
+package com.thp.sqlsaas.connector;
+
+import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncConnectorTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "connector-test"));
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testBlockingConnectorRunsOnExecutor() throws Exception {
+        // Given
+        AsyncConnector connector = AsyncConnector.adapt(new ThreadRecordingConnector(), executor);
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, 10, null, null);
+
+        // When
+        Connector.RowPage page = connector.connectAsync(new Connector.ConnectRequest("test-tenant", Map.of()))
+                .thenCompose(connected -> connector.executeScanAsync(request))
+                .get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertEquals("connector-test", page.rows().get(0).get("thread"));
+    }
+
+    @Test
+    void testFailureCompletesWithConnectorException() {
+        // Given: not connected
+        AsyncConnector connector = AsyncConnector.adapt(new GitHubMockConnector(), executor);
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, 10, null, null);
+
+        // When
+        CompletableFuture<Connector.RowPage> scan = connector.executeScanAsync(request);
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> scan.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(ConnectorException.class, e.getCause());
+        assertEquals(ConnectorException.ErrorCode.CONFIGURATION_ERROR,
+                ((ConnectorException) e.getCause()).getErrorCode());
+    }
+
+    @Test
+    void testAsyncConnectorIsNotWrapped() {
+        // Given
+        AsyncConnector connector = AsyncConnector.adapt(new GitHubMockConnector(), executor);
+
+        // When / Then
+        assertSame(connector, AsyncConnector.adapt(connector, executor));
+    }
+
+    /**
+     * Blocking connector whose rows name the thread that produced them.
+     */
+    private static class ThreadRecordingConnector implements Connector {
+        @Override
+        public ConnectResult connect(ConnectRequest req) {
+            return new ConnectResult(null, List.of(), Map.of());
+        }
+
+        @Override
+        public RowPage executeScan(ExecuteScanRequest req) {
+            return new RowPage(List.of(Map.of("thread", Thread.currentThread().getName())), null, 0L);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
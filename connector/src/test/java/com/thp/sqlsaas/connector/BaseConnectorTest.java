@@ -0,0 +1,151 @@
+package com.thp.sqlsaas.connector;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaseConnectorTest {
+
+    private static final int SOURCE_ROWS = 1_000_000;
+
+    private CountingConnector connector;
+
+    @BeforeEach
+    void setUp() throws ConnectorException {
+        connector = new CountingConnector();
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+    }
+
+    @Test
+    void testLimitReadsOnlyThePage() throws ConnectorException {
+        // Given
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "events", null, null, 10, null, null);
+
+        // When
+        Connector.RowPage result = connector.executeScan(request);
+
+        // Then: the page plus one row to detect the next page
+        assertEquals(10, result.rows().size());
+        assertEquals("10", result.nextPageToken());
+        assertEquals(11, connector.rowsRead);
+    }
+
+    @Test
+    void testPredicatesAndProjectionAppliedAsRowsFlow() throws ConnectorException {
+        // Given: every 10th row is open
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant",
+                "events",
+                List.of("id"),
+                List.of(new Connector.Predicate("state", "=", "open")),
+                5,
+                "5",
+                null
+        );
+
+        // When
+        Connector.RowPage result = connector.executeScan(request);
+
+        // Then: rows 50..90 after skipping five matches, read up to the sixth match after them
+        assertEquals(List.of(50, 60, 70, 80, 90), result.rows().stream().map(row -> row.get("id")).toList());
+        assertEquals(Set.of("id"), result.rows().get(0).keySet());
+        assertEquals("10", result.nextPageToken());
+        assertEquals(101, connector.rowsRead);
+        assertEquals(90, result.rowsPruned());
+    }
+
+    @Test
+    void testCursorReadsOnlyRequestedBatches() throws ConnectorException {
+        // Given
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "events", null, null, SOURCE_ROWS, null, null);
+
+        // When
+        try (ScanCursor cursor = connector.openScan(request)) {
+            List<Map<String, Object>> first = cursor.nextBatch(100);
+            List<Map<String, Object>> second = cursor.nextBatch(100);
+
+            // Then
+            assertEquals(0, first.get(0).get("id"));
+            assertEquals(100, second.get(0).get("id"));
+            assertEquals(200, connector.rowsRead);
+        }
+
+        // Abandoned scans read nothing more
+        assertEquals(200, connector.rowsRead);
+    }
+
+    @Test
+    void testLastPageHasNoNextPageToken() throws ConnectorException {
+        // Given
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "events", null, null, 10, String.valueOf(SOURCE_ROWS - 4), null);
+
+        // When
+        Connector.RowPage result = connector.executeScan(request);
+
+        // Then
+        assertEquals(4, result.rows().size());
+        assertNull(result.nextPageToken());
+    }
+
+    /**
+     * Connector over a large generated resource that counts the rows it produces.
+     */
+    private static class CountingConnector extends BaseConnector {
+        int rowsRead;
+
+        @Override
+        public String getConnectorId() {
+            return "counting";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "Counting";
+        }
+
+        @Override
+        protected Map<String, Object> performConnect(ConnectRequest req) {
+            return Map.of();
+        }
+
+        @Override
+        protected CapabilityDescriptor buildCapabilities() {
+            return new CapabilityDescriptor(Set.of("events"), Map.of(), Map.of());
+        }
+
+        @Override
+        protected List<String> getAllowedResources(ConnectRequest req) {
+            return List.of();
+        }
+
+        @Override
+        protected List<Map<String, Object>> fetchAllRows(String resource) {
+            throw new UnsupportedOperationException("Rows are only scanned");
+        }
+
+        @Override
+        protected Iterator<Map<String, Object>> scanRows(String resource) {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < SOURCE_ROWS;
+                }
+
+                @Override
+                public Map<String, Object> next() {
+                    rowsRead++;
+                    int id = next++;
+                    return Map.of("id", id, "state", id % 10 == 0 ? "open" : "closed");
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.thp.sqlsaas.connector;
+
+import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectorSessionPoolTest {
+
+    private static final Map<String, String> CONFIG = Map.of("token", "secret-1");
+    private static final long MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+    private final AtomicInteger connectorsCreated = new AtomicInteger();
+    private final AtomicLong clock = new AtomicLong();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private ConnectorSessionPool pool(int maxTotal, int minIdle, int maxIdle, Duration leaseTimeout) {
+        return new ConnectorSessionPool(type -> {
+            connectorsCreated.incrementAndGet();
+            return AsyncConnector.adapt(new GitHubMockConnector(), executor);
+        }, maxTotal, minIdle, maxIdle, Duration.ofMinutes(5), leaseTimeout, clock::get);
+    }
+
+    private static ConnectorSessionPool.Session lease(ConnectorSessionPool pool, String tenantId, Map<String, String> config)
+            throws Exception {
+        return pool.lease(ConnectorType.GITHUB, tenantId, config).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testReturnedSessionIsReusedWithoutReconnecting() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(4, 0, 4, Duration.ofSeconds(5));
+        ConnectorSessionPool.Session first = lease(pool, "tenant-a", CONFIG);
+        AsyncConnector connector = first.connector();
+        assertTrue(connector.isHealthy());
+        assertNotNull(first.connectResult().capabilities());
+
+        // When
+        first.close();
+        first.close(); // Returned once only
+        ConnectorSessionPool.Session second = lease(pool, "tenant-a", CONFIG);
+
+        // Then
+        assertSame(connector, second.connector());
+        assertEquals(1, connectorsCreated.get());
+        assertEquals(1, pool.getStats().created());
+        assertEquals(1, pool.getStats().leased());
+    }
+
+    @Test
+    void testSessionsAreSeparatedByTenantAndCredentials() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(4, 0, 4, Duration.ofSeconds(5));
+        lease(pool, "tenant-a", CONFIG).close();
+
+        // When
+        ConnectorSessionPool.Session otherTenant = lease(pool, "tenant-b", CONFIG);
+        ConnectorSessionPool.Session otherCredentials = lease(pool, "tenant-a", Map.of("token", "secret-2"));
+
+        // Then
+        assertNotSame(otherTenant.connector(), otherCredentials.connector());
+        assertEquals(3, connectorsCreated.get());
+    }
+
+    @Test
+    void testCredentialHashIgnoresEntryOrder() {
+        Map<String, String> ordered = new LinkedHashMap<>();
+        ordered.put("user", "bot");
+        ordered.put("token", "secret-1");
+        Map<String, String> reversed = new LinkedHashMap<>();
+        reversed.put("token", "secret-1");
+        reversed.put("user", "bot");
+
+        assertEquals(ConnectorSessionPool.credentialHash(ordered), ConnectorSessionPool.credentialHash(reversed));
+        assertNotEquals(ConnectorSessionPool.credentialHash(ordered), ConnectorSessionPool.credentialHash(CONFIG));
+        assertFalse(ConnectorSessionPool.credentialHash(CONFIG).contains("secret"));
+    }
+
+    @Test
+    void testLeaseWaitsForReturnAtMaxSessions() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(1, 0, 1, Duration.ofSeconds(5));
+        ConnectorSessionPool.Session first = lease(pool, "tenant-a", CONFIG);
+
+        // When
+        CompletableFuture<ConnectorSessionPool.Session> waiting = pool.lease(ConnectorType.GITHUB, "tenant-a", CONFIG);
+        assertFalse(waiting.isDone());
+        first.close();
+
+        // Then
+        assertSame(first.connector(), waiting.get(5, TimeUnit.SECONDS).connector());
+        assertEquals(1, pool.getStats().waits());
+    }
+
+    @Test
+    void testLeaseTimesOutWhenNoSessionIsReturned() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(1, 0, 1, Duration.ofMillis(50));
+        lease(pool, "tenant-a", CONFIG);
+
+        // When
+        CompletableFuture<ConnectorSessionPool.Session> waiting = pool.lease(ConnectorType.GITHUB, "tenant-a", CONFIG);
+
+        // Then
+        ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, e.getCause());
+    }
+
+    @Test
+    void testUnhealthyAndInvalidatedSessionsAreReplaced() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(1, 0, 1, Duration.ofSeconds(5));
+        ConnectorSessionPool.Session broken = lease(pool, "tenant-a", CONFIG);
+
+        // When: the session was disconnected while leased
+        broken.connector().close();
+        broken.close();
+        ConnectorSessionPool.Session replacement = lease(pool, "tenant-a", CONFIG);
+        replacement.invalidate();
+        ConnectorSessionPool.Session another = lease(pool, "tenant-a", CONFIG);
+
+        // Then
+        assertNotSame(broken.connector(), replacement.connector());
+        assertNotSame(replacement.connector(), another.connector());
+        assertFalse(replacement.connector().isHealthy());
+        assertEquals(3, connectorsCreated.get());
+        assertEquals(2, pool.getStats().closed());
+    }
+
+    @Test
+    void testIdleSessionsAreEvictedDownToMinIdleWhileInUse() throws Exception {
+        // Given: three sessions returned at minute 0
+        ConnectorSessionPool pool = pool(4, 1, 4, Duration.ofSeconds(5));
+        List<ConnectorSessionPool.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            sessions.add(lease(pool, "tenant-a", CONFIG));
+        }
+        sessions.forEach(ConnectorSessionPool.Session::close);
+
+        // When: leased again at minute 4, evicted at minute 6
+        clock.set(4 * MINUTE);
+        lease(pool, "tenant-a", CONFIG).close();
+        clock.set(6 * MINUTE);
+        pool.evictIdle();
+
+        // Then: the session returned at minute 4 stays, the others are closed
+        assertEquals(1, pool.getStats().idle());
+        assertEquals(2, pool.getStats().closed());
+
+        // When: the tenant goes quiet
+        clock.set(20 * MINUTE);
+        pool.evictIdle();
+
+        // Then
+        assertEquals(0, pool.getStats().idle());
+        assertEquals(3, pool.getStats().closed());
+    }
+
+    @Test
+    void testEvictionPrewarmsMinIdleSessions() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(4, 2, 4, Duration.ofSeconds(5));
+        lease(pool, "tenant-a", CONFIG).close();
+
+        // When
+        pool.evictIdle();
+
+        // Then
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pool.getStats().idle() < 2 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, pool.getStats().idle());
+        assertEquals(2, connectorsCreated.get());
+    }
+
+    @Test
+    void testConcurrentQueriesNeverShareASession() throws Exception {
+        // Given
+        ConnectorSessionPool pool = pool(4, 0, 4, Duration.ofSeconds(10));
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "tenant-a", "issues", null, null, 10, null, null);
+        ExecutorService clients = Executors.newFixedThreadPool(16);
+
+        // When
+        List<Future<?>> futures = new ArrayList<>();
+        for (int c = 0; c < 16; c++) {
+            futures.add(clients.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    ConnectorSessionPool.Session session = lease(pool, "tenant-a", CONFIG);
+                    try {
+                        assertFalse(session.connector().executeScan(request).rows().isEmpty());
+                    } finally {
+                        session.close();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        clients.shutdown();
+
+        // Then: every scan found its session connected, and at most 4 were created
+        assertTrue(connectorsCreated.get() <= 4, "created " + connectorsCreated.get());
+        assertEquals(0, pool.getStats().leased());
+        assertEquals(800, pool.getStats().leases());
+    }
+}
@@ -286,4 +286,24 @@ class GitHubMockConnectorTest {
             connector.executeScan(request);
         });
     }
+    
+    @Test
+    void testExecuteScan_RowsAreSharedAndReadOnly() throws ConnectorException {
+        // Given
+        GitHubMockConnector other = new GitHubMockConnector();
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+        other.connect(new Connector.ConnectRequest("other-tenant", Map.of()));
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, null, null, null);
+        
+        // When
+        Map<String, Object> row = connector.executeScan(request).rows().get(0);
+        
+        // Then: reconnecting does not rebuild the data, and no scan can change it
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+        assertSame(row, connector.executeScan(request).rows().get(0));
+        assertSame(row, other.executeScan(request).rows().get(0));
+        assertThrows(UnsupportedOperationException.class, () -> row.put("state", "closed"));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) row.get("labels")).clear());
+    }
 }
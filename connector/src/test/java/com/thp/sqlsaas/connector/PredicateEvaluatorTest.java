@@ -0,0 +1,62 @@
+package com.thp.sqlsaas.connector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PredicateEvaluatorTest {
+
+    private final Map<String, Object> row = Map.of(
+            "state", "open",
+            "comments", 5,
+            "title", "Fix login bug"
+    );
+
+    @Test
+    void testComparisonOperators() {
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("state", "=", "open")));
+        assertFalse(PredicateEvaluator.matches(row, new Connector.Predicate("state", "!=", "open")));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("comments", ">", 3)));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("comments", "<=", 5)));
+        assertFalse(PredicateEvaluator.matches(row, new Connector.Predicate("comments", "<", 5)));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("state", "in", List.of("open", "draft"))));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "login")));
+    }
+
+    @Test
+    void testLikeWildcards() {
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "Fix%")));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "%login%")));
+        assertTrue(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "Fix _ogin bug")));
+        assertFalse(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "login%")));
+        assertFalse(PredicateEvaluator.matches(row, new Connector.Predicate("title", "LIKE", "%login")));
+
+        assertTrue(PredicateEvaluator.isPrefixPattern("Fix%"));
+        assertFalse(PredicateEvaluator.isPrefixPattern("%login%"));
+        assertFalse(PredicateEvaluator.isPrefixPattern("F_x%"));
+        assertFalse(PredicateEvaluator.isPrefixPattern("%"));
+    }
+
+    @Test
+    void testMissingValueNeverMatches() {
+        assertFalse(PredicateEvaluator.matches(row, new Connector.Predicate("assignee", "!=", "alice")));
+    }
+
+    @Test
+    void testMatchesAll() {
+        // Given
+        List<Connector.Predicate> predicates = List.of(
+                new Connector.Predicate("state", "=", "open"),
+                new Connector.Predicate("comments", ">=", 5)
+        );
+
+        // Then
+        assertTrue(PredicateEvaluator.matchesAll(row, predicates));
+        assertTrue(PredicateEvaluator.matchesAll(row, List.of()));
+        assertFalse(PredicateEvaluator.matchesAll(row, List.of(
+                new Connector.Predicate("state", "=", "open"),
+                new Connector.Predicate("state", "=", "closed"))));
+    }
+}
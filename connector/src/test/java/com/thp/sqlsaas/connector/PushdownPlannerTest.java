@@ -0,0 +1,89 @@
+package com.thp.sqlsaas.connector;
+
+import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PushdownPlannerTest {
+
+    private final Connector.CapabilityDescriptor capabilities = new Connector.CapabilityDescriptor(
+            Set.of("issues"),
+            Map.of(),
+            Map.of("issues", Set.of("state", "repository", "updated_at")),
+            Map.of("issues", Map.of(
+                    "repository", Set.of("=", Connector.CapabilityDescriptor.LIKE_PREFIX),
+                    "updated_at", Set.of(">=")))
+    );
+
+    @Test
+    void testSplitsByFieldAndOperator() {
+        // Given
+        Connector.Predicate state = new Connector.Predicate("state", "in", List.of("open"));
+        Connector.Predicate repository = new Connector.Predicate("repository", "LIKE", "org/%");
+        Connector.Predicate since = new Connector.Predicate("updated_at", ">=", "2025-01-01");
+        Connector.Predicate before = new Connector.Predicate("updated_at", "<", "2025-02-01");
+        Connector.Predicate title = new Connector.Predicate("title", "=", "Bug");
+        Connector.Predicate contains = new Connector.Predicate("repository", "LIKE", "%repo%");
+
+        // When
+        PushdownPlanner.Split split = PushdownPlanner.split(capabilities, "issues",
+                List.of(state, repository, since, before, title, contains));
+
+        // Then
+        assertEquals(List.of(state, repository, since), split.pushed());
+        assertEquals(List.of(before, title, contains), split.residual());
+        assertEquals(Set.of("updated_at", "title", "repository"), split.residualFields());
+    }
+
+    @Test
+    void testFieldsWithoutDeclaredOperatorsPushEqualityAndIn() {
+        // When
+        PushdownPlanner.Split split = PushdownPlanner.split(capabilities, "issues", List.of(
+                new Connector.Predicate("state", "=", "open"),
+                new Connector.Predicate("state", "!=", "closed")));
+
+        // Then
+        assertEquals(1, split.pushed().size());
+        assertEquals("!=", split.residual().get(0).op());
+    }
+
+    @Test
+    void testNothingIsPushedForUnknownResourceOrCapabilities() {
+        List<Connector.Predicate> predicates = List.of(new Connector.Predicate("state", "=", "open"));
+
+        assertEquals(predicates, PushdownPlanner.split(capabilities, "pulls", predicates).residual());
+        assertEquals(predicates, PushdownPlanner.split(null, "issues", predicates).residual());
+        assertFalse(PushdownPlanner.split(capabilities, "issues", null).hasResidual());
+    }
+
+    @Test
+    void testPushedAndResidualTogetherMatchTheFullScan() throws ConnectorException {
+        // Given
+        GitHubMockConnector connector = new GitHubMockConnector();
+        Connector.CapabilityDescriptor declared = connector.connect(
+                new Connector.ConnectRequest("test-tenant", Map.of())).capabilities();
+        List<Connector.Predicate> predicates = List.of(
+                new Connector.Predicate("state", "=", "open"),
+                new Connector.Predicate("repository", "LIKE", "org/%"),
+                new Connector.Predicate("author", "=", "john_doe"));
+        PushdownPlanner.Split split = PushdownPlanner.split(declared, "issues", predicates);
+
+        // When
+        Connector.RowPage pushed = connector.executeScan(new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, split.pushed(), null, null, null));
+        List<Map<String, Object>> rows = pushed.rows().stream()
+                .filter(row -> PredicateEvaluator.matchesAll(row, split.residual()))
+                .toList();
+
+        // Then
+        assertEquals(List.of("author"), split.residual().stream().map(Connector.Predicate::field).toList());
+        assertEquals(connector.executeScan(new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, predicates, null, null, null)).rows(), rows);
+        assertEquals(3, pushed.rowsPruned());
+    }
+}
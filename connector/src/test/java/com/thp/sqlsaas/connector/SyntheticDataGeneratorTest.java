@@ -0,0 +1,122 @@
+package com.thp.sqlsaas.connector;
+
+import com.thp.sqlsaas.connector.impl.GitHubMockConnector;
+import com.thp.sqlsaas.connector.impl.JiraMockConnector;
+import com.thp.sqlsaas.connector.impl.SyntheticDataGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SyntheticDataGeneratorTest {
+
+    private static List<Map<String, Object>> scan(Connector connector, String resource, Integer limit, String pageToken)
+            throws ConnectorException {
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+        return connector.executeScan(new Connector.ExecuteScanRequest(
+                "test-tenant", resource, null, null, limit, pageToken, null)).rows();
+    }
+
+    @Test
+    void testSameSeedGeneratesSameRows() throws ConnectorException {
+        // Given
+        SyntheticDataGenerator generator = SyntheticDataGenerator.builder().seed(7).rows(500).build();
+
+        // When
+        List<Map<String, Object>> first = scan(new GitHubMockConnector(generator), "issues", 500, null);
+        List<Map<String, Object>> again = scan(new GitHubMockConnector(
+                SyntheticDataGenerator.builder().seed(7).rows(500).build()), "issues", 500, null);
+        List<Map<String, Object>> otherSeed = scan(new GitHubMockConnector(
+                SyntheticDataGenerator.builder().seed(8).rows(500).build()), "issues", 500, null);
+
+        // Then
+        assertEquals(500, first.size());
+        assertEquals(first, again);
+        assertNotEquals(first, otherSeed);
+    }
+
+    @Test
+    void testPagesAreConsistentWithFullScan() throws ConnectorException {
+        // Given
+        GitHubMockConnector connector = new GitHubMockConnector(
+                SyntheticDataGenerator.builder().seed(1).rows(300).build());
+        List<Map<String, Object>> all = scan(connector, "pulls", 300, null);
+
+        // When
+        List<Map<String, Object>> page = scan(connector, "pulls", 50, "100");
+
+        // Then
+        assertEquals(all.subList(100, 150), page);
+    }
+
+    @Test
+    void testSkewConcentratesValuesWithinCardinality() throws ConnectorException {
+        // Given
+        SyntheticDataGenerator.Builder builder = SyntheticDataGenerator.builder()
+                .seed(3).rows(10_000).cardinality("project", 50);
+
+        // When
+        Map<Object, Long> skewed = countBy(scan(new JiraMockConnector(builder.skew(1.2).build()),
+                "issues", 10_000, null), "project");
+        Map<Object, Long> uniform = countBy(scan(new JiraMockConnector(builder.skew(0).build()),
+                "issues", 10_000, null), "project");
+
+        // Then
+        assertTrue(skewed.size() <= 50);
+        assertTrue(skewed.get("PROJ1") > 2_000, "PROJ1 has " + skewed.get("PROJ1"));
+        assertEquals(50, uniform.size());
+        assertTrue(uniform.get("PROJ1") < 400, "PROJ1 has " + uniform.get("PROJ1"));
+    }
+
+    @Test
+    void testDimensionResourcesFollowCardinality() throws ConnectorException {
+        // Given
+        JiraMockConnector connector = new JiraMockConnector(SyntheticDataGenerator.builder()
+                .cardinality("project", 5).cardinality("user", 30).build());
+
+        // When / Then
+        assertEquals(5, scan(connector, "projects", 100, null).size());
+        assertEquals(30, scan(connector, "users", 100, null).size());
+    }
+
+    @Test
+    void testLimitOnMillionsOfRowsGeneratesOnlyThePage() throws ConnectorException {
+        // Given: never materialized, so this is cheap
+        GitHubMockConnector connector = new GitHubMockConnector(
+                SyntheticDataGenerator.builder().rows(5_000_000).build());
+
+        connector.connect(new Connector.ConnectRequest("test-tenant", Map.of()));
+
+        // When
+        Connector.RowPage page = connector.executeScan(new Connector.ExecuteScanRequest(
+                "test-tenant", "issues", null, null, 10, null, null));
+
+        // Then
+        assertEquals(10, page.rows().size());
+        assertEquals(10, page.rows().get(9).get("number"));
+        assertEquals("10", page.nextPageToken());
+    }
+
+    @Test
+    void testLatencyIncludesJitter() {
+        // Given
+        LatencyModel latency = SyntheticDataGenerator.builder()
+                .latency(Duration.ofMillis(20), Duration.ofMillis(10)).build().latencyModel();
+
+        // When / Then
+        for (int i = 0; i < 100; i++) {
+            Duration scan = latency.latency("issues", 1);
+            assertTrue(scan.compareTo(Duration.ofMillis(20)) >= 0 && scan.compareTo(Duration.ofMillis(30)) <= 0);
+        }
+        assertSame(LatencyModel.NONE, SyntheticDataGenerator.builder().build().latencyModel());
+    }
+
+    private static Map<Object, Long> countBy(List<Map<String, Object>> rows, String column) {
+        return rows.stream().collect(Collectors.groupingBy(row -> row.get(column), HashMap::new, Collectors.counting()));
+    }
+}
@@ -0,0 +1,147 @@
+package com.thp.sqlsaas.fingerprint;
+
+/**
+ * Streaming MurmurHash3 x64 128-bit hasher (seed 0).
+ *
+ * Values are fed incrementally and hashed in 16-byte blocks, so hashing a
+ * structure does not require building an intermediate string or byte array.
+ * Multi-byte values are written little-endian; strings are written as UTF-16
+ * code units. Not thread-safe; one instance per fingerprint.
+ */
+public final class Murmur3Hasher {
+
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+
+    private long h1;
+    private long h2;
+
+    // Pending bytes of the current 16-byte block, little-endian
+    private long k1;
+    private long k2;
+    private int pending;
+    private long length;
+
+    public Murmur3Hasher putByte(byte b) {
+        long value = b & 0xffL;
+        if (pending < 8) {
+            k1 |= value << (pending * 8);
+        } else {
+            k2 |= value << ((pending - 8) * 8);
+        }
+        pending++;
+        length++;
+        if (pending == 16) {
+            processBlock();
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putBoolean(boolean value) {
+        return putByte(value ? (byte) 1 : (byte) 0);
+    }
+
+    public Murmur3Hasher putInt(int value) {
+        for (int i = 0; i < 4; i++) {
+            putByte((byte) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putLong(long value) {
+        for (int i = 0; i < 8; i++) {
+            putByte((byte) (value >>> (i * 8)));
+        }
+        return this;
+    }
+
+    public Murmur3Hasher putChar(char c) {
+        putByte((byte) c);
+        return putByte((byte) (c >>> 8));
+    }
+
+    /**
+     * Hash the characters of a string, without a length prefix.
+     */
+    public Murmur3Hasher putChars(CharSequence value) {
+        for (int i = 0; i < value.length(); i++) {
+            putChar(value.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Hash a length-prefixed string, so that adjacent strings cannot run into
+     * each other ("ab","c" differs from "a","bc"). {@code null} is distinct from "".
+     */
+    public Murmur3Hasher putString(String value) {
+        if (value == null) {
+            return putInt(-1);
+        }
+        putInt(value.length());
+        return putChars(value);
+    }
+
+    /**
+     * Finish the hash. The hasher must not be used afterwards.
+     */
+    public QueryFingerprint hash() {
+        if (pending > 0) {
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+        }
+
+        h1 ^= length;
+        h2 ^= length;
+
+        h1 += h2;
+        h2 += h1;
+
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+
+        h1 += h2;
+        h2 += h1;
+
+        return new QueryFingerprint(h1, h2);
+    }
+
+    private void processBlock() {
+        h1 ^= mixK1(k1);
+        h1 = Long.rotateLeft(h1, 27);
+        h1 += h2;
+        h1 = h1 * 5 + 0x52dce729;
+
+        h2 ^= mixK2(k2);
+        h2 = Long.rotateLeft(h2, 31);
+        h2 += h1;
+        h2 = h2 * 5 + 0x38495ab5;
+
+        k1 = 0;
+        k2 = 0;
+        pending = 0;
+    }
+
+    private static long mixK1(long k1) {
+        k1 *= C1;
+        k1 = Long.rotateLeft(k1, 31);
+        k1 *= C2;
+        return k1;
+    }
+
+    private static long mixK2(long k2) {
+        k2 *= C2;
+        k2 = Long.rotateLeft(k2, 33);
+        k2 *= C1;
+        return k2;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
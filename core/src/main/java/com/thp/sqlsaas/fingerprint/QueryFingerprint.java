@@ -0,0 +1,175 @@
+package com.thp.sqlsaas.fingerprint;
+
+import com.thp.sqlsaas.model.Filter;
+import com.thp.sqlsaas.model.SqlQueryRequest;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 128-bit fingerprint of a parsed query.
+ *
+ * Computed over a canonical form of the {@link SqlQueryRequest} rather than the SQL
+ * text, so queries that differ only in whitespace, keyword case, table-name case or
+ * the order of ANDed predicates get the same fingerprint. Everything that can change
+ * the result (projection order, filter values and their types, limit) is included.
+ */
+public final class QueryFingerprint {
+
+    // Bump when the canonical form changes so old and new fingerprints never match
+    private static final int FORMAT_VERSION = 1;
+
+    private static final Comparator<Filter> FILTER_ORDER = Comparator
+            .comparing(Filter::getColumnName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(Filter::getOperator, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparingInt(f -> valueTag(f.getValue()))
+            .thenComparing(f -> String.valueOf(f.getValue()));
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final long high;
+    private final long low;
+
+    QueryFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    /**
+     * Fingerprint a parsed query.
+     */
+    public static QueryFingerprint of(SqlQueryRequest request) {
+        Murmur3Hasher hasher = new Murmur3Hasher();
+        hasher.putInt(FORMAT_VERSION);
+
+        // Table names are matched case-insensitively
+        String table = request.getTableName();
+        if (table == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(table.length());
+            for (int i = 0; i < table.length(); i++) {
+                hasher.putChar(Character.toLowerCase(table.charAt(i)));
+            }
+        }
+
+        // Projection order is kept: it determines the column order of the result
+        List<String> columns = request.getColumns();
+        if (columns == null || columns.isEmpty() || (columns.size() == 1 && "*".equals(columns.get(0)))) {
+            hasher.putInt(0);
+        } else {
+            hasher.putInt(columns.size());
+            for (String column : columns) {
+                hasher.putString(column);
+            }
+        }
+
+        // Filters are ANDed, so their order does not matter
+        List<Filter> filters = request.getFilters();
+        int filterCount = filters != null ? filters.size() : 0;
+        hasher.putInt(filterCount);
+        if (filterCount > 0) {
+            Filter[] sorted = filters.toArray(new Filter[0]);
+            if (sorted.length > 1) {
+                Arrays.sort(sorted, FILTER_ORDER);
+            }
+            for (Filter filter : sorted) {
+                hasher.putString(filter.getColumnName());
+                hasher.putInt(filter.getOperator() != null ? filter.getOperator().ordinal() : -1);
+                putValue(hasher, filter.getValue());
+            }
+        }
+
+        List<String> unsupported = request.getUnsupportedConditions();
+        int unsupportedCount = unsupported != null ? unsupported.size() : 0;
+        hasher.putInt(unsupportedCount);
+        if (unsupportedCount > 0) {
+            String[] sorted = unsupported.toArray(new String[0]);
+            Arrays.sort(sorted);
+            for (String condition : sorted) {
+                hasher.putString(condition);
+            }
+        }
+
+        Integer limit = request.getLimit();
+        hasher.putBoolean(limit != null);
+        hasher.putInt(limit != null ? limit : 0);
+
+        return hasher.hash();
+    }
+
+    public long getHigh() {
+        return high;
+    }
+
+    public long getLow() {
+        return low;
+    }
+
+    /**
+     * Fingerprint as 32 lowercase hex digits.
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[32];
+        writeHex(high, chars, 0);
+        writeHex(low, chars, 16);
+        return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof QueryFingerprint)) return false;
+        QueryFingerprint that = (QueryFingerprint) o;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(high) * 31 + Long.hashCode(low);
+    }
+
+    private static void putValue(Murmur3Hasher hasher, Object value) {
+        int tag = valueTag(value);
+        hasher.putByte((byte) tag);
+        switch (tag) {
+            case 0 -> { }
+            case 1 -> hasher.putString((String) value);
+            case 2 -> hasher.putLong(((Number) value).longValue());
+            case 3 -> hasher.putLong(Double.doubleToLongBits(((Number) value).doubleValue()));
+            case 4 -> hasher.putBoolean((Boolean) value);
+            default -> {
+                hasher.putString(value.getClass().getName());
+                hasher.putString(value.toString());
+            }
+        }
+    }
+
+    /**
+     * Type tag of a filter value, so that e.g. the string "1" and the number 1 differ.
+     */
+    private static int valueTag(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return 1;
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            return 2;
+        } else if (value instanceof Double || value instanceof Float) {
+            return 3;
+        } else if (value instanceof Boolean) {
+            return 4;
+        }
+        return 5;
+    }
+
+    private static void writeHex(long value, char[] chars, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            chars[offset + i] = HEX[(int) (value & 0xf)];
+            value >>>= 4;
+        }
+    }
+}
@@ -17,11 +17,23 @@ public class SqlQueryRequest {
     private String tableName;
     private List<Filter> filters;
 
+    // Projected columns in SELECT order; empty means all columns (SELECT *)
+    private List<String> columns;
+
+    // Row limit from the LIMIT clause, null if absent
+    private Integer limit;
+
+    // WHERE conditions that could not be expressed as filters (e.g. OR groups), as SQL text
+    private List<String> unsupportedConditions;
+
     public SqlQueryRequest() {
         this.filters = new ArrayList<>();
+        this.columns = new ArrayList<>();
+        this.unsupportedConditions = new ArrayList<>();
     }
 
     public SqlQueryRequest(String tableName, List<Filter> filters) {
+        this();
         this.tableName = tableName;
         this.filters = filters != null ? filters : new ArrayList<>();
     }
@@ -48,4 +60,28 @@ public class SqlQueryRequest {
         }
         this.filters.add(filter);
     }
+
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    public void setColumns(List<String> columns) {
+        this.columns = columns;
+    }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public List<String> getUnsupportedConditions() {
+        return unsupportedConditions;
+    }
+
+    public void setUnsupportedConditions(List<String> unsupportedConditions) {
+        this.unsupportedConditions = unsupportedConditions;
+    }
 }
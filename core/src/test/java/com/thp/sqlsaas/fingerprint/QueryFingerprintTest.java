@@ -0,0 +1,90 @@
+package com.thp.sqlsaas.fingerprint;
+
+import com.thp.sqlsaas.model.Filter;
+import com.thp.sqlsaas.model.FilterOperator;
+import com.thp.sqlsaas.model.SqlQueryRequest;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryFingerprintTest {
+
+    @Test
+    void testMurmur3KnownVectors() {
+        assertEquals("00000000000000000000000000000000", new Murmur3Hasher().hash().toString());
+
+        Murmur3Hasher hasher = new Murmur3Hasher();
+        for (char c : "The quick brown fox jumps over the lazy dog".toCharArray()) {
+            hasher.putByte((byte) c);
+        }
+        QueryFingerprint fingerprint = hasher.hash();
+        assertEquals(0xe34bbc7bbc071b6cL, fingerprint.getHigh());
+        assertEquals(0x7a433ca9c49a9347L, fingerprint.getLow());
+    }
+
+    @Test
+    void testPredicateOrderAndTableCaseIgnored() {
+        SqlQueryRequest first = request("github_issues",
+                new Filter("state", FilterOperator.EQUALS, "open"),
+                new Filter("priority", FilterOperator.GREATER_THAN, 2L));
+        SqlQueryRequest second = request("GitHub_Issues",
+                new Filter("priority", FilterOperator.GREATER_THAN, 2L),
+                new Filter("state", FilterOperator.EQUALS, "open"));
+
+        assertEquals(QueryFingerprint.of(first), QueryFingerprint.of(second));
+        assertEquals(QueryFingerprint.of(first).hashCode(), QueryFingerprint.of(second).hashCode());
+    }
+
+    @Test
+    void testResultAffectingDifferencesChangeFingerprint() {
+        SqlQueryRequest base = request("github_issues", new Filter("id", FilterOperator.EQUALS, 1L));
+        QueryFingerprint fingerprint = QueryFingerprint.of(base);
+
+        assertNotEquals(fingerprint, QueryFingerprint.of(
+                request("github_issues", new Filter("id", FilterOperator.EQUALS, "1"))));
+        assertNotEquals(fingerprint, QueryFingerprint.of(
+                request("github_issues", new Filter("id", FilterOperator.NOT_EQUALS, 1L))));
+        assertNotEquals(fingerprint, QueryFingerprint.of(request("github_issues")));
+
+        SqlQueryRequest limited = request("github_issues", new Filter("id", FilterOperator.EQUALS, 1L));
+        limited.setLimit(10);
+        assertNotEquals(fingerprint, QueryFingerprint.of(limited));
+
+        SqlQueryRequest projected = request("github_issues", new Filter("id", FilterOperator.EQUALS, 1L));
+        projected.setColumns(List.of("id", "title"));
+        SqlQueryRequest reordered = request("github_issues", new Filter("id", FilterOperator.EQUALS, 1L));
+        reordered.setColumns(List.of("title", "id"));
+        assertNotEquals(fingerprint, QueryFingerprint.of(projected));
+        assertNotEquals(QueryFingerprint.of(projected), QueryFingerprint.of(reordered));
+
+        SqlQueryRequest withOr = request("github_issues", new Filter("id", FilterOperator.EQUALS, 1L));
+        withOr.setUnsupportedConditions(List.of("state = 'open' OR state = 'closed'"));
+        assertNotEquals(fingerprint, QueryFingerprint.of(withOr));
+    }
+
+    @Test
+    void testAdjacentStringsDoNotRunTogether() {
+        SqlQueryRequest first = request("t");
+        first.setColumns(List.of("ab", "c"));
+        SqlQueryRequest second = request("t");
+        second.setColumns(List.of("a", "bc"));
+
+        assertNotEquals(QueryFingerprint.of(first), QueryFingerprint.of(second));
+    }
+
+    @Test
+    void testSelectStarEqualsNoProjection() {
+        SqlQueryRequest star = request("github_issues");
+        star.setColumns(List.of("*"));
+
+        assertEquals(QueryFingerprint.of(request("github_issues")), QueryFingerprint.of(star));
+        assertEquals(32, QueryFingerprint.of(star).toString().length());
+    }
+
+    private static SqlQueryRequest request(String table, Filter... filters) {
+        return new SqlQueryRequest(table, Arrays.asList(filters));
+    }
+}
@@ -0,0 +1,79 @@
+package com.thp.sqlsaas.entitlement;
+
+import com.thp.sqlsaas.entitlement.model.Policy;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Policies of one tenant that apply to a single (source, table), in
+ * {@link Policy#PRECEDENCE} order (the order they are handed in).
+ *
+ * Policies are also bucketed by {@link Policy.PolicyType} so each evaluation step
+ * only iterates the policies of its own type.
+ *
+ * Instances are immutable and shared by every request for that table until the
+ * tenant's policies change, at which point a new instance with a higher
+ * {@link #getVersion() version} replaces it.
+ */
+public final class CompiledPolicies {
+
+    private static final Policy[] NONE = new Policy[0];
+
+    private final List<Policy> policies;
+    private final Policy[][] byType;
+    private final long version;
+    private final boolean identitySensitive;
+
+    CompiledPolicies(List<Policy> policies, long version) {
+        this.policies = List.copyOf(policies);
+        this.version = version;
+
+        Map<Policy.PolicyType, List<Policy>> buckets = new EnumMap<>(Policy.PolicyType.class);
+        for (Policy policy : this.policies) {
+            buckets.computeIfAbsent(policy.getType(), t -> new ArrayList<>()).add(policy);
+        }
+        Policy.PolicyType[] types = Policy.PolicyType.values();
+        this.byType = new Policy[types.length][];
+        for (Policy.PolicyType type : types) {
+            List<Policy> bucket = buckets.get(type);
+            byType[type.ordinal()] = bucket != null ? bucket.toArray(NONE) : NONE;
+        }
+
+        this.identitySensitive = this.policies.stream()
+                .anyMatch(p -> p.getCompiledCondition().dependsOnIdentity());
+    }
+
+    public List<Policy> getPolicies() {
+        return policies;
+    }
+
+    /**
+     * Policies of the given type in precedence order. The array is shared and
+     * must not be modified.
+     */
+    Policy[] ofType(Policy.PolicyType type) {
+        return byType[type.ordinal()];
+    }
+
+    /**
+     * Version of the tenant's policy set these policies were compiled from.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Whether any condition reads the user's id or email, in which case
+     * decisions cannot be shared between users with the same roles.
+     */
+    public boolean isIdentitySensitive() {
+        return identitySensitive;
+    }
+
+    public int size() {
+        return policies.size();
+    }
+}
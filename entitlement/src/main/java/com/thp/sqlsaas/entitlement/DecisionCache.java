@@ -0,0 +1,124 @@
+package com.thp.sqlsaas.entitlement;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.thp.sqlsaas.entitlement.model.EntitlementContext;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Bounded cache of entitlement decisions.
+ *
+ * A decision only depends on the table's compiled policies and on the parts of the
+ * context those policies read, so users with the same roles and attributes share
+ * one entry. The policy version is part of the {@link Key}; entries built from an
+ * older policy set are never hit again and age out of the cache.
+ */
+public class DecisionCache {
+
+    static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    private final Cache<Key, DecisionTemplate> decisions;
+
+    DecisionCache(int maximumSize) {
+        this.decisions = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get the cached decision for the key, or build and cache it.
+     * The key may reference live request state; it is copied before being stored.
+     */
+    DecisionTemplate get(Key key, Supplier<DecisionTemplate> builder) {
+        DecisionTemplate template = decisions.getIfPresent(key);
+        if (template == null) {
+            template = builder.get();
+            decisions.put(key.copy(), template);
+        }
+        return template;
+    }
+
+    public void invalidateAll() {
+        decisions.invalidateAll();
+    }
+
+    public Stats getStats() {
+        CacheStats stats = decisions.stats();
+        return new Stats(
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount(),
+            decisions.estimatedSize()
+        );
+    }
+
+    /**
+     * Everything a decision depends on. User id and email are only part of the key
+     * when a policy condition reads them.
+     */
+    record Key(
+        String tenantId,
+        String sourceId,
+        String tableName,
+        Set<String> columns,
+        Set<String> roles,
+        Map<String, Object> attributes,
+        long policyVersion,
+        String userId,
+        String email
+    ) {
+
+        static Key of(
+                EntitlementContext context,
+                String sourceId,
+                String tableName,
+                Set<String> columns,
+                CompiledPolicies policies) {
+
+            boolean identity = policies.isIdentitySensitive();
+            return new Key(
+                context.getTenantId(),
+                sourceId,
+                tableName,
+                columns,
+                context.getRoles() != null ? context.getRoles() : Set.of(),
+                context.getAttributes() != null ? context.getAttributes() : Map.of(),
+                policies.getVersion(),
+                identity ? context.getUserId() : null,
+                identity ? context.getEmail() : null
+            );
+        }
+
+        Key copy() {
+            return new Key(
+                tenantId,
+                sourceId,
+                tableName,
+                Collections.unmodifiableSet(new HashSet<>(columns)),
+                Collections.unmodifiableSet(new HashSet<>(roles)),
+                Collections.unmodifiableMap(new HashMap<>(attributes)),
+                policyVersion,
+                userId,
+                email
+            );
+        }
+    }
+
+    /**
+     * Cache counters for observability.
+     */
+    public record Stats(
+        long hits,
+        long misses,
+        long evictions,
+        long size
+    ) {}
+}
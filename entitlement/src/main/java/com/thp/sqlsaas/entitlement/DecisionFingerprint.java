@@ -0,0 +1,98 @@
+package com.thp.sqlsaas.entitlement;
+
+import com.thp.sqlsaas.entitlement.model.ColumnMask;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.entitlement.model.RowFilter;
+import com.thp.sqlsaas.fingerprint.Murmur3Hasher;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+/**
+ * Fingerprint of the effective part of an {@link EntitlementDecision}: what a
+ * user can see for a query, independent of who the user is.
+ *
+ * Two decisions with the same fingerprint allow the same columns, apply the same
+ * row filters (after ${user.*} substitution) and the same masks, so they produce
+ * the same result for the same query and may share a cached result. Applied policy
+ * ids are audit information only and are not included.
+ */
+public final class DecisionFingerprint {
+
+    private static final Comparator<RowFilter> FILTER_ORDER = Comparator
+            .comparing(RowFilter::getColumnName, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RowFilter::getOperator, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(f -> valueClass(f.getValue()))
+            .thenComparing(f -> String.valueOf(f.getValue()));
+
+    private DecisionFingerprint() {
+    }
+
+    /**
+     * Fingerprint an allowed decision as 32 hex digits.
+     *
+     * @throws IllegalArgumentException if the decision denies access
+     */
+    public static String of(EntitlementDecision decision) {
+        if (!decision.isAllowed()) {
+            throw new IllegalArgumentException("Denied decisions have no result to share");
+        }
+
+        Murmur3Hasher hasher = new Murmur3Hasher();
+
+        // An empty set means all columns, which differs from any explicit set
+        String[] columns = decision.getAllowedColumns().toArray(new String[0]);
+        Arrays.sort(columns);
+        hasher.putInt(columns.length);
+        for (String column : columns) {
+            hasher.putString(column);
+        }
+
+        RowFilter[] filters = decision.getRowFilters().toArray(new RowFilter[0]);
+        Arrays.sort(filters, FILTER_ORDER);
+        hasher.putInt(filters.length);
+        for (RowFilter filter : filters) {
+            hasher.putString(filter.getColumnName());
+            hasher.putInt(filter.getOperator() != null ? filter.getOperator().ordinal() : -1);
+            putValue(hasher, filter.getValue());
+        }
+
+        @SuppressWarnings("unchecked")
+        Map.Entry<String, ColumnMask>[] masks = decision.getColumnMasks().entrySet().toArray(new Map.Entry[0]);
+        Arrays.sort(masks, Map.Entry.comparingByKey(Comparator.nullsFirst(Comparator.naturalOrder())));
+        hasher.putInt(masks.length);
+        for (Map.Entry<String, ColumnMask> mask : masks) {
+            hasher.putString(mask.getKey());
+            ColumnMask columnMask = mask.getValue();
+            hasher.putInt(columnMask != null && columnMask.getMaskType() != null
+                    ? columnMask.getMaskType().ordinal() : -1);
+            // The mask is returned as-is in masked cells, so its policy is visible
+            hasher.putString(columnMask != null ? columnMask.getPolicyId() : null);
+        }
+
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Values are hashed with their type so that e.g. the string "1" and the number 1 differ.
+     * Collections (IN lists) are hashed element by element.
+     */
+    private static void putValue(Murmur3Hasher hasher, Object value) {
+        hasher.putString(valueClass(value));
+        if (value instanceof Iterable<?> values) {
+            int count = 0;
+            for (Object element : values) {
+                putValue(hasher, element);
+                count++;
+            }
+            hasher.putInt(count);
+        } else {
+            hasher.putString(value != null ? value.toString() : null);
+        }
+    }
+
+    private static String valueClass(Object value) {
+        return value != null ? value.getClass().getName() : "";
+    }
+}
@@ -0,0 +1,36 @@
+package com.thp.sqlsaas.entitlement;
+
+import com.thp.sqlsaas.entitlement.model.ColumnMask;
+import com.thp.sqlsaas.entitlement.model.RowFilter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable outcome of evaluating a table's policies for one role set.
+ *
+ * Row filters still carry their {@code ${...}} placeholders; they are substituted
+ * per request when the template is turned into an
+ * {@link com.thp.sqlsaas.entitlement.model.EntitlementDecision}.
+ */
+record DecisionTemplate(
+    boolean allowed,
+    String denialReason,
+    Set<String> allowedColumns,
+    List<RowFilter> rowFilters,
+    Map<String, ColumnMask> columnMasks,
+    List<String> appliedPolicies
+) {
+
+    DecisionTemplate {
+        allowedColumns = Set.copyOf(allowedColumns);
+        rowFilters = List.copyOf(rowFilters);
+        columnMasks = Map.copyOf(columnMasks);
+        appliedPolicies = List.copyOf(appliedPolicies);
+    }
+
+    static DecisionTemplate deny(String reason) {
+        return new DecisionTemplate(false, reason, Set.of(), List.of(), Map.of(), List.of());
+    }
+}
@@ -1,18 +1,22 @@
 package com.thp.sqlsaas.entitlement;
 
 import com.thp.sqlsaas.entitlement.model.*;
-import com.thp.sqlsaas.persistence.entity.EntitlementPolicy;
+import com.thp.sqlsaas.persistence.event.PolicyChangedEvent;
 import com.thp.sqlsaas.persistence.service.PolicyService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.util.*;
 
 /**
  * Main service for entitlement enforcement.
  * Evaluates policies and produces entitlement decisions.
+ * 
+ * Policies are served from an in-memory {@link PolicyCache} and reloaded only
+ * when {@link PolicyService} reports a change for the tenant.
  */
 @Service
 public class EntitlementService {
@@ -25,6 +29,10 @@ public class EntitlementService {
     @Autowired
     private PolicyLoader policyLoader;
     
+    private final PolicyCache policyCache = new PolicyCache(this::compileTenantPolicies);
+    
+    private final DecisionCache decisionCache = new DecisionCache(DecisionCache.DEFAULT_MAXIMUM_SIZE);
+    
     /**
      * Evaluate access for a query execution context.
      * Simplified version that delegates to authorizeQuery.
@@ -64,89 +72,28 @@ public class EntitlementService {
             return EntitlementDecision.deny("User not authenticated");
         }
         
-        // 2. Load policies from database
-        List<Policy> policies = loadPolicies(context, sourceId, tableName);
+        // 2. Load compiled policies for the table
+        CompiledPolicies policies = policyCache.getPolicies(context.getTenantId(), sourceId, tableName);
         
         logger.debug("Found {} applicable policies", policies.size());
         
-        // 3. Check for explicit DENY policies first
-        for (Policy policy : policies) {
-            if (policy.getType() == Policy.PolicyType.TABLE_ACCESS &&
-                policy.getAction() == Policy.PolicyAction.DENY &&
-                policy.evaluate(context)) {
-                
-                logger.info("Access denied by policy: {}", policy.getPolicyId());
-                return EntitlementDecision.deny(
-                    "Access denied by policy: " + policy.getPolicyId()
-                );
-            }
-        }
-        
-        // 4. Check for explicit ALLOW policies (e.g., admin bypass)
-        for (Policy policy : policies) {
-            if (policy.getType() == Policy.PolicyType.TABLE_ACCESS &&
-                policy.getAction() == Policy.PolicyAction.ALLOW &&
-                policy.evaluate(context)) {
-                
-                logger.debug("Access allowed by policy: {}", policy.getPolicyId());
-                // Admin or special role - allow everything
-                EntitlementDecision decision = EntitlementDecision.allow();
-                decision.setAllowedColumns(new HashSet<>(requestedColumns));
-                decision.getAppliedPolicies().add(policy.getPolicyId());
-                return decision;
-            }
-        }
-        
-        // 5. Get source permissions
-        SourcePermissions sourcePerms = context.getSourcePermissions().get(sourceId);
-        if (sourcePerms == null) {
-            // No source permissions - create default that allows requested table
-            logger.debug("No source permissions found, creating default permissions");
-            sourcePerms = SourcePermissions.builder()
-                    .readableTables(Set.of(tableName))
-                    .build();
-            
-            // Add all requested columns
-            Map<String, Set<String>> tableColumns = new HashMap<>();
-            tableColumns.put(tableName, new HashSet<>(requestedColumns));
-            sourcePerms.setTableColumns(tableColumns);
-        }
-        
-        // 6. Check table access
-        if (!sourcePerms.canReadTable(tableName)) {
-            return EntitlementDecision.deny(
-                "User cannot access table: " + tableName + " in source: " + sourceId
+        // 3. Evaluate, or reuse the decision of a user with the same roles and attributes.
+        // Source permissions come from the user's own token, so those decisions are not shared.
+        SourcePermissions sourcePerms = context.getSourcePermissions() != null
+                ? context.getSourcePermissions().get(sourceId)
+                : null;
+        DecisionTemplate template;
+        if (sourcePerms != null || context.getTenantId() == null) {
+            template = evaluatePolicies(context, sourcePerms, policies, sourceId, tableName, requestedColumns);
+        } else {
+            template = decisionCache.get(
+                DecisionCache.Key.of(context, sourceId, tableName, requestedColumns, policies),
+                () -> evaluatePolicies(context, null, policies, sourceId, tableName, requestedColumns)
             );
         }
         
-        // 7. Build decision
-        EntitlementDecision decision = EntitlementDecision.allow();
-        
-        // 8. Compute allowed columns (CLS)
-        Set<String> allowedColumns = computeAllowedColumns(
-            context, sourcePerms, policies, tableName, requestedColumns
-        );
-        decision.setAllowedColumns(allowedColumns);
-        
-        // 9. Compute row filters (RLS)
-        List<RowFilter> rowFilters = computeRowFilters(
-            context, sourcePerms, policies, tableName
-        );
-        decision.setRowFilters(rowFilters);
-        
-        // 10. Compute column masks
-        Map<String, ColumnMask> columnMasks = computeColumnMasks(
-            context, policies, tableName, requestedColumns
-        );
-        decision.setColumnMasks(columnMasks);
-        
-        // 11. Track applied policies
-        decision.setAppliedPolicies(
-            policies.stream()
-                .filter(p -> p.evaluate(context))
-                .map(Policy::getPolicyId)
-                .toList()
-        );
+        // 4. Materialize a request-owned decision with user context substituted
+        EntitlementDecision decision = materialize(template, context);
         
         logger.info("Authorization complete: allowed={}, filters={}, masks={}, policies={}", 
                 decision.isAllowed(), 
@@ -157,102 +104,171 @@ public class EntitlementService {
         return decision;
     }
     
-    private List<Policy> loadPolicies(
+    /**
+     * Evaluate the table's policies one type bucket at a time, highest priority
+     * first within each bucket. Each condition is evaluated at most once, and
+     * CLS/RLS/MASK policies are not looked at once table access is decided.
+     */
+    private DecisionTemplate evaluatePolicies(
             EntitlementContext context,
+            SourcePermissions sourcePerms,
+            CompiledPolicies policies,
             String sourceId,
-            String tableName) {
+            String tableName,
+            Set<String> requestedColumns) {
         
-        // Load from database via PolicyService
-        List<EntitlementPolicy> entities = policyService.getApplicablePolicies(
-                context.getTenantId(), sourceId, tableName);
+        Policy allowPolicy = null;
         
-        // Convert to domain models
-        List<Policy> policies = entities.stream()
-                .map(policyLoader::convertToPolicy)
-                .sorted(Comparator.comparing((Policy p) -> 
-                    entities.stream()
-                        .filter(e -> e.getPolicyId().equals(p.getPolicyId()))
-                        .findFirst()
-                        .map(com.thp.sqlsaas.persistence.entity.EntitlementPolicy::getPriority)
-                        .orElse(0))
-                    .reversed()) // Higher priority first
-                .toList();
+        // Table access: explicit DENY wins over any ALLOW
+        for (Policy policy : policies.ofType(Policy.PolicyType.TABLE_ACCESS)) {
+            if (!policy.evaluate(context)) {
+                continue;
+            }
+            if (policy.getAction() == Policy.PolicyAction.DENY) {
+                logger.info("Access denied by policy: {}", policy.getPolicyId());
+                return DecisionTemplate.deny("Access denied by policy: " + policy.getPolicyId());
+            }
+            if (policy.getAction() == Policy.PolicyAction.ALLOW && allowPolicy == null) {
+                allowPolicy = policy;
+            }
+        }
         
-        return policies;
-    }
-    
-    private Set<String> computeAllowedColumns(
-            EntitlementContext context,
-            SourcePermissions sourcePerms,
-            List<Policy> policies,
-            String tableName,
-            Set<String> requestedColumns) {
+        // Explicit ALLOW (e.g., admin bypass) - allow everything
+        if (allowPolicy != null) {
+            return new DecisionTemplate(true, null, requestedColumns, List.of(),
+                    Map.of(), List.of(allowPolicy.getPolicyId()));
+        }
         
-        Set<String> allowed = new HashSet<>(requestedColumns);
+        // Check table access; without source permissions the requested table is readable
+        if (sourcePerms != null && !sourcePerms.canReadTable(tableName)) {
+            return DecisionTemplate.deny(
+                "User cannot access table: " + tableName + " in source: " + sourceId
+            );
+        }
         
         // Start with source permissions
-        Set<String> sourceColumns = sourcePerms.getTableColumns().get(tableName);
-        if (sourceColumns != null && !sourceColumns.isEmpty()) {
-            allowed.retainAll(sourceColumns);
+        Set<String> allowedColumns = new HashSet<>(requestedColumns);
+        if (sourcePerms != null) {
+            Set<String> sourceColumns = sourcePerms.getTableColumns().get(tableName);
+            if (sourceColumns != null && !sourceColumns.isEmpty()) {
+                allowedColumns.retainAll(sourceColumns);
+            }
         }
         
-        // Apply CLS policies
-        for (Policy policy : policies) {
-            if (policy.getType() == Policy.PolicyType.CLS &&
-                policy.evaluate(context)) {
-                
-                if (policy.getAction() == Policy.PolicyAction.DENY) {
-                    // Remove denied columns
-                    allowed.removeAll(policy.getAllowedColumns());
-                    logger.debug("Policy {} removed columns: {}", 
-                            policy.getPolicyId(), policy.getAllowedColumns());
-                } else if (policy.getAction() == Policy.PolicyAction.ALLOW) {
-                    // Only keep allowed columns
-                    allowed.retainAll(policy.getAllowedColumns());
-                    logger.debug("Policy {} restricted to columns: {}", 
-                            policy.getPolicyId(), policy.getAllowedColumns());
-                }
+        List<RowFilter> rowFilters = new ArrayList<>();
+        Map<String, ColumnMask> columnMasks = new HashMap<>();
+        List<Policy> appliedPolicies = new ArrayList<>();
+        
+        // Compute allowed columns (CLS)
+        for (Policy policy : policies.ofType(Policy.PolicyType.CLS)) {
+            if (!policy.evaluate(context)) {
+                continue;
+            }
+            appliedPolicies.add(policy);
+            if (policy.getAction() == Policy.PolicyAction.DENY) {
+                // Remove denied columns
+                allowedColumns.removeAll(policy.getAllowedColumns());
+            } else if (policy.getAction() == Policy.PolicyAction.ALLOW) {
+                // Only keep allowed columns
+                allowedColumns.retainAll(policy.getAllowedColumns());
             }
         }
         
-        return allowed;
-    }
-    
-    private List<RowFilter> computeRowFilters(
-            EntitlementContext context,
-            SourcePermissions sourcePerms,
-            List<Policy> policies,
-            String tableName) {
+        // Collect row filters (RLS); placeholders are substituted per request
+        for (Policy policy : policies.ofType(Policy.PolicyType.RLS)) {
+            if (!policy.evaluate(context)) {
+                continue;
+            }
+            appliedPolicies.add(policy);
+            if (policy.getRowFilter() != null) {
+                rowFilters.add(policy.getRowFilter());
+            }
+        }
         
-        List<RowFilter> filters = new ArrayList<>();
+        // Collect column masks
+        for (Policy policy : policies.ofType(Policy.PolicyType.MASK)) {
+            if (!policy.evaluate(context)) {
+                continue;
+            }
+            appliedPolicies.add(policy);
+            if (requestedColumns.contains(policy.getColumnToMask())) {
+                columnMasks.put(policy.getColumnToMask(), policy.getColumnMask());
+            }
+        }
         
-        // Add source-native filters
-        String nativeFilter = sourcePerms.getNativeRowFilters().get(tableName);
-        if (nativeFilter != null) {
+        if (sourcePerms != null && sourcePerms.getNativeRowFilters().get(tableName) != null) {
             // In a real implementation, parse and add native filter
-            logger.debug("Native filter found but not parsed: {}", nativeFilter);
+            logger.debug("Native filter found but not parsed: {}",
+                    sourcePerms.getNativeRowFilters().get(tableName));
         }
         
-        // Add policy-based filters
-        for (Policy policy : policies) {
-            if (policy.getType() == Policy.PolicyType.RLS &&
-                policy.evaluate(context)) {
-                
-                RowFilter filter = policy.getRowFilter();
-                if (filter != null) {
-                    // Substitute user context values
-                    filter = substituteContextValues(filter, context);
-                    filters.add(filter);
-                    logger.debug("Added RLS filter from policy {}: {} {} {}", 
-                            policy.getPolicyId(),
-                            filter.getColumnName(),
-                            filter.getOperator(),
-                            filter.getValue());
-                }
-            }
+        // Report applied policies in precedence order, not bucket order
+        List<String> appliedPolicyIds = appliedPolicies.stream()
+                .sorted(Policy.PRECEDENCE)
+                .map(Policy::getPolicyId)
+                .toList();
+        return new DecisionTemplate(true, null, allowedColumns, rowFilters, columnMasks, appliedPolicyIds);
+    }
+    
+    private EntitlementDecision materialize(DecisionTemplate template, EntitlementContext context) {
+        if (!template.allowed()) {
+            return EntitlementDecision.deny(template.denialReason());
+        }
+        
+        List<RowFilter> rowFilters = new ArrayList<>(template.rowFilters().size());
+        for (RowFilter filter : template.rowFilters()) {
+            // Substitute user context values
+            rowFilters.add(substituteContextValues(filter, context));
         }
         
-        return filters;
+        EntitlementDecision decision = EntitlementDecision.allow();
+        decision.setAllowedColumns(new HashSet<>(template.allowedColumns()));
+        decision.setRowFilters(rowFilters);
+        decision.setColumnMasks(new HashMap<>(template.columnMasks()));
+        decision.setAppliedPolicies(new ArrayList<>(template.appliedPolicies()));
+        return decision;
+    }
+    
+    /**
+     * Load all enabled policies of a tenant from the database and convert them
+     * to domain models in {@link Policy#PRECEDENCE} order. Only called by the policy cache on a miss.
+     */
+    private List<Policy> compileTenantPolicies(String tenantId) {
+        return policyService.getPoliciesForTenant(tenantId).stream()
+                .map(policyLoader::convertToPolicy)
+                .sorted(Policy.PRECEDENCE)
+                .toList();
+    }
+    
+    /**
+     * Drop compiled policies once a policy change for the tenant has committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPolicyChanged(PolicyChangedEvent event) {
+        logger.debug("Policy {} {} for tenant {}", 
+                event.policyId(), event.changeType(), event.tenantId());
+        policyCache.invalidate(event.tenantId());
+    }
+    
+    /**
+     * Drop compiled policies for a tenant, forcing a reload on next access.
+     */
+    public void invalidatePolicies(String tenantId) {
+        policyCache.invalidate(tenantId);
+    }
+    
+    /**
+     * Hit/miss/reload counters of the compiled policy cache.
+     */
+    public PolicyCache.Stats getPolicyCacheStats() {
+        return policyCache.getStats();
+    }
+    
+    /**
+     * Hit/miss/eviction counters of the decision cache.
+     */
+    public DecisionCache.Stats getDecisionCacheStats() {
+        return decisionCache.getStats();
     }
     
     private RowFilter substituteContextValues(RowFilter filter, EntitlementContext context) {
@@ -267,7 +283,8 @@ public class EntitlementService {
                 
                 Object substitutedValue = extractContextValue(placeholder, context);
                 if (substitutedValue != null) {
-                    filter.setValue(substitutedValue);
+                    // Policies are shared across requests - never mutate their filter
+                    filter = filter.toBuilder().value(substitutedValue).build();
                     logger.debug("Substituted {} with {}", strValue, substitutedValue);
                 }
             }
@@ -290,28 +307,6 @@ public class EntitlementService {
         return null;
     }
     
-    private Map<String, ColumnMask> computeColumnMasks(
-            EntitlementContext context,
-            List<Policy> policies,
-            String tableName,
-            Set<String> requestedColumns) {
-        
-        Map<String, ColumnMask> masks = new HashMap<>();
-        
-        for (Policy policy : policies) {
-            if (policy.getType() == Policy.PolicyType.MASK &&
-                policy.evaluate(context) &&
-                requestedColumns.contains(policy.getColumnToMask())) {
-                
-                masks.put(policy.getColumnToMask(), policy.getColumnMask());
-                logger.debug("Added column mask from policy {} for column {}", 
-                        policy.getPolicyId(), policy.getColumnToMask());
-            }
-        }
-        
-        return masks;
-    }
-    
     /**
      * Apply row filters to a result set (post-processing if needed)
      */
@@ -0,0 +1,166 @@
+package com.thp.sqlsaas.entitlement;
+
+import com.thp.sqlsaas.entitlement.model.Policy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * In-memory cache of compiled entitlement policies.
+ *
+ * Each tenant's enabled policies are loaded from the database once, converted to
+ * immutable {@link Policy} objects and kept in a {@link TenantPolicySet}. Lookups
+ * by (source, table) are resolved against that set and memoized, so the query path
+ * does not touch the policy table again until the tenant is invalidated.
+ */
+public class PolicyCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PolicyCache.class);
+
+    // Loads all enabled policies for a tenant in Policy.PRECEDENCE order
+    private final Function<String, List<Policy>> loader;
+
+    private final Map<String, TenantPolicySet> tenants = new ConcurrentHashMap<>();
+
+    // Bumped on every invalidation; a load only publishes if the epoch is unchanged
+    private final Map<String, Long> epochs = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    PolicyCache(Function<String, List<Policy>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Get the policies of a tenant that apply to the given source and table,
+     * highest priority first.
+     */
+    public CompiledPolicies getPolicies(String tenantId, String sourceId, String tableName) {
+        if (tenantId == null) {
+            // Nothing to key on - resolve without caching
+            return new TenantPolicySet(loader.apply(null), -1L).compile(sourceId, tableName);
+        }
+
+        TenantPolicySet policySet = tenants.get(tenantId);
+        if (policySet != null) {
+            hits.increment();
+        } else {
+            misses.increment();
+            policySet = load(tenantId);
+        }
+
+        return policySet.policiesFor(sourceId, tableName);
+    }
+
+    /**
+     * Drop the compiled policies of a tenant. The next lookup reloads them.
+     */
+    public void invalidate(String tenantId) {
+        if (tenantId == null) {
+            return;
+        }
+        tenants.compute(tenantId, (key, existing) -> {
+            epochs.merge(key, 1L, Long::sum);
+            return null;
+        });
+        invalidations.increment();
+        logger.debug("Invalidated compiled policies for tenant: {}", tenantId);
+    }
+
+    /**
+     * Drop the compiled policies of all tenants.
+     */
+    public void invalidateAll() {
+        tenants.keySet().forEach(this::invalidate);
+    }
+
+    public Stats getStats() {
+        return new Stats(
+            hits.sum(),
+            misses.sum(),
+            loads.sum(),
+            invalidations.sum(),
+            tenants.size()
+        );
+    }
+
+    private TenantPolicySet load(String tenantId) {
+        long epoch = epochs.getOrDefault(tenantId, 0L);
+
+        List<Policy> policies = List.copyOf(loader.apply(tenantId));
+        TenantPolicySet loaded = new TenantPolicySet(policies, epoch);
+        loads.increment();
+
+        logger.debug("Compiled {} policies for tenant: {}", policies.size(), tenantId);
+
+        // Runs under the same bin lock as invalidate(), so a load that raced with
+        // an invalidation never overwrites it with stale policies
+        TenantPolicySet published = tenants.compute(tenantId, (key, existing) -> {
+            if (epochs.getOrDefault(key, 0L) != epoch) {
+                return existing;
+            }
+            return existing != null ? existing : loaded;
+        });
+
+        // Serve the freshly loaded set even if it could not be published
+        return published != null ? published : loaded;
+    }
+
+    /**
+     * Compiled policies of a single tenant, indexed by (source, table).
+     */
+    private static final class TenantPolicySet {
+
+        private final List<Policy> policies;
+        private final long version;
+        private final Map<String, Map<String, CompiledPolicies>> bySourceAndTable = new ConcurrentHashMap<>();
+
+        TenantPolicySet(List<Policy> policies, long version) {
+            this.policies = policies;
+            this.version = version;
+        }
+
+        CompiledPolicies policiesFor(String sourceId, String tableName) {
+            return bySourceAndTable
+                    .computeIfAbsent(sourceId, s -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(tableName, t -> compile(sourceId, tableName));
+        }
+
+        CompiledPolicies compile(String sourceId, String tableName) {
+            List<Policy> applicable = policies.stream()
+                    .filter(p -> appliesTo(p.getSourcePattern(), sourceId)
+                            && appliesTo(p.getTablePattern(), tableName))
+                    .toList();
+            return new CompiledPolicies(applicable, version);
+        }
+
+        /**
+         * Same scope rule as {@code EntitlementPolicyRepository.findApplicablePolicies}:
+         * the pattern is the exact name or "*". Prefix patterns such as "github.*"
+         * are not expanded.
+         */
+        private static boolean appliesTo(String pattern, String value) {
+            return "*".equals(pattern) || Objects.equals(pattern, value);
+        }
+    }
+
+    /**
+     * Cache counters for observability.
+     */
+    public record Stats(
+        long hits,
+        long misses,
+        long loads,
+        long invalidations,
+        int tenants
+    ) {}
+}
@@ -20,6 +20,7 @@ public class PolicyLoader {
                 .policyId(entity.getPolicyId())
                 .type(mapPolicyType(entity.getPolicyType()))
                 .action(mapPolicyAction(entity.getAction()))
+                .priority(entity.getPriority() != null ? entity.getPriority() : 0)
                 .sourcePattern(entity.getSourcePattern())
                 .tablePattern(entity.getTablePattern())
                 .condition(entity.getCondition());
@@ -108,7 +109,7 @@ public class PolicyLoader {
     
     private Set<String> parseAllowedColumns(Map<String, Object> config) {
         if (config == null) {
-            return new HashSet<>();
+            return Set.of();
         }
         
         // For CLS DENY, we have "denied_columns"
@@ -116,17 +117,17 @@ public class PolicyLoader {
             @SuppressWarnings("unchecked")
             List<String> columns = (List<String>) config.get("denied_columns");
             // Note: This returns denied columns, which will be removed from allowed set
-            return new HashSet<>(columns);
+            return Set.copyOf(columns);
         }
         
         // For CLS ALLOW, we have "allowed_columns"
         if (config.containsKey("allowed_columns")) {
             @SuppressWarnings("unchecked")
             List<String> columns = (List<String>) config.get("allowed_columns");
-            return new HashSet<>(columns);
+            return Set.copyOf(columns);
         }
         
-        return new HashSet<>();
+        return Set.of();
     }
     
     private ColumnMask parseColumnMask(Map<String, Object> config, String policyId) {
@@ -0,0 +1,274 @@
+package com.thp.sqlsaas.entitlement.condition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Parses policy condition strings into {@link PolicyCondition} trees.
+ *
+ * Grammar (keywords are case-insensitive):
+ * <pre>
+ *   expr       := or
+ *   or         := and (("OR" | "||") and)*
+ *   and        := unary (("AND" | "&&") unary)*
+ *   unary      := ("NOT" | "!") unary | primary
+ *   primary    := "(" expr ")" | "true" | "false" | comparison
+ *   comparison := ref ("==" | "=" | "!=" | "<>") literal
+ *               | ref ["NOT"] "IN" "(" literal ("," literal)* ")"
+ *   ref        := "user.role" | "user.roles" | "user.id" | "user.email" | "user." attribute
+ * </pre>
+ *
+ * Examples: {@code user.role != 'ADMIN'},
+ * {@code user.department IN ('SALES', 'SUPPORT') AND NOT user.role == 'CONTRACTOR'}.
+ */
+public final class ConditionParser {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConditionParser.class);
+
+    private final List<String> tokens;
+    private int position;
+
+    private ConditionParser(List<String> tokens) {
+        this.tokens = tokens;
+    }
+
+    /**
+     * Compile a condition string. Empty conditions always hold; conditions that
+     * cannot be parsed never hold, so a broken policy fails closed.
+     */
+    public static PolicyCondition compile(String condition) {
+        if (condition == null || condition.isBlank()) {
+            return PolicyCondition.ALWAYS;
+        }
+        try {
+            return parse(condition);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid policy condition '{}': {}", condition, e.getMessage());
+            return PolicyCondition.NEVER;
+        }
+    }
+
+    /**
+     * Parse a condition string.
+     *
+     * @throws IllegalArgumentException if the condition is not valid
+     */
+    public static PolicyCondition parse(String condition) {
+        ConditionParser parser = new ConditionParser(tokenize(condition));
+        PolicyCondition result = parser.parseOr();
+        if (parser.position < parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected token: " + parser.peek());
+        }
+        return result;
+    }
+
+    private PolicyCondition parseOr() {
+        PolicyCondition left = parseAnd();
+        while (acceptKeyword("OR") || accept("||")) {
+            left = new PolicyCondition.Or(left, parseAnd());
+        }
+        return left;
+    }
+
+    private PolicyCondition parseAnd() {
+        PolicyCondition left = parseUnary();
+        while (acceptKeyword("AND") || accept("&&")) {
+            left = new PolicyCondition.And(left, parseUnary());
+        }
+        return left;
+    }
+
+    private PolicyCondition parseUnary() {
+        if (acceptKeyword("NOT") || accept("!")) {
+            return new PolicyCondition.Not(parseUnary());
+        }
+        return parsePrimary();
+    }
+
+    private PolicyCondition parsePrimary() {
+        if (accept("(")) {
+            PolicyCondition inner = parseOr();
+            expect(")");
+            return inner;
+        }
+        if (acceptKeyword("TRUE")) {
+            return PolicyCondition.ALWAYS;
+        }
+        if (acceptKeyword("FALSE")) {
+            return PolicyCondition.NEVER;
+        }
+        return parseComparison();
+    }
+
+    private PolicyCondition parseComparison() {
+        String ref = next();
+
+        if (accept("==") || accept("=")) {
+            return equalsCondition(ref, literal(next()));
+        }
+        if (accept("!=") || accept("<>")) {
+            return new PolicyCondition.Not(equalsCondition(ref, literal(next())));
+        }
+
+        boolean negated = acceptKeyword("NOT");
+        if (acceptKeyword("IN")) {
+            PolicyCondition in = inCondition(ref, parseLiteralList());
+            return negated ? new PolicyCondition.Not(in) : in;
+        }
+
+        throw new IllegalArgumentException("Expected comparison after: " + ref);
+    }
+
+    private Set<String> parseLiteralList() {
+        expect("(");
+        Set<String> values = new LinkedHashSet<>();
+        do {
+            values.add(literal(next()));
+        } while (accept(","));
+        expect(")");
+        return values;
+    }
+
+    private static PolicyCondition equalsCondition(String ref, String value) {
+        if (isRoleRef(ref)) {
+            return new PolicyCondition.HasRole(value);
+        }
+        return new PolicyCondition.Equals(userField(ref), value);
+    }
+
+    private static PolicyCondition inCondition(String ref, Set<String> values) {
+        if (isRoleRef(ref)) {
+            return new PolicyCondition.HasAnyRole(values.stream().sorted().toArray(String[]::new));
+        }
+        return new PolicyCondition.In(userField(ref), Set.copyOf(values));
+    }
+
+    private static boolean isRoleRef(String ref) {
+        return ref.equals("user.role") || ref.equals("user.roles");
+    }
+
+    private static PolicyCondition.UserField userField(String ref) {
+        if (!ref.startsWith("user.") || ref.length() == "user.".length()) {
+            throw new IllegalArgumentException("Unknown reference: " + ref);
+        }
+        String name = ref.substring("user.".length());
+        return switch (name) {
+            case "id" -> new PolicyCondition.UserField(PolicyCondition.UserField.Kind.ID, null);
+            case "email" -> new PolicyCondition.UserField(PolicyCondition.UserField.Kind.EMAIL, null);
+            default -> new PolicyCondition.UserField(PolicyCondition.UserField.Kind.ATTRIBUTE, name);
+        };
+    }
+
+    private static String literal(String token) {
+        if (token.length() >= 2
+                && (token.charAt(0) == '\'' || token.charAt(0) == '"')
+                && token.charAt(token.length() - 1) == token.charAt(0)) {
+            return token.substring(1, token.length() - 1);
+        }
+        if (isSymbol(token)) {
+            throw new IllegalArgumentException("Expected literal but found: " + token);
+        }
+        return token;
+    }
+
+    // Token helpers
+
+    private String peek() {
+        return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private String next() {
+        if (position >= tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of condition");
+        }
+        return tokens.get(position++);
+    }
+
+    private boolean accept(String symbol) {
+        if (symbol.equals(peek())) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        String token = peek();
+        if (token != null && token.equalsIgnoreCase(keyword)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String symbol) {
+        if (!accept(symbol)) {
+            throw new IllegalArgumentException("Expected '" + symbol + "' but found: " + peek());
+        }
+    }
+
+    private static boolean isSymbol(String token) {
+        return switch (token) {
+            case "(", ")", ",", "=", "==", "!=", "<>", "!", "&&", "||" -> true;
+            default -> false;
+        };
+    }
+
+    private static List<String> tokenize(String input) {
+        List<String> tokens = new ArrayList<>();
+        int i = 0;
+        int length = input.length();
+
+        while (i < length) {
+            char c = input.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '\'' || c == '"') {
+                int end = input.indexOf(c, i + 1);
+                if (end < 0) {
+                    throw new IllegalArgumentException("Unterminated string literal");
+                }
+                tokens.add(input.substring(i, end + 1));
+                i = end + 1;
+            } else if (c == '(' || c == ')' || c == ',') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else if (i + 1 < length && isTwoCharOperator(c, input.charAt(i + 1))) {
+                tokens.add(input.substring(i, i + 2));
+                i += 2;
+            } else if (c == '=' || c == '!') {
+                tokens.add(String.valueOf(c));
+                i++;
+            } else {
+                int start = i;
+                while (i < length && isWordChar(input.charAt(i))) {
+                    i++;
+                }
+                if (start == i) {
+                    throw new IllegalArgumentException("Unexpected character: " + c);
+                }
+                tokens.add(input.substring(start, i));
+            }
+        }
+
+        return tokens;
+    }
+
+    private static boolean isTwoCharOperator(char first, char second) {
+        return (first == '=' && second == '=')
+                || (first == '!' && second == '=')
+                || (first == '<' && second == '>')
+                || (first == '&' && second == '&')
+                || (first == '|' && second == '|');
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '-' || c == '@';
+    }
+}
@@ -0,0 +1,186 @@
+package com.thp.sqlsaas.entitlement.condition;
+
+import com.thp.sqlsaas.entitlement.model.EntitlementContext;
+
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Compiled policy condition.
+ *
+ * Produced once by {@link ConditionParser} when a policy is built, then evaluated
+ * against each request's {@link EntitlementContext}. Evaluation only reads the
+ * context and never allocates.
+ */
+public sealed interface PolicyCondition {
+
+    /**
+     * Condition that always holds (policies without a condition).
+     */
+    PolicyCondition ALWAYS = new Constant(true);
+
+    /**
+     * Condition that never holds (unparseable conditions fail closed).
+     */
+    PolicyCondition NEVER = new Constant(false);
+
+    boolean evaluate(EntitlementContext context);
+
+    /**
+     * Whether the result depends on the user's identity (id or email) rather than
+     * only on roles and attributes. Decisions for such conditions are not shared
+     * between users.
+     */
+    default boolean dependsOnIdentity() {
+        return false;
+    }
+
+    record Constant(boolean value) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            return value;
+        }
+    }
+
+    record And(PolicyCondition left, PolicyCondition right) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            return left.evaluate(context) && right.evaluate(context);
+        }
+
+        @Override
+        public boolean dependsOnIdentity() {
+            return left.dependsOnIdentity() || right.dependsOnIdentity();
+        }
+    }
+
+    record Or(PolicyCondition left, PolicyCondition right) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            return left.evaluate(context) || right.evaluate(context);
+        }
+
+        @Override
+        public boolean dependsOnIdentity() {
+            return left.dependsOnIdentity() || right.dependsOnIdentity();
+        }
+    }
+
+    record Not(PolicyCondition operand) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            return !operand.evaluate(context);
+        }
+
+        @Override
+        public boolean dependsOnIdentity() {
+            return operand.dependsOnIdentity();
+        }
+    }
+
+    /**
+     * {@code user.role == 'X'} - true if the user holds the role.
+     */
+    record HasRole(String role) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            return context.hasRole(role);
+        }
+    }
+
+    /**
+     * {@code user.role IN ('X', 'Y')} - true if the user holds any of the roles.
+     * Roles are kept in a sorted array so evaluation loops without an iterator;
+     * equality compares the array contents.
+     */
+    record HasAnyRole(String[] roles) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            for (int i = 0; i < roles.length; i++) {
+                if (context.hasRole(roles[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HasAnyRole other && Arrays.equals(roles, other.roles);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(roles);
+        }
+
+        @Override
+        public String toString() {
+            return "HasAnyRole[roles=" + Arrays.toString(roles) + "]";
+        }
+    }
+
+    /**
+     * {@code user.<field> == 'X'} - compares a user field or attribute.
+     */
+    record Equals(UserField field, String value) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            String actual = field.resolve(context);
+            return actual != null && actual.equals(value);
+        }
+
+        @Override
+        public boolean dependsOnIdentity() {
+            return field.isIdentity();
+        }
+    }
+
+    /**
+     * {@code user.<field> IN ('X', 'Y')} - membership test on a user field or attribute.
+     */
+    record In(UserField field, Set<String> values) implements PolicyCondition {
+        @Override
+        public boolean evaluate(EntitlementContext context) {
+            String actual = field.resolve(context);
+            return actual != null && values.contains(actual);
+        }
+
+        @Override
+        public boolean dependsOnIdentity() {
+            return field.isIdentity();
+        }
+    }
+
+    /**
+     * Reference to a scalar field of the requesting user.
+     *
+     * @param kind which part of the context to read
+     * @param attribute attribute name when {@code kind} is {@link Kind#ATTRIBUTE}
+     */
+    record UserField(Kind kind, String attribute) {
+
+        public enum Kind {
+            ID,
+            EMAIL,
+            ATTRIBUTE
+        }
+
+        boolean isIdentity() {
+            return kind != Kind.ATTRIBUTE;
+        }
+
+        String resolve(EntitlementContext context) {
+            return switch (kind) {
+                case ID -> context.getUserId();
+                case EMAIL -> context.getEmail();
+                case ATTRIBUTE -> {
+                    Object value = context.getAttributes() != null
+                            ? context.getAttributes().get(attribute)
+                            : null;
+                    yield value != null ? value.toString() : null;
+                }
+            };
+        }
+    }
+}
@@ -1,17 +1,14 @@
 package com.thp.sqlsaas.entitlement.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
 /**
  * Defines how to mask/transform a column value.
+ * Immutable, as policies holding it are shared between concurrent requests.
  */
-@Data
+@Value
 @Builder
-@NoArgsConstructor
-@AllArgsConstructor
 public class ColumnMask {
     
     private MaskType maskType;
@@ -1,25 +1,33 @@
 package com.thp.sqlsaas.entitlement.model;
 
-import lombok.AllArgsConstructor;
+import com.thp.sqlsaas.entitlement.condition.ConditionParser;
+import com.thp.sqlsaas.entitlement.condition.PolicyCondition;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
 
-import java.util.HashSet;
+import java.util.Comparator;
 import java.util.Set;
 
 /**
  * Individual policy rule.
+ * Immutable so that compiled policies can be shared between concurrent requests.
+ * The condition is compiled once when the policy is built.
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class Policy {
     
+    /**
+     * Evaluation order: highest priority first, ties broken by policy id so the
+     * order does not depend on how the policies were loaded.
+     */
+    public static final Comparator<Policy> PRECEDENCE = Comparator
+            .comparingInt(Policy::getPriority).reversed()
+            .thenComparing(Policy::getPolicyId, Comparator.nullsLast(Comparator.naturalOrder()));
+    
     private String policyId;
     private PolicyType type;
     private PolicyAction action;
+    private int priority;           // Higher is evaluated first
     
     // Scope
     private String sourcePattern;   // "github.*", "salesforce", "*"
@@ -27,14 +35,41 @@ public class Policy {
     
     // Conditions
     private String condition;       // Simple expression: "user.role == 'ADMIN'"
+    private PolicyCondition compiledCondition;
     
     // Actions
-    @Builder.Default
-    private Set<String> allowedColumns = new HashSet<>();
+    private Set<String> allowedColumns;
     private RowFilter rowFilter;
     private ColumnMask columnMask;
     private String columnToMask;
     
+    @Builder(toBuilder = true)
+    private Policy(
+            String policyId,
+            PolicyType type,
+            PolicyAction action,
+            int priority,
+            String sourcePattern,
+            String tablePattern,
+            String condition,
+            Set<String> allowedColumns,
+            RowFilter rowFilter,
+            ColumnMask columnMask,
+            String columnToMask) {
+        this.policyId = policyId;
+        this.type = type;
+        this.action = action;
+        this.priority = priority;
+        this.sourcePattern = sourcePattern;
+        this.tablePattern = tablePattern;
+        this.condition = condition;
+        this.compiledCondition = ConditionParser.compile(condition);
+        this.allowedColumns = allowedColumns != null ? Set.copyOf(allowedColumns) : Set.of();
+        this.rowFilter = rowFilter;
+        this.columnMask = columnMask;
+        this.columnToMask = columnToMask;
+    }
+    
     public enum PolicyType {
         TABLE_ACCESS,   // Allow/deny table access
         RLS,            // Row-level security
@@ -73,72 +108,6 @@ public class Policy {
      * Evaluate condition against context
      */
     public boolean evaluate(EntitlementContext context) {
-        if (condition == null || condition.isEmpty()) {
-            return true;
-        }
-        
-        // Simple expression evaluator
-        // Format: "user.role == 'ADMIN'" or "user.department == 'SALES'"
-        try {
-            // Handle != operator
-            if (condition.contains("!=")) {
-                String[] parts = condition.split("!=");
-                if (parts.length != 2) {
-                    return false;
-                }
-                
-                String left = parts[0].trim();
-                String right = parts[1].trim().replace("'", "").replace("\"", "");
-                
-                return !evaluateEquals(left, right, context);
-            }
-            
-            // Handle == operator
-            if (condition.contains("==")) {
-                String[] parts = condition.split("==");
-                if (parts.length != 2) {
-                    return false;
-                }
-                
-                String left = parts[0].trim();
-                String right = parts[1].trim().replace("'", "").replace("\"", "");
-                
-                return evaluateEquals(left, right, context);
-            }
-            
-            // Handle = operator
-            if (condition.contains("=")) {
-                String[] parts = condition.split("=");
-                if (parts.length != 2) {
-                    return false;
-                }
-                
-                String left = parts[0].trim();
-                String right = parts[1].trim().replace("'", "").replace("\"", "");
-                
-                return evaluateEquals(left, right, context);
-            }
-            
-            return false;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-    
-    private boolean evaluateEquals(String left, String right, EntitlementContext context) {
-        if (left.startsWith("user.role")) {
-            return context.hasRole(right);
-        } else if (left.startsWith("user.department")) {
-            Object dept = context.getAttributes().get("department");
-            return dept != null && dept.toString().equals(right);
-        } else if (left.startsWith("user.region")) {
-            Object region = context.getAttributes().get("region");
-            return region != null && region.toString().equals(right);
-        } else if (left.startsWith("user.type")) {
-            Object type = context.getAttributes().get("type");
-            return type != null && type.toString().equals(right);
-        }
-        
-        return false;
+        return compiledCondition.evaluate(context);
     }
 }
@@ -1,18 +1,19 @@
 package com.thp.sqlsaas.entitlement.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
-import lombok.NoArgsConstructor;
+import lombok.Value;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * Represents a row-level filter to be applied.
  * Can be converted to SQL predicate or applied in-memory.
+ * Immutable, as policies holding it are shared between concurrent requests;
+ * use {@link #toBuilder()} to derive a filter with another value.
  */
-@Data
-@Builder
-@NoArgsConstructor
-@AllArgsConstructor
+@Value
 public class RowFilter {
     
     private String columnName;
@@ -20,6 +21,15 @@ public class RowFilter {
     private Object value;
     private String policyId;
     
+    @Builder(toBuilder = true)
+    private RowFilter(String columnName, FilterOperator operator, Object value, String policyId) {
+        this.columnName = columnName;
+        this.operator = operator;
+        // IN lists come from the policy config; keep a copy the caller cannot change
+        this.value = value instanceof List<?> list ? Collections.unmodifiableList(new ArrayList<>(list)) : value;
+        this.policyId = policyId;
+    }
+    
     public enum FilterOperator {
         EQUALS("="),
         NOT_EQUALS("!="),
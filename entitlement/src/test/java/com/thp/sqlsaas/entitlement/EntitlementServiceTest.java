@@ -2,6 +2,7 @@ package com.thp.sqlsaas.entitlement;
 
 import com.thp.sqlsaas.entitlement.model.*;
 import com.thp.sqlsaas.persistence.entity.EntitlementPolicy;
+import com.thp.sqlsaas.persistence.event.PolicyChangedEvent;
 import com.thp.sqlsaas.persistence.service.PolicyService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -68,7 +69,7 @@ class EntitlementServiceTest {
     @Test
     void testAuthorizeQuery_NoPolicies_Allowed() {
         // Given
-        when(policyService.getApplicablePolicies(anyString(), anyString(), anyString()))
+        when(policyService.getPoliciesForTenant(anyString()))
                 .thenReturn(Collections.emptyList());
         
         // When
@@ -87,7 +88,7 @@ class EntitlementServiceTest {
         EntitlementPolicy policyEntity = createRLSPolicyEntity();
         Policy policy = createRLSPolicy();
         
-        when(policyService.getApplicablePolicies("1", "github", "issues"))
+        when(policyService.getPoliciesForTenant("1"))
                 .thenReturn(List.of(policyEntity));
         when(policyLoader.convertToPolicy(policyEntity))
                 .thenReturn(policy);
@@ -113,7 +114,7 @@ class EntitlementServiceTest {
         EntitlementPolicy policyEntity = createCLSPolicyEntity();
         Policy policy = createCLSPolicy();
         
-        when(policyService.getApplicablePolicies("1", "github", "issues"))
+        when(policyService.getPoliciesForTenant("1"))
                 .thenReturn(List.of(policyEntity));
         when(policyLoader.convertToPolicy(policyEntity))
                 .thenReturn(policy);
@@ -139,7 +140,7 @@ class EntitlementServiceTest {
         EntitlementPolicy policyEntity = createDenyPolicyEntity();
         Policy policy = createDenyPolicy();
         
-        when(policyService.getApplicablePolicies("1", "github", "audit_logs"))
+        when(policyService.getPoliciesForTenant("1"))
                 .thenReturn(List.of(policyEntity));
         when(policyLoader.convertToPolicy(policyEntity))
                 .thenReturn(policy);
@@ -163,7 +164,7 @@ class EntitlementServiceTest {
         EntitlementPolicy allowPolicy = createAdminAllowPolicyEntity();
         Policy policy = createAdminAllowPolicy();
         
-        when(policyService.getApplicablePolicies("1", "github", "issues"))
+        when(policyService.getPoliciesForTenant("1"))
                 .thenReturn(List.of(allowPolicy));
         when(policyLoader.convertToPolicy(allowPolicy))
                 .thenReturn(policy);
@@ -178,6 +179,296 @@ class EntitlementServiceTest {
         assertTrue(decision.getRowFilters().isEmpty()); // No filters for admin
     }
     
+    @Test
+    void testAuthorizeQuery_PoliciesCachedPerTenant() {
+        // Given
+        EntitlementPolicy policyEntity = createRLSPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(policyEntity));
+        when(policyLoader.convertToPolicy(policyEntity))
+                .thenReturn(createRLSPolicy());
+        
+        // When
+        entitlementService.authorizeQuery(testContext, "github", "issues", Set.of("id"));
+        entitlementService.authorizeQuery(testContext, "github", "issues", Set.of("id"));
+        entitlementService.authorizeQuery(testContext, "github", "pulls", Set.of("id"));
+        
+        // Then
+        verify(policyService, times(1)).getPoliciesForTenant("1");
+        PolicyCache.Stats stats = entitlementService.getPolicyCacheStats();
+        assertEquals(1, stats.misses());
+        assertEquals(2, stats.hits());
+        assertEquals(1, stats.loads());
+    }
+    
+    @Test
+    void testAuthorizeQuery_PolicyChangeReloadsTenant() {
+        // Given
+        EntitlementPolicy policyEntity = createRLSPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(policyEntity));
+        when(policyLoader.convertToPolicy(policyEntity))
+                .thenReturn(createRLSPolicy());
+        
+        entitlementService.authorizeQuery(testContext, "github", "issues", Set.of("id"));
+        
+        // When
+        entitlementService.onPolicyChanged(new PolicyChangedEvent(
+                "1", "rls-github-own-issues", PolicyChangedEvent.ChangeType.UPDATED));
+        entitlementService.onPolicyChanged(new PolicyChangedEvent(
+                "2", "other-tenant-policy", PolicyChangedEvent.ChangeType.DELETED));
+        entitlementService.authorizeQuery(testContext, "github", "issues", Set.of("id"));
+        
+        // Then
+        verify(policyService, times(2)).getPoliciesForTenant("1");
+        assertEquals(2, entitlementService.getPolicyCacheStats().invalidations());
+    }
+    
+    @Test
+    void testAuthorizeQuery_PrefixPatternNotExpanded() {
+        // Given - only exact names and "*" scope a policy, as in findApplicablePolicies
+        EntitlementPolicy policyEntity = createDenyPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(policyEntity));
+        when(policyLoader.convertToPolicy(policyEntity))
+                .thenReturn(createDenyPolicy().toBuilder()
+                        .sourcePattern("git.*")
+                        .tablePattern("*")
+                        .build());
+        
+        // When
+        EntitlementDecision decision = entitlementService.authorizeQuery(
+                testContext, "github", "issues", Set.of("id"));
+        
+        // Then
+        assertTrue(decision.isAllowed());
+        assertTrue(decision.getAppliedPolicies().isEmpty());
+    }
+    
+    @Test
+    void testAuthorizeQuery_CachedPolicyNotMutatedBySubstitution() {
+        // Given
+        EntitlementPolicy policyEntity = createRLSPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(policyEntity));
+        when(policyLoader.convertToPolicy(policyEntity))
+                .thenReturn(createRLSPolicy());
+        
+        EntitlementContext otherUser = EntitlementContext.builder()
+                .userId("jane_smith")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("USER")))
+                .build();
+        
+        // When
+        EntitlementDecision first = entitlementService.authorizeQuery(
+                testContext, "github", "issues", Set.of("id", "assignee"));
+        EntitlementDecision second = entitlementService.authorizeQuery(
+                otherUser, "github", "issues", Set.of("id", "assignee"));
+        
+        // Then
+        assertEquals("john_doe", first.getRowFilters().get(0).getValue());
+        assertEquals("jane_smith", second.getRowFilters().get(0).getValue());
+    }
+    
+    @Test
+    void testAuthorizeQuery_DecisionSharedAcrossSameRoles() {
+        // Given
+        EntitlementPolicy rlsEntity = createRLSPolicyEntity();
+        EntitlementPolicy clsEntity = createCLSPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(rlsEntity, clsEntity));
+        when(policyLoader.convertToPolicy(rlsEntity)).thenReturn(createRLSPolicy());
+        when(policyLoader.convertToPolicy(clsEntity)).thenReturn(createCLSPolicy());
+        
+        EntitlementContext john = EntitlementContext.builder()
+                .userId("john_doe")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("USER")))
+                .build();
+        EntitlementContext jane = EntitlementContext.builder()
+                .userId("jane_smith")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("USER")))
+                .build();
+        EntitlementContext hrAdmin = EntitlementContext.builder()
+                .userId("hr_admin")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("HR_ADMIN")))
+                .build();
+        Set<String> columns = Set.of("id", "email", "assignee");
+        
+        // When
+        EntitlementDecision first = entitlementService.authorizeQuery(john, "github", "issues", columns);
+        EntitlementDecision second = entitlementService.authorizeQuery(jane, "github", "issues", columns);
+        EntitlementDecision third = entitlementService.authorizeQuery(hrAdmin, "github", "issues", columns);
+        
+        // Then
+        DecisionCache.Stats stats = entitlementService.getDecisionCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(2, stats.misses());
+        
+        assertEquals(Set.of("id", "assignee"), first.getAllowedColumns());
+        assertEquals(Set.of("id", "assignee"), second.getAllowedColumns());
+        assertEquals("john_doe", first.getRowFilters().get(0).getValue());
+        assertEquals("jane_smith", second.getRowFilters().get(0).getValue());
+        assertEquals(Set.of("id", "email", "assignee"), third.getAllowedColumns());
+        
+        // Decisions are owned by the caller
+        first.getAllowedColumns().add("email");
+        assertFalse(entitlementService.authorizeQuery(jane, "github", "issues", columns)
+                .getAllowedColumns().contains("email"));
+    }
+    
+    @Test
+    void testDecisionFingerprint_SharedByEquivalentEntitlements() {
+        // Given
+        EntitlementPolicy clsEntity = createCLSPolicyEntity();
+        when(policyService.getPoliciesForTenant("1")).thenReturn(List.of(clsEntity));
+        when(policyLoader.convertToPolicy(clsEntity)).thenReturn(createCLSPolicy());
+        
+        Set<String> columns = Set.of("id", "email", "assignee");
+        
+        // When
+        String john = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("john_doe", "USER"), "github", "issues", columns));
+        String jane = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("jane_smith", "USER"), "github", "issues", columns));
+        String hrAdmin = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("hr_admin", "HR_ADMIN"), "github", "issues", columns));
+        
+        // Then - same roles and no user-specific filters: one shared result
+        assertEquals(john, jane);
+        assertNotEquals(john, hrAdmin);
+    }
+    
+    @Test
+    void testDecisionFingerprint_DiffersForSubstitutedRowFilters() {
+        // Given
+        EntitlementPolicy rlsEntity = createRLSPolicyEntity();
+        when(policyService.getPoliciesForTenant("1")).thenReturn(List.of(rlsEntity));
+        when(policyLoader.convertToPolicy(rlsEntity)).thenReturn(createRLSPolicy());
+        
+        Set<String> columns = Set.of("id", "assignee");
+        
+        // When
+        String john = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("john_doe", "USER"), "github", "issues", columns));
+        String johnAgain = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("john_doe", "USER"), "github", "issues", columns));
+        String jane = DecisionFingerprint.of(entitlementService.authorizeQuery(
+                userContext("jane_smith", "USER"), "github", "issues", columns));
+        
+        // Then - assignee = ${user.id} means each user sees different rows
+        assertEquals(john, johnAgain);
+        assertNotEquals(john, jane);
+        
+        // Filter order and audit information do not matter, values and their types do
+        RowFilter open = RowFilter.builder().columnName("state")
+                .operator(RowFilter.FilterOperator.EQUALS).value("open").policyId("a").build();
+        RowFilter own = RowFilter.builder().columnName("assignee")
+                .operator(RowFilter.FilterOperator.EQUALS).value("1").policyId("b").build();
+        EntitlementDecision decision = EntitlementDecision.allow();
+        decision.setRowFilters(List.of(open, own));
+        EntitlementDecision reordered = EntitlementDecision.allow();
+        reordered.setRowFilters(List.of(own.toBuilder().policyId("c").build(), open));
+        reordered.setAppliedPolicies(List.of("c"));
+        EntitlementDecision numeric = EntitlementDecision.allow();
+        numeric.setRowFilters(List.of(open, own.toBuilder().value(1).build()));
+        
+        assertEquals(DecisionFingerprint.of(decision), DecisionFingerprint.of(reordered));
+        assertNotEquals(DecisionFingerprint.of(decision), DecisionFingerprint.of(numeric));
+    }
+    
+    @Test
+    void testAuthorizeQuery_PolicyChangeBypassesCachedDecision() {
+        // Given
+        EntitlementPolicy clsEntity = createCLSPolicyEntity();
+        EntitlementContext user = EntitlementContext.builder()
+                .userId("john_doe")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("USER")))
+                .build();
+        Set<String> columns = Set.of("id", "email");
+        
+        when(policyService.getPoliciesForTenant("1"))
+                .thenReturn(List.of(clsEntity))
+                .thenReturn(List.of());
+        when(policyLoader.convertToPolicy(clsEntity)).thenReturn(createCLSPolicy());
+        
+        EntitlementDecision before = entitlementService.authorizeQuery(user, "github", "issues", columns);
+        
+        // When
+        entitlementService.onPolicyChanged(new PolicyChangedEvent(
+                "1", "cls-hide-email", PolicyChangedEvent.ChangeType.DELETED));
+        EntitlementDecision after = entitlementService.authorizeQuery(user, "github", "issues", columns);
+        
+        // Then
+        assertEquals(Set.of("id"), before.getAllowedColumns());
+        assertEquals(Set.of("id", "email"), after.getAllowedColumns());
+        assertEquals(0, entitlementService.getDecisionCacheStats().hits());
+    }
+    
+    @Test
+    void testAuthorizeQuery_PoliciesAppliedInPrecedenceOrder() {
+        // Given
+        EntitlementPolicy low = createCLSPolicyEntity();
+        EntitlementPolicy high = createRLSPolicyEntity();
+        EntitlementPolicy tied = createCLSPolicyEntity();
+        
+        Policy lowPolicy = createCLSPolicy().toBuilder().priority(1).build();
+        Policy tiedPolicy = createCLSPolicy().toBuilder().policyId("cls-a-hide-email").priority(1).build();
+        Policy highPolicy = createCLSPolicy().toBuilder().policyId("cls-keep-id").priority(50)
+                .action(Policy.PolicyAction.ALLOW)
+                .allowedColumns(Set.of("id", "title"))
+                .build();
+        
+        when(policyService.getPoliciesForTenant("1")).thenReturn(List.of(low, high, tied));
+        when(policyLoader.convertToPolicy(low)).thenReturn(lowPolicy);
+        when(policyLoader.convertToPolicy(high)).thenReturn(highPolicy);
+        when(policyLoader.convertToPolicy(tied)).thenReturn(tiedPolicy);
+        
+        EntitlementContext user = EntitlementContext.builder()
+                .userId("john_doe")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("USER")))
+                .build();
+        
+        // When
+        EntitlementDecision decision = entitlementService.authorizeQuery(
+                user, "github", "issues", Set.of("id", "title", "email"));
+        
+        // Then
+        assertEquals(List.of("cls-keep-id", "cls-a-hide-email", "cls-hide-email"),
+                decision.getAppliedPolicies());
+        assertEquals(Set.of("id", "title"), decision.getAllowedColumns());
+    }
+    
+    @Test
+    void testAuthorizeQuery_AppliedPoliciesInPrecedenceAcrossTypes() {
+        // Given - an RLS policy that outranks a CLS policy
+        EntitlementPolicy rlsEntity = createRLSPolicyEntity();
+        EntitlementPolicy clsEntity = createCLSPolicyEntity();
+        
+        when(policyService.getPoliciesForTenant("1")).thenReturn(List.of(clsEntity, rlsEntity));
+        when(policyLoader.convertToPolicy(clsEntity)).thenReturn(createCLSPolicy());
+        when(policyLoader.convertToPolicy(rlsEntity))
+                .thenReturn(createRLSPolicy().toBuilder().priority(20).build());
+        
+        // When
+        EntitlementDecision decision = entitlementService.authorizeQuery(
+                testContext, "github", "issues", Set.of("id", "assignee"));
+        
+        // Then
+        assertEquals(List.of("rls-github-own-issues", "cls-hide-email"),
+                decision.getAppliedPolicies());
+    }
+    
     @Test
     void testApplyRowFilters() {
         // Given
@@ -233,6 +524,14 @@ class EntitlementServiceTest {
     
     // Helper methods to create test data
     
+    private EntitlementContext userContext(String userId, String role) {
+        return EntitlementContext.builder()
+                .userId(userId)
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of(role)))
+                .build();
+    }
+    
     private EntitlementPolicy createRLSPolicyEntity() {
         EntitlementPolicy policy = new EntitlementPolicy();
         policy.setId(1L);
@@ -256,6 +555,7 @@ class EntitlementServiceTest {
     private Policy createRLSPolicy() {
         return Policy.builder()
                 .policyId("rls-github-own-issues")
+                .priority(10)
                 .type(Policy.PolicyType.RLS)
                 .action(Policy.PolicyAction.FILTER)
                 .sourcePattern("github")
@@ -287,6 +587,7 @@ class EntitlementServiceTest {
     private Policy createCLSPolicy() {
         return Policy.builder()
                 .policyId("cls-hide-email")
+                .priority(10)
                 .type(Policy.PolicyType.CLS)
                 .action(Policy.PolicyAction.DENY)
                 .sourcePattern("github")
@@ -314,6 +615,7 @@ class EntitlementServiceTest {
     private Policy createDenyPolicy() {
         return Policy.builder()
                 .policyId("deny-audit-logs")
+                .priority(100)
                 .type(Policy.PolicyType.TABLE_ACCESS)
                 .action(Policy.PolicyAction.DENY)
                 .sourcePattern("github")
@@ -340,6 +642,7 @@ class EntitlementServiceTest {
     private Policy createAdminAllowPolicy() {
         return Policy.builder()
                 .policyId("admin-all-access")
+                .priority(1000)
                 .type(Policy.PolicyType.TABLE_ACCESS)
                 .action(Policy.PolicyAction.ALLOW)
                 .sourcePattern("*")
@@ -0,0 +1,91 @@
+package com.thp.sqlsaas.entitlement.condition;
+
+import com.thp.sqlsaas.entitlement.model.EntitlementContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConditionParserTest {
+
+    private EntitlementContext context;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put("department", "SALES");
+        attributes.put("region", "EMEA");
+
+        context = EntitlementContext.builder()
+                .userId("john_doe")
+                .email("john.doe@demo.com")
+                .tenantId("1")
+                .roles(new HashSet<>(Set.of("developer")))
+                .attributes(attributes)
+                .build();
+    }
+
+    @Test
+    void testLegacyEqualityForms() {
+        assertTrue(ConditionParser.parse("user.role == 'developer'").evaluate(context));
+        assertTrue(ConditionParser.parse("user.role = 'developer'").evaluate(context));
+        assertTrue(ConditionParser.parse("user.role != 'ADMIN'").evaluate(context));
+        assertFalse(ConditionParser.parse("user.role != \"developer\"").evaluate(context));
+        assertTrue(ConditionParser.parse("user.department == 'SALES'").evaluate(context));
+        assertFalse(ConditionParser.parse("user.region == 'APAC'").evaluate(context));
+    }
+
+    @Test
+    void testBooleanOperatorsAndPrecedence() {
+        assertTrue(ConditionParser.parse(
+                "user.role == 'ADMIN' OR user.department == 'SALES' AND user.region == 'EMEA'")
+                .evaluate(context));
+        assertFalse(ConditionParser.parse(
+                "(user.role == 'ADMIN' OR user.department == 'SALES') AND NOT user.region == 'EMEA'")
+                .evaluate(context));
+        assertTrue(ConditionParser.parse("!(user.role == 'ADMIN') && true").evaluate(context));
+    }
+
+    @Test
+    void testInLists() {
+        assertTrue(ConditionParser.parse("user.role IN ('ADMIN', 'developer')").evaluate(context));
+        assertFalse(ConditionParser.parse("user.role NOT IN ('ADMIN', 'developer')").evaluate(context));
+        assertTrue(ConditionParser.parse("user.region in ('EMEA', 'APAC')").evaluate(context));
+        assertTrue(ConditionParser.parse("user.id IN ('john_doe')").evaluate(context));
+        assertTrue(ConditionParser.parse("user.email == 'john.doe@demo.com'").evaluate(context));
+    }
+
+    @Test
+    void testEqualConditionsCompareEqual() {
+        PolicyCondition first = ConditionParser.parse("user.role IN ('ADMIN', 'developer')");
+        PolicyCondition second = ConditionParser.parse("user.role in ('developer', 'ADMIN')");
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    @Test
+    void testMissingAttributeDoesNotMatch() {
+        assertFalse(ConditionParser.parse("user.type == 'EMPLOYEE'").evaluate(context));
+        assertTrue(ConditionParser.parse("user.type != 'EMPLOYEE'").evaluate(context));
+    }
+
+    @Test
+    void testCompile_EmptyAlwaysHolds() {
+        assertSame(PolicyCondition.ALWAYS, ConditionParser.compile(null));
+        assertSame(PolicyCondition.ALWAYS, ConditionParser.compile("  "));
+    }
+
+    @Test
+    void testCompile_InvalidFailsClosed() {
+        assertSame(PolicyCondition.NEVER, ConditionParser.compile("user.role =="));
+        assertSame(PolicyCondition.NEVER, ConditionParser.compile("tenant.plan == 'gold'"));
+        assertSame(PolicyCondition.NEVER, ConditionParser.compile("user.role IN ('a'"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConditionParser.parse("user.role == 'a' 'b'"));
+    }
+}
@@ -20,6 +20,10 @@ public class Tenant {
     @Column(nullable = false, length = 255)
     private String name;
 
+    // Relative share of connector execution slots under contention
+    @Column(name = "scheduling_weight", nullable = false)
+    private int schedulingWeight = 1;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -71,6 +75,14 @@ public class Tenant {
         this.name = name;
     }
 
+    public int getSchedulingWeight() {
+        return schedulingWeight;
+    }
+
+    public void setSchedulingWeight(int schedulingWeight) {
+        this.schedulingWeight = schedulingWeight;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
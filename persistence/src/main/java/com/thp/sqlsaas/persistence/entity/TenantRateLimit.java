@@ -0,0 +1,125 @@
+package com.thp.sqlsaas.persistence.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Rate limits of a tenant for one connector type, overriding the platform defaults.
+ */
+@Entity
+@Table(name = "tenant_rate_limits")
+public class TenantRateLimit {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tenant_id", nullable = false, length = 100)
+    private String tenantId;
+
+    // ConnectorType name, e.g. GITHUB
+    @Column(name = "connector_type", nullable = false, length = 50)
+    private String connectorType;
+
+    // Requests per period shared by all users of the tenant
+    @Column(name = "tenant_requests", nullable = false)
+    private int tenantRequests;
+
+    // Requests per period for each user of the tenant
+    @Column(name = "user_requests", nullable = false)
+    private int userRequests;
+
+    @Column(name = "period_seconds", nullable = false)
+    private int periodSeconds;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructors
+    public TenantRateLimit() {
+    }
+
+    public TenantRateLimit(String tenantId, String connectorType) {
+        this.tenantId = tenantId;
+        this.connectorType = connectorType;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTenantId() {
+        return tenantId;
+    }
+
+    public void setTenantId(String tenantId) {
+        this.tenantId = tenantId;
+    }
+
+    public String getConnectorType() {
+        return connectorType;
+    }
+
+    public void setConnectorType(String connectorType) {
+        this.connectorType = connectorType;
+    }
+
+    public int getTenantRequests() {
+        return tenantRequests;
+    }
+
+    public void setTenantRequests(int tenantRequests) {
+        this.tenantRequests = tenantRequests;
+    }
+
+    public int getUserRequests() {
+        return userRequests;
+    }
+
+    public void setUserRequests(int userRequests) {
+        this.userRequests = userRequests;
+    }
+
+    public int getPeriodSeconds() {
+        return periodSeconds;
+    }
+
+    public void setPeriodSeconds(int periodSeconds) {
+        this.periodSeconds = periodSeconds;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,36 @@
+package com.thp.sqlsaas.persistence.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process {@link RoleChangeFeed} for single-node deployments and development.
+ *
+ * Delivers events synchronously to the subscribers of this JVM only. A
+ * multi-node deployment replaces it with a feed backed by a shared broker.
+ */
+@Component
+public class LocalRoleChangeFeed implements RoleChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalRoleChangeFeed.class);
+
+    private final List<Consumer<RoleChangedEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(RoleChangedEvent event) {
+        logger.debug("Role change: tenant={}, user={}", event.tenantId(), event.userId());
+        for (Consumer<RoleChangedEvent> listener : listeners) {
+            listener.accept(event);
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<RoleChangedEvent> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,23 @@
+package com.thp.sqlsaas.persistence.event;
+
+/**
+ * Published whenever a tenant's entitlement policies are created, updated,
+ * deleted, enabled or disabled.
+ *
+ * Listeners that hold compiled copies of the policies (e.g. the entitlement
+ * policy cache) use this to drop exactly the affected tenant.
+ */
+public record PolicyChangedEvent(
+    String tenantId,
+    String policyId,
+    ChangeType changeType
+) {
+
+    public enum ChangeType {
+        CREATED,
+        UPDATED,
+        DELETED,
+        ENABLED,
+        DISABLED
+    }
+}
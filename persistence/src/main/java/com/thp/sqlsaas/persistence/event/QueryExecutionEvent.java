@@ -0,0 +1,79 @@
+package com.thp.sqlsaas.persistence.event;
+
+import com.thp.sqlsaas.persistence.entity.QueryExecution.QueryState;
+
+import java.time.Instant;
+
+/**
+ * A single lifecycle transition of a query execution.
+ *
+ * Emitted on the request path and written to {@code query_executions} in the
+ * background by {@link com.thp.sqlsaas.persistence.service.QueryExecutionRecorder}.
+ * Fields that a transition does not set are {@code null}.
+ */
+public record QueryExecutionEvent(
+    Type type,
+    String traceId,
+    Instant at,
+    QueryState state,
+    String tenantId,
+    String userId,
+    String sqlQuery,
+    String connectorType,
+    String resource,
+    String status,
+    String errorCode,
+    String errorMessage,
+    Integer rowsReturned,
+    Long executionTimeMs,
+    Long freshnessMs,
+    Boolean cacheHit
+) {
+
+    public enum Type {
+        CREATED,
+        STATE_CHANGED,
+        COMPLETED,
+        FAILED
+    }
+
+    public static QueryExecutionEvent created(
+            String traceId,
+            String tenantId,
+            String userId,
+            String sqlQuery,
+            String connectorType,
+            String resource) {
+        return new QueryExecutionEvent(Type.CREATED, traceId, Instant.now(), QueryState.PENDING,
+                tenantId, userId, sqlQuery, connectorType, resource,
+                null, null, null, null, null, null, false);
+    }
+
+    public static QueryExecutionEvent stateChanged(String traceId, QueryState state) {
+        return new QueryExecutionEvent(Type.STATE_CHANGED, traceId, Instant.now(), state,
+                null, null, null, null, null,
+                null, null, null, null, null, null, null);
+    }
+
+    public static QueryExecutionEvent completed(
+            String traceId,
+            String status,
+            Integer rowsReturned,
+            Long executionTimeMs,
+            Long freshnessMs,
+            Boolean cacheHit) {
+        return new QueryExecutionEvent(Type.COMPLETED, traceId, Instant.now(), QueryState.COMPLETED,
+                null, null, null, null, null,
+                status, null, null, rowsReturned, executionTimeMs, freshnessMs, cacheHit);
+    }
+
+    public static QueryExecutionEvent failed(
+            String traceId,
+            String errorCode,
+            String errorMessage,
+            Long executionTimeMs) {
+        return new QueryExecutionEvent(Type.FAILED, traceId, Instant.now(), QueryState.FAILED,
+                null, null, null, null, null,
+                "ERROR", errorCode, errorMessage, null, executionTimeMs, null, null);
+    }
+}
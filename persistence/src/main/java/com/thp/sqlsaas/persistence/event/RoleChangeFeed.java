@@ -0,0 +1,16 @@
+package com.thp.sqlsaas.persistence.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Broadcasts role changes to every node that caches user roles.
+ *
+ * A change published on one node must reach the subscribers of all nodes,
+ * including the publishing one.
+ */
+public interface RoleChangeFeed {
+
+    void publish(RoleChangedEvent event);
+
+    void subscribe(Consumer<RoleChangedEvent> listener);
+}
@@ -0,0 +1,21 @@
+package com.thp.sqlsaas.persistence.event;
+
+/**
+ * Published when a user's role assignments change.
+ *
+ * A {@code null} userId means every user of the tenant is affected (e.g. a role
+ * was renamed or removed).
+ */
+public record RoleChangedEvent(
+    String tenantId,
+    String userId
+) {
+
+    public static RoleChangedEvent forTenant(String tenantId) {
+        return new RoleChangedEvent(tenantId, null);
+    }
+
+    public boolean affectsWholeTenant() {
+        return userId == null;
+    }
+}
@@ -0,0 +1,25 @@
+package com.thp.sqlsaas.persistence.repository;
+
+import com.thp.sqlsaas.persistence.entity.TenantRateLimit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for per-tenant rate limits.
+ */
+@Repository
+public interface TenantRateLimitRepository extends JpaRepository<TenantRateLimit, Long> {
+
+    /**
+     * Find all rate limits of a tenant.
+     */
+    List<TenantRateLimit> findByTenantId(String tenantId);
+
+    /**
+     * Find the rate limit of a tenant for one connector type.
+     */
+    Optional<TenantRateLimit> findByTenantIdAndConnectorType(String tenantId, String connectorType);
+}
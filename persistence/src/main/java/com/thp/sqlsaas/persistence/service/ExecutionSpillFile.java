@@ -0,0 +1,249 @@
+package com.thp.sqlsaas.persistence.service;
+
+import com.thp.sqlsaas.persistence.entity.QueryExecution.QueryState;
+import com.thp.sqlsaas.persistence.event.QueryExecutionEvent;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Append-only local file holding execution events that did not fit in the
+ * recorder's buffer. Not thread-safe; callers serialize access.
+ */
+final class ExecutionSpillFile {
+
+    private final Path file;
+    private final Path replayFile;
+    private DataOutputStream out;
+
+    ExecutionSpillFile(Path directory) {
+        this.file = directory.resolve("query-executions.spill");
+        this.replayFile = directory.resolve("query-executions.replay");
+    }
+
+    void append(QueryExecutionEvent event) throws IOException {
+        if (out == null) {
+            Files.createDirectories(file.getParent());
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(
+                    file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        }
+        write(out, event);
+    }
+
+    /**
+     * Close the current file and move it aside for replay. New appends start a
+     * fresh file.
+     */
+    Path rotate() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        Files.move(file, replayFile, StandardCopyOption.REPLACE_EXISTING);
+        return replayFile;
+    }
+
+    /**
+     * Whether a previous process left events behind. Only meaningful before the
+     * first {@link #append}.
+     */
+    boolean hasLeftovers() {
+        return Files.exists(file) || Files.exists(replayFile);
+    }
+
+    Path leftoverReplayFile() throws IOException {
+        if (Files.exists(file)) {
+            if (Files.exists(replayFile)) {
+                // Keep both: append the newer file to the pending replay
+                try (var in = Files.newInputStream(file)) {
+                    Files.write(replayFile, in.readAllBytes(), StandardOpenOption.APPEND);
+                }
+                Files.delete(file);
+            } else {
+                Files.move(file, replayFile);
+            }
+        }
+        return replayFile;
+    }
+
+    /**
+     * Put events ahead of everything spilled so far. Used at shutdown for events
+     * that are older than the spill file but could not be written.
+     */
+    void prepend(List<QueryExecutionEvent> events) throws IOException {
+        close();
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling("query-executions.tmp");
+        try (DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            for (QueryExecutionEvent event : events) {
+                write(tmpOut, event);
+            }
+            if (Files.exists(file)) {
+                Files.copy(file, tmpOut);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static Reader open(Path path) throws IOException {
+        return new Reader(path);
+    }
+
+    /**
+     * Replace a partly replayed file with {@code head} followed by the events
+     * {@code rest} has not returned yet, so a later replay resumes where this one stopped.
+     */
+    static void retain(Path path, List<QueryExecutionEvent> head, Reader rest) throws IOException {
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            for (QueryExecutionEvent event : head) {
+                write(tmpOut, event);
+            }
+            QueryExecutionEvent event;
+            while ((event = rest.next()) != null) {
+                write(tmpOut, event);
+            }
+        } finally {
+            rest.close();
+        }
+        Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    /**
+     * Sequential reader over a spill or replay file.
+     */
+    static final class Reader implements Closeable {
+
+        private final DataInputStream in;
+        private boolean closed;
+
+        private Reader(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        /**
+         * The next event, or {@code null} at the end of the file.
+         */
+        QueryExecutionEvent next() throws IOException {
+            try {
+                return read(in);
+            } catch (EOFException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                in.close();
+            }
+        }
+    }
+
+    private static void write(DataOutputStream out, QueryExecutionEvent event) throws IOException {
+        out.writeByte(event.type().ordinal());
+        writeString(out, event.traceId());
+        out.writeLong(event.at().toEpochMilli());
+        out.writeByte(event.state() != null ? event.state().ordinal() : -1);
+        writeString(out, event.tenantId());
+        writeString(out, event.userId());
+        writeString(out, event.sqlQuery());
+        writeString(out, event.connectorType());
+        writeString(out, event.resource());
+        writeString(out, event.status());
+        writeString(out, event.errorCode());
+        writeString(out, event.errorMessage());
+        writeLong(out, event.rowsReturned() != null ? event.rowsReturned().longValue() : null);
+        writeLong(out, event.executionTimeMs());
+        writeLong(out, event.freshnessMs());
+        out.writeByte(event.cacheHit() == null ? -1 : event.cacheHit() ? 1 : 0);
+    }
+
+    private static QueryExecutionEvent read(DataInputStream in) throws IOException {
+        QueryExecutionEvent.Type type = QueryExecutionEvent.Type.values()[in.readByte()];
+        String traceId = readString(in);
+        Instant at = Instant.ofEpochMilli(in.readLong());
+        byte state = in.readByte();
+        String tenantId = readString(in);
+        String userId = readString(in);
+        String sqlQuery = readString(in);
+        String connectorType = readString(in);
+        String resource = readString(in);
+        String status = readString(in);
+        String errorCode = readString(in);
+        String errorMessage = readString(in);
+        Long rowsReturned = readLong(in);
+        Long executionTimeMs = readLong(in);
+        Long freshnessMs = readLong(in);
+        byte cacheHit = in.readByte();
+        return new QueryExecutionEvent(
+            type,
+            traceId,
+            at,
+            state >= 0 ? QueryState.values()[state] : null,
+            tenantId,
+            userId,
+            sqlQuery,
+            connectorType,
+            resource,
+            status,
+            errorCode,
+            errorMessage,
+            rowsReturned != null ? rowsReturned.intValue() : null,
+            executionTimeMs,
+            freshnessMs,
+            cacheHit < 0 ? null : cacheHit == 1
+        );
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+}
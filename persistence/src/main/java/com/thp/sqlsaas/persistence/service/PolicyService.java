@@ -1,8 +1,11 @@
 package com.thp.sqlsaas.persistence.service;
 
 import com.thp.sqlsaas.persistence.entity.EntitlementPolicy;
+import com.thp.sqlsaas.persistence.event.PolicyChangedEvent;
+import com.thp.sqlsaas.persistence.event.PolicyChangedEvent.ChangeType;
 import com.thp.sqlsaas.persistence.repository.EntitlementPolicyRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -11,6 +14,8 @@ import java.util.Optional;
 
 /**
  * Service for managing entitlement policies.
+ * Every mutation publishes a {@link PolicyChangedEvent} for the affected tenant
+ * so that in-memory policy caches can be invalidated.
  */
 @Service
 public class PolicyService {
@@ -18,6 +23,9 @@ public class PolicyService {
     @Autowired
     private EntitlementPolicyRepository policyRepository;
     
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
     /**
      * Get all policies for a tenant (enabled only).
      */
@@ -50,7 +58,9 @@ public class PolicyService {
      */
     @Transactional
     public EntitlementPolicy createPolicy(EntitlementPolicy policy) {
-        return policyRepository.save(policy);
+        EntitlementPolicy saved = policyRepository.save(policy);
+        publish(saved, ChangeType.CREATED);
+        return saved;
     }
     
     /**
@@ -58,7 +68,19 @@ public class PolicyService {
      */
     @Transactional
     public EntitlementPolicy updatePolicy(EntitlementPolicy policy) {
-        return policyRepository.save(policy);
+        // A policy may be moved between tenants - invalidate the previous owner too
+        String previousTenantId = policy.getId() == null ? null
+                : policyRepository.findById(policy.getId())
+                        .map(EntitlementPolicy::getTenantId)
+                        .orElse(null);
+        
+        EntitlementPolicy saved = policyRepository.save(policy);
+        publish(saved, ChangeType.UPDATED);
+        if (previousTenantId != null && !previousTenantId.equals(saved.getTenantId())) {
+            eventPublisher.publishEvent(
+                    new PolicyChangedEvent(previousTenantId, saved.getPolicyId(), ChangeType.UPDATED));
+        }
+        return saved;
     }
     
     /**
@@ -66,8 +88,10 @@ public class PolicyService {
      */
     @Transactional
     public void deletePolicy(String policyId) {
-        policyRepository.findByPolicyId(policyId)
-                .ifPresent(policyRepository::delete);
+        policyRepository.findByPolicyId(policyId).ifPresent(policy -> {
+            policyRepository.delete(policy);
+            publish(policy, ChangeType.DELETED);
+        });
     }
     
     /**
@@ -78,6 +102,7 @@ public class PolicyService {
         policyRepository.findByPolicyId(policyId).ifPresent(policy -> {
             policy.setEnabled(enabled);
             policyRepository.save(policy);
+            publish(policy, enabled ? ChangeType.ENABLED : ChangeType.DISABLED);
         });
     }
     
@@ -88,4 +113,9 @@ public class PolicyService {
     public long countEnabledPolicies(String tenantId) {
         return policyRepository.countByTenantIdAndEnabledTrue(tenantId);
     }
+    
+    private void publish(EntitlementPolicy policy, ChangeType changeType) {
+        eventPublisher.publishEvent(
+                new PolicyChangedEvent(policy.getTenantId(), policy.getPolicyId(), changeType));
+    }
 }
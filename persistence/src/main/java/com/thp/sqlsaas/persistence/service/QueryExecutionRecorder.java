@@ -0,0 +1,587 @@
+package com.thp.sqlsaas.persistence.service;
+
+import com.thp.sqlsaas.persistence.entity.QueryExecution.QueryState;
+import com.thp.sqlsaas.persistence.event.QueryExecutionEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind recorder for query execution lifecycle tracking.
+ *
+ * Request threads only enqueue a {@link QueryExecutionEvent} into a bounded buffer.
+ * A background writer drains the buffer, coalesces all transitions of a trace
+ * into one row and writes them with JDBC batch statements: one INSERT for traces
+ * first seen in the batch, one UPDATE for traces created by an earlier batch.
+ *
+ * Records become visible through {@link QueryExecutionService} after the next
+ * flush, typically within {@code sqlsaas.execution-recorder.flush-interval-ms}.
+ * What happens when the buffer is full is controlled by {@link OverflowPolicy}.
+ *
+ * A batch is written in one transaction. A failed batch is retried with exponential
+ * backoff before the writer takes newer events, so a trace's transitions stay in
+ * order while the buffer absorbs (or spills) the backlog. Transient failures are
+ * retried until they succeed; other failures up to {@code max-retries} times, after
+ * which the batch is counted as failed. Events still unwritten at shutdown are kept
+ * in the spill file ahead of newer ones and replayed on the next start.
+ */
+@Service
+public class QueryExecutionRecorder {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueryExecutionRecorder.class);
+
+    private static final String INSERT_SQL = """
+            INSERT INTO query_executions (
+                trace_id, tenant_id, user_id, sql_query, connector_type, resource,
+                state, status, error_code, error_message, rows_returned,
+                execution_time_ms, freshness_ms, cache_hit,
+                created_at, updated_at, completed_at
+            ) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String UPDATE_SQL = """
+            UPDATE query_executions SET
+                state = ?,
+                status = COALESCE(?, status),
+                error_code = COALESCE(?, error_code),
+                error_message = COALESCE(?, error_message),
+                rows_returned = COALESCE(?, rows_returned),
+                execution_time_ms = COALESCE(?, execution_time_ms),
+                freshness_ms = COALESCE(?, freshness_ms),
+                cache_hit = COALESCE(?, cache_hit),
+                updated_at = ?,
+                completed_at = COALESCE(?, completed_at)
+            WHERE trace_id = ?
+            """;
+
+    /**
+     * What to do with an event when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        DROP,   // Discard the event and count it
+        BLOCK,  // Wait for the writer to make room
+        SPILL   // Append to a local file, replayed once the buffer drains
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<QueryExecutionEvent> buffer;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final OverflowPolicy overflowPolicy;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final long maxRetryBackoffMs;
+
+    // Guards the spill file and the spilling flag. While spilling, new events also
+    // go to the file so that a trace's transitions are written in order.
+    private final Object spillLock = new Object();
+    private final ExecutionSpillFile spillFile;
+    private volatile boolean spilling;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    private final LongAdder recorded = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    public QueryExecutionRecorder(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${sqlsaas.execution-recorder.buffer-capacity:8192}") int bufferCapacity,
+            @Value("${sqlsaas.execution-recorder.batch-size:256}") int batchSize,
+            @Value("${sqlsaas.execution-recorder.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${sqlsaas.execution-recorder.overflow-policy:SPILL}") OverflowPolicy overflowPolicy,
+            @Value("${sqlsaas.execution-recorder.spill-dir:${java.io.tmpdir}/sqlsaas}") String spillDir,
+            @Value("${sqlsaas.execution-recorder.max-retries:5}") int maxRetries,
+            @Value("${sqlsaas.execution-recorder.retry-backoff-ms:100}") long retryBackoffMs,
+            @Value("${sqlsaas.execution-recorder.max-retry-backoff-ms:5000}") long maxRetryBackoffMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.overflowPolicy = overflowPolicy;
+        this.spillFile = new ExecutionSpillFile(Path.of(spillDir));
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        // Events spilled by a previous run are written before anything new
+        Path recovered = recoverLeftovers();
+
+        running = true;
+        writer = new Thread(() -> runWriter(recovered), "query-execution-writer");
+        writer.setDaemon(true);
+        writer.start();
+        logger.info("Query execution recorder started - buffer: {}, batch: {}, overflow: {}",
+                   buffer.remainingCapacity(), batchSize, overflowPolicy);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            try {
+                writer.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (spillLock) {
+            try {
+                spillFile.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close execution spill file", e);
+            }
+        }
+    }
+
+    /**
+     * Record a new query execution in PENDING state.
+     */
+    public void createExecution(
+            String traceId,
+            String tenantId,
+            String userId,
+            String sqlQuery,
+            String connectorType,
+            String resource) {
+        record(QueryExecutionEvent.created(traceId, tenantId, userId, sqlQuery, connectorType, resource));
+    }
+
+    /**
+     * Record a state transition.
+     */
+    public void updateState(String traceId, QueryState newState) {
+        record(QueryExecutionEvent.stateChanged(traceId, newState));
+    }
+
+    /**
+     * Record successful completion.
+     */
+    public void completeExecution(
+            String traceId,
+            String status,
+            Integer rowsReturned,
+            Long executionTimeMs,
+            Long freshnessMs,
+            Boolean cacheHit) {
+        record(QueryExecutionEvent.completed(traceId, status, rowsReturned, executionTimeMs, freshnessMs, cacheHit));
+    }
+
+    /**
+     * Record failure with error details.
+     */
+    public void failExecution(
+            String traceId,
+            String errorCode,
+            String errorMessage,
+            Long executionTimeMs) {
+        record(QueryExecutionEvent.failed(traceId, errorCode, errorMessage, executionTimeMs));
+    }
+
+    public RecorderStats getStats() {
+        return new RecorderStats(
+            recorded.sum(),
+            dropped.sum(),
+            spilled.sum(),
+            written.sum(),
+            failed.sum(),
+            retries.sum(),
+            batches.sum(),
+            buffer.size()
+        );
+    }
+
+    private void record(QueryExecutionEvent event) {
+        recorded.increment();
+
+        if (spilling) {
+            spill(event);
+            return;
+        }
+        if (buffer.offer(event)) {
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP -> {
+                dropped.increment();
+                logger.debug("Execution buffer full, dropped {} for trace {}", event.type(), event.traceId());
+            }
+            case BLOCK -> {
+                try {
+                    buffer.put(event);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.increment();
+                }
+            }
+            case SPILL -> spill(event);
+        }
+    }
+
+    private void spill(QueryExecutionEvent event) {
+        synchronized (spillLock) {
+            // The writer may have picked up the spill file in the meantime
+            if (!spilling && buffer.offer(event)) {
+                return;
+            }
+            try {
+                spillFile.append(event);
+                spilling = true;
+                spilled.increment();
+            } catch (IOException e) {
+                dropped.increment();
+                logger.error("Failed to spill execution event for trace {}", event.traceId(), e);
+            }
+        }
+    }
+
+    private void runWriter(Path recovered) {
+        if (recovered != null) {
+            logger.info("Replaying query execution events spilled by a previous run");
+            if (!replay(recovered)) {
+                retain(List.of());
+                return;
+            }
+        }
+
+        List<QueryExecutionEvent> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                QueryExecutionEvent first = buffer.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Buffer is idle - catch up on anything that overflowed to disk
+                    if (!replaySpill()) {
+                        retain(List.of());
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, batchSize - 1);
+                if (!write(batch)) {
+                    retain(batch);
+                    break;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Query execution writer failed to flush {} events", batch.size(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+        logger.info("Query execution recorder stopped - written: {}, dropped: {}", written.sum(), dropped.sum());
+    }
+
+    /**
+     * @return false if the recorder stopped before the spilled events were written
+     */
+    private boolean replaySpill() {
+        Path replayFile;
+        synchronized (spillLock) {
+            if (!spilling) {
+                return true;
+            }
+            try {
+                replayFile = spillFile.rotate();
+            } catch (IOException e) {
+                logger.error("Failed to rotate execution spill file", e);
+                return true;
+            }
+            spilling = false;
+        }
+        return replay(replayFile);
+    }
+
+    /**
+     * Keep events that could not be written before shutdown, followed by whatever
+     * is still buffered, ahead of the spill file for the next start to replay.
+     */
+    private void retain(List<QueryExecutionEvent> unwritten) {
+        List<QueryExecutionEvent> events = new ArrayList<>(unwritten);
+        buffer.drainTo(events);
+        if (events.isEmpty()) {
+            return;
+        }
+        synchronized (spillLock) {
+            try {
+                spillFile.prepend(events);
+                spilling = true;
+                spilled.add(events.size());
+                logger.warn("Kept {} unwritten query execution events for replay on the next start", events.size());
+            } catch (IOException e) {
+                dropped.add(events.size());
+                logger.error("Failed to keep {} unwritten query execution events", events.size(), e);
+            }
+        }
+    }
+
+    private Path recoverLeftovers() {
+        synchronized (spillLock) {
+            if (spilling || !spillFile.hasLeftovers()) {
+                return null;
+            }
+            try {
+                return spillFile.leftoverReplayFile();
+            } catch (IOException e) {
+                logger.error("Failed to recover execution spill file", e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Write the events of a spill file in order, then delete it. If the recorder
+     * stops first, the unwritten rest of the file is kept for the next start.
+     *
+     * @return false if the recorder stopped before the file was fully written
+     */
+    private boolean replay(Path replayFile) {
+        List<QueryExecutionEvent> batch = new ArrayList<>(batchSize);
+        try (ExecutionSpillFile.Reader reader = ExecutionSpillFile.open(replayFile)) {
+            QueryExecutionEvent event;
+            while ((event = reader.next()) != null) {
+                batch.add(event);
+                if (batch.size() == batchSize) {
+                    if (!write(batch)) {
+                        ExecutionSpillFile.retain(replayFile, batch, reader);
+                        return false;
+                    }
+                    batch.clear();
+                }
+            }
+            if (!write(batch)) {
+                ExecutionSpillFile.retain(replayFile, batch, reader);
+                return false;
+            }
+        } catch (IOException e) {
+            logger.error("Failed to replay execution spill file {}", replayFile, e);
+            return true;
+        }
+        try {
+            Files.delete(replayFile);
+        } catch (IOException e) {
+            logger.error("Failed to delete replayed execution spill file {}", replayFile, e);
+        }
+        return true;
+    }
+
+    /**
+     * Write a batch in one transaction, retrying failures with exponential backoff.
+     *
+     * @return false if the recorder stopped before the batch could be written
+     */
+    private boolean write(List<QueryExecutionEvent> events) {
+        if (events.isEmpty()) {
+            return true;
+        }
+
+        Map<String, PendingExecution> pending = new LinkedHashMap<>();
+        for (QueryExecutionEvent event : events) {
+            pending.computeIfAbsent(event.traceId(), PendingExecution::new).apply(event);
+        }
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+        for (PendingExecution execution : pending.values()) {
+            if (execution.isNew) {
+                inserts.add(execution.insertArgs());
+            } else {
+                updates.add(execution.updateArgs());
+            }
+        }
+
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (!inserts.isEmpty()) {
+                        jdbcTemplate.batchUpdate(INSERT_SQL, inserts);
+                    }
+                    if (!updates.isEmpty()) {
+                        jdbcTemplate.batchUpdate(UPDATE_SQL, updates);
+                    }
+                });
+                written.add(pending.size());
+                batches.increment();
+                logger.debug("Flushed {} events as {} inserts and {} updates",
+                            events.size(), inserts.size(), updates.size());
+                return true;
+            } catch (DataAccessException | TransactionException e) {
+                if (!isTransient(e) && attempt > maxRetries) {
+                    failed.add(pending.size());
+                    logger.error("Giving up on {} query executions after {} attempts",
+                                pending.size(), attempt, e);
+                    return true;
+                }
+                if (!running) {
+                    logger.warn("Failed to write {} query executions while stopping: {}",
+                               pending.size(), e.getMessage());
+                    return false;
+                }
+                retries.increment();
+                logger.warn("Failed to write {} query executions (attempt {}), retrying in {} ms: {}",
+                           pending.size(), attempt, backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+            }
+        }
+    }
+
+    /**
+     * Failures that a later attempt can get past, such as a lost connection.
+     */
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof TransactionException;
+    }
+
+    private static Timestamp timestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    /**
+     * All transitions of one trace seen in a batch, folded into a single row.
+     */
+    private static final class PendingExecution {
+
+        private final String traceId;
+        private boolean isNew;
+        private String tenantId;
+        private String userId;
+        private String sqlQuery;
+        private String connectorType;
+        private String resource;
+        private QueryState state;
+        private String status;
+        private String errorCode;
+        private String errorMessage;
+        private Integer rowsReturned;
+        private Long executionTimeMs;
+        private Long freshnessMs;
+        private Boolean cacheHit;
+        private Instant createdAt;
+        private Instant updatedAt;
+        private Instant completedAt;
+
+        PendingExecution(String traceId) {
+            this.traceId = traceId;
+        }
+
+        void apply(QueryExecutionEvent event) {
+            if (event.type() == QueryExecutionEvent.Type.CREATED) {
+                isNew = true;
+                tenantId = event.tenantId();
+                userId = event.userId();
+                sqlQuery = event.sqlQuery();
+                connectorType = event.connectorType();
+                resource = event.resource();
+                createdAt = event.at();
+            }
+            if (event.type() == QueryExecutionEvent.Type.COMPLETED
+                    || event.type() == QueryExecutionEvent.Type.FAILED) {
+                completedAt = event.at();
+            }
+            state = event.state();
+            updatedAt = event.at();
+            if (event.status() != null) {
+                status = event.status();
+            }
+            if (event.errorCode() != null) {
+                errorCode = event.errorCode();
+            }
+            if (event.errorMessage() != null) {
+                errorMessage = event.errorMessage();
+            }
+            if (event.rowsReturned() != null) {
+                rowsReturned = event.rowsReturned();
+            }
+            if (event.executionTimeMs() != null) {
+                executionTimeMs = event.executionTimeMs();
+            }
+            if (event.freshnessMs() != null) {
+                freshnessMs = event.freshnessMs();
+            }
+            if (event.cacheHit() != null) {
+                cacheHit = event.cacheHit();
+            }
+        }
+
+        Object[] insertArgs() {
+            return new Object[] {
+                traceId, tenantId, userId, sqlQuery, connectorType, resource,
+                state.name(), status, errorCode, errorMessage, rowsReturned,
+                executionTimeMs, freshnessMs, cacheHit != null ? cacheHit : Boolean.FALSE,
+                timestamp(createdAt), timestamp(updatedAt), timestamp(completedAt)
+            };
+        }
+
+        Object[] updateArgs() {
+            return new Object[] {
+                state.name(), status, errorCode, errorMessage, rowsReturned,
+                executionTimeMs, freshnessMs, cacheHit,
+                timestamp(updatedAt), timestamp(completedAt),
+                traceId
+            };
+        }
+    }
+
+    /**
+     * Recorder counters for observability.
+     */
+    public record RecorderStats(
+        long recorded,
+        long dropped,
+        long spilled,
+        long written,
+        long failed,
+        long retries,
+        long batches,
+        int buffered
+    ) {}
+}
@@ -1,6 +1,8 @@
 package com.thp.sqlsaas.persistence.service;
 
 import com.thp.sqlsaas.persistence.entity.Tenant;
+import com.thp.sqlsaas.persistence.entity.TenantRateLimit;
+import com.thp.sqlsaas.persistence.repository.TenantRateLimitRepository;
 import com.thp.sqlsaas.persistence.repository.TenantRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -16,9 +18,11 @@ import java.util.Optional;
 public class TenantService {
 
     private final TenantRepository tenantRepository;
+    private final TenantRateLimitRepository rateLimitRepository;
 
-    public TenantService(TenantRepository tenantRepository) {
+    public TenantService(TenantRepository tenantRepository, TenantRateLimitRepository rateLimitRepository) {
         this.tenantRepository = tenantRepository;
+        this.rateLimitRepository = rateLimitRepository;
     }
 
     /**
@@ -58,6 +62,19 @@ public class TenantService {
         return tenantRepository.save(tenant);
     }
 
+    /**
+     * Update the tenant's share of connector execution slots.
+     */
+    public Tenant updateSchedulingWeight(String tenantId, int schedulingWeight) {
+        if (schedulingWeight <= 0) {
+            throw new IllegalArgumentException("Scheduling weight must be positive");
+        }
+        Tenant tenant = tenantRepository.findByTenantId(tenantId)
+                .orElseThrow(() -> new IllegalArgumentException("Tenant not found: " + tenantId));
+        tenant.setSchedulingWeight(schedulingWeight);
+        return tenantRepository.save(tenant);
+    }
+
     /**
      * Delete tenant by tenant ID.
      */
@@ -66,4 +83,31 @@ public class TenantService {
                 .orElseThrow(() -> new IllegalArgumentException("Tenant not found: " + tenantId));
         tenantRepository.delete(tenant);
     }
+
+    /**
+     * Get the rate limits configured for a tenant, one per connector type.
+     */
+    @Transactional(readOnly = true)
+    public List<TenantRateLimit> getRateLimits(String tenantId) {
+        return rateLimitRepository.findByTenantId(tenantId);
+    }
+
+    /**
+     * Create or replace the rate limit of a tenant for one connector type.
+     */
+    public TenantRateLimit setRateLimit(String tenantId, String connectorType,
+                                        int tenantRequests, int userRequests, int periodSeconds) {
+        if (!tenantRepository.existsByTenantId(tenantId)) {
+            throw new IllegalArgumentException("Tenant not found: " + tenantId);
+        }
+        if (tenantRequests <= 0 || userRequests <= 0 || periodSeconds <= 0) {
+            throw new IllegalArgumentException("Rate limits and period must be positive");
+        }
+        TenantRateLimit rateLimit = rateLimitRepository.findByTenantIdAndConnectorType(tenantId, connectorType)
+                .orElseGet(() -> new TenantRateLimit(tenantId, connectorType));
+        rateLimit.setTenantRequests(tenantRequests);
+        rateLimit.setUserRequests(userRequests);
+        rateLimit.setPeriodSeconds(periodSeconds);
+        return rateLimitRepository.save(rateLimit);
+    }
 }
@@ -1,17 +1,29 @@
 package com.thp.sqlsaas.persistence.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.thp.sqlsaas.persistence.entity.User;
+import com.thp.sqlsaas.persistence.event.RoleChangeFeed;
+import com.thp.sqlsaas.persistence.event.RoleChangedEvent;
 import com.thp.sqlsaas.persistence.repository.UserRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
 /**
  * Service for managing users and their roles.
  * This is the SOURCE OF TRUTH for user roles - never trust client input!
+ *
+ * Resolved roles are cached per (userId, tenantId) for a bounded time. Role changes
+ * must be reported through {@link #invalidateUserRoles} or {@link #invalidateTenantRoles},
+ * which broadcast them over the {@link RoleChangeFeed} so every node drops its copy.
  */
 @Service
 public class UserService {
@@ -19,9 +31,22 @@ public class UserService {
     private static final Logger logger = LoggerFactory.getLogger(UserService.class);
 
     private final UserRepository userRepository;
+    private final RoleChangeFeed roleChangeFeed;
+    private final Cache<RoleKey, Set<String>> roleCache;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(
+            UserRepository userRepository,
+            RoleChangeFeed roleChangeFeed,
+            @Value("${sqlsaas.roles.cache.max-size:10000}") long maxSize,
+            @Value("${sqlsaas.roles.cache.ttl:PT5M}") Duration ttl) {
         this.userRepository = userRepository;
+        this.roleChangeFeed = roleChangeFeed;
+        this.roleCache = Caffeine.newBuilder()
+            .maximumSize(maxSize)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        roleChangeFeed.subscribe(this::onRoleChanged);
     }
 
     /**
@@ -42,6 +67,11 @@ public class UserService {
      * @throws SecurityException if user not found (prevents privilege escalation)
      */
     public Set<String> getUserRoles(String userId, String tenantId) {
+        // Unknown users throw and are not cached, so they are re-checked every time
+        return roleCache.get(new RoleKey(userId, tenantId), key -> loadUserRoles(userId, tenantId));
+    }
+
+    private Set<String> loadUserRoles(String userId, String tenantId) {
         logger.debug("Fetching roles for user: {}, tenant: {}", userId, tenantId);
 
         User user = userRepository.findByUserIdAndTenantId(userId, tenantId)
@@ -50,12 +80,47 @@ public class UserService {
                 return new SecurityException("User not found or not authorized");
             });
 
-        Set<String> roles = user.getRoleNames();
+        Set<String> roles = Set.copyOf(user.getRoleNames());
         logger.debug("User {} has roles: {}", userId, roles);
 
         return roles;
     }
 
+    /**
+     * Drop the cached roles of a user on every node after their roles changed.
+     */
+    public void invalidateUserRoles(String userId, String tenantId) {
+        roleChangeFeed.publish(new RoleChangedEvent(tenantId, userId));
+    }
+
+    /**
+     * Drop the cached roles of every user of a tenant on every node.
+     */
+    public void invalidateTenantRoles(String tenantId) {
+        roleChangeFeed.publish(RoleChangedEvent.forTenant(tenantId));
+    }
+
+    /**
+     * Hit/miss/eviction counters of the role cache.
+     */
+    public RoleCacheStats getRoleCacheStats() {
+        CacheStats stats = roleCache.stats();
+        return new RoleCacheStats(
+            stats.hitCount(),
+            stats.missCount(),
+            stats.evictionCount(),
+            roleCache.estimatedSize()
+        );
+    }
+
+    private void onRoleChanged(RoleChangedEvent event) {
+        if (event.affectsWholeTenant()) {
+            roleCache.asMap().keySet().removeIf(key -> Objects.equals(key.tenantId(), event.tenantId()));
+        } else {
+            roleCache.invalidate(new RoleKey(event.userId(), event.tenantId()));
+        }
+    }
+
     /**
      * Check if user exists in tenant.
      */
@@ -77,4 +142,13 @@ public class UserService {
     public boolean isAdmin(String userId, String tenantId) {
         return hasRole(userId, tenantId, "admin");
     }
-}
\ No newline at end of file
+
+    private record RoleKey(String userId, String tenantId) {}
+
+    public record RoleCacheStats(
+        long hits,
+        long misses,
+        long evictions,
+        long size
+    ) {}
+}
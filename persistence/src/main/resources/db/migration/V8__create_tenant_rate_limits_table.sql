@@ -0,0 +1,23 @@
+-- Migration: Per-tenant rate limits
+-- One row per tenant and connector type. tenant_requests is shared by all users of the
+-- tenant, user_requests applies to each user, both per period_seconds.
+-- Connector types without a row use the sqlsaas.rate-limit.* defaults.
+
+CREATE TABLE IF NOT EXISTS tenant_rate_limits (
+    id BIGSERIAL PRIMARY KEY,
+    tenant_id VARCHAR(100) NOT NULL,
+    connector_type VARCHAR(50) NOT NULL,
+    tenant_requests INT NOT NULL,
+    user_requests INT NOT NULL,
+    period_seconds INT NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP,
+    CONSTRAINT uk_tenant_rate_limit UNIQUE (tenant_id, connector_type),
+    CONSTRAINT ck_tenant_rate_limit_positive
+        CHECK (tenant_requests > 0 AND user_requests > 0 AND period_seconds > 0)
+);
+
+-- Demo tenant: GitHub's API budget is tighter than the default
+INSERT INTO tenant_rate_limits (tenant_id, connector_type, tenant_requests, user_requests, period_seconds, created_at, updated_at)
+VALUES ('demo-tenant', 'GITHUB', 120, 60, 60, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)
+ON CONFLICT (tenant_id, connector_type) DO NOTHING;
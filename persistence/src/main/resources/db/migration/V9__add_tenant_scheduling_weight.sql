@@ -0,0 +1,7 @@
+-- Migration: Scheduling weight per tenant
+-- Share of connector execution slots a tenant gets when tenants compete for them:
+-- a tenant with weight 2 is served twice as often as one with weight 1.
+
+ALTER TABLE tenants ADD COLUMN scheduling_weight INT NOT NULL DEFAULT 1;
+
+ALTER TABLE tenants ADD CONSTRAINT ck_tenant_scheduling_weight CHECK (scheduling_weight > 0);
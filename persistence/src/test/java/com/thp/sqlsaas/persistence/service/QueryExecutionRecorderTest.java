@@ -0,0 +1,298 @@
+package com.thp.sqlsaas.persistence.service;
+
+import com.thp.sqlsaas.persistence.entity.QueryExecution.QueryState;
+import com.thp.sqlsaas.persistence.event.QueryExecutionEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryExecutionRecorderTest {
+
+    private static final String DDL = """
+            CREATE TABLE query_executions (
+                id BIGSERIAL PRIMARY KEY,
+                trace_id VARCHAR(255) UNIQUE NOT NULL,
+                tenant_id VARCHAR(255) NOT NULL,
+                user_id VARCHAR(255) NOT NULL,
+                sql_query TEXT,
+                connector_type VARCHAR(100),
+                resource VARCHAR(255),
+                state VARCHAR(50) NOT NULL,
+                status VARCHAR(50),
+                error_code VARCHAR(100),
+                error_message TEXT,
+                rows_returned INTEGER,
+                execution_time_ms BIGINT,
+                freshness_ms BIGINT,
+                cache_hit BOOLEAN DEFAULT FALSE,
+                created_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                updated_at TIMESTAMP NOT NULL DEFAULT NOW(),
+                completed_at TIMESTAMP
+            )
+            """;
+
+    @TempDir
+    Path spillDir;
+
+    private DataSource dataSource;
+    private FlakyJdbcTemplate jdbcTemplate;
+    private final List<QueryExecutionRecorder> recorders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new FlakyJdbcTemplate(dataSource);
+        jdbcTemplate.execute(DDL);
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.release();
+        recorders.forEach(QueryExecutionRecorder::stop);
+    }
+
+    private QueryExecutionRecorder recorder(int bufferCapacity, QueryExecutionRecorder.OverflowPolicy overflowPolicy) {
+        QueryExecutionRecorder recorder = new QueryExecutionRecorder(
+                jdbcTemplate, new DataSourceTransactionManager(dataSource),
+                bufferCapacity, 64, 20, overflowPolicy, spillDir.toString(), 2, 5, 20);
+        recorders.add(recorder);
+        return recorder;
+    }
+
+    private static void create(QueryExecutionRecorder recorder, String traceId) {
+        recorder.createExecution(traceId, "tenant-1", "user-1", "SELECT * FROM issues", "GITHUB", "issues");
+    }
+
+    private int rows() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM query_executions", Integer.class);
+    }
+
+    private Map<String, Object> row(String traceId) {
+        return jdbcTemplate.queryForMap("SELECT * FROM query_executions WHERE trace_id = ?", traceId);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testTransitionsOfATraceAreCoalescedIntoOneRow() throws Exception {
+        // Given
+        QueryExecutionRecorder recorder = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        jdbcTemplate.block();
+        recorder.start();
+        create(recorder, "trace-hold");
+        await(() -> jdbcTemplate.waiting.get() == 1);
+
+        // When: all transitions of both traces queue up behind the blocked write
+        create(recorder, "trace-1");
+        recorder.updateState("trace-1", QueryState.EXECUTING);
+        recorder.completeExecution("trace-1", "SUCCESS", 42, 15L, 0L, null);
+        create(recorder, "trace-2");
+        recorder.failExecution("trace-2", "TIMEOUT", "Connector timed out", 30L);
+        jdbcTemplate.release();
+
+        // Then
+        await(() -> recorder.getStats().written() == 3);
+        assertEquals(3, rows());
+        Map<String, Object> completed = row("trace-1");
+        assertEquals("COMPLETED", completed.get("STATE"));
+        assertEquals(42, completed.get("ROWS_RETURNED"));
+        assertNotNull(completed.get("COMPLETED_AT"));
+        Map<String, Object> failed = row("trace-2");
+        assertEquals("FAILED", failed.get("STATE"));
+        assertEquals("TIMEOUT", failed.get("ERROR_CODE"));
+        assertEquals(Boolean.FALSE, failed.get("CACHE_HIT"));
+        assertEquals(2, recorder.getStats().batches());
+    }
+
+    @Test
+    void testTransientFailureIsRetriedWithoutLosingEvents() throws Exception {
+        // Given
+        QueryExecutionRecorder recorder = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        jdbcTemplate.failNext(3, () -> new TransientDataAccessResourceException("connection reset"));
+        create(recorder, "trace-1");
+        recorder.completeExecution("trace-1", "SUCCESS", 1, 5L, 0L, true);
+
+        // When
+        recorder.start();
+
+        // Then
+        await(() -> recorder.getStats().written() == 1);
+        assertEquals("COMPLETED", row("trace-1").get("STATE"));
+        assertEquals(Boolean.TRUE, row("trace-1").get("CACHE_HIT"));
+        assertEquals(3, recorder.getStats().retries());
+        assertEquals(0, recorder.getStats().failed());
+    }
+
+    @Test
+    void testNonTransientFailureIsGivenUpAfterMaxRetries() throws Exception {
+        // Given
+        QueryExecutionRecorder recorder = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        jdbcTemplate.failNext(Integer.MAX_VALUE, () -> new DataIntegrityViolationException("bad row"));
+        recorder.start();
+
+        // When
+        create(recorder, "trace-1");
+
+        // Then: the first attempt plus max-retries (2)
+        await(() -> recorder.getStats().failed() == 1);
+        assertEquals(2, recorder.getStats().retries());
+        assertEquals(0, recorder.getStats().written());
+    }
+
+    @Test
+    void testOverflowSpillsAndReplaysOnceTheBufferDrains() throws Exception {
+        // Given
+        QueryExecutionRecorder recorder = recorder(2, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        jdbcTemplate.block();
+        recorder.start();
+        create(recorder, "trace-hold");
+        await(() -> jdbcTemplate.waiting.get() == 1);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            create(recorder, "trace-" + i);
+            recorder.completeExecution("trace-" + i, "SUCCESS", i, 5L, 0L, false);
+        }
+        assertTrue(recorder.getStats().spilled() > 0);
+        jdbcTemplate.release();
+
+        // Then
+        await(() -> recorder.getStats().written() == 21);
+        assertEquals(21, rows());
+        assertEquals("COMPLETED", row("trace-19").get("STATE"));
+        assertEquals(0, recorder.getStats().dropped());
+    }
+
+    @Test
+    void testOverflowDropsWhenConfigured() throws Exception {
+        // Given
+        QueryExecutionRecorder recorder = recorder(2, QueryExecutionRecorder.OverflowPolicy.DROP);
+        jdbcTemplate.block();
+        recorder.start();
+        create(recorder, "trace-hold");
+        await(() -> jdbcTemplate.waiting.get() == 1);
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            create(recorder, "trace-" + i);
+        }
+
+        // Then
+        assertEquals(8, recorder.getStats().dropped());
+        assertEquals(0, recorder.getStats().spilled());
+    }
+
+    @Test
+    void testUnwrittenEventsAreReplayedAfterRestart() throws Exception {
+        // Given: the database is down and the recorder is stopped
+        QueryExecutionRecorder down = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        jdbcTemplate.failNext(Integer.MAX_VALUE, () -> new TransientDataAccessResourceException("database down"));
+        down.start();
+        create(down, "trace-1");
+        await(() -> down.getStats().retries() > 0);
+        create(down, "trace-2");
+        down.completeExecution("trace-1", "SUCCESS", 3, 5L, 0L, false);
+        down.stop();
+        assertEquals(0, rows());
+
+        // When
+        jdbcTemplate.failNext(0, null);
+        QueryExecutionRecorder restarted = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        restarted.start();
+
+        // Then
+        await(() -> restarted.getStats().written() == 2);
+        assertEquals("COMPLETED", row("trace-1").get("STATE"));
+        assertEquals("PENDING", row("trace-2").get("STATE"));
+    }
+
+    @Test
+    void testSpilledEventWithoutCacheHitIsInsertedAsFalse() throws Exception {
+        // Given: a spill file left by a previous run
+        ExecutionSpillFile previousRun = new ExecutionSpillFile(spillDir);
+        previousRun.append(new QueryExecutionEvent(QueryExecutionEvent.Type.CREATED, "trace-1", Instant.now(),
+                QueryState.PENDING, "tenant-1", "user-1", "SELECT 1", "GITHUB", "issues",
+                null, null, null, null, null, null, null));
+        previousRun.close();
+
+        // When
+        QueryExecutionRecorder recorder = recorder(1024, QueryExecutionRecorder.OverflowPolicy.SPILL);
+        recorder.start();
+
+        // Then
+        await(() -> recorder.getStats().written() == 1);
+        assertEquals(Boolean.FALSE, row("trace-1").get("CACHE_HIT"));
+        assertFalse(Files.exists(spillDir.resolve("query-executions.replay")));
+    }
+
+    /**
+     * JdbcTemplate whose batch writes can be made to fail or to wait.
+     */
+    private static final class FlakyJdbcTemplate extends JdbcTemplate {
+
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile Supplier<RuntimeException> failure;
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+
+        FlakyJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        void failNext(int count, Supplier<RuntimeException> failure) {
+            this.failure = failure;
+            failures.set(count);
+        }
+
+        void block() {
+            gate = new CountDownLatch(1);
+        }
+
+        void release() {
+            gate.countDown();
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            waiting.incrementAndGet();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failures.getAndUpdate(n -> n > 0 ? n - 1 : 0) > 0) {
+                throw failure.get();
+            }
+            return super.batchUpdate(sql, batchArgs);
+        }
+    }
+}
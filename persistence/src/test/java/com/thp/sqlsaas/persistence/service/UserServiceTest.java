@@ -0,0 +1,127 @@
+package com.thp.sqlsaas.persistence.service;
+
+import com.thp.sqlsaas.persistence.entity.User;
+import com.thp.sqlsaas.persistence.event.LocalRoleChangeFeed;
+import com.thp.sqlsaas.persistence.event.RoleChangeFeed;
+import com.thp.sqlsaas.persistence.event.RoleChangedEvent;
+import com.thp.sqlsaas.persistence.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private RoleChangeFeed feed;
+    private UserService userService;
+
+    @BeforeEach
+    void setUp() {
+        feed = new LocalRoleChangeFeed();
+        userService = new UserService(userRepository, feed, 100, Duration.ofMinutes(5));
+    }
+
+    private void givenRoles(String userId, String tenantId, String... roles) {
+        User user = mock(User.class);
+        when(user.getRoleNames()).thenReturn(Set.of(roles));
+        when(userRepository.findByUserIdAndTenantId(userId, tenantId)).thenReturn(Optional.of(user));
+    }
+
+    @Test
+    void testRolesAreLoadedOncePerUserAndTenant() {
+        // Given
+        givenRoles("alice", "t1", "analyst");
+
+        // When
+        Set<String> first = userService.getUserRoles("alice", "t1");
+        Set<String> second = userService.getUserRoles("alice", "t1");
+
+        // Then
+        assertEquals(Set.of("analyst"), first);
+        assertSame(first, second);
+        verify(userRepository, times(1)).findByUserIdAndTenantId("alice", "t1");
+        UserService.RoleCacheStats stats = userService.getRoleCacheStats();
+        assertEquals(1, stats.hits());
+        assertEquals(1, stats.misses());
+        assertEquals(1, stats.size());
+    }
+
+    @Test
+    void testUnknownUserIsRejectedAndNotCached() {
+        // Given
+        when(userRepository.findByUserIdAndTenantId("mallory", "t1")).thenReturn(Optional.empty());
+
+        // When / Then
+        assertThrows(SecurityException.class, () -> userService.getUserRoles("mallory", "t1"));
+        assertThrows(SecurityException.class, () -> userService.getUserRoles("mallory", "t1"));
+        verify(userRepository, times(2)).findByUserIdAndTenantId("mallory", "t1");
+        assertEquals(0, userService.getRoleCacheStats().size());
+    }
+
+    @Test
+    void testUserInvalidationReloadsOnlyThatUser() {
+        // Given
+        givenRoles("alice", "t1", "analyst");
+        givenRoles("bob", "t1", "analyst");
+        userService.getUserRoles("alice", "t1");
+        userService.getUserRoles("bob", "t1");
+
+        // When
+        givenRoles("alice", "t1", "admin");
+        userService.invalidateUserRoles("alice", "t1");
+
+        // Then
+        assertEquals(Set.of("admin"), userService.getUserRoles("alice", "t1"));
+        assertEquals(Set.of("analyst"), userService.getUserRoles("bob", "t1"));
+        verify(userRepository, times(2)).findByUserIdAndTenantId("alice", "t1");
+        verify(userRepository, times(1)).findByUserIdAndTenantId("bob", "t1");
+    }
+
+    @Test
+    void testTenantInvalidationDropsEveryUserOfThatTenantOnly() {
+        // Given
+        givenRoles("alice", "t1", "analyst");
+        givenRoles("bob", "t1", "analyst");
+        givenRoles("alice", "t2", "analyst");
+        userService.getUserRoles("alice", "t1");
+        userService.getUserRoles("bob", "t1");
+        userService.getUserRoles("alice", "t2");
+
+        // When
+        userService.invalidateTenantRoles("t1");
+
+        // Then
+        assertEquals(1, userService.getRoleCacheStats().size());
+        userService.getUserRoles("alice", "t2");
+        verify(userRepository, times(1)).findByUserIdAndTenantId("alice", "t2");
+    }
+
+    @Test
+    void testChangePublishedByAnotherNodeInvalidatesLocalCopy() {
+        // Given: a second service on the same feed stands in for another node
+        UserService otherNode = new UserService(userRepository, feed, 100, Duration.ofMinutes(5));
+        givenRoles("alice", "t1", "analyst");
+        userService.getUserRoles("alice", "t1");
+
+        // When
+        givenRoles("alice", "t1", "admin");
+        otherNode.invalidateUserRoles("alice", "t1");
+        feed.publish(new RoleChangedEvent("t9", "nobody"));
+
+        // Then
+        assertTrue(userService.hasRole("alice", "t1", "admin"));
+        verify(userRepository, times(2)).findByUserIdAndTenantId("alice", "t1");
+    }
+}
@@ -0,0 +1,140 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.fingerprint.QueryFingerprint;
+import com.thp.sqlsaas.model.SqlQueryRequest;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap and GC cost of holding cached results as row maps versus off-heap.
+ *
+ * Fills the cache with {@code entries} results, prints the heap retained by the
+ * filled cache, then measures serving a hit (decoding every row) and replacing a
+ * result. Run with {@code -prof gc} to compare allocation and GC time, e.g.
+ * {@code gradle :server:jmh -Pjmh.args='ResultStorageBenchmark -prof gc'}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g", "-XX:MaxDirectMemorySize=2g"})
+public class ResultStorageBenchmark {
+
+    private static final String[] STATES = {"open", "closed", "draft"};
+
+    @Param({"HEAP", "OFF_HEAP"})
+    public CacheService.StorageMode storage;
+
+    @Param({"2000"})
+    public int entries;
+
+    @Param({"200"})
+    public int rowsPerResult;
+
+    private CacheService cache;
+    private QueryFingerprint fingerprint;
+    private EntitlementDecision decision;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        long budget = 1L << 40;
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        cache = new CacheService(budget, budget, Duration.ofHours(1), CacheService.KeyMode.USER,
+                Duration.ZERO, 0, Duration.ofHours(1), Duration.ofHours(1), 1,
+                storage, budget,
+                beans.getBeanProvider(ResultCacheBackend.class),
+                beans.getBeanProvider(DiskResultTier.class));
+        fingerprint = QueryFingerprint.of(new SqlQueryRequest("issues", new ArrayList<>()));
+        decision = EntitlementDecision.builder()
+                .allowed(true)
+                .allowedColumns(new HashSet<>())
+                .columnMasks(new HashMap<>())
+                .build();
+
+        long before = usedHeapAfterGc();
+        for (int i = 0; i < entries; i++) {
+            put(i);
+        }
+        long retained = usedHeapAfterGc() - before;
+        System.out.printf("%n%s: %d results retain %d MB of heap, %d MB off-heap%n",
+                storage, entries, retained >> 20, cache.getStats().offHeapBytes() >> 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        cache.stop();
+    }
+
+    @Benchmark
+    public void serveHit(Blackhole blackhole) {
+        int i = ThreadLocalRandom.current().nextInt(entries);
+        QueryExecutionResult result = cache.get(scope(i), fingerprint, null, Long.MAX_VALUE);
+        for (Map<String, Object> row : result.getRows()) {
+            blackhole.consume(row.get("title"));
+        }
+    }
+
+    @Benchmark
+    public void replace() {
+        put(ThreadLocalRandom.current().nextInt(entries));
+    }
+
+    private void put(int i) {
+        cache.put("tenant-" + (i % 10), scope(i), fingerprint, null, decision, result(i), null);
+    }
+
+    private static String scope(int i) {
+        return CacheService.userScope("tenant-" + (i % 10), "user-" + i);
+    }
+
+    private QueryExecutionResult result(int seed) {
+        List<Map<String, Object>> rows = new ArrayList<>(rowsPerResult);
+        for (int r = 0; r < rowsPerResult; r++) {
+            int id = seed * rowsPerResult + r;
+            Map<String, Object> row = new HashMap<>();
+            row.put("id", id);
+            row.put("number", r + 1);
+            row.put("title", "Issue " + id + " in repository " + (seed % 50));
+            row.put("state", STATES[id % STATES.length]);
+            row.put("author", "user" + (id % 97));
+            row.put("comments", id % 40);
+            row.put("locked", id % 11 == 0);
+            row.put("labels", List.of("bug", "p" + (id % 3)));
+            rows.add(row);
+        }
+        return QueryExecutionResult.success(rows, null, 0L, "OK");
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,87 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.ConnectorType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The synchronized fixed-window token bucket RateLimitService used before GCRA,
+ * kept as the baseline for {@link RateLimitBenchmark}.
+ */
+class LegacyRateLimiter {
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private final Map<ConnectorType, RateLimitConfig> configs = Map.of(
+        ConnectorType.GITHUB, new RateLimitConfig(1, 1),
+        ConnectorType.JIRA, new RateLimitConfig(100, 60)
+    );
+
+    RateLimitDecision checkRateLimit(String tenantId, String userId, ConnectorType connectorType) {
+        String key = String.format("%s:%s:%s", tenantId, userId, connectorType);
+        RateLimitConfig config = configs.getOrDefault(
+            connectorType,
+            new RateLimitConfig(100, 60)
+        );
+
+        TokenBucket bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(config));
+
+        if (bucket.tryConsume()) {
+            return new RateLimitDecision(true, bucket.availableTokens(), null, null);
+        } else {
+            long retryAfter = bucket.getRetryAfterSeconds();
+            String message = String.format(
+                "Rate limit exceeded for %s. Please retry after %d seconds.",
+                connectorType, retryAfter
+            );
+            return new RateLimitDecision(false, 0, retryAfter, message);
+        }
+    }
+
+    private static class TokenBucket {
+        private final int capacity;
+        private final long refillPeriodSeconds;
+        private final AtomicInteger tokens;
+        private volatile long lastRefillTime;
+
+        TokenBucket(RateLimitConfig config) {
+            this.capacity = config.requestsPerPeriod();
+            this.refillPeriodSeconds = config.periodSeconds();
+            this.tokens = new AtomicInteger(capacity);
+            this.lastRefillTime = System.currentTimeMillis();
+        }
+
+        synchronized boolean tryConsume() {
+            refill();
+            if (tokens.get() > 0) {
+                tokens.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+
+        int availableTokens() {
+            refill();
+            return tokens.get();
+        }
+
+        long getRetryAfterSeconds() {
+            long elapsed = (System.currentTimeMillis() - lastRefillTime) / 1000;
+            return Math.max(0, refillPeriodSeconds - elapsed);
+        }
+
+        private synchronized void refill() {
+            long now = System.currentTimeMillis();
+            long elapsed = (now - lastRefillTime) / 1000;
+
+            if (elapsed >= refillPeriodSeconds) {
+                tokens.set(capacity);
+                lastRefillTime = now;
+            }
+        }
+    }
+
+    private record RateLimitConfig(int requestsPerPeriod, long periodSeconds) {}
+}
@@ -0,0 +1,71 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.ConnectorType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contended throughput of rate limit checks: the GCRA {@link RateLimitService}
+ * against the synchronized fixed-window bucket it replaced ({@link LegacyRateLimiter}).
+ *
+ * With {@code users=1} every thread checks the same key; with more, threads spread
+ * over that many users of one tenant. Tenant and connector budgets are set high
+ * enough that only the user budget (100 per minute, as before) rejects. Run with
+ * {@code gradle :server:jmh -Pjmh.args='RateLimitBenchmark -prof gc'}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Threads(8)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    @Param({"1", "1024"})
+    public int users;
+
+    private String[] userIds;
+    private RateLimitService gcra;
+    private LegacyRateLimiter legacy;
+
+    @Setup
+    public void setUp() {
+        userIds = new String[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = "user-" + i;
+        }
+        gcra = new RateLimitService(tenantId -> Map.of(), Duration.ofSeconds(60),
+                1_000_000_000, 1_000_000_000, 100, Duration.ofMinutes(1), Duration.ofMinutes(5), System::nanoTime);
+        legacy = new LegacyRateLimiter();
+    }
+
+    @Benchmark
+    public RateLimitDecision gcra() {
+        return gcra.checkRateLimit("tenant-1", user(), ConnectorType.JIRA);
+    }
+
+    @Benchmark
+    public RateLimitDecision legacy() {
+        return legacy.checkRateLimit("tenant-1", user(), ConnectorType.JIRA);
+    }
+
+    private String user() {
+        return userIds[users == 1 ? 0 : ThreadLocalRandom.current().nextInt(users)];
+    }
+}
@@ -1,94 +1,914 @@
 package com.thp.sqlsaas.server.cache;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.Scheduler;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.connector.PredicateEvaluator;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.fingerprint.QueryFingerprint;
 import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 /**
  * Cache Service - Handles caching of query results.
- * 
- * In production, this would use Redis or similar distributed cache.
- * For now, using in-memory cache for simplicity.
+ *
+ * Results are held in a Caffeine cache bounded by estimated bytes (rows x columns),
+ * with W-TinyLFU admission so one-off queries do not flush frequently used results.
+ * Each tenant may use at most {@code sqlsaas.cache.tenant-max-bytes}; a tenant over
+ * its quota evicts its own coldest entries, never those of other tenants.
+ * Entries older than {@code sqlsaas.cache.ttl} are removed in the background.
+ *
+ * With {@code sqlsaas.cache.key-mode=ENTITLEMENT} results are keyed by the effective
+ * entitlement decision instead of the user, so users who see the same thing share
+ * one entry (see {@link KeyMode}).
+ *
+ * A query that misses can still be answered from a complete (not truncated) cached
+ * result of the same scope and table whose predicates are a subset of its own: the
+ * remaining predicates are evaluated over the cached rows with {@link PredicateEvaluator}.
+ *
+ * Results cached with a refresher are kept warm in the background: an entry up to
+ * {@code sqlsaas.cache.stale-grace} past the caller's staleness bound is served while
+ * one refresh runs, and the {@code sqlsaas.cache.refresh.hot-keys} most hit entries
+ * are refreshed once older than {@code sqlsaas.cache.refresh.after}. Refreshers go
+ * through the normal execution path, so they are rate limited like any query.
+ *
+ * With a {@link ResultCacheBackend} configured ({@code sqlsaas.cache.l2}) the Caffeine
+ * cache is the L1 of a two-tier cache: results are also written, encoded with
+ * {@link ResultCodec}, to the shared L2, and an exact L1 miss is looked up there and
+ * promoted to L1. Every L2 write or removal is announced, and other replicas drop
+ * their L1 copy of the key. Entries promoted from L2 have no refresher; the replica
+ * that executed the query keeps them warm.
+ *
+ * With {@code sqlsaas.cache.storage=OFF_HEAP} cached rows are encoded into direct
+ * buffers ({@link OffHeapRows}) and decoded row by row when served, and the cache is
+ * bounded by {@code sqlsaas.cache.off-heap.max-bytes} of encoded rows. Results that
+ * cannot be encoded (masked cells) are kept on the heap at their estimated size.
+ *
+ * With a {@link DiskResultTier} configured ({@code sqlsaas.cache.disk.enabled}) large
+ * results are kept in memory-mapped files on local disk instead of in memory, and
+ * survive restarts. The tier has its own per-tenant quota and honours the TTL. They
+ * serve exact hits only, after L1 and before L2.
  */
 @Service
 public class CacheService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(CacheService.class);
-    
-    // Simple in-memory cache
-    private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
-    
-    /**
-     * Get cached result for a query.
-     * 
-     * @param cacheKey the cache key
+
+    // Rough per-cell footprint of a row map entry (key ref, boxed value, node)
+    static final int BYTES_PER_CELL = 48;
+    static final int BYTES_PER_ENTRY = 256;
+
+    private final Cache<String, CacheEntry> cache;
+    private final long tenantMaxBytes;
+    private final KeyMode keyMode;
+    private final StorageMode storage;
+    private final long staleGraceMs;
+    private final int hotKeys;
+    private final long refreshAfterMs;
+    private final long refreshIntervalMs;
+    private final Duration ttl;
+
+    // Shared L2, or null when results are cached on this replica only
+    private final ResultCacheBackend l2;
+    // Local disk tier for large results, or null
+    private final DiskResultTier disk;
+    // Wall clock of entry timestamps, in milliseconds
+    private final LongSupplier clock;
+    // Identifies this cache in L2 announcements so it ignores its own writes
+    private final String origin = UUID.randomUUID().toString();
+
+    // Bytes of rows currently held in direct buffers
+    private final AtomicLong offHeapBytes = new AtomicLong();
+
+    // Estimated bytes held per tenant, maintained by put() and the removal listener
+    private final Map<String, AtomicLong> tenantBytes = new ConcurrentHashMap<>();
+
+    // Keys of complete results by scope and table, the candidates for derived hits
+    private final Map<String, Set<String>> completeResults = new ConcurrentHashMap<>();
+
+    // Keys with a refresh queued or running; at most one per key
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final ThreadPoolExecutor refreshExecutor;
+    private final ScheduledExecutorService hotKeyScheduler;
+
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder l2Hits = new LongAdder();
+    private final LongAdder derivedHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleRefreshes = new LongAdder();
+    private final LongAdder hotRefreshes = new LongAdder();
+    private final LongAdder failedRefreshes = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder quotaEvictions = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder l2Invalidations = new LongAdder();
+    private final LongAdder l2Failures = new LongAdder();
+
+    @Autowired
+    public CacheService(
+            @Value("${sqlsaas.cache.max-bytes:268435456}") long maxBytes,
+            @Value("${sqlsaas.cache.tenant-max-bytes:67108864}") long tenantMaxBytes,
+            @Value("${sqlsaas.cache.ttl:PT10M}") Duration ttl,
+            @Value("${sqlsaas.cache.key-mode:USER}") KeyMode keyMode,
+            @Value("${sqlsaas.cache.stale-grace:PT10S}") Duration staleGrace,
+            @Value("${sqlsaas.cache.refresh.hot-keys:20}") int hotKeys,
+            @Value("${sqlsaas.cache.refresh.after:PT45S}") Duration refreshAfter,
+            @Value("${sqlsaas.cache.refresh.interval:PT15S}") Duration refreshInterval,
+            @Value("${sqlsaas.cache.refresh.threads:2}") int refreshThreads,
+            @Value("${sqlsaas.cache.storage:HEAP}") StorageMode storage,
+            @Value("${sqlsaas.cache.off-heap.max-bytes:268435456}") long offHeapMaxBytes,
+            ObjectProvider<ResultCacheBackend> l2Backend,
+            ObjectProvider<DiskResultTier> diskTier) {
+        this(maxBytes, tenantMaxBytes, ttl, keyMode, staleGrace, hotKeys, refreshAfter, refreshInterval,
+                refreshThreads, storage, offHeapMaxBytes, l2Backend.getIfAvailable(), diskTier.getIfAvailable(),
+                System::currentTimeMillis, Ticker.systemTicker());
+    }
+
+    CacheService(
+            long maxBytes,
+            long tenantMaxBytes,
+            Duration ttl,
+            KeyMode keyMode,
+            Duration staleGrace,
+            int hotKeys,
+            Duration refreshAfter,
+            Duration refreshInterval,
+            int refreshThreads,
+            StorageMode storage,
+            long offHeapMaxBytes,
+            ResultCacheBackend l2,
+            DiskResultTier disk,
+            LongSupplier clock,
+            Ticker ticker) {
+        this.tenantMaxBytes = tenantMaxBytes;
+        this.storage = storage;
+        this.ttl = ttl;
+        this.l2 = l2;
+        this.disk = disk;
+        this.clock = clock;
+        this.keyMode = keyMode;
+        this.staleGraceMs = staleGrace.toMillis();
+        this.hotKeys = hotKeys;
+        this.refreshAfterMs = refreshAfter.toMillis();
+        this.refreshIntervalMs = refreshInterval.toMillis();
+        this.refreshExecutor = new ThreadPoolExecutor(
+                refreshThreads, refreshThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(256),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cache-refresh");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.hotKeyScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-hot-keys");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(storage == StorageMode.OFF_HEAP ? offHeapMaxBytes : maxBytes)
+                .weigher((String key, CacheEntry entry) -> entry.weight())
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .scheduler(Scheduler.systemScheduler())
+                // Run the listener on the removing thread so tenant usage stays current
+                .executor(Runnable::run)
+                .removalListener((String key, CacheEntry entry, RemovalCause cause) -> {
+                    if (entry != null) {
+                        release(key, entry);
+                    }
+                    if (cause.wasEvicted()) {
+                        evictions.increment();
+                    }
+                })
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (l2 != null) {
+            l2.subscribe(this::onL2Change);
+            logger.info("Result cache L2 enabled: {}", l2.getClass().getSimpleName());
+        }
+        if (hotKeys > 0) {
+            hotKeyScheduler.scheduleWithFixedDelay(this::refreshHotEntries,
+                    refreshIntervalMs, refreshIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        hotKeyScheduler.shutdownNow();
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * Get a cached result for a query: its own result, or one derived from a
+     * broader complete result in the same scope. A result at most the stale grace
+     * past {@code maxStalenessMs} is still returned and refreshed in the background.
+     *
+     * @param scope the cache scope, see {@link #userScope} and {@link #entitlementScope}
+     * @param fingerprint the canonical query fingerprint
+     * @param shape the planned query, or null if it must not be derived from another result
      * @param maxStalenessMs maximum allowed staleness in milliseconds
      * @return cached result if valid, null otherwise
      */
-    public QueryExecutionResult get(String cacheKey, long maxStalenessMs) {
-        CacheEntry entry = cache.get(cacheKey);
-        
-        if (entry == null) {
-            logger.debug("Cache miss for key: {}", cacheKey);
-            return null;
+    public QueryExecutionResult get(
+            String scope,
+            QueryFingerprint fingerprint,
+            QueryShape shape,
+            long maxStalenessMs) {
+        String cacheKey = generateCacheKey(scope, fingerprint);
+        CacheEntry entry = cache.getIfPresent(cacheKey);
+        if (entry != null) {
+            long age = clock.getAsLong() - entry.timestamp();
+            if (age <= maxStalenessMs) {
+                exactHits.increment();
+                entry.hits().increment();
+                logger.debug("Cache hit for key: {} (age: {}ms)", cacheKey, age);
+                return entry.result();
+            }
+            if (age <= maxStalenessMs + staleGraceMs && entry.refresher() != null) {
+                staleHits.increment();
+                entry.hits().increment();
+                refresh(cacheKey, entry, staleRefreshes);
+                logger.debug("Serving stale key: {} (age: {}ms) while it refreshes", cacheKey, age);
+                return entry.result();
+            }
         }
-        
-        long age = System.currentTimeMillis() - entry.timestamp;
-        
-        if (age > maxStalenessMs) {
-            logger.debug("Cache expired for key: {} (age: {}ms, max: {}ms)", 
-                        cacheKey, age, maxStalenessMs);
-            cache.remove(cacheKey);
-            return null;
+
+        ResultCodec.Stored onDisk = disk != null ? disk.get(cacheKey) : null;
+        if (onDisk != null && clock.getAsLong() - onDisk.timestamp() <= maxStalenessMs) {
+            diskHits.increment();
+            logger.debug("Disk hit for key: {}", cacheKey);
+            return onDisk.result();
+        }
+
+        CacheEntry promoted = l2 != null ? readThrough(scope, cacheKey, maxStalenessMs) : null;
+        if (promoted != null) {
+            l2Hits.increment();
+            promoted.hits().increment();
+            return promoted.result();
         }
-        
-        logger.debug("Cache hit for key: {} (age: {}ms)", cacheKey, age);
-        return entry.result;
+
+        QueryExecutionResult derived = shape != null ? derive(scope, shape, maxStalenessMs) : null;
+        if (derived != null) {
+            derivedHits.increment();
+            return derived;
+        }
+
+        misses.increment();
+        logger.debug("Cache miss for key: {}", cacheKey);
+        return null;
     }
-    
+
     /**
-     * Put a result in the cache.
+     * Put a result in the cache, charging its estimated size to the tenant.
+     *
+     * @param shape the planned query, or null if the result must only serve exact hits
+     * @param decision the decision the result was produced under; it determines which
+     *                 columns may be filtered on when deriving narrower results
+     * @param refresher starts re-running the query, which puts the new result, and returns
+     *                  its completion; or null if the entry must not be refreshed in the background
      */
-    public void put(String cacheKey, QueryExecutionResult result) {
-        cache.put(cacheKey, new CacheEntry(result, System.currentTimeMillis()));
-        logger.debug("Cached result for key: {}", cacheKey);
+    public void put(
+            String tenantId,
+            String scope,
+            QueryFingerprint fingerprint,
+            QueryShape shape,
+            EntitlementDecision decision,
+            QueryExecutionResult result,
+            Supplier<CompletableFuture<?>> refresher) {
+        String cacheKey = generateCacheKey(scope, fingerprint);
+        if (disk != null && estimateBytes(result) >= disk.minResultBytes()
+                && spill(cacheKey, tenantId, shape, decision, result)) {
+            return;
+        }
+
+        CacheEntry entry = newEntry(tenantId, scope, result, clock.getAsLong(), shape,
+                Set.copyOf(decision.getAllowedColumns()), Set.copyOf(decision.getColumnMasks().keySet()),
+                refresher);
+        if (store(cacheKey, entry) && l2 != null) {
+            writeThrough(cacheKey, entry);
+        }
     }
-    
+
     /**
      * Invalidate cache for a specific key.
      */
     public void invalidate(String cacheKey) {
-        cache.remove(cacheKey);
+        cache.invalidate(cacheKey);
+        if (disk != null) {
+            disk.remove(cacheKey);
+        }
+        if (l2 != null) {
+            try {
+                l2.remove(cacheKey, origin);
+            } catch (RuntimeException e) {
+                l2Failures.increment();
+                logger.warn("Failed to remove key {} from L2", cacheKey, e);
+            }
+        }
         logger.debug("Invalidated cache for key: {}", cacheKey);
     }
-    
+
     /**
-     * Clear all cache entries.
+     * Clear all cache entries on this replica, in memory and on disk. The shared L2
+     * is left alone: its entries expire with the TTL.
      */
     public void clear() {
-        cache.clear();
+        cache.invalidateAll();
+        if (disk != null) {
+            disk.clear();
+        }
         logger.info("Cleared all cache entries");
     }
-    
+
+    /**
+     * Hit/miss/eviction counters and current weight of the result cache.
+     */
+    public Stats getStats() {
+        long weightedSize = cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0L))
+                .orElse(0L);
+        return new Stats(
+            exactHits.sum(),
+            staleHits.sum(),
+            diskHits.sum(),
+            l2Hits.sum(),
+            derivedHits.sum(),
+            misses.sum(),
+            staleRefreshes.sum(),
+            hotRefreshes.sum(),
+            failedRefreshes.sum(),
+            evictions.sum(),
+            quotaEvictions.sum(),
+            rejected.sum(),
+            l2Invalidations.sum(),
+            l2Failures.sum(),
+            cache.estimatedSize(),
+            weightedSize,
+            offHeapBytes.get(),
+            disk != null ? disk.entries() : 0,
+            disk != null ? disk.bytes() : 0L
+        );
+    }
+
     /**
-     * Generate a cache key from query parameters.
+     * Estimated bytes currently held by a tenant.
      */
-    public static String generateCacheKey(
+    public long getTenantBytes(String tenantId) {
+        AtomicLong usage = tenantBytes.get(tenantId);
+        return usage != null ? usage.get() : 0L;
+    }
+
+    public KeyMode getKeyMode() {
+        return keyMode;
+    }
+
+    /**
+     * Scope of results cached for one user.
+     */
+    public static String userScope(String tenantId, String userId) {
+        return tenantId + ':' + userId;
+    }
+
+    /**
+     * Scope of results shared by all users of the tenant whose effective
+     * entitlement decision for the query has the same fingerprint.
+     */
+    public static String entitlementScope(String tenantId, String decisionFingerprint) {
+        return tenantId + ":*:" + decisionFingerprint;
+    }
+
+    /**
+     * Generate a cache key from a scope and the canonical query fingerprint.
+     */
+    public static String generateCacheKey(String scope, QueryFingerprint fingerprint) {
+        return scope + ':' + fingerprint;
+    }
+
+    /**
+     * Estimate the heap footprint of a result as rows x columns cells.
+     */
+    static int estimateBytes(QueryExecutionResult result) {
+        List<Map<String, Object>> rows = result.getRows();
+        if (rows == null || rows.isEmpty()) {
+            return BYTES_PER_ENTRY;
+        }
+        long columns = result.getColumns() != null ? result.getColumns().size() : rows.get(0).size();
+        long bytes = BYTES_PER_ENTRY + rows.size() * Math.max(columns, 1) * BYTES_PER_CELL;
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    private CacheEntry newEntry(
             String tenantId,
-            String userId,
-            String sql) {
-        return String.format("%s:%s:%s", tenantId, userId, sql.hashCode());
+            String scope,
+            QueryExecutionResult result,
+            long timestamp,
+            QueryShape shape,
+            Set<String> allowedColumns,
+            Set<String> maskedColumns,
+            Supplier<CompletableFuture<?>> refresher) {
+        // Only a result holding every matching row can answer narrower queries
+        String completeKey = null;
+        if (shape != null && !result.isTruncated()) {
+            completeKey = scope + '|' + shape.table();
+        }
+
+        int weight = estimateBytes(result);
+        if (storage == StorageMode.OFF_HEAP && result.getRows() != null
+                && !(result.getRows() instanceof OffHeapRows)) {
+            try {
+                OffHeapRows rows = OffHeapRows.of(result.getRows());
+                QueryExecutionResult stored = QueryExecutionResult.success(
+                    rows, result.getNextPageToken(), result.getFreshnessMs(), result.getRateLimitStatus());
+                stored.setColumns(result.getColumns());
+                stored.setTruncated(result.isTruncated());
+                result = stored;
+                weight = BYTES_PER_ENTRY + rows.offHeapBytes();
+            } catch (IllegalArgumentException e) {
+                logger.debug("Result kept on heap: {}", e.getMessage());
+            }
+        }
+
+        return new CacheEntry(
+            tenantId,
+            result,
+            timestamp,
+            weight,
+            shape,
+            completeKey,
+            allowedColumns,
+            maskedColumns,
+            refresher,
+            new LongAdder()
+        );
     }
-    
+
+    /**
+     * Put an entry in L1, charging its size to the tenant.
+     *
+     * @return false if the entry is larger than the tenant quota and was not cached
+     */
+    private boolean store(String cacheKey, CacheEntry entry) {
+        String tenantId = entry.tenantId();
+        int weight = entry.weight();
+        if (weight > tenantMaxBytes) {
+            rejected.increment();
+            logger.debug("Result for key {} ({} bytes) exceeds tenant quota, not cached", cacheKey, weight);
+            return false;
+        }
+
+        AtomicLong usage = tenantBytes.computeIfAbsent(tenantId, t -> new AtomicLong());
+        if (usage.get() + weight > tenantMaxBytes) {
+            evictForTenant(tenantId, usage.get() + weight - tenantMaxBytes);
+        }
+
+        usage.addAndGet(weight);
+        if (entry.result().getRows() instanceof OffHeapRows rows) {
+            offHeapBytes.addAndGet(rows.offHeapBytes());
+        }
+        cache.put(cacheKey, entry);
+        String completeKey = entry.completeKey();
+        if (completeKey != null) {
+            completeResults.computeIfAbsent(completeKey, k -> ConcurrentHashMap.newKeySet()).add(cacheKey);
+            // Already evicted or replaced: do not leave the key indexed
+            if (cache.asMap().get(cacheKey) != entry) {
+                unindex(cacheKey, completeKey);
+            }
+        }
+        logger.debug("Cached result for key: {} ({} bytes)", cacheKey, weight);
+        return true;
+    }
+
+    /**
+     * Write an entry to L2. Results that cannot be encoded (e.g. with masked cells)
+     * stay in L1; an unavailable L2 never fails the query.
+     */
+    private void writeThrough(String cacheKey, CacheEntry entry) {
+        byte[] encoded;
+        try {
+            encoded = ResultCodec.encode(new ResultCodec.Stored(entry.tenantId(), entry.result(),
+                    entry.timestamp(), entry.shape(), entry.allowedColumns(), entry.maskedColumns()));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Result for key {} not written to L2: {}", cacheKey, e.getMessage());
+            return;
+        }
+        try {
+            l2.put(cacheKey, encoded, ttl, origin);
+        } catch (RuntimeException e) {
+            l2Failures.increment();
+            logger.warn("Failed to write key {} to L2", cacheKey, e);
+        }
+    }
+
+    /**
+     * Write a large result to the disk tier in place of L1 (and L2, where it would be
+     * too large to move around), dropping copies of the key from the other tiers.
+     *
+     * @return false if the result was not written and should be cached in memory
+     */
+    private boolean spill(
+            String cacheKey,
+            String tenantId,
+            QueryShape shape,
+            EntitlementDecision decision,
+            QueryExecutionResult result) {
+        boolean written;
+        try {
+            written = disk.put(cacheKey, new ResultCodec.Stored(tenantId, result, clock.getAsLong(),
+                    shape, Set.copyOf(decision.getAllowedColumns()), Set.copyOf(decision.getColumnMasks().keySet())));
+        } catch (IllegalArgumentException e) {
+            logger.debug("Result for key {} not written to disk: {}", cacheKey, e.getMessage());
+            return false;
+        }
+        if (!written) {
+            return false;
+        }
+
+        cache.invalidate(cacheKey);
+        if (l2 != null) {
+            try {
+                l2.remove(cacheKey, origin);
+            } catch (RuntimeException e) {
+                l2Failures.increment();
+                logger.warn("Failed to remove key {} from L2", cacheKey, e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Look up a key in L2 and promote it to L1 if it is within the staleness bound.
+     */
+    private CacheEntry readThrough(String scope, String cacheKey, long maxStalenessMs) {
+        ResultCodec.Stored stored;
+        try {
+            byte[] encoded = l2.get(cacheKey);
+            if (encoded == null) {
+                return null;
+            }
+            stored = ResultCodec.decode(encoded);
+        } catch (RuntimeException e) {
+            l2Failures.increment();
+            logger.warn("Failed to read key {} from L2", cacheKey, e);
+            return null;
+        }
+
+        long age = clock.getAsLong() - stored.timestamp();
+        if (age > maxStalenessMs) {
+            return null;
+        }
+        CacheEntry entry = newEntry(stored.tenantId(), scope, stored.result(), stored.timestamp(),
+                stored.shape(), stored.allowedColumns(), stored.maskedColumns(), null);
+        if (!store(cacheKey, entry)) {
+            return null;
+        }
+        logger.debug("L2 hit for key: {} (age: {}ms)", cacheKey, age);
+        return entry;
+    }
+
+    /**
+     * Another replica wrote or removed a key in L2: drop the local copies.
+     */
+    private void onL2Change(String changeOrigin, String cacheKey) {
+        if (origin.equals(changeOrigin)) {
+            return;
+        }
+        if (cache.asMap().remove(cacheKey) != null) {
+            l2Invalidations.increment();
+        }
+        if (disk != null) {
+            disk.remove(cacheKey);
+        }
+    }
+
+    /**
+     * The entry if it is within the caller's staleness bound. A staler entry is a miss
+     * for this caller only: it stays cached for callers with a looser bound until the TTL.
+     */
+    private CacheEntry fresh(String cacheKey, CacheEntry entry, long maxStalenessMs) {
+        if (entry == null) {
+            return null;
+        }
+
+        long age = clock.getAsLong() - entry.timestamp();
+
+        if (age > maxStalenessMs) {
+            logger.debug("Cache entry too stale for caller: {} (age: {}ms, max: {}ms)",
+                        cacheKey, age, maxStalenessMs);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Answer a query from the smallest complete cached result in the same scope
+     * that subsumes it, or return null.
+     */
+    private QueryExecutionResult derive(String scope, QueryShape shape, long maxStalenessMs) {
+        Set<String> candidates = completeResults.get(scope + '|' + shape.table());
+        if (candidates == null) {
+            return null;
+        }
+
+        String baseKey = null;
+        CacheEntry base = null;
+        List<Connector.Predicate> residual = null;
+        for (String candidateKey : candidates) {
+            CacheEntry candidate = cache.asMap().get(candidateKey);
+            if (candidate == null) {
+                continue;
+            }
+            List<Connector.Predicate> remaining = residualPredicates(candidate, shape);
+            if (remaining != null && (base == null
+                    || candidate.result().getRows().size() < base.result().getRows().size())) {
+                baseKey = candidateKey;
+                base = candidate;
+                residual = remaining;
+            }
+        }
+
+        // Read the base through the cache so its use counts towards admission
+        if (base == null || fresh(baseKey, cache.getIfPresent(baseKey), maxStalenessMs) != base) {
+            return null;
+        }
+        base.hits().increment();
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map<String, Object> row : base.result().getRows()) {
+            if (PredicateEvaluator.matchesAll(row, residual)) {
+                rows.add(shape.allColumns() ? row : project(row, shape.columns()));
+            }
+        }
+
+        // Same page size as the connector. No page token: a connector token resumes
+        // the source scan, not a filtered copy of the base result.
+        int pageSize = shape.limit() > 0 ? shape.limit() : 100;
+        boolean truncated = rows.size() > pageSize;
+        if (truncated) {
+            rows = rows.subList(0, pageSize);
+        }
+
+        logger.debug("Derived result for {} from key: {} ({} residual predicates, {} rows)",
+                shape.table(), baseKey, residual.size(), rows.size());
+        QueryExecutionResult derived = QueryExecutionResult.success(
+            rows,
+            null,
+            base.result().getFreshnessMs(),
+            base.result().getRateLimitStatus()
+        );
+        derived.setTruncated(truncated);
+        return derived;
+    }
+
+    /**
+     * Predicates of the query not already applied to the cached result, or null if
+     * the cached result does not subsume the query. The cached result must hold every
+     * requested column, and each residual predicate must be on a column whose raw
+     * value is in the cached rows: not projected away, not removed by CLS, not masked.
+     */
+    private static List<Connector.Predicate> residualPredicates(CacheEntry base, QueryShape query) {
+        QueryShape baseShape = base.shape();
+        if (!baseShape.allColumns()
+                && (query.allColumns() || !baseShape.columns().containsAll(query.columns()))) {
+            return null;
+        }
+
+        List<Connector.Predicate> residual = new ArrayList<>(query.predicates());
+        for (Connector.Predicate predicate : baseShape.predicates()) {
+            if (!residual.remove(predicate)) {
+                return null;
+            }
+        }
+
+        for (Connector.Predicate predicate : residual) {
+            String column = predicate.field();
+            if ((!baseShape.allColumns() && !baseShape.columns().contains(column))
+                    || (!base.allowedColumns().isEmpty() && !base.allowedColumns().contains(column))
+                    || base.maskedColumns().contains(column)) {
+                return null;
+            }
+        }
+        return residual;
+    }
+
+    /**
+     * Queue a background refresh of an entry unless one is already queued or running.
+     * The refresh thread only starts the refresher; the key stays marked as refreshing
+     * until the returned future completes, without holding the thread.
+     */
+    private void refresh(String cacheKey, CacheEntry entry, LongAdder trigger) {
+        if (!refreshing.add(cacheKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                CompletableFuture<?> refreshed;
+                try {
+                    refreshed = entry.refresher().get();
+                } catch (RuntimeException e) {
+                    refreshed = CompletableFuture.failedFuture(e);
+                }
+                refreshed.whenComplete((result, error) -> {
+                    if (error != null) {
+                        failedRefreshes.increment();
+                        logger.warn("Background refresh failed for key: {}", cacheKey, error);
+                    }
+                    refreshing.remove(cacheKey);
+                });
+            });
+            trigger.increment();
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(cacheKey);
+            logger.debug("Refresh queue full, not refreshing key: {}", cacheKey);
+        }
+    }
+
+    /**
+     * Refresh the most hit entries since the last run before callers find them stale.
+     */
+    private void refreshHotEntries() {
+        try {
+            long now = clock.getAsLong();
+            List<HotEntry> hot = new ArrayList<>();
+            for (Map.Entry<String, CacheEntry> e : cache.asMap().entrySet()) {
+                CacheEntry entry = e.getValue();
+                long hits = entry.hits().sumThenReset();
+                if (hits > 0 && entry.refresher() != null) {
+                    hot.add(new HotEntry(e.getKey(), entry, hits));
+                }
+            }
+            hot.sort(Comparator.comparingLong(HotEntry::hits).reversed());
+
+            for (HotEntry candidate : hot.subList(0, Math.min(hotKeys, hot.size()))) {
+                if (now - candidate.entry().timestamp() >= refreshAfterMs) {
+                    refresh(candidate.key(), candidate.entry(), hotRefreshes);
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Hot key refresh failed", e);
+        }
+    }
+
+    private static Map<String, Object> project(Map<String, Object> row, List<String> columns) {
+        Map<String, Object> projected = new HashMap<>();
+        for (String column : columns) {
+            if (row.containsKey(column)) {
+                projected.put(column, row.get(column));
+            }
+        }
+        return projected;
+    }
+
+    /**
+     * Evict the tenant's own coldest entries until at least {@code bytesNeeded} are freed.
+     */
+    private void evictForTenant(String tenantId, long bytesNeeded) {
+        List<String> victims = cache.policy().eviction()
+                .map(eviction -> eviction.coldest(entries -> {
+                    List<String> keys = new ArrayList<>();
+                    long freed = 0;
+                    Iterator<? extends Map.Entry<String, CacheEntry>> it = entries.iterator();
+                    while (freed < bytesNeeded && it.hasNext()) {
+                        Map.Entry<String, CacheEntry> entry = it.next();
+                        if (tenantId.equals(entry.getValue().tenantId())) {
+                            keys.add(entry.getKey());
+                            freed += entry.getValue().weight();
+                        }
+                    }
+                    return keys;
+                }))
+                .orElse(List.of());
+
+        for (String key : victims) {
+            cache.invalidate(key);
+        }
+        quotaEvictions.add(victims.size());
+        logger.debug("Tenant {} over cache quota, evicted {} of its entries", tenantId, victims.size());
+    }
+
+    private void release(String cacheKey, CacheEntry entry) {
+        AtomicLong usage = tenantBytes.get(entry.tenantId());
+        if (usage != null) {
+            usage.addAndGet(-entry.weight());
+        }
+        if (entry.result().getRows() instanceof OffHeapRows rows) {
+            offHeapBytes.addAndGet(-rows.offHeapBytes());
+        }
+        if (entry.completeKey() != null) {
+            unindex(cacheKey, entry.completeKey());
+        }
+    }
+
+    private void unindex(String cacheKey, String completeKey) {
+        completeResults.computeIfPresent(completeKey, (k, keys) -> {
+            keys.remove(cacheKey);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * What a cached result is keyed on, besides the tenant and the query.
+     */
+    public enum KeyMode {
+        /** The requesting user: results are never shared between users. */
+        USER,
+        /**
+         * The effective entitlement decision (allowed columns, substituted row
+         * filters, masks): users with equivalent entitlements share results.
+         */
+        ENTITLEMENT
+    }
+
+    /**
+     * Where cached rows are held.
+     */
+    public enum StorageMode {
+        /** As the row maps the connector returned. */
+        HEAP,
+        /** Encoded in direct buffers, decoded when served. */
+        OFF_HEAP
+    }
+
     /**
      * Cache entry holder.
      */
     private record CacheEntry(
+        String tenantId,
         QueryExecutionResult result,
-        long timestamp
+        long timestamp,
+        int weight,
+        QueryShape shape,
+        String completeKey,
+        Set<String> allowedColumns,
+        Set<String> maskedColumns,
+        Supplier<CompletableFuture<?>> refresher,
+        LongAdder hits
+    ) {}
+
+    private record HotEntry(String key, CacheEntry entry, long hits) {}
+
+    /**
+     * Cache counters for observability. Exact hits found the query's own result,
+     * stale hits found it past the caller's bound but within the grace period, disk
+     * hits found it in the local disk tier, L2 hits found it in the shared L2, and derived hits were answered from a broader cached
+     * result. L2 invalidations count local entries dropped because another replica
+     * wrote the key.
+     */
+    public record Stats(
+        long exactHits,
+        long staleHits,
+        long diskHits,
+        long l2Hits,
+        long derivedHits,
+        long misses,
+        long staleRefreshes,
+        long hotRefreshes,
+        long failedRefreshes,
+        long evictions,
+        long quotaEvictions,
+        long rejected,
+        long l2Invalidations,
+        long l2Failures,
+        long entries,
+        long weightedBytes,
+        long offHeapBytes,
+        long diskEntries,
+        long diskBytes
     ) {}
 }
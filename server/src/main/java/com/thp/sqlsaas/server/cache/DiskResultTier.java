@@ -0,0 +1,413 @@
+package com.thp.sqlsaas.server.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongSupplier;
+
+/**
+ * Local disk tier for large cached results ({@code sqlsaas.cache.disk.enabled=true}).
+ *
+ * Results whose estimated size reaches {@code sqlsaas.cache.disk.min-result-bytes} are
+ * written, encoded with {@link ResultCodec}, to one segment file each under
+ * {@code sqlsaas.cache.disk.dir}. A hit maps the file read-only; the encoded rows stay
+ * in the mapping ({@link OffHeapRows}) and each row is decoded into a map as it is
+ * read. An in-memory index in LRU order keeps the directory within
+ * {@code sqlsaas.cache.disk.max-bytes}, and each tenant within
+ * {@code sqlsaas.cache.disk.tenant-max-bytes}: a tenant over its quota evicts its own
+ * least recently used segments. Entries older than {@code sqlsaas.cache.ttl} are
+ * dropped when read and when the index is loaded.
+ *
+ * Each file starts with the result timestamp, tenant and key, so the index is rebuilt
+ * from the directory on startup and the tier is warm after a restart. Files are
+ * written under a temporary name and renamed, so a crash never leaves a partial
+ * segment behind.
+ */
+@Component
+@ConditionalOnProperty(name = "sqlsaas.cache.disk.enabled", havingValue = "true")
+public class DiskResultTier {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskResultTier.class);
+
+    // "SQC2": bump when the segment header changes
+    private static final int MAGIC = 0x53514332;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_KEY_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long tenantMaxBytes;
+    private final long minResultBytes;
+    private final long ttlMs;
+    // Wall clock of entry timestamps, in milliseconds
+    private final LongSupplier clock;
+
+    // Access-ordered: iteration starts at the least recently used segment
+    private final LinkedHashMap<String, Segment> index = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String, Long> tenantBytes = new HashMap<>();
+    private long totalBytes;
+
+    @Autowired
+    public DiskResultTier(
+            @Value("${sqlsaas.cache.disk.dir:${java.io.tmpdir}/sqlsaas-cache}") String directory,
+            @Value("${sqlsaas.cache.disk.max-bytes:4294967296}") long maxBytes,
+            @Value("${sqlsaas.cache.disk.tenant-max-bytes:1073741824}") long tenantMaxBytes,
+            @Value("${sqlsaas.cache.disk.min-result-bytes:1048576}") long minResultBytes,
+            @Value("${sqlsaas.cache.ttl:PT10M}") Duration ttl) {
+        this(directory, maxBytes, tenantMaxBytes, minResultBytes, ttl, System::currentTimeMillis);
+    }
+
+    DiskResultTier(
+            String directory,
+            long maxBytes,
+            long tenantMaxBytes,
+            long minResultBytes,
+            Duration ttl,
+            LongSupplier clock) {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.tenantMaxBytes = tenantMaxBytes;
+        this.minResultBytes = minResultBytes;
+        this.ttlMs = ttl.toMillis();
+        this.clock = clock;
+        try {
+            Files.createDirectories(this.directory);
+            load();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open result cache directory " + directory, e);
+        }
+    }
+
+    /**
+     * Smallest estimated result size (see {@link CacheService#estimateBytes}) kept on disk.
+     */
+    long minResultBytes() {
+        return minResultBytes;
+    }
+
+    /**
+     * The entry for a key, with rows read from the mapped segment, or null if there is
+     * none or it is past the TTL.
+     */
+    ResultCodec.Stored get(String key) {
+        Segment segment;
+        synchronized (this) {
+            segment = index.get(key);
+        }
+        if (segment == null) {
+            return null;
+        }
+        if (expired(segment.timestamp)) {
+            logger.debug("Dropping expired cache segment for key {}", key);
+            remove(key, segment);
+            return null;
+        }
+
+        ResultCodec.Stored stored = segment.mapped;
+        if (stored == null) {
+            try {
+                stored = map(segment.file);
+                segment.mapped = stored;
+            } catch (IOException | IllegalArgumentException e) {
+                logger.warn("Dropping unreadable cache segment {}: {}", segment.file, e.getMessage());
+                remove(key, segment);
+                return null;
+            }
+        }
+        return stored;
+    }
+
+    /**
+     * Write an entry, replacing any previous one for the key, and evict least recently
+     * used segments until its tenant is within quota and the tier within its size.
+     *
+     * @return false if the entry could not be written or is larger than the tenant quota
+     * @throws IllegalArgumentException if the result cannot be encoded
+     */
+    boolean put(String key, ResultCodec.Stored stored) {
+        String name = UUID.randomUUID().toString();
+        Path temp = directory.resolve(name + TEMP_SUFFIX);
+        Path file = directory.resolve(name + SEGMENT_SUFFIX);
+        long bytes;
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp), 64 * 1024))) {
+                byte[] rawTenant = stored.tenantId().getBytes(StandardCharsets.UTF_8);
+                byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(MAGIC);
+                out.writeLong(stored.timestamp());
+                out.writeInt(rawTenant.length);
+                out.write(rawTenant);
+                out.writeInt(rawKey.length);
+                out.write(rawKey);
+                ResultCodec.encode(stored, out);
+            }
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            bytes = Files.size(file);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            logger.warn("Failed to write cache segment for key {}", key, e);
+            return false;
+        } catch (IllegalArgumentException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+
+        if (bytes > Math.min(maxBytes, tenantMaxBytes)) {
+            deleteQuietly(file);
+            logger.debug("Result for key {} ({} bytes) exceeds the disk tier or tenant quota, not cached",
+                    key, bytes);
+            return false;
+        }
+
+        String tenantId = stored.tenantId();
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            Segment previous = index.put(key, new Segment(file, bytes, tenantId, stored.timestamp()));
+            charge(tenantId, bytes);
+            if (previous != null) {
+                charge(previous.tenantId, -previous.bytes);
+                obsolete.add(previous.file);
+            }
+            Iterator<Map.Entry<String, Segment>> it = index.entrySet().iterator();
+            while (tenantBytes(tenantId) > tenantMaxBytes && it.hasNext()) {
+                Map.Entry<String, Segment> eldest = it.next();
+                if (!eldest.getKey().equals(key) && tenantId.equals(eldest.getValue().tenantId)) {
+                    evict(eldest.getValue(), it, obsolete);
+                }
+            }
+            it = index.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Segment> eldest = it.next();
+                if (!eldest.getKey().equals(key)) {
+                    evict(eldest.getValue(), it, obsolete);
+                }
+            }
+        }
+        // Readers holding a mapping keep reading the unlinked file
+        obsolete.forEach(DiskResultTier::deleteQuietly);
+        logger.debug("Wrote cache segment {} for key {} ({} bytes)", file.getFileName(), key, bytes);
+        return true;
+    }
+
+    void remove(String key) {
+        Segment segment;
+        synchronized (this) {
+            segment = index.remove(key);
+            if (segment != null) {
+                charge(segment.tenantId, -segment.bytes);
+            }
+        }
+        if (segment != null) {
+            deleteQuietly(segment.file);
+        }
+    }
+
+    void clear() {
+        List<Segment> segments;
+        synchronized (this) {
+            segments = new ArrayList<>(index.values());
+            index.clear();
+            tenantBytes.clear();
+            totalBytes = 0;
+        }
+        segments.forEach(segment -> deleteQuietly(segment.file));
+    }
+
+    synchronized int entries() {
+        return index.size();
+    }
+
+    synchronized long bytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Bytes of segments currently held for a tenant.
+     */
+    synchronized long tenantBytes(String tenantId) {
+        return tenantBytes.getOrDefault(tenantId, 0L);
+    }
+
+    private boolean expired(long timestamp) {
+        return clock.getAsLong() - timestamp > ttlMs;
+    }
+
+    // Callers hold the lock
+    private void charge(String tenantId, long bytes) {
+        totalBytes += bytes;
+        tenantBytes.merge(tenantId, bytes, (used, delta) -> used + delta == 0 ? null : used + delta);
+    }
+
+    // Callers hold the lock
+    private void evict(Segment segment, Iterator<?> position, List<Path> obsolete) {
+        charge(segment.tenantId, -segment.bytes);
+        obsolete.add(segment.file);
+        position.remove();
+    }
+
+    private void remove(String key, Segment segment) {
+        boolean removed;
+        synchronized (this) {
+            removed = index.remove(key, segment);
+            if (removed) {
+                charge(segment.tenantId, -segment.bytes);
+            }
+        }
+        if (removed) {
+            deleteQuietly(segment.file);
+        }
+    }
+
+    private static ResultCodec.Stored map(Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("not a cache segment");
+        }
+        buffer.getLong();
+        int tenantLength = buffer.getInt();
+        buffer.position(buffer.position() + tenantLength);
+        int keyLength = buffer.getInt();
+        buffer.position(buffer.position() + keyLength);
+        return ResultCodec.decode(buffer, true);
+    }
+
+    /**
+     * Rebuild the index from the segment headers, oldest written first, and remove
+     * leftovers of interrupted writes, segments replaced before a crash, segments past
+     * the TTL and segments in an older format.
+     */
+    private void load() throws IOException {
+        Map<String, SegmentHeader> newest = new HashMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    deleteQuietly(file);
+                } else if (name.endsWith(SEGMENT_SUFFIX)) {
+                    SegmentHeader header = readHeader(file);
+                    if (header == null || expired(header.timestamp())) {
+                        deleteQuietly(file);
+                        continue;
+                    }
+                    // Keep the newest segment per key and delete the other
+                    SegmentHeader other = newest.get(header.key());
+                    if (other == null || header.timestamp() > other.timestamp()) {
+                        newest.put(header.key(), header);
+                        header = other;
+                    }
+                    if (header != null) {
+                        deleteQuietly(header.file());
+                    }
+                }
+            }
+        }
+
+        List<SegmentHeader> headers = new ArrayList<>(newest.values());
+        headers.sort(Comparator.comparingLong(SegmentHeader::lastModified));
+        List<Path> obsolete = new ArrayList<>();
+        synchronized (this) {
+            for (SegmentHeader header : headers) {
+                index.put(header.key(),
+                        new Segment(header.file(), header.bytes(), header.tenantId(), header.timestamp()));
+                charge(header.tenantId(), header.bytes());
+            }
+            Iterator<Segment> it = index.values().iterator();
+            while (it.hasNext()) {
+                Segment eldest = it.next();
+                if (totalBytes > maxBytes || tenantBytes(eldest.tenantId) > tenantMaxBytes) {
+                    evict(eldest, it, obsolete);
+                }
+            }
+        }
+        obsolete.forEach(DiskResultTier::deleteQuietly);
+        logger.info("Loaded {} cached results ({} bytes) from {}", entries(), bytes(), directory);
+    }
+
+    private static SegmentHeader readHeader(Path file) {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != MAGIC) {
+                return null;
+            }
+            long timestamp = in.readLong();
+            String tenantId = readHeaderString(in);
+            String key = readHeaderString(in);
+            if (tenantId == null || key == null) {
+                return null;
+            }
+            return new SegmentHeader(key, tenantId, file, timestamp,
+                    Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Ignoring unreadable cache segment {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private static String readHeaderString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_KEY_BYTES) {
+            return null;
+        }
+        byte[] raw = new byte[length];
+        in.readFully(raw);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete cache segment {}", file, e);
+        }
+    }
+
+    private static final class Segment {
+        final Path file;
+        final long bytes;
+        final String tenantId;
+        final long timestamp;
+        // Decoded on first read; rows stay in the mapping
+        volatile ResultCodec.Stored mapped;
+
+        Segment(Path file, long bytes, String tenantId, long timestamp) {
+            this.file = file;
+            this.bytes = bytes;
+            this.tenantId = tenantId;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private record SegmentHeader(
+            String key, String tenantId, Path file, long timestamp, long bytes, long lastModified) {}
+}
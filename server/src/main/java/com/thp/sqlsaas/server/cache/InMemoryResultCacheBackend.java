@@ -0,0 +1,61 @@
+package com.thp.sqlsaas.server.cache;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+
+/**
+ * In-process stand-in for a shared L2 ({@code sqlsaas.cache.l2=memory}).
+ *
+ * Values are stored encoded, exactly as in Redis, and announcements are delivered
+ * synchronously. Several {@link CacheService} instances sharing one backend behave
+ * like replicas sharing one Redis, which makes this suitable for tests.
+ */
+@Component
+@ConditionalOnProperty(name = "sqlsaas.cache.l2", havingValue = "memory")
+public class InMemoryResultCacheBackend implements ResultCacheBackend {
+
+    private final Map<String, StoredValue> values = new ConcurrentHashMap<>();
+    private final List<BiConsumer<String, String>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public byte[] get(String key) {
+        StoredValue stored = values.get(key);
+        if (stored != null && stored.expiresAt() <= System.currentTimeMillis()) {
+            values.remove(key, stored);
+            return null;
+        }
+        return stored != null ? stored.value() : null;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl, String origin) {
+        values.put(key, new StoredValue(value, System.currentTimeMillis() + ttl.toMillis()));
+        announce(origin, key);
+    }
+
+    @Override
+    public void remove(String key, String origin) {
+        values.remove(key);
+        announce(origin, key);
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        listeners.add(listener);
+    }
+
+    private void announce(String origin, String key) {
+        for (BiConsumer<String, String> listener : listeners) {
+            listener.accept(origin, key);
+        }
+    }
+
+    private record StoredValue(byte[] value, long expiresAt) {}
+}
@@ -0,0 +1,91 @@
+package com.thp.sqlsaas.server.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Read-only result rows held outside the Java heap.
+ *
+ * The rows are encoded once with {@link ResultCodec} into a direct buffer, or read
+ * in place from a memory-mapped segment file ({@link DiskResultTier}); each
+ * {@link #get} decodes one row into a short-lived map. What stays on the heap is the
+ * column dictionary (shared by every decoded row) and one offset per row, instead
+ * of a map node, key reference and boxed value per cell.
+ *
+ * The direct memory or mapping is released when the list is garbage collected
+ * after the cache drops it.
+ */
+final class OffHeapRows extends AbstractList<Map<String, Object>> implements RandomAccess {
+
+    private final ByteBuffer buffer;
+    private final int[] offsets;
+    private final String[] dictionary;
+
+    private OffHeapRows(ByteBuffer buffer, int[] offsets, String[] dictionary) {
+        this.buffer = buffer;
+        this.offsets = offsets;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Copy rows off the heap.
+     *
+     * @throws IllegalArgumentException if a value cannot be encoded (see {@link ResultCodec})
+     */
+    static OffHeapRows of(List<Map<String, Object>> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        int[] offsets;
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            offsets = ResultCodec.writeRows(out, rows);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] encoded = bytes.toByteArray();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length);
+        buffer.put(encoded).flip();
+        String[] dictionary = ResultCodec.readStrings(buffer.duplicate()).toArray(new String[0]);
+        return new OffHeapRows(buffer.asReadOnlyBuffer(), offsets, dictionary);
+    }
+
+    /**
+     * Read rows in place from a block written by {@link ResultCodec#writeRows}; the
+     * block is scanned once to find where each row starts.
+     */
+    static OffHeapRows over(ByteBuffer block) {
+        ByteBuffer in = block.duplicate();
+        String[] dictionary = ResultCodec.readStrings(in).toArray(new String[0]);
+        int[] offsets = new int[ResultCodec.readVarInt(in)];
+        for (int r = 0; r < offsets.length; r++) {
+            offsets[r] = in.position();
+            ResultCodec.skipRow(in);
+        }
+        return new OffHeapRows(block.asReadOnlyBuffer(), offsets, dictionary);
+    }
+
+    @Override
+    public Map<String, Object> get(int index) {
+        ByteBuffer in = buffer.duplicate();
+        in.position(offsets[index]);
+        return ResultCodec.readRow(in, dictionary);
+    }
+
+    @Override
+    public int size() {
+        return offsets.length;
+    }
+
+    /**
+     * Bytes held off the heap.
+     */
+    int offHeapBytes() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,31 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlsaas.connector.Connector;
+
+import java.util.List;
+
+/**
+ * The parts of a planned query that determine which rows it returns, used to
+ * answer a query from a broader cached result.
+ *
+ * @param table lower-cased table name
+ * @param columns requested columns; empty or {@code *} means all columns
+ * @param predicates ANDed predicates, as sent to the connector
+ * @param limit page size
+ */
+public record QueryShape(
+    String table,
+    List<String> columns,
+    List<Connector.Predicate> predicates,
+    int limit
+) {
+
+    public QueryShape {
+        columns = List.copyOf(columns);
+        predicates = List.copyOf(predicates);
+    }
+
+    public boolean allColumns() {
+        return columns.isEmpty() || columns.contains("*");
+    }
+}
@@ -0,0 +1,111 @@
+package com.thp.sqlsaas.server.cache;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * Redis L2 ({@code sqlsaas.cache.l2=redis}), using the Spring Boot Redis connection.
+ *
+ * Reads are a single GET of the exact key. Writes and removals are pipelined with a
+ * PUBLISH of {@code origin\nkey} on {@code sqlsaas.cache.l2-channel}.
+ */
+@Component
+@ConditionalOnProperty(name = "sqlsaas.cache.l2", havingValue = "redis")
+public class RedisResultCacheBackend implements ResultCacheBackend {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisResultCacheBackend.class);
+
+    private final RedisTemplate<String, byte[]> template;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final String keyPrefix;
+    private final String channel;
+
+    public RedisResultCacheBackend(
+            RedisConnectionFactory connectionFactory,
+            @Value("${sqlsaas.cache.l2-key-prefix:sqlsaas:result:}") String keyPrefix,
+            @Value("${sqlsaas.cache.l2-channel:sqlsaas:cache:invalidations}") String channel) {
+        this.keyPrefix = keyPrefix;
+        this.channel = channel;
+
+        this.template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+
+        this.listenerContainer = new RedisMessageListenerContainer();
+        listenerContainer.setConnectionFactory(connectionFactory);
+        listenerContainer.afterPropertiesSet();
+        listenerContainer.start();
+    }
+
+    @PreDestroy
+    public void stop() throws Exception {
+        listenerContainer.destroy();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return template.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(rawKey(key)));
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl, String origin) {
+        template.executePipelined((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(rawKey(key), value,
+                    Expiration.milliseconds(ttl.toMillis()), RedisStringCommands.SetOption.upsert());
+            connection.publish(rawChannel(), message(origin, key));
+            return null;
+        });
+    }
+
+    @Override
+    public void remove(String key, String origin) {
+        template.executePipelined((RedisCallback<Object>) connection -> {
+            connection.keyCommands().del(rawKey(key));
+            connection.publish(rawChannel(), message(origin, key));
+            return null;
+        });
+    }
+
+    @Override
+    public void subscribe(BiConsumer<String, String> listener) {
+        listenerContainer.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            int separator = body.indexOf('\n');
+            if (separator < 0) {
+                logger.warn("Ignoring malformed cache invalidation on {}: {}", channel, body);
+                return;
+            }
+            listener.accept(body.substring(0, separator), body.substring(separator + 1));
+        }, new ChannelTopic(channel));
+    }
+
+    private byte[] rawKey(String key) {
+        return (keyPrefix + key).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] rawChannel() {
+        return channel.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] message(String origin, String key) {
+        return (origin + '\n' + key).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,37 @@
+package com.thp.sqlsaas.server.cache;
+
+import java.time.Duration;
+import java.util.function.BiConsumer;
+
+/**
+ * Shared (L2) store for encoded query results, behind the per-replica Caffeine L1
+ * of {@link CacheService}.
+ *
+ * Every put or remove is announced to all subscribers, including the writer, as
+ * an {@code (origin, key)} pair so that other replicas drop their L1 copy.
+ * Selected with {@code sqlsaas.cache.l2}.
+ */
+public interface ResultCacheBackend {
+
+    /**
+     * The value of a key, or null if it is absent.
+     */
+    byte[] get(String key);
+
+    /**
+     * Store a value (overwriting any previous one) and announce the key.
+     *
+     * @param origin id of the writing cache, passed through to subscribers
+     */
+    void put(String key, byte[] value, Duration ttl, String origin);
+
+    /**
+     * Remove a value and announce the key.
+     */
+    void remove(String key, String origin);
+
+    /**
+     * Receive {@code (origin, key)} for every put or remove, from any replica.
+     */
+    void subscribe(BiConsumer<String, String> listener);
+}
@@ -0,0 +1,358 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary encoding of cached results, for the L2 store and for {@link OffHeapRows}.
+ *
+ * Column names are written once in a dictionary and cells refer to them by index,
+ * so a row costs a few bytes per cell plus its values. Values are tagged; only the
+ * types connectors produce are supported (null, String, Integer, Long, Double,
+ * Boolean and lists of these). A result holding anything else, such as a masked
+ * cell, cannot be encoded and stays in L1 only.
+ */
+final class ResultCodec {
+
+    private static final byte VERSION = 2;
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INT = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte TRUE = 5;
+    private static final byte FALSE = 6;
+    private static final byte LIST = 7;
+
+    private ResultCodec() {
+    }
+
+    /**
+     * A decoded L2 entry.
+     */
+    record Stored(
+        String tenantId,
+        QueryExecutionResult result,
+        long timestamp,
+        QueryShape shape,
+        Set<String> allowedColumns,
+        Set<String> maskedColumns
+    ) {}
+
+    /**
+     * Encode a successful result and what the cache knows about it.
+     *
+     * @throws IllegalArgumentException if a value has an unsupported type
+     */
+    static byte[] encode(Stored stored) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try {
+            encode(stored, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Encode an entry into a stream, e.g. a file.
+     *
+     * @throws IllegalArgumentException if a value has an unsupported type
+     */
+    static void encode(Stored stored, OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        QueryExecutionResult result = stored.result();
+        out.writeByte(VERSION);
+        writeString(out, stored.tenantId());
+        out.writeLong(stored.timestamp());
+        writeValue(out, result.getFreshnessMs());
+        writeString(out, result.getRateLimitStatus());
+        writeString(out, result.getNextPageToken());
+        out.writeBoolean(result.isTruncated());
+        writeStrings(out, result.getColumns());
+
+        QueryShape shape = stored.shape();
+        out.writeBoolean(shape != null);
+        if (shape != null) {
+            writeString(out, shape.table());
+            writeStrings(out, shape.columns());
+            writeVarInt(out, shape.predicates().size());
+            for (Connector.Predicate predicate : shape.predicates()) {
+                writeString(out, predicate.field());
+                writeString(out, predicate.op());
+                writeValue(out, predicate.value());
+            }
+            out.writeInt(shape.limit());
+        }
+        writeStrings(out, List.copyOf(stored.allowedColumns()));
+        writeStrings(out, List.copyOf(stored.maskedColumns()));
+
+        writeRows(out, result.getRows() != null ? result.getRows() : List.of());
+        out.flush();
+    }
+
+    /**
+     * Decode an entry written by {@link #encode}.
+     *
+     * @throws IllegalArgumentException if the bytes are not a supported encoding
+     */
+    static Stored decode(byte[] data) {
+        return decode(ByteBuffer.wrap(data), false);
+    }
+
+    /**
+     * Decode an entry from a buffer positioned at its start. With {@code mapRows} the
+     * rows are not copied out of the buffer but read from it on access (see
+     * {@link OffHeapRows}), so the buffer must not be modified afterwards.
+     *
+     * @throws IllegalArgumentException if the bytes are not a supported encoding
+     */
+    static Stored decode(ByteBuffer in, boolean mapRows) {
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported cache encoding version: " + version);
+            }
+            String tenantId = readString(in);
+            long timestamp = in.getLong();
+            Long freshnessMs = (Long) readValue(in);
+            String rateLimitStatus = readString(in);
+            String nextPageToken = readString(in);
+            boolean truncated = in.get() != 0;
+            List<String> columns = readStrings(in);
+
+            QueryShape shape = null;
+            if (in.get() != 0) {
+                String table = readString(in);
+                List<String> shapeColumns = readStrings(in);
+                int predicateCount = readVarInt(in);
+                List<Connector.Predicate> predicates = new ArrayList<>(predicateCount);
+                for (int i = 0; i < predicateCount; i++) {
+                    predicates.add(new Connector.Predicate(readString(in), readString(in), readValue(in)));
+                }
+                shape = new QueryShape(table, shapeColumns, predicates, in.getInt());
+            }
+            Set<String> allowedColumns = Set.copyOf(readStrings(in));
+            Set<String> maskedColumns = Set.copyOf(readStrings(in));
+
+            List<Map<String, Object>> rows = mapRows ? OffHeapRows.over(in.slice()) : readRows(in);
+            QueryExecutionResult result = QueryExecutionResult.success(
+                rows, nextPageToken, freshnessMs, rateLimitStatus);
+            result.setColumns(columns);
+            result.setTruncated(truncated);
+            return new Stored(tenantId, result, timestamp, shape, allowedColumns, maskedColumns);
+        } catch (BufferUnderflowException | ClassCastException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Corrupt cache entry", e);
+        }
+    }
+
+    /**
+     * Write rows as a column-name dictionary followed by the row count and the rows.
+     *
+     * @return the offset of each row from the start of {@code out}
+     */
+    static int[] writeRows(DataOutputStream out, List<Map<String, Object>> rows) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Map<String, Object> row : rows) {
+            for (String column : row.keySet()) {
+                dictionary.putIfAbsent(column, dictionary.size());
+            }
+        }
+        writeStrings(out, List.copyOf(dictionary.keySet()));
+
+        int[] offsets = new int[rows.size()];
+        writeVarInt(out, rows.size());
+        for (int r = 0; r < offsets.length; r++) {
+            Map<String, Object> row = rows.get(r);
+            offsets[r] = out.size();
+            writeVarInt(out, row.size());
+            for (Map.Entry<String, Object> cell : row.entrySet()) {
+                writeVarInt(out, dictionary.get(cell.getKey()));
+                writeValue(out, cell.getValue());
+            }
+        }
+        return offsets;
+    }
+
+    private static List<Map<String, Object>> readRows(ByteBuffer in) {
+        String[] dictionary = readStrings(in).toArray(new String[0]);
+        int rowCount = readVarInt(in);
+        List<Map<String, Object>> rows = new ArrayList<>(rowCount);
+        for (int r = 0; r < rowCount; r++) {
+            rows.add(readRow(in, dictionary));
+        }
+        return rows;
+    }
+
+    /**
+     * Read one row written by {@link #writeRows}, positioned at its offset.
+     */
+    static Map<String, Object> readRow(ByteBuffer in, String[] dictionary) {
+        int cellCount = readVarInt(in);
+        Map<String, Object> row = new LinkedHashMap<>(Math.max(4, cellCount * 4 / 3 + 1));
+        for (int c = 0; c < cellCount; c++) {
+            row.put(dictionary[readVarInt(in)], readValue(in));
+        }
+        return row;
+    }
+
+    /**
+     * Advance past one row written by {@link #writeRows}.
+     */
+    static void skipRow(ByteBuffer in) {
+        int cellCount = readVarInt(in);
+        for (int c = 0; c < cellCount; c++) {
+            readVarInt(in);
+            skipValue(in);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            writeString(out, s);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INT);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof List<?> list) {
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode value of type " + value.getClass().getName());
+        }
+    }
+
+    private static Object readValue(ByteBuffer in) {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case STRING -> readString(in);
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DOUBLE -> in.getDouble();
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case LIST -> {
+                int size = readVarInt(in);
+                List<Object> list = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in));
+                }
+                yield list;
+            }
+            default -> throw new IllegalArgumentException("Unknown value tag: " + tag);
+        };
+    }
+
+    private static void skipValue(ByteBuffer in) {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL, TRUE, FALSE -> {
+            }
+            case STRING -> {
+                int length = readVarInt(in) - 1;
+                if (length > 0) {
+                    in.position(in.position() + length);
+                }
+            }
+            case INT -> in.position(in.position() + Integer.BYTES);
+            case LONG, DOUBLE -> in.position(in.position() + Long.BYTES);
+            case LIST -> {
+                int size = readVarInt(in);
+                for (int i = 0; i < size; i++) {
+                    skipValue(in);
+                }
+            }
+            default -> throw new IllegalArgumentException("Unknown value tag: " + tag);
+        }
+    }
+
+    private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        if (values == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        writeVarInt(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStrings(ByteBuffer in) {
+        int size = readVarInt(in);
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    // Length + 1 so that 0 can mean null; not limited to 64KB like writeUTF
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length + 1);
+        out.write(utf8);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] utf8 = new byte[length];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 /**
  * REST Controller for query execution.
@@ -36,23 +38,44 @@ public class QueryController {
      *   "tenantId": "tenant-123",
      *   "userId": "user-456",
      *   "userRoles": ["developer", "admin"],
-     *   "maxStalenessMs": 60000
+     *   "maxStalenessMs": 60000,
+     *   "maxWaitMs": 2000
      * }
+     * 
+     * maxWaitMs: how long to wait for rate limit tokens before answering 429 (default 0)
      */
     @PostMapping("/query")
-    public ResponseEntity<QueryExecutionResult> executeQuery(
+    public CompletableFuture<ResponseEntity<QueryExecutionResult>> executeQuery(
             @RequestBody QueryRequestDto request) {
         
         logger.info("Received query request - tenant: {}, user: {}", 
                    request.tenantId(), request.userId());
         
+        CompletableFuture<QueryExecutionResult> execution;
         try {
-            QueryExecutionResult result = queryService.executeQuery(
+            execution = queryService.executeQuery(
                 request.sql(),
                 request.tenantId(),
                 request.userId(),
-                request.maxStalenessMs() != null ? request.maxStalenessMs() : 60000L
+                request.maxStalenessMs() != null ? request.maxStalenessMs() : 60000L,
+                request.maxWaitMs() != null ? request.maxWaitMs() : 0L
             );
+        } catch (Exception e) {
+            execution = CompletableFuture.failedFuture(e);
+        }
+        
+        // The servlet thread is released here; the response is written on completion
+        return execution.handle((result, e) -> {
+            if (e != null) {
+                Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                logger.error("Error processing query request", cause);
+                QueryExecutionResult errorResult = QueryExecutionResult.error(
+                    "INTERNAL_ERROR",
+                    "Internal server error: " + cause.getMessage(),
+                    0L
+                );
+                return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResult);
+            }
             
             HttpStatus status = switch (result.getStatus()) {
                 case "SUCCESS" -> HttpStatus.OK;
@@ -61,22 +84,16 @@ public class QueryController {
                     if ("ENTITLEMENT_DENIED".equals(result.getErrorCode())) {
                         yield HttpStatus.FORBIDDEN;
                     }
+                    if ("CONCURRENCY_LIMIT_EXCEEDED".equals(result.getErrorCode())) {
+                        yield HttpStatus.SERVICE_UNAVAILABLE;
+                    }
                     yield HttpStatus.BAD_REQUEST;
                 }
                 default -> HttpStatus.INTERNAL_SERVER_ERROR;
             };
             
             return ResponseEntity.status(status).body(result);
-            
-        } catch (Exception e) {
-            logger.error("Error processing query request", e);
-            QueryExecutionResult errorResult = QueryExecutionResult.error(
-                "INTERNAL_ERROR",
-                "Internal server error: " + e.getMessage(),
-                0L
-            );
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResult);
-        }
+        });
     }
     
     /**
@@ -97,6 +114,7 @@ public class QueryController {
         String sql,
         String tenantId,
         String userId,
-        Long maxStalenessMs
+        Long maxStalenessMs,
+        Long maxWaitMs
     ) {}
 }
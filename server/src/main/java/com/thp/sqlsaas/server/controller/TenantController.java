@@ -1,6 +1,8 @@
 package com.thp.sqlsaas.server.controller;
 
+import com.thp.sqlsaas.connector.ConnectorType;
 import com.thp.sqlsaas.persistence.entity.Tenant;
+import com.thp.sqlsaas.persistence.entity.TenantRateLimit;
 import com.thp.sqlsaas.persistence.service.TenantService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -58,6 +60,18 @@ public class TenantController {
         return ResponseEntity.ok(tenant);
     }
 
+    /**
+     * Update the tenant's scheduling weight.
+     * Takes effect within sqlsaas.scheduler.weights-ttl.
+     */
+    @PutMapping("/{tenantId}/scheduling-weight")
+    public ResponseEntity<Tenant> updateSchedulingWeight(
+            @PathVariable String tenantId,
+            @RequestBody SchedulingWeightRequest request) {
+        Tenant tenant = tenantService.updateSchedulingWeight(tenantId, request.weight());
+        return ResponseEntity.ok(tenant);
+    }
+
     /**
      * Delete tenant.
      */
@@ -67,7 +81,31 @@ public class TenantController {
         return ResponseEntity.noContent().build();
     }
 
+    /**
+     * Get the rate limits configured for a tenant.
+     */
+    @GetMapping("/{tenantId}/rate-limits")
+    public ResponseEntity<List<TenantRateLimit>> getRateLimits(@PathVariable String tenantId) {
+        return ResponseEntity.ok(tenantService.getRateLimits(tenantId));
+    }
+
+    /**
+     * Set the rate limit of a tenant for one connector type.
+     * Takes effect within sqlsaas.rate-limit.tenant-limits-ttl.
+     */
+    @PutMapping("/{tenantId}/rate-limits/{connectorType}")
+    public ResponseEntity<TenantRateLimit> setRateLimit(
+            @PathVariable String tenantId,
+            @PathVariable ConnectorType connectorType,
+            @RequestBody RateLimitRequest request) {
+        TenantRateLimit rateLimit = tenantService.setRateLimit(tenantId, connectorType.name(),
+                request.tenantRequests(), request.userRequests(), request.periodSeconds());
+        return ResponseEntity.ok(rateLimit);
+    }
+
     // Request DTOs
     public record CreateTenantRequest(String tenantId, String name) {}
     public record UpdateTenantRequest(String name) {}
+    public record SchedulingWeightRequest(int weight) {}
+    public record RateLimitRequest(int tenantRequests, int userRequests, int periodSeconds) {}
 }
@@ -0,0 +1,496 @@
+package com.thp.sqlsaas.server.metrics;
+
+import com.thp.sqlsaas.connector.AdaptiveConcurrencyLimiter;
+import com.thp.sqlsaas.connector.ConnectorFactory;
+import com.thp.sqlsaas.connector.ConnectorType;
+import com.thp.sqlsaas.entitlement.EntitlementService;
+import com.thp.sqlsaas.persistence.service.QueryExecutionRecorder;
+import com.thp.sqlsaas.persistence.service.UserService;
+import com.thp.sqlsaas.server.cache.CacheService;
+import com.thp.sqlsaas.server.orchestrator.AdmissionQueue;
+import com.thp.sqlsaas.server.orchestrator.ConnectorScheduler;
+import com.thp.sqlsaas.server.orchestrator.QueryOrchestrator;
+import com.thp.sqlsaas.server.orchestrator.RateLimitService;
+import com.thp.sqlsaas.server.service.InFlightQueries;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes platform cache counters to Micrometer (visible under /actuator/metrics).
+ */
+@Component
+public class PlatformMetrics implements MeterBinder {
+
+    private final EntitlementService entitlementService;
+    private final UserService userService;
+    private final QueryExecutionRecorder executionRecorder;
+    private final CacheService cacheService;
+    private final InFlightQueries inFlightQueries;
+    private final RateLimitService rateLimitService;
+    private final AdmissionQueue admissionQueue;
+    private final ConnectorScheduler connectorScheduler;
+    private final ConnectorFactory connectorFactory;
+    private final QueryOrchestrator queryOrchestrator;
+
+    public PlatformMetrics(
+            EntitlementService entitlementService,
+            UserService userService,
+            QueryExecutionRecorder executionRecorder,
+            CacheService cacheService,
+            InFlightQueries inFlightQueries,
+            RateLimitService rateLimitService,
+            AdmissionQueue admissionQueue,
+            ConnectorScheduler connectorScheduler,
+            ConnectorFactory connectorFactory,
+            QueryOrchestrator queryOrchestrator) {
+        this.entitlementService = entitlementService;
+        this.userService = userService;
+        this.executionRecorder = executionRecorder;
+        this.cacheService = cacheService;
+        this.inFlightQueries = inFlightQueries;
+        this.rateLimitService = rateLimitService;
+        this.admissionQueue = admissionQueue;
+        this.connectorScheduler = connectorScheduler;
+        this.connectorFactory = connectorFactory;
+        this.queryOrchestrator = queryOrchestrator;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindPolicyCache(registry);
+        bindDecisionCache(registry);
+        bindRoleCache(registry);
+        bindExecutionRecorder(registry);
+        bindResultCache(registry);
+        bindInFlightQueries(registry);
+        bindRateLimits(registry);
+        bindAdmissionQueue(registry);
+        bindConnectorScheduler(registry);
+        bindConcurrencyLimits(registry);
+        bindConnectorSessions(registry);
+        bindPushdown(registry);
+    }
+
+    private void bindPolicyCache(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.entitlement.policy.cache.requests", entitlementService,
+                        s -> s.getPolicyCacheStats().hits())
+                .tag("result", "hit")
+                .description("Policy lookups served from the compiled policy cache")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.entitlement.policy.cache.requests", entitlementService,
+                        s -> s.getPolicyCacheStats().misses())
+                .tag("result", "miss")
+                .description("Policy lookups that required a database load")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.entitlement.policy.cache.loads", entitlementService,
+                        s -> s.getPolicyCacheStats().loads())
+                .description("Tenant policy sets loaded from the database")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.entitlement.policy.cache.invalidations", entitlementService,
+                        s -> s.getPolicyCacheStats().invalidations())
+                .description("Tenant policy sets dropped after a policy change")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.entitlement.policy.cache.tenants", entitlementService,
+                        s -> s.getPolicyCacheStats().tenants())
+                .description("Tenants with compiled policies in memory")
+                .register(registry);
+    }
+
+    private void bindDecisionCache(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.entitlement.decision.cache.requests", entitlementService,
+                        s -> s.getDecisionCacheStats().hits())
+                .tag("result", "hit")
+                .description("Authorizations served from a cached decision")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.entitlement.decision.cache.requests", entitlementService,
+                        s -> s.getDecisionCacheStats().misses())
+                .tag("result", "miss")
+                .description("Authorizations that evaluated the table's policies")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.entitlement.decision.cache.evictions", entitlementService,
+                        s -> s.getDecisionCacheStats().evictions())
+                .description("Decisions evicted to stay within the size bound")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.entitlement.decision.cache.size", entitlementService,
+                        s -> s.getDecisionCacheStats().size())
+                .description("Decisions currently cached")
+                .register(registry);
+    }
+
+    private void bindRoleCache(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.users.role.cache.requests", userService,
+                        s -> s.getRoleCacheStats().hits())
+                .tag("result", "hit")
+                .description("Role lookups served from the role cache")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.users.role.cache.requests", userService,
+                        s -> s.getRoleCacheStats().misses())
+                .tag("result", "miss")
+                .description("Role lookups that required a database load")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.users.role.cache.evictions", userService,
+                        s -> s.getRoleCacheStats().evictions())
+                .description("Cached role sets evicted by size or TTL")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.users.role.cache.size", userService,
+                        s -> s.getRoleCacheStats().size())
+                .description("Users with roles cached in memory")
+                .register(registry);
+    }
+
+    private void bindExecutionRecorder(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.executions.recorder.events", executionRecorder,
+                        r -> r.getStats().recorded())
+                .description("Execution lifecycle events emitted by queries")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.executions.recorder.dropped", executionRecorder,
+                        r -> r.getStats().dropped())
+                .description("Execution events discarded because the buffer was full")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.executions.recorder.spilled", executionRecorder,
+                        r -> r.getStats().spilled())
+                .description("Execution events written to the local spill file")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.executions.recorder.rows", executionRecorder,
+                        r -> r.getStats().written())
+                .tag("result", "written")
+                .description("Coalesced execution rows written to the database")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.executions.recorder.rows", executionRecorder,
+                        r -> r.getStats().failed())
+                .tag("result", "failed")
+                .description("Coalesced execution rows given up after their batch write failed")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.executions.recorder.retries", executionRecorder,
+                        r -> r.getStats().retries())
+                .description("Batch writes retried after a database failure")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.executions.recorder.buffered", executionRecorder,
+                        r -> r.getStats().buffered())
+                .description("Execution events waiting for the background writer")
+                .register(registry);
+    }
+
+    private void bindResultCache(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().exactHits())
+                .tag("result", "hit")
+                .description("Queries answered from their own cached result")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().staleHits())
+                .tag("result", "stale")
+                .description("Queries answered from a stale result while it refreshes")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().diskHits())
+                .tag("result", "disk")
+                .description("Queries answered from the local disk tier")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().l2Hits())
+                .tag("result", "l2")
+                .description("Queries answered from the shared L2 and promoted to L1")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().derivedHits())
+                .tag("result", "derived")
+                .description("Queries answered by filtering a broader cached result")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.requests", cacheService,
+                        c -> c.getStats().misses())
+                .tag("result", "miss")
+                .description("Queries not found in the result cache")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.refreshes", cacheService,
+                        c -> c.getStats().staleRefreshes())
+                .tag("trigger", "stale")
+                .description("Background refreshes started by a stale hit")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.refreshes", cacheService,
+                        c -> c.getStats().hotRefreshes())
+                .tag("trigger", "hot")
+                .description("Background refreshes of frequently hit results")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.refresh.failures", cacheService,
+                        c -> c.getStats().failedRefreshes())
+                .description("Background refreshes that threw")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.evictions", cacheService,
+                        c -> c.getStats().evictions())
+                .tag("cause", "size")
+                .description("Results evicted by the global size bound or expiry")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.evictions", cacheService,
+                        c -> c.getStats().quotaEvictions())
+                .tag("cause", "tenant-quota")
+                .description("Results evicted to keep a tenant within its byte quota")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.rejected", cacheService,
+                        c -> c.getStats().rejected())
+                .description("Results too large to cache under the tenant quota")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.l2.invalidations", cacheService,
+                        c -> c.getStats().l2Invalidations())
+                .description("Local results dropped because another replica wrote the key to L2")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.cache.l2.failures", cacheService,
+                        c -> c.getStats().l2Failures())
+                .description("L2 reads, writes or removals that failed")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.cache.entries", cacheService,
+                        c -> c.getStats().entries())
+                .description("Results currently cached")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.cache.weight", cacheService,
+                        c -> c.getStats().weightedBytes())
+                .baseUnit("bytes")
+                .description("Estimated size of cached results")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.cache.off-heap", cacheService,
+                        c -> c.getStats().offHeapBytes())
+                .baseUnit("bytes")
+                .description("Encoded rows held in direct buffers")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.cache.disk.entries", cacheService,
+                        c -> c.getStats().diskEntries())
+                .description("Results held in the local disk tier")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.cache.disk.size", cacheService,
+                        c -> c.getStats().diskBytes())
+                .baseUnit("bytes")
+                .description("Size of the segment files of the local disk tier")
+                .register(registry);
+    }
+
+    private void bindInFlightQueries(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.query.executions", inFlightQueries,
+                        q -> q.getStats().executions())
+                .description("Query executions started after a cache miss")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.query.coalesced", inFlightQueries,
+                        q -> q.getStats().coalesced())
+                .description("Queries answered by an identical execution already in flight")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.query.in-flight", inFlightQueries,
+                        q -> q.getStats().inFlight())
+                .description("Distinct query executions currently in flight")
+                .register(registry);
+    }
+
+    private void bindRateLimits(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.rate-limit.requests", rateLimitService,
+                        r -> r.getStats().allowed())
+                .tag("result", "allowed")
+                .description("Requests within every rate limit budget")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.rate-limit.requests", rateLimitService,
+                        r -> r.getStats().userRejections())
+                .tag("result", "user")
+                .description("Requests rejected by the user budget")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.rate-limit.requests", rateLimitService,
+                        r -> r.getStats().tenantRejections())
+                .tag("result", "tenant")
+                .description("Requests rejected by the tenant budget")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.rate-limit.requests", rateLimitService,
+                        r -> r.getStats().connectorRejections())
+                .tag("result", "connector")
+                .description("Requests rejected by the connector-wide budget")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.rate-limit.buckets", rateLimitService,
+                        r -> r.getStats().tenants())
+                .tag("level", "tenant")
+                .description("Tenant buckets currently held")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.rate-limit.buckets", rateLimitService,
+                        r -> r.getStats().users())
+                .tag("level", "user")
+                .description("User buckets currently held")
+                .register(registry);
+    }
+
+    private void bindAdmissionQueue(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.admission.requests", admissionQueue,
+                        a -> a.getStats().admitted())
+                .tag("result", "admitted")
+                .description("Requests admitted without waiting")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.admission.requests", admissionQueue,
+                        a -> a.getStats().admittedAfterWait())
+                .tag("result", "waited")
+                .description("Requests admitted after waiting for tokens")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.admission.requests", admissionQueue,
+                        a -> a.getStats().rejected())
+                .tag("result", "rejected")
+                .description("Requests rejected without waiting: no max wait, predicted wait too long or queue full")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.admission.requests", admissionQueue,
+                        a -> a.getStats().expired())
+                .tag("result", "expired")
+                .description("Requests rejected after waiting their max wait")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.admission.parked", admissionQueue,
+                        a -> a.getStats().parked())
+                .description("Requests currently waiting for rate limit tokens")
+                .register(registry);
+    }
+
+    // Per-tenant wait timers and queue depths are registered by the scheduler while tenants are active
+    private void bindConnectorScheduler(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.scheduler.executions", connectorScheduler,
+                        s -> s.getStats().dispatched())
+                .description("Connector executions granted a slot")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.scheduler.queued", connectorScheduler,
+                        s -> s.getStats().queued())
+                .description("Connector executions that had to wait for a slot")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.scheduler.rejected", connectorScheduler,
+                        s -> s.getStats().rejected())
+                .description("Connector executions rejected because the tenant's queue was full")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.scheduler.running", connectorScheduler,
+                        s -> s.getStats().running())
+                .description("Connector executions currently running")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.scheduler.waiting", connectorScheduler,
+                        s -> s.getStats().waiting())
+                .description("Connector executions currently waiting for a slot")
+                .register(registry);
+    }
+
+    private void bindConcurrencyLimits(MeterRegistry registry) {
+        for (ConnectorType type : ConnectorType.values()) {
+            AdaptiveConcurrencyLimiter limiter = connectorFactory.getLimiter(type);
+            String connector = type.name();
+
+            Gauge.builder("sqlsaas.connector.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .tag("connector", connector)
+                    .description("Concurrent scans the source currently sustains, adapted from latency")
+                    .register(registry);
+
+            Gauge.builder("sqlsaas.connector.in-flight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .tag("connector", connector)
+                    .description("Scans currently running against the source")
+                    .register(registry);
+
+            FunctionCounter.builder("sqlsaas.connector.shed", limiter, AdaptiveConcurrencyLimiter::getRejected)
+                    .tag("connector", connector)
+                    .description("Scans rejected at the concurrency limit")
+                    .register(registry);
+        }
+    }
+
+    private void bindConnectorSessions(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.connector.sessions.created", connectorFactory,
+                        f -> f.getSessionStats().created())
+                .description("Connector sessions connected")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.connector.sessions.closed", connectorFactory,
+                        f -> f.getSessionStats().closed())
+                .description("Connector sessions closed (idle, unhealthy or invalidated)")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.connector.sessions.leases", connectorFactory,
+                        f -> f.getSessionStats().leases())
+                .description("Connector sessions leased by queries")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.connector.sessions.waits", connectorFactory,
+                        f -> f.getSessionStats().waits())
+                .description("Leases that waited for a session to be returned")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.connector.sessions", connectorFactory, f -> f.getSessionStats().idle())
+                .tag("state", "idle")
+                .description("Connector sessions by state")
+                .register(registry);
+
+        Gauge.builder("sqlsaas.connector.sessions", connectorFactory, f -> f.getSessionStats().leased())
+                .tag("state", "leased")
+                .description("Connector sessions by state")
+                .register(registry);
+    }
+
+    private void bindPushdown(MeterRegistry registry) {
+        FunctionCounter.builder("sqlsaas.query.predicates", queryOrchestrator,
+                        o -> o.getPushdownStats().predicatesPushed())
+                .tag("evaluated", "source")
+                .description("Query predicates by where they were evaluated")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.query.predicates", queryOrchestrator,
+                        o -> o.getPushdownStats().predicatesResidual())
+                .tag("evaluated", "engine")
+                .description("Query predicates by where they were evaluated")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.query.rows.pruned", queryOrchestrator,
+                        o -> o.getPushdownStats().rowsPrunedAtSource())
+                .tag("stage", "source")
+                .description("Rows dropped by query predicates, by where they were evaluated")
+                .register(registry);
+
+        FunctionCounter.builder("sqlsaas.query.rows.pruned", queryOrchestrator,
+                        o -> o.getPushdownStats().rowsPrunedInEngine())
+                .tag("stage", "engine")
+                .description("Rows dropped by query predicates, by where they were evaluated")
+                .register(registry);
+    }
+}
@@ -12,6 +12,9 @@ public class QueryExecutionResult {
     private List<Map<String, Object>> rows;
     private List<String> columns;
     private String nextPageToken;
+    // More rows match than were returned; set with any next page token, and also
+    // when the limit was reached inside a connector page, which no token can resume
+    private boolean truncated;
     private Long freshnessMs;
     private String rateLimitStatus;
     private Integer remainingRequests;
@@ -20,6 +23,8 @@ public class QueryExecutionResult {
     private String errorMessage;
     private String traceId;
     private Long executionTimeMs;
+    private Long rowsPrunedAtSource;  // Dropped by predicates pushed down to the connector
+    private Long rowsPrunedInEngine;  // Dropped by residual predicates evaluated here
     
     public QueryExecutionResult() {
     }
@@ -34,6 +39,7 @@ public class QueryExecutionResult {
         result.status = "SUCCESS";
         result.rows = rows;
         result.nextPageToken = nextPageToken;
+        result.truncated = nextPageToken != null;
         result.freshnessMs = freshnessMs;
         result.rateLimitStatus = rateLimitStatus;
         
@@ -70,6 +76,30 @@ public class QueryExecutionResult {
         return result;
     }
     
+    /**
+     * A copy that can be modified without affecting this result. The rows are
+     * shared, not copied.
+     */
+    public QueryExecutionResult copy() {
+        QueryExecutionResult copy = new QueryExecutionResult();
+        copy.status = status;
+        copy.rows = rows;
+        copy.columns = columns;
+        copy.nextPageToken = nextPageToken;
+        copy.truncated = truncated;
+        copy.freshnessMs = freshnessMs;
+        copy.rateLimitStatus = rateLimitStatus;
+        copy.remainingRequests = remainingRequests;
+        copy.retryAfterSeconds = retryAfterSeconds;
+        copy.errorCode = errorCode;
+        copy.errorMessage = errorMessage;
+        copy.traceId = traceId;
+        copy.executionTimeMs = executionTimeMs;
+        copy.rowsPrunedAtSource = rowsPrunedAtSource;
+        copy.rowsPrunedInEngine = rowsPrunedInEngine;
+        return copy;
+    }
+    
     // Getters and setters
     public String getStatus() {
         return status;
@@ -103,6 +133,14 @@ public class QueryExecutionResult {
         this.nextPageToken = nextPageToken;
     }
     
+    public boolean isTruncated() {
+        return truncated;
+    }
+    
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+    
     public Long getFreshnessMs() {
         return freshnessMs;
     }
@@ -166,4 +204,20 @@ public class QueryExecutionResult {
     public void setExecutionTimeMs(Long executionTimeMs) {
         this.executionTimeMs = executionTimeMs;
     }
+    
+    public Long getRowsPrunedAtSource() {
+        return rowsPrunedAtSource;
+    }
+    
+    public void setRowsPrunedAtSource(Long rowsPrunedAtSource) {
+        this.rowsPrunedAtSource = rowsPrunedAtSource;
+    }
+    
+    public Long getRowsPrunedInEngine() {
+        return rowsPrunedInEngine;
+    }
+    
+    public void setRowsPrunedInEngine(Long rowsPrunedInEngine) {
+        this.rowsPrunedInEngine = rowsPrunedInEngine;
+    }
 }
@@ -27,6 +27,7 @@ public class QueryPlan {
     private List<Connector.Predicate> predicates;
     private Integer limit;
     private Long maxStalenessMs;
+    private Long maxWaitMs;  // How long to wait for rate limit tokens; null or 0 rejects at once
     
     // Metadata
     private String traceId;
@@ -142,6 +143,14 @@ public class QueryPlan {
         this.maxStalenessMs = maxStalenessMs;
     }
     
+    public Long getMaxWaitMs() {
+        return maxWaitMs;
+    }
+    
+    public void setMaxWaitMs(Long maxWaitMs) {
+        this.maxWaitMs = maxWaitMs;
+    }
+    
     public String getTraceId() {
         return traceId;
     }
@@ -0,0 +1,280 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.ConnectorFactory;
+import com.thp.sqlsaas.connector.ConnectorType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of {@link RateLimitService}.
+ *
+ * A request that finds its budgets empty is parked instead of rejected, for up to
+ * the max wait it asked for (capped by {@code sqlsaas.admission.max-wait}), and
+ * admitted once tokens have refilled. It is rejected right away only when the
+ * predicted wait exceeds its max wait or {@code sqlsaas.admission.max-queued}
+ * requests are already parked.
+ *
+ * Parked requests wait in a FIFO queue per tenant, user and connector type. A queue
+ * is served by one timer task at a time, scheduled for when its head is predicted
+ * to get a token; queues competing for a tenant or connector budget take turns in
+ * timer order. A parked request is only a future, so it holds no thread while it
+ * waits. Parked requests are completed on the connector executor, so what follows
+ * admission never runs on, or holds up, the single timer thread.
+ */
+@Component
+public class AdmissionQueue {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionQueue.class);
+
+    // Floor for rescheduling a queue whose tokens were just taken by another queue
+    private static final long MIN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RateLimitService rateLimitService;
+    // Completes parked requests
+    private final Executor executor;
+    private final long maxWaitMs;
+    private final int maxQueued;
+
+    private final Map<Key, KeyQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder admittedAfterWait = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    @Autowired
+    public AdmissionQueue(
+            RateLimitService rateLimitService,
+            ConnectorFactory connectorFactory,
+            @Value("${sqlsaas.admission.max-wait:PT30S}") Duration maxWait,
+            @Value("${sqlsaas.admission.max-queued:10000}") int maxQueued) {
+        this(rateLimitService, connectorFactory.getExecutor(), maxWait, maxQueued);
+    }
+
+    AdmissionQueue(RateLimitService rateLimitService, Executor executor, Duration maxWait, int maxQueued) {
+        this.rateLimitService = rateLimitService;
+        this.executor = executor;
+        this.maxWaitMs = maxWait.toMillis();
+        this.maxQueued = maxQueued;
+        this.scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "admission-release");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+        for (KeyQueue queue : queues.values()) {
+            List<Waiter> waiters;
+            synchronized (queue) {
+                waiters = new ArrayList<>(queue.waiters);
+                queue.waiters.clear();
+            }
+            for (Waiter waiter : waiters) {
+                finish(waiter, new RateLimitDecision(false, 0, 1L, "Server is shutting down. Please retry."), null);
+            }
+        }
+    }
+
+    /**
+     * Admit a request within its rate limits, waiting up to {@code maxWaitMs} for tokens.
+     *
+     * @param maxWaitMs how long the caller is willing to wait; 0 rejects immediately
+     *                  when a budget is empty
+     * @return a future completed with an allowed decision once admitted, or with a
+     *         rejection when the wait would exceed {@code maxWaitMs}
+     */
+    public CompletableFuture<RateLimitDecision> admit(
+            String tenantId,
+            String userId,
+            ConnectorType connectorType,
+            long maxWaitMs) {
+
+        Key key = new Key(tenantId, userId, connectorType);
+        // Requests of a key that is already queued wait their turn
+        if (parked.get() == 0 || !queues.containsKey(key)) {
+            RateLimitDecision decision = rateLimitService.checkRateLimit(tenantId, userId, connectorType);
+            if (decision.isAllowed()) {
+                admitted.increment();
+                return CompletableFuture.completedFuture(decision);
+            }
+            if (maxWaitMs <= 0) {
+                rejected.increment();
+                return CompletableFuture.completedFuture(decision);
+            }
+        }
+
+        long waitMs = Math.min(maxWaitMs, this.maxWaitMs);
+        while (true) {
+            KeyQueue queue = queues.computeIfAbsent(key, KeyQueue::new);
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                long predicted = rateLimitService.predictWaitNanos(
+                        tenantId, userId, connectorType, queue.waiters.size() + 1);
+                String reason = null;
+                if (waitMs <= 0 || predicted > TimeUnit.MILLISECONDS.toNanos(waitMs)) {
+                    reason = "predicted wait exceeds the max wait of " + waitMs + " ms";
+                } else if (parked.get() >= maxQueued) {
+                    reason = "admission queue is full";
+                }
+                if (reason != null) {
+                    if (queue.waiters.isEmpty()) {
+                        queue.removed = true;
+                        queues.remove(key, queue);
+                    }
+                    rejected.increment();
+                    return CompletableFuture.completedFuture(rejection(connectorType, predicted, reason));
+                }
+
+                Waiter waiter = new Waiter(key, System.nanoTime());
+                queue.waiters.add(waiter);
+                parked.incrementAndGet();
+                waiter.timeout = scheduler.schedule(() -> expire(queue, waiter), waitMs, TimeUnit.MILLISECONDS);
+                if (queue.waiters.size() == 1) {
+                    schedule(queue, predicted);
+                }
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Parked request - tenant: {}, user: {}, connector: {}, position: {}, predicted wait: {}ms",
+                        tenantId, userId, connectorType, queue.waiters.size(), TimeUnit.NANOSECONDS.toMillis(predicted));
+                }
+                return waiter.future;
+            }
+        }
+    }
+
+    /**
+     * Counters and the number of parked requests, for metrics.
+     */
+    public Stats getStats() {
+        return new Stats(admitted.sum(), admittedAfterWait.sum(), rejected.sum(), expired.sum(), parked.get());
+    }
+
+    /**
+     * Admit waiters from the head of a queue while tokens last, then reschedule for
+     * the next token, or drop the queue once it is empty.
+     */
+    private void release(KeyQueue queue) {
+        Key key = queue.key;
+        while (true) {
+            Waiter head;
+            RateLimitDecision decision;
+            synchronized (queue) {
+                head = queue.waiters.peek();
+                if (head == null) {
+                    queue.removed = true;
+                    queues.remove(key, queue);
+                    return;
+                }
+                decision = rateLimitService.checkRateLimit(key.tenantId(), key.userId(), key.connectorType());
+                if (!decision.isAllowed()) {
+                    schedule(queue, rateLimitService.predictWaitNanos(
+                            key.tenantId(), key.userId(), key.connectorType(), 1));
+                    return;
+                }
+                queue.waiters.poll();
+            }
+            // Polled under the lock, so expire() can no longer complete it
+            head.timeout.cancel(false);
+            finish(head, decision, admittedAfterWait);
+        }
+    }
+
+    private void expire(KeyQueue queue, Waiter waiter) {
+        synchronized (queue) {
+            if (!queue.waiters.remove(waiter)) {
+                // Already admitted
+                return;
+            }
+        }
+        Key key = waiter.key;
+        long predicted = rateLimitService.predictWaitNanos(key.tenantId(), key.userId(), key.connectorType(), 1);
+        long waitedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.parkedAt);
+        finish(waiter, rejection(key.connectorType(), predicted, "no token within " + waitedMs + " ms"), expired);
+    }
+
+    /**
+     * Complete a parked request once, counting it in {@code outcome} (if any) before
+     * the caller can observe the completion.
+     */
+    private void finish(Waiter waiter, RateLimitDecision decision, LongAdder outcome) {
+        if (!waiter.finished.compareAndSet(false, true)) {
+            return;
+        }
+        parked.decrementAndGet();
+        if (outcome != null) {
+            outcome.increment();
+        }
+        try {
+            waiter.future.completeAsync(() -> decision, executor);
+        } catch (RejectedExecutionException e) {
+            // Executor shut down: complete on this thread rather than never
+            waiter.future.complete(decision);
+        }
+    }
+
+    private void schedule(KeyQueue queue, long delayNanos) {
+        scheduler.schedule(() -> release(queue), Math.max(delayNanos, MIN_RETRY_NANOS), TimeUnit.NANOSECONDS);
+    }
+
+    private static RateLimitDecision rejection(ConnectorType connectorType, long predictedNanos, String reason) {
+        long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(predictedNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        String message = "Rate limit exceeded for " + connectorType + " (" + reason
+            + "). Please retry after " + retryAfter + " seconds.";
+        return new RateLimitDecision(false, 0, retryAfter, message);
+    }
+
+    private record Key(String tenantId, String userId, ConnectorType connectorType) {}
+
+    private static final class KeyQueue {
+        final Key key;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        // Set once dropped from the map; admit() then creates a new queue
+        boolean removed;
+
+        KeyQueue(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Waiter {
+        final Key key;
+        final long parkedAt;
+        final CompletableFuture<RateLimitDecision> future = new CompletableFuture<>();
+        final AtomicBoolean finished = new AtomicBoolean();
+        ScheduledFuture<?> timeout;
+
+        Waiter(Key key, long parkedAt) {
+            this.key = key;
+            this.parkedAt = parkedAt;
+        }
+    }
+
+    public record Stats(long admitted, long admittedAfterWait, long rejected, long expired, int parked) {}
+}
@@ -0,0 +1,399 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.thp.sqlsaas.connector.AdaptiveConcurrencyLimiter;
+import com.thp.sqlsaas.connector.ConnectorFactory;
+import com.thp.sqlsaas.connector.ConnectorType;
+import com.thp.sqlsaas.persistence.entity.Tenant;
+import com.thp.sqlsaas.persistence.service.TenantService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Weighted fair scheduling of connector executions across tenants.
+ *
+ * Each connector type runs at most {@code sqlsaas.scheduler.max-concurrency}
+ * executions at once (overridable per type, e.g.
+ * {@code sqlsaas.scheduler.max-concurrency.github}), and no more than the current
+ * limit of the type's {@link AdaptiveConcurrencyLimiter}, so a degrading source
+ * makes executions wait their turn here rather than be shed by the connector.
+ * Executions beyond that wait in
+ * a FIFO queue per tenant, and freed slots are handed out by deficit round robin:
+ * each visit adds the tenant's scheduling weight ({@link Tenant#getSchedulingWeight})
+ * to its deficit, and it is served while the deficit lasts. Under contention a
+ * tenant with weight 2 therefore gets twice the slots of one with weight 1, and a
+ * tenant with a deep queue cannot starve the others.
+ *
+ * Callers run the execution on their own thread once granted a {@link Permit}, and
+ * close it when done. Wait time and queue depth are published per tenant and
+ * connector type as {@code sqlsaas.scheduler.wait} and
+ * {@code sqlsaas.scheduler.queue.depth}. A tenant's meters are removed once it has
+ * had nothing queued or running for {@code sqlsaas.scheduler.meter-idle-timeout},
+ * so their number follows the tenants currently active, not every tenant seen.
+ */
+@Component
+public class ConnectorScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectorScheduler.class);
+
+    private final Map<ConnectorType, Lane> lanes = new EnumMap<>(ConnectorType.class);
+    private final LoadingCache<String, Integer> weights;
+    private final MeterRegistry registry;
+    private final int maxQueuedPerTenant;
+    private final long meterIdleNanos;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public ConnectorScheduler(
+            TenantService tenantService,
+            ConnectorFactory connectorFactory,
+            MeterRegistry registry,
+            Environment environment,
+            @Value("${sqlsaas.scheduler.max-concurrency:8}") int maxConcurrency,
+            @Value("${sqlsaas.scheduler.max-queued-per-tenant:1000}") int maxQueuedPerTenant,
+            @Value("${sqlsaas.scheduler.weights-ttl:PT1M}") Duration weightsTtl,
+            @Value("${sqlsaas.scheduler.meter-idle-timeout:PT5M}") Duration meterIdleTimeout) {
+        this(tenantId -> tenantService.getTenantByTenantId(tenantId).map(Tenant::getSchedulingWeight).orElse(1),
+                type -> connectorFactory.getLimiter(type)::getLimit, registry,
+                concurrencyByType(environment, maxConcurrency), maxQueuedPerTenant, weightsTtl, meterIdleTimeout);
+    }
+
+    ConnectorScheduler(
+            ToIntFunction<String> weightLoader,
+            Function<ConnectorType, IntSupplier> adaptiveLimits,
+            MeterRegistry registry,
+            Map<ConnectorType, Integer> maxConcurrency,
+            int maxQueuedPerTenant,
+            Duration weightsTtl,
+            Duration meterIdleTimeout) {
+        this.registry = registry;
+        this.maxQueuedPerTenant = maxQueuedPerTenant;
+        this.meterIdleNanos = meterIdleTimeout.toNanos();
+        this.weights = Caffeine.newBuilder()
+                .refreshAfterWrite(weightsTtl)
+                .build(weightLoader::applyAsInt);
+        for (ConnectorType type : ConnectorType.values()) {
+            lanes.put(type, new Lane(type, maxConcurrency.get(type), adaptiveLimits.apply(type)));
+        }
+    }
+
+    private static Map<ConnectorType, Integer> concurrencyByType(Environment environment, int maxConcurrency) {
+        Map<ConnectorType, Integer> concurrency = new EnumMap<>(ConnectorType.class);
+        for (ConnectorType type : ConnectorType.values()) {
+            concurrency.put(type, environment.getProperty(
+                    "sqlsaas.scheduler.max-concurrency." + type.name().toLowerCase(Locale.ROOT),
+                    Integer.class, maxConcurrency));
+        }
+        return concurrency;
+    }
+
+    /**
+     * Request an execution slot on a connector type for a tenant.
+     *
+     * @return a future completed with the permit once a slot is granted, or failed
+     *         with {@link RejectedExecutionException} if the tenant already has
+     *         {@code sqlsaas.scheduler.max-queued-per-tenant} executions waiting
+     */
+    public CompletableFuture<Permit> acquire(String tenantId, ConnectorType connectorType) {
+        return lanes.get(connectorType).acquire(tenantId);
+    }
+
+    /**
+     * Counters and current load, for metrics.
+     */
+    public Stats getStats() {
+        int running = 0;
+        int waiting = 0;
+        for (Lane lane : lanes.values()) {
+            synchronized (lane) {
+                running += lane.running;
+                waiting += lane.waiting;
+            }
+        }
+        return new Stats(dispatched.sum(), queued.sum(), rejected.sum(), running, waiting);
+    }
+
+    /**
+     * Tenants whose meters are currently registered on a connector type.
+     */
+    int meteredTenants(ConnectorType connectorType) {
+        return lanes.get(connectorType).meteredTenants();
+    }
+
+    private int weight(String tenantId) {
+        try {
+            return Math.max(1, weights.get(tenantId));
+        } catch (RuntimeException e) {
+            logger.warn("Failed to load scheduling weight for tenant {}, using 1: {}", tenantId, e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * Execution slots and tenant queues of one connector type.
+     */
+    private final class Lane {
+        final ConnectorType connectorType;
+        final int maxConcurrency;
+        final IntSupplier adaptiveLimit;
+        // Tenants with waiting executions, in round-robin order
+        final ArrayDeque<TenantQueue> active = new ArrayDeque<>();
+        final Map<String, TenantQueue> queues = new HashMap<>();
+        // Meters of tenants with executions queued or running, or idle for less than the timeout
+        final Map<String, TenantMeters> meters = new HashMap<>();
+        int running;
+        int waiting;
+        long nextMeterSweep;
+
+        Lane(ConnectorType connectorType, int maxConcurrency, IntSupplier adaptiveLimit) {
+            this.connectorType = connectorType;
+            this.maxConcurrency = maxConcurrency;
+            this.adaptiveLimit = adaptiveLimit;
+        }
+
+        /**
+         * Executions allowed at once, as far as the source is currently healthy.
+         */
+        private int capacity() {
+            return Math.min(maxConcurrency, adaptiveLimit.getAsInt());
+        }
+
+        CompletableFuture<Permit> acquire(String tenantId) {
+            synchronized (this) {
+                if (tryRun(tenantId)) {
+                    return CompletableFuture.completedFuture(new Permit(this, tenantId));
+                }
+            }
+
+            // May load from the database, so not under the lock
+            int weight = weight(tenantId);
+            Waiter waiter;
+            synchronized (this) {
+                if (tryRun(tenantId)) {
+                    return CompletableFuture.completedFuture(new Permit(this, tenantId));
+                }
+                TenantQueue queue = queues.get(tenantId);
+                if (queue == null) {
+                    queue = new TenantQueue(tenantId, weight);
+                    queues.put(tenantId, queue);
+                    active.addLast(queue);
+                } else if (queue.waiters.size() >= maxQueuedPerTenant) {
+                    rejected.increment();
+                    return CompletableFuture.failedFuture(new RejectedExecutionException(
+                            "Too many queued queries for tenant " + tenantId + " on " + connectorType));
+                }
+                waiter = new Waiter(tenantId, System.nanoTime());
+                queue.waiters.addLast(waiter);
+                meters(tenantId).inFlight++;
+                waiting++;
+                queued.increment();
+            }
+            return waiter.future;
+        }
+
+        /**
+         * Take a free slot if nobody is waiting for one.
+         */
+        private boolean tryRun(String tenantId) {
+            if (running < capacity() && waiting == 0) {
+                running++;
+                dispatched.increment();
+                TenantMeters tenantMeters = meters(tenantId);
+                tenantMeters.inFlight++;
+                tenantMeters.waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            return false;
+        }
+
+        void release(String tenantId) {
+            List<Waiter> granted;
+            String[] grantedTenants;
+            synchronized (this) {
+                running--;
+                long now = System.nanoTime();
+                TenantMeters tenantMeters = meters.get(tenantId);
+                if (tenantMeters != null && --tenantMeters.inFlight == 0) {
+                    tenantMeters.idleSince = now;
+                }
+                granted = dispatch();
+                grantedTenants = new String[granted.size()];
+                for (int i = 0; i < grantedTenants.length; i++) {
+                    grantedTenants[i] = granted.get(i).tenantId;
+                }
+                if (now - nextMeterSweep >= 0) {
+                    removeIdleMeters(now);
+                    nextMeterSweep = now + meterIdleNanos;
+                }
+            }
+            for (int i = 0; i < grantedTenants.length; i++) {
+                granted.get(i).future.complete(new Permit(this, grantedTenants[i]));
+            }
+        }
+
+        /**
+         * Deficit round robin over the active tenants, one execution costing 1,
+         * while slots are free.
+         */
+        private List<Waiter> dispatch() {
+            List<Waiter> granted = new ArrayList<>(1);
+            long now = System.nanoTime();
+            while (running < capacity() && !active.isEmpty()) {
+                TenantQueue queue = active.peekFirst();
+                if (queue.deficit < 1) {
+                    queue.deficit += queue.weight;
+                }
+                Waiter waiter = queue.waiters.pollFirst();
+                queue.deficit--;
+                waiting--;
+                running++;
+                dispatched.increment();
+                meters(queue.tenantId).waitTimer.record(now - waiter.enqueuedAt, TimeUnit.NANOSECONDS);
+                granted.add(waiter);
+
+                if (queue.waiters.isEmpty()) {
+                    active.pollFirst();
+                    queues.remove(queue.tenantId);
+                } else if (queue.deficit < 1) {
+                    active.addLast(active.pollFirst());
+                }
+            }
+            return granted;
+        }
+
+        private TenantMeters meters(String tenantId) {
+            TenantMeters tenantMeters = meters.get(tenantId);
+            if (tenantMeters == null) {
+                String type = connectorType.name();
+                Timer timer = Timer.builder("sqlsaas.scheduler.wait")
+                        .tag("tenant", tenantId)
+                        .tag("connector", type)
+                        .description("Time queries waited for a connector execution slot")
+                        .publishPercentileHistogram()
+                        .minimumExpectedValue(Duration.ofMillis(1))
+                        .maximumExpectedValue(Duration.ofSeconds(30))
+                        .register(registry);
+                Gauge depth = Gauge.builder("sqlsaas.scheduler.queue.depth", this, lane -> lane.depth(tenantId))
+                        .tag("tenant", tenantId)
+                        .tag("connector", type)
+                        .description("Queries waiting for a connector execution slot")
+                        .register(registry);
+                tenantMeters = new TenantMeters(timer, depth);
+                meters.put(tenantId, tenantMeters);
+            }
+            return tenantMeters;
+        }
+
+        /**
+         * Unregister the meters of tenants idle for at least the meter idle timeout.
+         */
+        private void removeIdleMeters(long now) {
+            Iterator<TenantMeters> it = meters.values().iterator();
+            while (it.hasNext()) {
+                TenantMeters tenantMeters = it.next();
+                if (tenantMeters.inFlight == 0 && now - tenantMeters.idleSince >= meterIdleNanos) {
+                    registry.remove(tenantMeters.waitTimer);
+                    registry.remove(tenantMeters.depth);
+                    it.remove();
+                }
+            }
+        }
+
+        synchronized int meteredTenants() {
+            return meters.size();
+        }
+
+        synchronized int depth(String tenantId) {
+            TenantQueue queue = queues.get(tenantId);
+            return queue != null ? queue.waiters.size() : 0;
+        }
+    }
+
+    private static final class TenantQueue {
+        final String tenantId;
+        final int weight;
+        final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        int deficit;
+
+        TenantQueue(String tenantId, int weight) {
+            this.tenantId = tenantId;
+            this.weight = weight;
+        }
+    }
+
+    private static final class TenantMeters {
+        final Timer waitTimer;
+        final Gauge depth;
+        // Executions of the tenant queued or running on the lane
+        int inFlight;
+        long idleSince;
+
+        TenantMeters(Timer waitTimer, Gauge depth) {
+            this.waitTimer = waitTimer;
+            this.depth = depth;
+        }
+    }
+
+    private static final class Waiter {
+        final String tenantId;
+        final long enqueuedAt;
+        final CompletableFuture<Permit> future = new CompletableFuture<>();
+
+        Waiter(String tenantId, long enqueuedAt) {
+            this.tenantId = tenantId;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+
+    /**
+     * An execution slot on a connector type; close it when the execution is done.
+     */
+    public static final class Permit implements AutoCloseable {
+        private final Lane lane;
+        private final String tenantId;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(Lane lane, String tenantId) {
+            this.lane = lane;
+            this.tenantId = tenantId;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                lane.release(tenantId);
+            }
+        }
+    }
+
+    public record Stats(long dispatched, long queued, long rejected, int running, int waiting) {}
+}
@@ -3,52 +3,85 @@ package com.thp.sqlsaas.server.orchestrator;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
+import com.thp.sqlsaas.connector.AsyncConnector;
 import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.connector.ConnectorException;
 import com.thp.sqlsaas.connector.ConnectorFactory;
+import com.thp.sqlsaas.connector.PredicateEvaluator;
+import com.thp.sqlsaas.connector.PushdownPlanner;
 import com.thp.sqlsaas.entitlement.EntitlementService;
 import com.thp.sqlsaas.entitlement.model.ColumnMask;
 import com.thp.sqlsaas.entitlement.model.EntitlementContext;
 import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
 import com.thp.sqlsaas.persistence.entity.QueryExecution.QueryState;
-import com.thp.sqlsaas.persistence.service.QueryExecutionService;
+import com.thp.sqlsaas.persistence.service.QueryExecutionRecorder;
 import com.thp.sqlsaas.server.model.QueryExecutionResult;
 import com.thp.sqlsaas.server.model.QueryPlan;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 /**
  * Query Orchestrator - Central coordinator for query execution.
  * Responsibilities:
- * - Track query execution state in database
- * - Execute queries against connectors
+ * - Track query execution state (written to the database in the background)
+ * - Execute queries against connectors, in weighted fair turns across tenants
  * - Apply entitlement checks
- * - Handle rate limiting
+ * - Push predicates down to connectors as far as their capabilities allow, and
+ *   evaluate the residual ones over the returned rows, fetching up to
+ *   {@code sqlsaas.query.max-scan-pages} pages to fill the limit
+ * - Handle rate limiting (admission, waiting up to the plan's max wait for tokens)
  * - Aggregate results (future: for joins)
+ *
+ * Executions are asynchronous end to end: waits for admission and connector slots
+ * are futures, and connector round trips run on the connector executor.
  */
 @Component
 public class QueryOrchestrator {
     
     private static final Logger logger = LoggerFactory.getLogger(QueryOrchestrator.class);
     
+    // Page size of connectors when a scan has no limit
+    private static final int DEFAULT_SCAN_LIMIT = 100;
+    
     private final ConnectorFactory connectorFactory;
     private final EntitlementService entitlementService;
-    private final RateLimitService rateLimitService;
-    private final QueryExecutionService queryExecutionService;
+    private final AdmissionQueue admissionQueue;
+    private final ConnectorScheduler connectorScheduler;
+    private final QueryExecutionRecorder executionRecorder;
+    // Connector pages a scan with residual predicates may fetch to fill its limit
+    private final int maxScanPages;
+    
+    private final LongAdder predicatesPushed = new LongAdder();
+    private final LongAdder predicatesResidual = new LongAdder();
+    private final LongAdder rowsPrunedAtSource = new LongAdder();
+    private final LongAdder rowsPrunedInEngine = new LongAdder();
     
     public QueryOrchestrator(
             ConnectorFactory connectorFactory,
             EntitlementService entitlementService,
-            RateLimitService rateLimitService,
-            QueryExecutionService queryExecutionService) {
+            AdmissionQueue admissionQueue,
+            ConnectorScheduler connectorScheduler,
+            QueryExecutionRecorder executionRecorder,
+            @Value("${sqlsaas.query.max-scan-pages:10}") int maxScanPages) {
         this.connectorFactory = connectorFactory;
         this.entitlementService = entitlementService;
-        this.rateLimitService = rateLimitService;
-        this.queryExecutionService = queryExecutionService;
+        this.admissionQueue = admissionQueue;
+        this.connectorScheduler = connectorScheduler;
+        this.executionRecorder = executionRecorder;
+        this.maxScanPages = maxScanPages;
     }
     
     /**
@@ -57,107 +90,228 @@ public class QueryOrchestrator {
      * Future: support joins across multiple sources.
      */
     public QueryExecutionResult execute(QueryPlan plan) {
+        return execute(plan, authorize(plan));
+    }
+    
+    /**
+     * Evaluate the entitlements of a plan without executing it, so the caller can
+     * key cached results on the decision. Pass the decision to
+     * {@link #executeAsync(QueryPlan, EntitlementDecision)}.
+     */
+    public EntitlementDecision authorize(QueryPlan plan) {
+        return checkEntitlements(plan);
+    }
+    
+    /**
+     * Execute a query plan with a decision previously obtained from {@link #authorize},
+     * blocking until it completes. For callers that have a thread to spare, such as
+     * background refreshes.
+     */
+    public QueryExecutionResult execute(QueryPlan plan, EntitlementDecision decision) {
+        return executeAsync(plan, decision).join();
+    }
+    
+    /**
+     * Execute a query plan with a decision previously obtained from {@link #authorize}.
+     * A denied decision is recorded and returned as an error.
+     *
+     * No thread is held while the query waits for admission or a connector slot,
+     * or while the connector round trip is in progress. The future always completes
+     * normally, failures being returned as error results.
+     */
+    public CompletableFuture<QueryExecutionResult> executeAsync(QueryPlan plan, EntitlementDecision decision) {
         logger.info("Executing query plan for tenant: {}, user: {}", 
                    plan.getTenantId(), plan.getUserId());
         
         long startTime = System.currentTimeMillis();
         String traceId = plan.getTraceId();
         
+        CompletableFuture<QueryExecutionResult> execution;
         try {
-            // Step 0: Create execution record in database
-            queryExecutionService.createExecution(
-                traceId,
-                plan.getTenantId(),
-                plan.getUserId(),
-                plan.getSqlQuery(), // Use SQL from plan
-                plan.getConnectorType().name(),
-                plan.getResource()
-            );
-            
-            // Step 1: Check entitlements
-            queryExecutionService.updateState(traceId, QueryState.VALIDATING);
-            EntitlementDecision decision = checkEntitlements(plan);
-            if (!decision.isAllowed()) {
-                long executionTime = System.currentTimeMillis() - startTime;
-                queryExecutionService.failExecution(
-                    traceId,
-                    "ENTITLEMENT_DENIED",
-                    "Access denied: " + decision.getDenialReason(),
-                    executionTime
-                );
-                return QueryExecutionResult.error(
-                    "ENTITLEMENT_DENIED",
-                    "Access denied: " + decision.getDenialReason(),
-                    executionTime
-                );
-            }
-            
-            // Step 2: Check rate limits
-            RateLimitDecision rateLimitDecision = rateLimitService.checkRateLimit(
-                plan.getTenantId(), 
-                plan.getUserId(), 
-                plan.getConnectorType()
-            );
-            
-            if (!rateLimitDecision.isAllowed()) {
-                long executionTime = System.currentTimeMillis() - startTime;
-                queryExecutionService.updateState(traceId, QueryState.RATE_LIMITED);
-                queryExecutionService.failExecution(
-                    traceId,
-                    "RATE_LIMIT_EXCEEDED",
-                    rateLimitDecision.getMessage(),
-                    executionTime
-                );
-                return QueryExecutionResult.rateLimitExceeded(
-                    rateLimitDecision.getRetryAfterSeconds(),
-                    rateLimitDecision.getMessage()
-                );
-            }
-            
-            // Step 3: Execute against connector
-            queryExecutionService.updateState(traceId, QueryState.EXECUTING);
-            QueryExecutionResult result = executeOnConnector(plan, decision);
-            
-            // Step 4: Update execution record with results
-            long executionTime = System.currentTimeMillis() - startTime;
-            if ("SUCCESS".equals(result.getStatus())) {
-                queryExecutionService.completeExecution(
-                    traceId,
-                    result.getStatus(),
-                    result.getRows() != null ? result.getRows().size() : 0,
-                    executionTime,
-                    result.getFreshnessMs(),
-                    false // cacheHit - should be passed from caller
-                );
-            } else {
-                queryExecutionService.failExecution(
-                    traceId,
-                    result.getErrorCode(),
-                    result.getErrorMessage(),
-                    executionTime
-                );
-            }
+            // Step 0: Wait for admission within the rate limits. Nothing is recorded
+            // until then, so parked requests cost no database writes.
+            CompletableFuture<RateLimitDecision> admission = decision.isAllowed()
+                ? admissionQueue.admit(
+                    plan.getTenantId(),
+                    plan.getUserId(),
+                    plan.getConnectorType(),
+                    plan.getMaxWaitMs() != null ? plan.getMaxWaitMs() : 0L
+                  )
+                : CompletableFuture.completedFuture(null);
             
-            // Step 5: Record metrics
-            recordMetrics(plan, result, executionTime);
-            
-            return result;
-            
-        } catch (Exception e) {
-            logger.error("Error executing query", e);
+            execution = admission.thenCompose(
+                rateLimitDecision -> executeAdmitted(plan, decision, rateLimitDecision, startTime));
+        } catch (RuntimeException e) {
+            execution = CompletableFuture.failedFuture(e);
+        }
+        
+        return execution.exceptionally(e -> {
+            Throwable cause = unwrap(e);
+            logger.error("Error executing query", cause);
             long executionTime = System.currentTimeMillis() - startTime;
-            queryExecutionService.failExecution(
+            executionRecorder.failExecution(
                 traceId,
                 "EXECUTION_ERROR",
-                "Query execution failed: " + e.getMessage(),
+                "Query execution failed: " + cause.getMessage(),
                 executionTime
             );
             return QueryExecutionResult.error(
                 "EXECUTION_ERROR",
-                "Query execution failed: " + e.getMessage(),
+                "Query execution failed: " + cause.getMessage(),
                 executionTime
             );
+        });
+    }
+    
+    /**
+     * Steps after admission: record, check the decisions, then wait for a connector
+     * slot and execute.
+     */
+    private CompletableFuture<QueryExecutionResult> executeAdmitted(
+            QueryPlan plan,
+            EntitlementDecision decision,
+            RateLimitDecision rateLimitDecision,
+            long startTime) {
+        
+        String traceId = plan.getTraceId();
+        
+        // Step 1: Record the execution (persisted asynchronously)
+        executionRecorder.createExecution(
+            traceId,
+            plan.getTenantId(),
+            plan.getUserId(),
+            plan.getSqlQuery(), // Use SQL from plan
+            plan.getConnectorType().name(),
+            plan.getResource()
+        );
+        
+        // Step 2: Check entitlements
+        executionRecorder.updateState(traceId, QueryState.VALIDATING);
+        if (!decision.isAllowed()) {
+            long executionTime = System.currentTimeMillis() - startTime;
+            executionRecorder.failExecution(
+                traceId,
+                "ENTITLEMENT_DENIED",
+                "Access denied: " + decision.getDenialReason(),
+                executionTime
+            );
+            return CompletableFuture.completedFuture(QueryExecutionResult.error(
+                "ENTITLEMENT_DENIED",
+                "Access denied: " + decision.getDenialReason(),
+                executionTime
+            ));
         }
+        
+        // Step 3: Check rate limits
+        if (!rateLimitDecision.isAllowed()) {
+            long executionTime = System.currentTimeMillis() - startTime;
+            executionRecorder.updateState(traceId, QueryState.RATE_LIMITED);
+            executionRecorder.failExecution(
+                traceId,
+                "RATE_LIMIT_EXCEEDED",
+                rateLimitDecision.getMessage(),
+                executionTime
+            );
+            return CompletableFuture.completedFuture(QueryExecutionResult.rateLimitExceeded(
+                rateLimitDecision.getRetryAfterSeconds(),
+                rateLimitDecision.getMessage()
+            ));
+        }
+        
+        // Step 4: Wait for a connector slot, then execute against connector
+        return connectorScheduler.acquire(plan.getTenantId(), plan.getConnectorType())
+            .handle((permit, e) -> {
+                if (e == null) {
+                    return executeWithPermit(plan, decision, permit, startTime);
+                }
+                Throwable cause = unwrap(e);
+                if (!(cause instanceof RejectedExecutionException)) {
+                    return CompletableFuture.<QueryExecutionResult>failedFuture(cause);
+                }
+                long executionTime = System.currentTimeMillis() - startTime;
+                executionRecorder.updateState(traceId, QueryState.RATE_LIMITED);
+                executionRecorder.failExecution(
+                    traceId,
+                    "SCHEDULER_QUEUE_FULL",
+                    cause.getMessage(),
+                    executionTime
+                );
+                return CompletableFuture.completedFuture(
+                    QueryExecutionResult.rateLimitExceeded(1L, cause.getMessage()));
+            })
+            .thenCompose(Function.identity());
+    }
+    
+    private CompletableFuture<QueryExecutionResult> executeWithPermit(
+            QueryPlan plan,
+            EntitlementDecision decision,
+            ConnectorScheduler.Permit permit,
+            long startTime) {
+        
+        String traceId = plan.getTraceId();
+        CompletableFuture<QueryExecutionResult> execution;
+        try {
+            executionRecorder.updateState(traceId, QueryState.EXECUTING);
+            execution = executeOnConnector(plan, decision);
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        
+        return execution
+            .whenComplete((result, e) -> permit.close())
+            .thenApply(result -> {
+                // Step 5: Update execution record with results
+                long executionTime = System.currentTimeMillis() - startTime;
+                if ("SUCCESS".equals(result.getStatus())) {
+                    executionRecorder.completeExecution(
+                        traceId,
+                        result.getStatus(),
+                        result.getRows() != null ? result.getRows().size() : 0,
+                        executionTime,
+                        result.getFreshnessMs(),
+                        false // cacheHit - should be passed from caller
+                    );
+                } else {
+                    executionRecorder.failExecution(
+                        traceId,
+                        result.getErrorCode(),
+                        result.getErrorMessage(),
+                        executionTime
+                    );
+                }
+                
+                // Step 6: Record metrics
+                recordMetrics(plan, result, executionTime);
+                
+                return result;
+            });
+    }
+    
+    /**
+     * Predicates pushed down and evaluated here, and rows each dropped, since startup.
+     */
+    public PushdownStats getPushdownStats() {
+        return new PushdownStats(
+            predicatesPushed.sum(),
+            predicatesResidual.sum(),
+            rowsPrunedAtSource.sum(),
+            rowsPrunedInEngine.sum()
+        );
+    }
+    
+    public record PushdownStats(
+        long predicatesPushed,
+        long predicatesResidual,
+        long rowsPrunedAtSource,
+        long rowsPrunedInEngine
+    ) {}
+    
+    private static Throwable unwrap(Throwable e) {
+        while (e instanceof CompletionException && e.getCause() != null) {
+            e = e.getCause();
+        }
+        return e;
     }
     
     /**
@@ -170,26 +324,22 @@ public class QueryOrchestrator {
     }
     
     /**
-     * Execute the query on the appropriate connector.
+     * Execute the query on the appropriate connector. Failures complete the future
+     * with an error result.
+     *
+     * Predicates (including entitlement row filters) are split by the capabilities
+     * the session's connector declared: the connector gets only those it evaluates
+     * at the source, and the rest are evaluated over the rows it returns.
      */
-    private QueryExecutionResult executeOnConnector(
+    private CompletableFuture<QueryExecutionResult> executeOnConnector(
             QueryPlan plan, 
             EntitlementDecision decision) {
         
-        Connector connector = null;
+        List<Connector.Predicate> predicates;
+        List<String> allowedColumns;
         try {
-            // Get connector instance
-            connector = connectorFactory.getConnector(plan.getConnectorType());
-            
-            // Connect (in real scenario, we'd cache connections)
-            Connector.ConnectRequest connectRequest = new Connector.ConnectRequest(
-                plan.getTenantId(),
-                plan.getConnectorConfig()
-            );
-            Connector.ConnectResult connectResult = connector.connect(connectRequest);
-            
             // Apply entitlement filters to the query
-            List<Connector.Predicate> predicates = new ArrayList<>(plan.getPredicates());
+            predicates = new ArrayList<>(plan.getPredicates());
             decision.getRowFilters().forEach(filter -> {
                 predicates.add(new Connector.Predicate(
                     filter.getColumnName(),
@@ -199,53 +349,249 @@ public class QueryOrchestrator {
             });
             
             // Filter columns based on entitlements
-            List<String> allowedColumns = filterColumns(
+            allowedColumns = filterColumns(
                 plan.getRequestedColumns(),
                 decision.getAllowedColumns()
             );
-            
-            // Execute scan
-            Connector.ExecuteScanRequest scanRequest = new Connector.ExecuteScanRequest(
-                plan.getTenantId(),
-                plan.getResource(),
-                allowedColumns,
-                predicates,
-                plan.getLimit(),
-                null, // pageToken - for pagination
-                plan.getMaxStalenessMs()
-            );
-            
-            Connector.RowPage rowPage = connector.executeScan(scanRequest);
-            
-            // Apply column masking
-            List<Map<String, Object>> maskedRows = applyColumnMasking(
-                rowPage.rows(),
-                decision.getColumnMasks()
-            );
-            
-            return QueryExecutionResult.success(
-                maskedRows,
-                rowPage.nextPageToken(),
-                rowPage.freshnessMs(),
-                "RATE_LIMIT_OK"
-            );
-            
         } catch (Exception e) {
-            logger.error("Error executing on connector", e);
+            return CompletableFuture.completedFuture(connectorError(plan, e));
+        }
+        
+        // Lease a connected session of the tenant, then execute scan
+        return connectorFactory.leaseSession(plan.getConnectorType(), plan.getTenantId(), plan.getConnectorConfig())
+            .thenCompose(session -> {
+                CompletableFuture<ScanResult> scan;
+                try {
+                    PushdownPlanner.Split split = PushdownPlanner.split(
+                        session.connectResult().capabilities(), plan.getResource(), predicates);
+                    predicatesPushed.add(split.pushed().size());
+                    predicatesResidual.add(split.residual().size());
+                    scan = scan(session.connector(), plan, split, allowedColumns);
+                } catch (RuntimeException e) {
+                    scan = CompletableFuture.failedFuture(e);
+                }
+                return scan.whenComplete((result, e) -> {
+                    if (e != null && breaksSession(unwrap(e))) {
+                        session.invalidate();
+                    } else {
+                        session.close();
+                    }
+                });
+            })
+            .thenApply(scan -> {
+                rowsPrunedAtSource.add(scan.prunedAtSource());
+                rowsPrunedInEngine.add(scan.prunedInEngine());
+                
+                // Apply column masking
+                List<Map<String, Object>> maskedRows = applyColumnMasking(
+                    scan.rows(),
+                    decision.getColumnMasks()
+                );
+                
+                QueryExecutionResult result = QueryExecutionResult.success(
+                    maskedRows,
+                    scan.nextPageToken(),
+                    scan.freshnessMs(),
+                    "RATE_LIMIT_OK"
+                );
+                result.setTruncated(scan.truncated());
+                result.setRowsPrunedAtSource(scan.prunedAtSource());
+                result.setRowsPrunedInEngine(scan.prunedInEngine());
+                return result;
+            })
+            .exceptionally(e -> connectorError(plan, unwrap(e)));
+    }
+    
+    /**
+     * Rows of a scan after residual predicates, whether more rows match, and the rows
+     * dropped at the source and here.
+     */
+    private record ScanResult(
+        List<Map<String, Object>> rows,
+        String nextPageToken,
+        boolean truncated,
+        long freshnessMs,
+        long prunedAtSource,
+        long prunedInEngine
+    ) {}
+    
+    /**
+     * Scan with the pushed-down predicates. With residual predicates, the fields
+     * they read are fetched too, and pages are fetched until the limit is reached
+     * after filtering, the source is exhausted, or {@code maxScanPages} were fetched.
+     */
+    private CompletableFuture<ScanResult> scan(
+            AsyncConnector connector,
+            QueryPlan plan,
+            PushdownPlanner.Split split,
+            List<String> columns) {
+        
+        boolean allColumns = columns.isEmpty() || columns.contains("*");
+        List<String> scanColumns = columns;
+        if (split.hasResidual() && !allColumns) {
+            Set<String> fetched = new LinkedHashSet<>(columns);
+            fetched.addAll(split.residualFields());
+            scanColumns = List.copyOf(fetched);
+        }
+        
+        Connector.ExecuteScanRequest request = new Connector.ExecuteScanRequest(
+            plan.getTenantId(),
+            plan.getResource(),
+            scanColumns,
+            split.pushed(),
+            plan.getLimit(),
+            null, // pageToken - for pagination
+            plan.getMaxStalenessMs()
+        );
+        
+        if (!split.hasResidual()) {
+            return connector.executeScanAsync(request).thenApply(page -> new ScanResult(
+                page.rows(), page.nextPageToken(), page.nextPageToken() != null,
+                page.freshnessMs(), page.rowsPruned(), 0L));
+        }
+        int wanted = plan.getLimit() != null && plan.getLimit() > 0 ? plan.getLimit() : DEFAULT_SCAN_LIMIT;
+        return scanPages(connector, request, split.residual(), allColumns ? null : columns,
+            new ResidualScan(wanted));
+    }
+    
+    private CompletableFuture<ScanResult> scanPages(
+            AsyncConnector connector,
+            Connector.ExecuteScanRequest request,
+            List<Connector.Predicate> residual,
+            List<String> columns,
+            ResidualScan scan) {
+        
+        return connector.executeScanAsync(request).thenCompose(page -> {
+            int consumed = scan.add(page, residual, columns);
+            if (consumed < page.rows().size()) {
+                // Connector page tokens cannot resume inside a page: truncated, without a token
+                return CompletableFuture.completedFuture(scan.result(null, true));
+            }
+            String nextPageToken = page.nextPageToken();
+            if (scan.isFull() || nextPageToken == null || scan.pages() >= maxScanPages) {
+                // Ended at a page boundary, so the source's token resumes the scan
+                return CompletableFuture.completedFuture(scan.result(nextPageToken, nextPageToken != null));
+            }
+            return scanPages(connector, withPage(request, nextPageToken, request.limit()),
+                residual, columns, scan);
+        });
+    }
+    
+    private static Connector.ExecuteScanRequest withPage(
+            Connector.ExecuteScanRequest request,
+            String pageToken,
+            Integer limit) {
+        
+        return new Connector.ExecuteScanRequest(
+            request.tenantId(),
+            request.resource(),
+            request.columns(),
+            request.predicates(),
+            limit,
+            pageToken,
+            request.maxStalenessMs()
+        );
+    }
+    
+    /**
+     * Rows collected over the pages of a scan with residual predicates.
+     */
+    private static final class ResidualScan {
+        private final int wanted;
+        private final List<Map<String, Object>> rows = new ArrayList<>();
+        private int pages;
+        private long freshnessMs;
+        private long prunedAtSource;
+        private long prunedInEngine;
+        
+        ResidualScan(int wanted) {
+            this.wanted = wanted;
+        }
+        
+        /**
+         * Filter a page into the result.
+         *
+         * @return the rows of the page read, fewer than its size if the limit was
+         *         reached before its end
+         */
+        int add(Connector.RowPage page, List<Connector.Predicate> residual, List<String> columns) {
+            pages++;
+            freshnessMs = Math.max(freshnessMs, page.freshnessMs());
+            prunedAtSource += page.rowsPruned();
+            int consumed = 0;
+            for (Map<String, Object> row : page.rows()) {
+                if (isFull()) {
+                    break;
+                }
+                consumed++;
+                if (PredicateEvaluator.matchesAll(row, residual)) {
+                    rows.add(columns == null ? row : project(row, columns));
+                } else {
+                    prunedInEngine++;
+                }
+            }
+            return consumed;
+        }
+        
+        boolean isFull() {
+            return rows.size() >= wanted;
+        }
+        
+        int pages() {
+            return pages;
+        }
+        
+        ScanResult result(String nextPageToken, boolean truncated) {
+            return new ScanResult(rows, nextPageToken, truncated, freshnessMs, prunedAtSource, prunedInEngine);
+        }
+        
+        private static Map<String, Object> project(Map<String, Object> row, List<String> columns) {
+            Map<String, Object> projected = new HashMap<>();
+            for (String column : columns) {
+                if (row.containsKey(column)) {
+                    projected.put(column, row.get(column));
+                }
+            }
+            return projected;
+        }
+    }
+    
+    /**
+     * Whether a scan failure may have left its session unusable, so it should not
+     * go back to the pool.
+     */
+    private static boolean breaksSession(Throwable e) {
+        if (!(e instanceof ConnectorException connectorException)) {
+            return true;
+        }
+        return switch (connectorException.getErrorCode()) {
+            case AUTHENTICATION_FAILED, CONFIGURATION_ERROR, SOURCE_UNAVAILABLE -> true;
+            default -> false;
+        };
+    }
+    
+    private QueryExecutionResult connectorError(QueryPlan plan, Throwable e) {
+        if (e instanceof ConnectorException connectorException
+                && connectorException.getErrorCode() == ConnectorException.ErrorCode.CONCURRENCY_LIMIT_EXCEEDED) {
+            logger.warn("Scan shed - tenant: {}, connector: {}: {}",
+                plan.getTenantId(), plan.getConnectorType(), e.getMessage());
+            return QueryExecutionResult.error(connectorException.getErrorCode().name(), e.getMessage(), 0L);
+        }
+        if (e instanceof TimeoutException) {
+            logger.warn("No connector session available - tenant: {}, connector: {}",
+                plan.getTenantId(), plan.getConnectorType());
             return QueryExecutionResult.error(
                 "CONNECTOR_ERROR",
-                "Connector execution failed: " + e.getMessage(),
+                "Connector execution failed: timed out waiting for a " + plan.getConnectorType() + " session",
                 0L
             );
-        } finally {
-            if (connector != null) {
-                try {
-                    connector.close();
-                } catch (Exception e) {
-                    logger.warn("Error closing connector", e);
-                }
-            }
         }
+        logger.error("Error executing on connector", e);
+        return QueryExecutionResult.error(
+            "CONNECTOR_ERROR",
+            "Connector execution failed: " + e.getMessage(),
+            0L
+        );
     }
     
     /**
@@ -293,12 +639,14 @@ public class QueryOrchestrator {
      */
     private void recordMetrics(QueryPlan plan, QueryExecutionResult result, long executionTimeMs) {
         logger.info("Query executed - tenant: {}, user: {}, resource: {}, " +
-                   "status: {}, rows: {}, executionTime: {}ms",
+                   "status: {}, rows: {}, pruned at source: {}, pruned in engine: {}, executionTime: {}ms",
                    plan.getTenantId(),
                    plan.getUserId(),
                    plan.getResource(),
                    result.getStatus(),
                    result.getRows() != null ? result.getRows().size() : 0,
+                   result.getRowsPrunedAtSource(),
+                   result.getRowsPrunedInEngine(),
                    executionTimeMs);
     }
 }
@@ -1,116 +1,365 @@
 package com.thp.sqlsaas.server.orchestrator;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Scheduler;
 import com.thp.sqlsaas.connector.ConnectorType;
+import com.thp.sqlsaas.persistence.entity.TenantRateLimit;
+import com.thp.sqlsaas.persistence.service.TenantService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 
 /**
  * Rate Limiting Service - Token bucket implementation.
  * Controls rate limits per tenant, per user, per connector.
+ *
+ * Buckets use the generic cell rate algorithm (GCRA): tokens refill continuously
+ * rather than all at once per period, and each bucket is a single theoretical
+ * arrival time updated with CAS, so checks for the same key never block each other.
+ *
+ * Budgets are nested: a request takes one token from its user's bucket, its tenant's
+ * bucket and the connector's global bucket, or from none of them. Tenant and user
+ * budgets come from the tenant's {@link TenantRateLimit} rows, falling back to the
+ * sqlsaas.rate-limit.* defaults. A bucket idle for longer than its period is full
+ * again and carries no state, so it is evicted after
+ * max(sqlsaas.rate-limit.idle-timeout, period) on Caffeine's timer wheel.
  */
 @Service
 public class RateLimitService {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
-    
-    // Simple in-memory token bucket
-    // Key format: "tenantId:userId:connectorType"
-    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
-    
-    // Configuration per connector type
-    private final Map<ConnectorType, RateLimitConfig> configs = Map.of(
-        ConnectorType.GITHUB, new RateLimitConfig(1, 1), // 100 requests per 60 seconds
-        ConnectorType.JIRA, new RateLimitConfig(100, 60)     // 100 requests per 60 seconds
-    );
-    
+
+    private final Map<ConnectorType, ConnectorBuckets> buckets = new EnumMap<>(ConnectorType.class);
+    private final LoadingCache<String, Map<ConnectorType, Limits>> tenantLimits;
+    private final Limits defaultLimits;
+    private final long idleTimeoutNanos;
+    // Monotonic clock of the buckets, in nanoseconds
+    private final LongSupplier ticker;
+
+    private final LongAdder allowed = new LongAdder();
+    private final LongAdder userRejections = new LongAdder();
+    private final LongAdder tenantRejections = new LongAdder();
+    private final LongAdder connectorRejections = new LongAdder();
+
+    @Autowired
+    public RateLimitService(
+            TenantService tenantService,
+            @Value("${sqlsaas.rate-limit.period:PT60S}") Duration period,
+            @Value("${sqlsaas.rate-limit.connector-requests:1000}") int connectorRequests,
+            @Value("${sqlsaas.rate-limit.tenant-requests:300}") int tenantRequests,
+            @Value("${sqlsaas.rate-limit.user-requests:100}") int userRequests,
+            @Value("${sqlsaas.rate-limit.tenant-limits-ttl:PT1M}") Duration tenantLimitsTtl,
+            @Value("${sqlsaas.rate-limit.idle-timeout:PT5M}") Duration idleTimeout) {
+        this(tenantId -> limitsOf(tenantService.getRateLimits(tenantId)), period,
+                connectorRequests, tenantRequests, userRequests, tenantLimitsTtl, idleTimeout, System::nanoTime);
+    }
+
+    RateLimitService(
+            Function<String, Map<ConnectorType, Limits>> limitsLoader,
+            Duration period,
+            int connectorRequests,
+            int tenantRequests,
+            int userRequests,
+            Duration tenantLimitsTtl,
+            Duration idleTimeout,
+            LongSupplier ticker) {
+        this.defaultLimits = new Limits(tenantRequests, userRequests, period);
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.ticker = ticker;
+        // Refreshed in the background, so a limit change never blocks a check
+        this.tenantLimits = Caffeine.newBuilder()
+                .refreshAfterWrite(tenantLimitsTtl)
+                .expireAfterAccess(idleTimeout.plus(tenantLimitsTtl))
+                .ticker(ticker::getAsLong)
+                .build(limitsLoader::apply);
+        long now = ticker.getAsLong();
+        for (ConnectorType type : ConnectorType.values()) {
+            buckets.put(type, new ConnectorBuckets(connectorRequests, period.toNanos(), now));
+        }
+    }
+
     /**
      * Check if the request is allowed based on rate limits.
      */
     public RateLimitDecision checkRateLimit(
-            String tenantId, 
-            String userId, 
+            String tenantId,
+            String userId,
             ConnectorType connectorType) {
-        
-        String key = buildKey(tenantId, userId, connectorType);
-        RateLimitConfig config = configs.getOrDefault(
-            connectorType, 
-            new RateLimitConfig(100, 60)
-        );
-        
-        TokenBucket bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(config));
-        
-        if (bucket.tryConsume()) {
-            int remaining = bucket.availableTokens();
-            logger.debug("Rate limit OK - key: {}, remaining: {}", key, remaining);
-            return new RateLimitDecision(true, remaining, null, null);
+
+        Limits limits = limits(tenantId).getOrDefault(connectorType, defaultLimits);
+        ConnectorBuckets connector = buckets.get(connectorType);
+        long now = ticker.getAsLong();
+        TenantBuckets tenant = connector.tenant(tenantId, limits, now);
+        TokenBucket user = tenant.user(userId, now);
+
+        // Take from the narrowest budget first; refund on a later rejection
+        TokenBucket rejectedBy;
+        String level;
+        if (!user.tryConsume(now)) {
+            rejectedBy = user;
+            level = "user";
+            userRejections.increment();
+        } else if (!tenant.bucket.tryConsume(now)) {
+            user.refund();
+            rejectedBy = tenant.bucket;
+            level = "tenant";
+            tenantRejections.increment();
+        } else if (!connector.bucket.tryConsume(now)) {
+            tenant.bucket.refund();
+            user.refund();
+            rejectedBy = connector.bucket;
+            level = "connector";
+            connectorRejections.increment();
         } else {
-            long retryAfter = bucket.getRetryAfterSeconds();
-            String message = String.format(
-                "Rate limit exceeded for %s. Please retry after %d seconds.",
-                connectorType, retryAfter
-            );
-            logger.warn("Rate limit exceeded - key: {}, retryAfter: {}s", key, retryAfter);
-            return new RateLimitDecision(false, 0, retryAfter, message);
+            allowed.increment();
+            int remaining = Math.min(user.availableTokens(now),
+                    Math.min(tenant.bucket.availableTokens(now), connector.bucket.availableTokens(now)));
+            if (logger.isDebugEnabled()) {
+                logger.debug("Rate limit OK - tenant: {}, user: {}, connector: {}, remaining: {}",
+                    tenantId, userId, connectorType, remaining);
+            }
+            return new RateLimitDecision(true, remaining, null, null);
+        }
+
+        long retryAfter = rejectedBy.getRetryAfterSeconds(now);
+        String message = "Rate limit exceeded for " + connectorType + " (" + level
+            + " budget). Please retry after " + retryAfter + " seconds.";
+        logger.warn("Rate limit exceeded - tenant: {}, user: {}, connector: {}, budget: {}, retryAfter: {}s",
+            tenantId, userId, connectorType, level, retryAfter);
+        return new RateLimitDecision(false, 0, retryAfter, message);
+    }
+
+    /**
+     * Predict how long until {@code requests} more requests of a user would pass
+     * every budget, assuming no other user takes tokens meanwhile. Consumes nothing.
+     *
+     * @return the wait in nanoseconds, 0 if they would pass now
+     */
+    public long predictWaitNanos(String tenantId, String userId, ConnectorType connectorType, int requests) {
+        Limits limits = limits(tenantId).getOrDefault(connectorType, defaultLimits);
+        ConnectorBuckets connector = buckets.get(connectorType);
+        long now = ticker.getAsLong();
+        TenantBuckets tenant = connector.tenant(tenantId, limits, now);
+        long wait = Math.max(tenant.bucket.waitNanos(now, requests), connector.bucket.waitNanos(now, requests));
+        return Math.max(wait, tenant.user(userId, now).waitNanos(now, requests));
+    }
+
+    /**
+     * Counters and live bucket counts, for metrics.
+     */
+    public Stats getStats() {
+        long tenants = 0;
+        long users = 0;
+        for (ConnectorBuckets connector : buckets.values()) {
+            tenants += connector.tenants.estimatedSize();
+            for (TenantBuckets tenant : connector.tenants.asMap().values()) {
+                users += tenant.users.estimatedSize();
+            }
+        }
+        return new Stats(allowed.sum(), userRejections.sum(), tenantRejections.sum(),
+                connectorRejections.sum(), tenants, users);
+    }
+
+    private Map<ConnectorType, Limits> limits(String tenantId) {
+        try {
+            return tenantLimits.get(tenantId);
+        } catch (RuntimeException e) {
+            // Not cached, so the next check retries the load
+            logger.warn("Failed to load rate limits for tenant {}, using defaults: {}", tenantId, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    private static Map<ConnectorType, Limits> limitsOf(Iterable<TenantRateLimit> rows) {
+        Map<ConnectorType, Limits> limits = new EnumMap<>(ConnectorType.class);
+        for (TenantRateLimit row : rows) {
+            if (row.getTenantRequests() <= 0 || row.getUserRequests() <= 0 || row.getPeriodSeconds() <= 0) {
+                logger.warn("Ignoring rate limit of tenant {} for {}: requests and period must be positive",
+                        row.getTenantId(), row.getConnectorType());
+                continue;
+            }
+            try {
+                limits.put(ConnectorType.valueOf(row.getConnectorType()), new Limits(row.getTenantRequests(),
+                        row.getUserRequests(), Duration.ofSeconds(row.getPeriodSeconds())));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring rate limit of tenant {} for unknown connector type {}",
+                        row.getTenantId(), row.getConnectorType());
+            }
+        }
+        return limits;
+    }
+
+    /**
+     * Evicts a bucket once it has not been used for max(idle timeout, period).
+     */
+    private <K, V> Expiry<K, V> idleExpiry(Function<V, Duration> period) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(K key, V value, long currentTime) {
+                return idleNanos(value);
+            }
+
+            @Override
+            public long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+                return idleNanos(value);
+            }
+
+            @Override
+            public long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+                return idleNanos(value);
+            }
+
+            private long idleNanos(V value) {
+                return Math.max(idleTimeoutNanos, period.apply(value).toNanos());
+            }
+        };
+    }
+
+    /**
+     * The global bucket of one connector type and the tenants using it.
+     */
+    private final class ConnectorBuckets {
+        final TokenBucket bucket;
+        final Cache<String, TenantBuckets> tenants = Caffeine.newBuilder()
+                .expireAfter(RateLimitService.this.<String, TenantBuckets>idleExpiry(t -> t.limits.period()))
+                .ticker(ticker::getAsLong)
+                .scheduler(Scheduler.systemScheduler())
+                .build();
+
+        ConnectorBuckets(int requests, long periodNanos, long now) {
+            this.bucket = new TokenBucket(requests, periodNanos, now);
+        }
+
+        TenantBuckets tenant(String tenantId, Limits limits, long now) {
+            TenantBuckets tenant = tenants.getIfPresent(tenantId);
+            if (tenant == null || !tenant.limits.equals(limits)) {
+                // New tenant, or its limits changed: start from full buckets
+                tenant = tenants.asMap().compute(tenantId, (id, current) ->
+                        current != null && current.limits.equals(limits) ? current : new TenantBuckets(limits, now));
+            }
+            return tenant;
         }
     }
-    
-    private String buildKey(String tenantId, String userId, ConnectorType connectorType) {
-        return String.format("%s:%s:%s", tenantId, userId, connectorType);
+
+    /**
+     * The shared bucket of one tenant for a connector type and its users' buckets.
+     */
+    private final class TenantBuckets {
+        final Limits limits;
+        final TokenBucket bucket;
+        final Cache<String, TokenBucket> users;
+
+        TenantBuckets(Limits limits, long now) {
+            this.limits = limits;
+            this.bucket = new TokenBucket(limits.tenantRequests(), limits.period().toNanos(), now);
+            this.users = Caffeine.newBuilder()
+                    .expireAfter(RateLimitService.this.<String, TokenBucket>idleExpiry(b -> limits.period()))
+                    .ticker(ticker::getAsLong)
+                    .scheduler(Scheduler.systemScheduler())
+                    .build();
+        }
+
+        TokenBucket user(String userId, long now) {
+            TokenBucket user = users.getIfPresent(userId);
+            if (user == null) {
+                user = users.get(userId, u -> new TokenBucket(limits.userRequests(), limits.period().toNanos(), now));
+            }
+            return user;
+        }
     }
-    
+
     /**
-     * Token bucket implementation for rate limiting.
+     * GCRA token bucket. Each request advances the theoretical arrival time (TAT) by
+     * the emission interval (period / capacity); a request is allowed while the TAT is
+     * at most one full bucket ahead of now. Equivalent to a bucket of {@code capacity}
+     * tokens refilled by one token every emission interval.
      */
-    private static class TokenBucket {
-        private final int capacity;
-        private final long refillPeriodSeconds;
-        private final AtomicInteger tokens;
-        private volatile long lastRefillTime;
-        
-        public TokenBucket(RateLimitConfig config) {
-            this.capacity = config.requestsPerPeriod;
-            this.refillPeriodSeconds = config.periodSeconds;
-            this.tokens = new AtomicInteger(capacity);
-            this.lastRefillTime = System.currentTimeMillis();
-        }
-        
-        public synchronized boolean tryConsume() {
-            refill();
-            if (tokens.get() > 0) {
-                tokens.decrementAndGet();
-                return true;
+    static final class TokenBucket {
+        private final long emissionIntervalNanos;
+        // How far the TAT may run ahead of now: a full bucket
+        private final long capacityNanos;
+        private final AtomicLong theoreticalArrival;
+
+        TokenBucket(int requestsPerPeriod, long periodNanos, long now) {
+            if (requestsPerPeriod <= 0 || periodNanos <= 0) {
+                throw new IllegalArgumentException("Rate limit requires positive requests and period, got "
+                        + requestsPerPeriod + " per " + periodNanos + "ns");
             }
-            return false;
-        }
-        
-        public int availableTokens() {
-            refill();
-            return tokens.get();
-        }
-        
-        public long getRetryAfterSeconds() {
-            long elapsed = (System.currentTimeMillis() - lastRefillTime) / 1000;
-            return Math.max(0, refillPeriodSeconds - elapsed);
-        }
-        
-        private synchronized void refill() {
-            long now = System.currentTimeMillis();
-            long elapsed = (now - lastRefillTime) / 1000;
-            
-            if (elapsed >= refillPeriodSeconds) {
-                tokens.set(capacity);
-                lastRefillTime = now;
+            this.emissionIntervalNanos = periodNanos / requestsPerPeriod;
+            this.capacityNanos = emissionIntervalNanos * requestsPerPeriod;
+            this.theoreticalArrival = new AtomicLong(now);
+        }
+
+        boolean tryConsume(long now) {
+            while (true) {
+                long tat = theoreticalArrival.get();
+                long next = Math.max(tat, now) + emissionIntervalNanos;
+                if (next - now > capacityNanos) {
+                    return false;
+                }
+                if (theoreticalArrival.compareAndSet(tat, next)) {
+                    return true;
+                }
             }
         }
+
+        /**
+         * Give back a token taken by {@link #tryConsume}.
+         */
+        void refund() {
+            theoreticalArrival.addAndGet(-emissionIntervalNanos);
+        }
+
+        int availableTokens(long now) {
+            long ahead = Math.max(theoreticalArrival.get() - now, 0);
+            return (int) ((capacityNanos - ahead) / emissionIntervalNanos);
+        }
+
+        /**
+         * Time until {@code requests} consecutive requests would be allowed.
+         */
+        long waitNanos(long now, int requests) {
+            long tat = Math.max(theoreticalArrival.get(), now);
+            return Math.max(0, tat + requests * emissionIntervalNanos - capacityNanos - now);
+        }
+
+        long getRetryAfterSeconds(long now) {
+            long wait = theoreticalArrival.get() + emissionIntervalNanos - capacityNanos - now;
+            return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        }
     }
-    
+
     /**
-     * Rate limit configuration per connector.
+     * Tenant and per-user requests allowed per period for one connector type.
      */
-    private record RateLimitConfig(int requestsPerPeriod, long periodSeconds) {}
+    record Limits(int tenantRequests, int userRequests, Duration period) {
+        Limits {
+            if (tenantRequests <= 0 || userRequests <= 0 || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Rate limit requires positive requests and period, got "
+                        + tenantRequests + "/" + userRequests + " per " + period);
+            }
+        }
+    }
+
+    public record Stats(
+            long allowed,
+            long userRejections,
+            long tenantRejections,
+            long connectorRejections,
+            long tenants,
+            long users) {}
 }
@@ -0,0 +1,94 @@
+package com.thp.sqlsaas.server.service;
+
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of identical queries.
+ *
+ * The first caller for a key runs the execution; callers arriving while it is in
+ * flight attach to its {@link CompletableFuture} and receive a copy of the same result
+ * instead of running their own. Only successful results are shared: if the leader fails
+ * (e.g. it was rate limited on its own budget), waiting callers contend for the key
+ * again, so one of them runs next and the others wait for it.
+ */
+@Component
+public class InFlightQueries {
+
+    private static final Logger logger = LoggerFactory.getLogger(InFlightQueries.class);
+
+    private final Map<String, CompletableFuture<QueryExecutionResult>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Run {@code execution} for the key, or attach to the execution already in flight.
+     * The key is released only after the future of {@code execution} completes, so
+     * anything it does before completing (such as caching the result) is visible to
+     * later callers, and before waiting callers are woken, so that a failure hands the
+     * key to exactly one of them. Waiting for another caller's execution holds no thread.
+     */
+    public CompletableFuture<Outcome> execute(String key, Supplier<CompletableFuture<QueryExecutionResult>> execution) {
+        CompletableFuture<QueryExecutionResult> flight = new CompletableFuture<>();
+        CompletableFuture<QueryExecutionResult> leader = inFlight.putIfAbsent(key, flight);
+
+        if (leader != null) {
+            return leader
+                .handle((shared, e) -> e == null ? shared : null)
+                .thenCompose(shared -> {
+                    if (shared != null && "SUCCESS".equals(shared.getStatus())) {
+                        coalesced.increment();
+                        logger.debug("Coalesced with in-flight execution for key: {}", key);
+                        return CompletableFuture.completedFuture(new Outcome(shared.copy(), true));
+                    }
+                    return execute(key, execution);
+                });
+        }
+
+        return run(execution)
+            .whenComplete((result, e) -> {
+                inFlight.remove(key, flight);
+                if (e != null) {
+                    flight.completeExceptionally(e);
+                } else {
+                    flight.complete(result);
+                }
+            })
+            .thenApply(result -> new Outcome(result, false));
+    }
+
+    /**
+     * Executions started and callers that shared another caller's execution.
+     */
+    public Stats getStats() {
+        return new Stats(executions.sum(), coalesced.sum(), inFlight.size());
+    }
+
+    private CompletableFuture<QueryExecutionResult> run(Supplier<CompletableFuture<QueryExecutionResult>> execution) {
+        executions.increment();
+        try {
+            return execution.get();
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Result of a query and whether it came from another caller's execution.
+     */
+    public record Outcome(QueryExecutionResult result, boolean coalesced) {}
+
+    /**
+     * Counters for observability.
+     */
+    public record Stats(long executions, long coalesced, int inFlight) {}
+}
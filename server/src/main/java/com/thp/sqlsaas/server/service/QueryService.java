@@ -3,9 +3,13 @@ package com.thp.sqlsaas.server.service;
 import com.thp.sqlparser.SqlToModelConverter;
 import com.thp.sqlsaas.connector.Connector;
 import com.thp.sqlsaas.connector.ConnectorType;
+import com.thp.sqlsaas.entitlement.DecisionFingerprint;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.fingerprint.QueryFingerprint;
 import com.thp.sqlsaas.model.Filter;
 import com.thp.sqlsaas.model.SqlQueryRequest;
 import com.thp.sqlsaas.server.cache.CacheService;
+import com.thp.sqlsaas.server.cache.QueryShape;
 import com.thp.sqlsaas.server.model.QueryExecutionResult;
 import com.thp.sqlsaas.server.model.QueryPlan;
 import com.thp.sqlsaas.server.orchestrator.QueryOrchestrator;
@@ -14,25 +18,33 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
  * Query Service - Handles SQL query parsing and planning.
  * 
  * Flow:
- * 1. Check cache for cached results
- * 2. If cache miss, parse SQL and build query plan
- * 3. Execute via orchestrator
- * 4. Cache the results
+ * 1. Parse SQL and fingerprint its canonical form
+ * 2. Build query plan
+ * 3. Check cache for cached results, keyed by user or by entitlement decision
+ *    depending on {@link CacheService.KeyMode}, exact or derived from a broader result
+ * 4. If cache miss, execute via orchestrator, sharing the execution with
+ *    identical in-flight queries under equivalent entitlements
+ * 5. Cache the results, with a refresher that keeps hot or stale entries warm
  */
 @Service
 public class QueryService {
     
     private static final Logger logger = LoggerFactory.getLogger(QueryService.class);
     
+    private static final int DEFAULT_LIMIT = 100;
+    
     private final QueryOrchestrator queryOrchestrator;
     private final CacheService cacheService;
     private final com.thp.sqlsaas.persistence.service.UserService userService;
+    private final InFlightQueries inFlightQueries;
     
     // Table to connector type mapping
     private final Map<String, ConnectorType> tableToConnectorMapping = Map.of(
@@ -43,26 +55,37 @@ public class QueryService {
     );
     
     public QueryService(QueryOrchestrator queryOrchestrator, CacheService cacheService, 
-                        com.thp.sqlsaas.persistence.service.UserService userService) {
+                        com.thp.sqlsaas.persistence.service.UserService userService,
+                        InFlightQueries inFlightQueries) {
         this.queryOrchestrator = queryOrchestrator;
         this.cacheService = cacheService;
         this.userService = userService;
+        this.inFlightQueries = inFlightQueries;
     }
     
     /**
      * Execute SQL query.
      * Steps:
-     * 2. Check cache
-     * 3. If cache miss, parse SQL to extract table, columns, filters
-     * 4. Build query plan
-     * 5. Execute via orchestrator
-     * 6. Cache the result
+     * 1. Resolve user roles
+     * 2. Parse SQL to extract table, columns, filters and limit
+     * 3. Build query plan
+     * 4. Check cache in the user's scope; a narrower query may be derived from a
+     *    complete cached result of a broader one
+     * 5. Authorize; in ENTITLEMENT key mode, check the cache in the scope of the
+     *    decision fingerprint instead
+     * 6. If cache miss, execute via orchestrator, or wait for an identical
+     *    in-flight execution
+     * 7. Cache the result
+     *
+     * Cache hits and errors complete immediately; executions complete without
+     * holding the caller's thread.
      */
-    public QueryExecutionResult executeQuery(
+    public CompletableFuture<QueryExecutionResult> executeQuery(
             String sql,
             String tenantId,
             String userId,
-            Long maxStalenessMs) {
+            Long maxStalenessMs,
+            Long maxWaitMs) {
         
         logger.info("Executing SQL query for tenant: {}, user: {}", tenantId, userId);
         logger.debug("SQL: {}", sql);
@@ -74,49 +97,40 @@ public class QueryService {
                 logger.info("User {} has roles: {} (from database)", userId, actualUserRoles);
             } catch (SecurityException e) {
                 logger.error("Security error: User {} not found in tenant {}", userId, tenantId);
-                return QueryExecutionResult.error(
+                return CompletableFuture.completedFuture(QueryExecutionResult.error(
                     "AUTHENTICATION_FAILED",
                     "User not found or not authorized for this tenant",
                     0L
-                );
-            }
-            
-            // Step 1: Check cache
-            String cacheKey = CacheService.generateCacheKey(tenantId, userId, sql);
-            QueryExecutionResult cachedResult = cacheService.get(cacheKey, maxStalenessMs);
-            
-            if (cachedResult != null) {
-                logger.info("Cache hit for query - tenant: {}, user: {}", tenantId, userId);
-                return cachedResult;
+                ));
             }
             
-            logger.info("Cache miss - executing query against connector");
-            
-            // Step 2: Parse SQL
+            // Step 1: Parse SQL. Equivalent queries (whitespace, keyword case,
+            // predicate order) share a fingerprint and therefore a cache entry.
             SqlQueryRequest sqlRequest = SqlToModelConverter.parseAndConvert(sql);
+            QueryFingerprint fingerprint = QueryFingerprint.of(sqlRequest);
             
-            // Step 3: Determine connector type from table name
+            // Step 2: Determine connector type from table name
             String tableName = sqlRequest.getTableName();
             ConnectorType connectorType = tableToConnectorMapping.get(tableName.toLowerCase());
             
             if (connectorType == null) {
-                return QueryExecutionResult.error(
+                return CompletableFuture.completedFuture(QueryExecutionResult.error(
                     "INVALID_TABLE",
                     "Table not found: " + tableName + ". Available tables: " + 
                         tableToConnectorMapping.keySet(),
                     0L
-                );
+                ));
             }
             
-            // Step 4: Map table to resource
+            // Step 3: Map table to resource
             String resource = mapTableToResource(tableName);
             
-            // Step 5: Convert filters to predicates
+            // Step 4: Convert filters to predicates
             List<Connector.Predicate> predicates = convertFiltersToPredicates(
                 sqlRequest.getFilters()
             );
             
-            // Step 6: Build query plan (using REAL roles from database)
+            // Step 5: Build query plan (using REAL roles from database)
             QueryPlan plan = buildQueryPlan(
                 sql,
                 tenantId,
@@ -124,29 +138,167 @@ public class QueryService {
                 actualUserRoles,  // ← Use roles from database!
                 connectorType,
                 resource,
-                List.of("*"), // For now, select all columns
+                sqlRequest.getColumns().isEmpty() ? List.of("*") : sqlRequest.getColumns(),
                 predicates,
-                100, // default limit
+                sqlRequest.getLimit() != null ? sqlRequest.getLimit() : DEFAULT_LIMIT,
                 maxStalenessMs
             );
+            plan.setMaxWaitMs(maxWaitMs);
             
-            // Step 7: Execute via orchestrator
-            QueryExecutionResult result = queryOrchestrator.execute(plan);
+            // Conditions we cannot evaluate make the rows unknowable from another result
+            QueryShape shape = sqlRequest.getUnsupportedConditions().isEmpty()
+                ? new QueryShape(tableName.toLowerCase(), plan.getRequestedColumns(),
+                                 plan.getPredicates(), plan.getLimit())
+                : null;
+            
+            // Step 6: Check cache. In ENTITLEMENT mode the scope needs the decision,
+            // so the lookup happens after authorization (step 7).
+            boolean sharedCache = cacheService.getKeyMode() == CacheService.KeyMode.ENTITLEMENT;
+            String scope = null;
+            if (!sharedCache) {
+                scope = CacheService.userScope(tenantId, userId);
+                QueryExecutionResult cachedResult = cacheService.get(scope, fingerprint, shape, maxStalenessMs);
+                
+                if (cachedResult != null) {
+                    logger.info("Cache hit for query - tenant: {}, user: {}", tenantId, userId);
+                    return CompletableFuture.completedFuture(cachedResult);
+                }
+            }
             
-            // Step 8: Cache successful results
-            if ("SUCCESS".equals(result.getStatus())) {
-                cacheService.put(cacheKey, result);
+            // Step 7: Authorize. Users whose effective decision has the same
+            // fingerprint see the same rows, so they may share a cached result.
+            EntitlementDecision decision = queryOrchestrator.authorize(plan);
+            String decisionScope = decision.isAllowed()
+                ? CacheService.entitlementScope(tenantId, DecisionFingerprint.of(decision))
+                : null;
+            if (sharedCache && decisionScope != null) {
+                scope = decisionScope;
+                QueryExecutionResult cachedResult = cacheService.get(scope, fingerprint, shape, maxStalenessMs);
+                
+                if (cachedResult != null) {
+                    logger.info("Shared cache hit for query - tenant: {}, user: {}", tenantId, userId);
+                    return CompletableFuture.completedFuture(cachedResult);
+                }
             }
             
-            return result;
+            logger.info("Cache miss - executing query against connector");
+            
+            // Step 8: Execute via orchestrator and cache successful results.
+            // A denial is executed directly so that it is recorded.
+            if (decisionScope == null) {
+                return queryOrchestrator.executeAsync(plan, decision);
+            }
+            return executeCoalesced(plan, decision, decisionScope, scope, fingerprint, shape);
             
         } catch (Exception e) {
             logger.error("Error executing query", e);
-            return QueryExecutionResult.error(
+            return CompletableFuture.completedFuture(QueryExecutionResult.error(
                 "QUERY_PARSE_ERROR",
                 "Failed to parse or execute query: " + e.getMessage(),
                 0L
+            ));
+        }
+    }
+    
+    /**
+     * Background refresh of a cached result: re-resolve roles, re-authorize and
+     * re-execute the plan through the orchestrator (so it is rate limited like the
+     * original query), then replace the entry. If the user's entitlements no longer
+     * lead to this cache scope, the entry is dropped instead. The execution is chained,
+     * not joined, so the cache's refresh threads are never blocked on a connector.
+     */
+    private Supplier<CompletableFuture<?>> refresher(
+            QueryPlan plan,
+            String scope,
+            QueryFingerprint fingerprint,
+            QueryShape shape) {
+        return () -> {
+            String tenantId = plan.getTenantId();
+            String userId = plan.getUserId();
+            String cacheKey = CacheService.generateCacheKey(scope, fingerprint);
+            
+            Set<String> userRoles;
+            try {
+                userRoles = userService.getUserRoles(userId, tenantId);
+            } catch (SecurityException e) {
+                cacheService.invalidate(cacheKey);
+                return CompletableFuture.completedFuture(null);
+            }
+            
+            // Each execution is recorded under its own trace id
+            QueryPlan refreshPlan = buildQueryPlan(
+                plan.getSqlQuery(),
+                tenantId,
+                userId,
+                userRoles,
+                plan.getConnectorType(),
+                plan.getResource(),
+                plan.getRequestedColumns(),
+                plan.getPredicates(),
+                plan.getLimit(),
+                plan.getMaxStalenessMs()
             );
+            
+            EntitlementDecision decision = queryOrchestrator.authorize(refreshPlan);
+            String decisionScope = decision.isAllowed()
+                ? CacheService.entitlementScope(tenantId, DecisionFingerprint.of(decision))
+                : null;
+            boolean sameScope = decisionScope != null
+                && (cacheService.getKeyMode() == CacheService.KeyMode.USER || scope.equals(decisionScope));
+            if (!sameScope) {
+                logger.debug("Entitlements changed, dropping cached result: {}", cacheKey);
+                cacheService.invalidate(cacheKey);
+                return CompletableFuture.completedFuture(null);
+            }
+            
+            return executeCoalesced(refreshPlan, decision, decisionScope, scope, fingerprint, shape)
+                .thenAccept(result -> {
+                    if (!"SUCCESS".equals(result.getStatus())) {
+                        logger.debug("Refresh of {} failed with {}, keeping cached result",
+                            cacheKey, result.getErrorCode());
+                    }
+                });
+        };
+    }
+    
+    /**
+     * Execute an authorized plan and cache a successful result in {@code scope}.
+     * Identical queries (same fingerprint) under an equivalent decision that are
+     * already in flight share one execution instead of each scanning the connector
+     * and spending a rate-limit token.
+     */
+    private CompletableFuture<QueryExecutionResult> executeCoalesced(
+            QueryPlan plan,
+            EntitlementDecision decision,
+            String decisionScope,
+            String scope,
+            QueryFingerprint fingerprint,
+            QueryShape shape) {
+        return inFlightQueries.execute(
+            CacheService.generateCacheKey(decisionScope, fingerprint),
+            () -> queryOrchestrator.executeAsync(plan, decision).thenApply(result -> {
+                cacheResult(plan, decision, scope, fingerprint, shape, result);
+                return result;
+            })
+        ).thenApply(outcome -> {
+            // The leader cached the shared result in its own scope; per-user scopes need their own entry
+            if (outcome.coalesced() && !scope.equals(decisionScope)) {
+                cacheResult(plan, decision, scope, fingerprint, shape, outcome.result());
+            }
+            return outcome.result();
+        });
+    }
+    
+    private void cacheResult(
+            QueryPlan plan,
+            EntitlementDecision decision,
+            String scope,
+            QueryFingerprint fingerprint,
+            QueryShape shape,
+            QueryExecutionResult result) {
+        if ("SUCCESS".equals(result.getStatus())) {
+            cacheService.put(plan.getTenantId(), scope, fingerprint, shape, decision, result,
+                refresher(plan, scope, fingerprint, shape));
         }
     }
     
@@ -0,0 +1,512 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlparser.SqlToModelConverter;
+import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.entitlement.model.ColumnMask;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.fingerprint.QueryFingerprint;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheServiceTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    // Wall clock of the cache in milliseconds; the Caffeine ticker follows it
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+    private final List<CacheService> caches = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        caches.forEach(CacheService::stop);
+    }
+
+    private CacheService cache(long tenantMaxBytes) {
+        return cache(tenantMaxBytes, CacheService.StorageMode.HEAP, null, null);
+    }
+
+    private CacheService cache(
+            long tenantMaxBytes, CacheService.StorageMode storage, ResultCacheBackend l2, DiskResultTier disk) {
+        CacheService cache = new CacheService(1 << 20, tenantMaxBytes, TTL, CacheService.KeyMode.USER,
+                Duration.ofSeconds(10), 0, Duration.ofSeconds(45), Duration.ofSeconds(15), 1,
+                storage, 1 << 20, l2, disk, clock::get, () -> TimeUnit.MILLISECONDS.toNanos(clock.get()));
+        caches.add(cache);
+        cache.start();
+        return cache;
+    }
+
+    static QueryFingerprint fingerprint(String sql) {
+        try {
+            return QueryFingerprint.of(SqlToModelConverter.parseAndConvert(sql));
+        } catch (Exception e) {
+            throw new IllegalArgumentException(sql, e);
+        }
+    }
+
+    /**
+     * A result of {@code count} rows with an id and a state column.
+     */
+    static QueryExecutionResult result(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", i);
+            row.put("state", i % 2 == 0 ? "open" : "closed");
+            rows.add(row);
+        }
+        return QueryExecutionResult.success(rows, null, 0L, "RATE_LIMIT_OK");
+    }
+
+    private static void put(CacheService cache, String tenantId, String sql, QueryExecutionResult result) {
+        put(cache, tenantId, sql, result, null);
+    }
+
+    private static void put(CacheService cache, String tenantId, String sql, QueryExecutionResult result,
+            Supplier<CompletableFuture<?>> refresher) {
+        cache.put(tenantId, CacheService.userScope(tenantId, "alice"), fingerprint(sql), null,
+                EntitlementDecision.allow(), result, refresher);
+    }
+
+    private static QueryExecutionResult get(CacheService cache, String tenantId, String sql) {
+        return get(cache, tenantId, sql, Long.MAX_VALUE);
+    }
+
+    private static QueryExecutionResult get(CacheService cache, String tenantId, String sql, long maxStalenessMs) {
+        return cache.get(CacheService.userScope(tenantId, "alice"), fingerprint(sql), null, maxStalenessMs);
+    }
+
+    private static QueryShape shape(List<String> columns, int limit, Connector.Predicate... predicates) {
+        return new QueryShape("github_issues", columns, List.of(predicates), limit);
+    }
+
+    private static void putWithShape(CacheService cache, String sql, QueryShape shape,
+            EntitlementDecision decision, QueryExecutionResult result) {
+        cache.put("t1", CacheService.userScope("t1", "alice"), fingerprint(sql), shape, decision, result, null);
+    }
+
+    private static QueryExecutionResult getWithShape(CacheService cache, String sql, QueryShape shape) {
+        return cache.get(CacheService.userScope("t1", "alice"), fingerprint(sql), shape, Long.MAX_VALUE);
+    }
+
+    private static List<Object> ids(QueryExecutionResult result) {
+        return result.getRows().stream().map(row -> row.get("id")).toList();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testEntryIsWeighedByEstimatedBytes() {
+        // 256 bytes per entry plus 48 per cell
+        assertEquals(256 + 5 * 2 * 48, CacheService.estimateBytes(result(5)));
+        assertEquals(CacheService.BYTES_PER_ENTRY, CacheService.estimateBytes(result(0)));
+    }
+
+    @Test
+    void testTenantOverQuotaEvictsOnlyItsOwnEntries() {
+        // Given: room for two 736-byte results per tenant
+        CacheService cache = cache(2_000);
+        put(cache, "t2", "SELECT * FROM github_issues", result(5));
+        put(cache, "t1", "SELECT * FROM github_issues", result(5));
+        put(cache, "t1", "SELECT * FROM github_pulls", result(5));
+        assertEquals(2 * 736, cache.getTenantBytes("t1"));
+
+        // When
+        put(cache, "t1", "SELECT * FROM jira_issues", result(5));
+
+        // Then
+        assertEquals(1, cache.getStats().quotaEvictions());
+        assertEquals(2 * 736, cache.getTenantBytes("t1"));
+        assertEquals(736, cache.getTenantBytes("t2"));
+        assertNotNull(get(cache, "t1", "SELECT * FROM jira_issues"));
+        assertNotNull(get(cache, "t2", "SELECT * FROM github_issues"));
+        assertEquals(3, cache.getStats().entries());
+    }
+
+    @Test
+    void testResultLargerThanTenantQuotaIsNotCached() {
+        // Given
+        CacheService cache = cache(2_000);
+
+        // When
+        put(cache, "t1", "SELECT * FROM github_issues", result(50));
+
+        // Then
+        assertNull(get(cache, "t1", "SELECT * FROM github_issues"));
+        assertEquals(1, cache.getStats().rejected());
+        assertEquals(0, cache.getTenantBytes("t1"));
+    }
+
+    @Test
+    void testReplacedAndInvalidatedEntriesReleaseTheirBytes() {
+        // Given
+        CacheService cache = cache(10_000);
+        put(cache, "t1", "SELECT * FROM github_issues", result(5));
+
+        // When
+        put(cache, "t1", "SELECT * FROM github_issues", result(10));
+
+        // Then
+        assertEquals(256 + 10 * 2 * 48, cache.getTenantBytes("t1"));
+        cache.invalidate(CacheService.generateCacheKey(
+                CacheService.userScope("t1", "alice"), fingerprint("SELECT * FROM github_issues")));
+        assertEquals(0, cache.getTenantBytes("t1"));
+    }
+
+    @Test
+    void testEntryExpiresAfterTtl() {
+        // Given
+        CacheService cache = cache(10_000);
+        put(cache, "t1", "SELECT * FROM github_issues", result(5));
+
+        // When
+        clock.addAndGet(TTL.toMillis() + 1);
+
+        // Then
+        assertNull(get(cache, "t1", "SELECT * FROM github_issues"));
+    }
+
+    @Test
+    void testStrictCallerMissDoesNotEvictTheEntry() {
+        // Given
+        CacheService cache = cache(10_000);
+        put(cache, "t1", "SELECT * FROM github_issues", result(5));
+        clock.addAndGet(30_000);
+
+        // When: too stale for this caller, and without a refresher there is no grace
+        QueryExecutionResult strict = get(cache, "t1", "SELECT * FROM github_issues", 1_000);
+
+        // Then: still served to a caller with a looser bound
+        assertNull(strict);
+        assertNotNull(get(cache, "t1", "SELECT * FROM github_issues", 60_000));
+        assertEquals(1, cache.getStats().entries());
+        assertEquals(736, cache.getTenantBytes("t1"));
+    }
+
+    @Test
+    void testStaleEntryWithinGraceIsServedWhileOneRefreshRuns() throws Exception {
+        // Given
+        CacheService cache = cache(10_000);
+        AtomicInteger refreshes = new AtomicInteger();
+        CompletableFuture<Void> refreshed = new CompletableFuture<>();
+        put(cache, "t1", "SELECT * FROM github_issues", result(5), () -> {
+            refreshes.incrementAndGet();
+            return refreshed;
+        });
+        clock.addAndGet(5_000);
+
+        // When: 4s past the bound, within the 10s grace
+        QueryExecutionResult first = get(cache, "t1", "SELECT * FROM github_issues", 1_000);
+        await(() -> refreshes.get() == 1);
+        QueryExecutionResult second = get(cache, "t1", "SELECT * FROM github_issues", 1_000);
+
+        // Then: both served, one refresh in flight
+        assertNotNull(first);
+        assertNotNull(second);
+        assertEquals(2, cache.getStats().staleHits());
+        assertEquals(1, cache.getStats().staleRefreshes());
+
+        // A refresh may start again once the previous one completes
+        refreshed.complete(null);
+        await(() -> {
+            get(cache, "t1", "SELECT * FROM github_issues", 1_000);
+            return refreshes.get() >= 2;
+        });
+    }
+
+    @Test
+    void testStaleEntryPastGraceIsAMissAndIsNotRefreshed() {
+        // Given
+        CacheService cache = cache(10_000);
+        AtomicInteger refreshes = new AtomicInteger();
+        put(cache, "t1", "SELECT * FROM github_issues", result(5), () -> {
+            refreshes.incrementAndGet();
+            return CompletableFuture.completedFuture(null);
+        });
+        clock.addAndGet(20_000);
+
+        // When
+        QueryExecutionResult stale = get(cache, "t1", "SELECT * FROM github_issues", 1_000);
+
+        // Then
+        assertNull(stale);
+        assertEquals(0, cache.getStats().staleHits());
+        assertEquals(0, refreshes.get());
+        assertNotNull(get(cache, "t1", "SELECT * FROM github_issues"));
+    }
+
+    @Test
+    void testFailedRefreshIsCountedAndKeepsTheEntry() throws Exception {
+        // Given
+        CacheService cache = cache(10_000);
+        put(cache, "t1", "SELECT * FROM github_issues", result(5),
+                () -> CompletableFuture.failedFuture(new IllegalStateException("connector down")));
+        clock.addAndGet(5_000);
+
+        // When
+        assertNotNull(get(cache, "t1", "SELECT * FROM github_issues", 1_000));
+
+        // Then
+        await(() -> cache.getStats().failedRefreshes() == 1);
+        assertNotNull(get(cache, "t1", "SELECT * FROM github_issues", Long.MAX_VALUE));
+    }
+
+    @Test
+    void testReplicaReadsThroughSharedL2AndPromotesToL1() {
+        // Given: two replicas sharing one L2
+        InMemoryResultCacheBackend l2 = new InMemoryResultCacheBackend();
+        CacheService writer = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        CacheService reader = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        put(writer, "t1", "SELECT * FROM github_issues", result(5));
+
+        // When
+        QueryExecutionResult first = get(reader, "t1", "SELECT * FROM github_issues");
+        QueryExecutionResult second = get(reader, "t1", "SELECT * FROM github_issues");
+
+        // Then
+        assertEquals(result(5).getRows(), first.getRows());
+        assertEquals(result(5).getRows(), second.getRows());
+        assertEquals(1, reader.getStats().l2Hits());
+        assertEquals(1, reader.getStats().exactHits());
+        assertEquals(736, reader.getTenantBytes("t1"));
+    }
+
+    @Test
+    void testWriteOnOneReplicaDropsTheOtherReplicasL1Copy() {
+        // Given
+        InMemoryResultCacheBackend l2 = new InMemoryResultCacheBackend();
+        CacheService writer = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        CacheService reader = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        put(writer, "t1", "SELECT * FROM github_issues", result(5));
+        get(reader, "t1", "SELECT * FROM github_issues");
+
+        // When
+        put(writer, "t1", "SELECT * FROM github_issues", result(3));
+
+        // Then: the reader's next lookup goes back to L2 and sees the new rows
+        assertEquals(1, reader.getStats().l2Invalidations());
+        assertEquals(0, writer.getStats().l2Invalidations());
+        assertEquals(3, get(reader, "t1", "SELECT * FROM github_issues").getRows().size());
+        assertEquals(2, reader.getStats().l2Hits());
+    }
+
+    @Test
+    void testL2EntryStalerThanTheCallerIsNotPromoted() {
+        // Given
+        InMemoryResultCacheBackend l2 = new InMemoryResultCacheBackend();
+        CacheService writer = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        CacheService reader = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        put(writer, "t1", "SELECT * FROM github_issues", result(5));
+        clock.addAndGet(5_000);
+
+        // When
+        QueryExecutionResult stale = get(reader, "t1", "SELECT * FROM github_issues", 1_000);
+
+        // Then
+        assertNull(stale);
+        assertEquals(0, reader.getStats().l2Hits());
+        assertEquals(0, reader.getStats().entries());
+    }
+
+    @Test
+    void testInvalidationRemovesTheKeyFromL2() {
+        // Given
+        InMemoryResultCacheBackend l2 = new InMemoryResultCacheBackend();
+        CacheService writer = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        CacheService reader = cache(10_000, CacheService.StorageMode.HEAP, l2, null);
+        put(writer, "t1", "SELECT * FROM github_issues", result(5));
+        String cacheKey = CacheService.generateCacheKey(
+                CacheService.userScope("t1", "alice"), fingerprint("SELECT * FROM github_issues"));
+
+        // When
+        writer.invalidate(cacheKey);
+
+        // Then
+        assertNull(l2.get(cacheKey));
+        assertNull(get(reader, "t1", "SELECT * FROM github_issues"));
+    }
+
+    @Test
+    void testOffHeapEntriesAreWeighedAndReleasedByEncodedBytes() {
+        // Given
+        CacheService cache = cache(10_000, CacheService.StorageMode.OFF_HEAP, null, null);
+        put(cache, "t1", "SELECT * FROM github_issues", result(5));
+        put(cache, "t1", "SELECT * FROM github_pulls", result(10));
+        long encoded = cache.getStats().offHeapBytes();
+        assertTrue(encoded > 0);
+        assertEquals(2 * CacheService.BYTES_PER_ENTRY + encoded, cache.getTenantBytes("t1"));
+        assertEquals(result(5).getRows(), get(cache, "t1", "SELECT * FROM github_issues").getRows());
+
+        // When
+        cache.invalidate(CacheService.generateCacheKey(
+                CacheService.userScope("t1", "alice"), fingerprint("SELECT * FROM github_issues")));
+        put(cache, "t1", "SELECT * FROM github_pulls", result(2));
+
+        // Then: only the replacement is still held off the heap
+        long remaining = cache.getStats().offHeapBytes();
+        assertTrue(remaining > 0 && remaining < encoded);
+        assertEquals(CacheService.BYTES_PER_ENTRY + remaining, cache.getTenantBytes("t1"));
+
+        cache.clear();
+        assertEquals(0, cache.getStats().offHeapBytes());
+        assertEquals(0, cache.getTenantBytes("t1"));
+    }
+
+    @Test
+    void testOffHeapQuotaEvictionReleasesDirectMemory() {
+        // Given: room for about two encoded results per tenant
+        CacheService cache = cache(400, CacheService.StorageMode.OFF_HEAP, null, null);
+        put(cache, "t1", "SELECT * FROM github_issues", result(1));
+        long one = cache.getStats().offHeapBytes();
+
+        // When
+        put(cache, "t1", "SELECT * FROM github_pulls", result(1));
+        put(cache, "t1", "SELECT * FROM jira_issues", result(1));
+
+        // Then
+        assertTrue(cache.getStats().quotaEvictions() >= 1);
+        assertEquals(cache.getStats().entries() * one, cache.getStats().offHeapBytes());
+        assertTrue(cache.getTenantBytes("t1") <= 400);
+    }
+
+    @Test
+    void testNarrowerPredicateIsDerivedFromACompleteResult() {
+        // Given
+        CacheService cache = cache(10_000);
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100),
+                EntitlementDecision.allow(), result(5));
+
+        // When
+        QueryExecutionResult derived = getWithShape(cache, "SELECT * FROM github_issues WHERE state = 'open'",
+                shape(List.of("*"), 100, new Connector.Predicate("state", "=", "open")));
+
+        // Then
+        assertEquals(List.of(0, 2, 4), ids(derived));
+        assertFalse(derived.isTruncated());
+        assertEquals(1, cache.getStats().derivedHits());
+        assertEquals(0, cache.getStats().exactHits());
+    }
+
+    @Test
+    void testProjectionSubsetIsDerivedFromACompleteResult() {
+        // Given
+        CacheService cache = cache(10_000);
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100),
+                EntitlementDecision.allow(), result(3));
+
+        // When
+        QueryExecutionResult derived = getWithShape(cache, "SELECT id FROM github_issues",
+                shape(List.of("id"), 100));
+
+        // Then
+        assertEquals(List.of(Map.of("id", 0), Map.of("id", 1), Map.of("id", 2)), derived.getRows());
+        assertEquals(1, cache.getStats().derivedHits());
+    }
+
+    @Test
+    void testDerivedResultCutToTheQueryLimitIsTruncatedWithoutAPageToken() {
+        // Given
+        CacheService cache = cache(10_000);
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100),
+                EntitlementDecision.allow(), result(5));
+
+        // When: three open issues, two requested
+        QueryExecutionResult derived = getWithShape(cache,
+                "SELECT * FROM github_issues WHERE state = 'open' LIMIT 2",
+                shape(List.of("*"), 2, new Connector.Predicate("state", "=", "open")));
+
+        // Then: a connector page token cannot resume a derived result
+        assertEquals(List.of(0, 2), ids(derived));
+        assertTrue(derived.isTruncated());
+        assertNull(derived.getNextPageToken());
+    }
+
+    @Test
+    void testTruncatedResultIsNotABaseForDerivedQueries() {
+        // Given: a scan cut inside a connector page, so without a page token
+        CacheService cache = cache(10_000);
+        QueryExecutionResult cut = result(5);
+        cut.setTruncated(true);
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100),
+                EntitlementDecision.allow(), cut);
+
+        // When: a narrower query whose rows are not all in the cut result
+        QueryExecutionResult derived = getWithShape(cache, "SELECT * FROM github_issues WHERE state = 'open'",
+                shape(List.of("*"), 100, new Connector.Predicate("state", "=", "open")));
+
+        // Then: only the exact query is served
+        assertNull(derived);
+        assertEquals(0, cache.getStats().derivedHits());
+        assertTrue(getWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100)).isTruncated());
+    }
+
+    @Test
+    void testResidualOnAColumnRemovedByClsIsNotDerived() {
+        // Given: the base was produced without the state column
+        CacheService cache = cache(10_000);
+        EntitlementDecision decision = EntitlementDecision.allow();
+        decision.getAllowedColumns().add("id");
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100), decision, result(5));
+
+        // When
+        QueryExecutionResult derived = getWithShape(cache, "SELECT * FROM github_issues WHERE state = 'open'",
+                shape(List.of("*"), 100, new Connector.Predicate("state", "=", "open")));
+
+        // Then
+        assertNull(derived);
+        assertEquals(0, cache.getStats().derivedHits());
+    }
+
+    @Test
+    void testResidualOnAMaskedColumnIsNotDerived() {
+        // Given: cached state values are masked, not the raw values
+        CacheService cache = cache(10_000);
+        EntitlementDecision decision = EntitlementDecision.allow();
+        decision.getColumnMasks().put("state", ColumnMask.builder().maskType(ColumnMask.MaskType.HASH).build());
+        putWithShape(cache, "SELECT * FROM github_issues", shape(List.of("*"), 100), decision, result(5));
+
+        // When
+        QueryExecutionResult derived = getWithShape(cache, "SELECT * FROM github_issues WHERE state = 'open'",
+                shape(List.of("*"), 100, new Connector.Predicate("state", "=", "open")));
+
+        // Then
+        assertNull(derived);
+        assertEquals(0, cache.getStats().derivedHits());
+    }
+
+    @Test
+    void testResidualOnAColumnProjectedAwayIsNotDerived() {
+        // Given
+        CacheService cache = cache(10_000);
+        putWithShape(cache, "SELECT id FROM github_issues", shape(List.of("id"), 100),
+                EntitlementDecision.allow(), result(5));
+
+        // When
+        QueryExecutionResult derived = getWithShape(cache, "SELECT id FROM github_issues WHERE state = 'open'",
+                shape(List.of("id"), 100, new Connector.Predicate("state", "=", "open")));
+
+        // Then
+        assertNull(derived);
+        assertEquals(0, cache.getStats().derivedHits());
+    }
+}
@@ -0,0 +1,162 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiskResultTierTest {
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000L);
+
+    private DiskResultTier tier(long maxBytes, long tenantMaxBytes) {
+        return new DiskResultTier(directory.toString(), maxBytes, tenantMaxBytes, 0, TTL, clock::get);
+    }
+
+    private ResultCodec.Stored stored(String tenantId, int rows) {
+        QueryExecutionResult result = CacheServiceTest.result(rows);
+        return new ResultCodec.Stored(tenantId, result, clock.get(), null, Set.of(), Set.of());
+    }
+
+    private long segmentBytes() {
+        DiskResultTier probe = new DiskResultTier(directory.resolve("probe").toString(),
+                Long.MAX_VALUE, Long.MAX_VALUE, 0, TTL, clock::get);
+        probe.put("probe", stored("t1", 20));
+        return probe.bytes();
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+    }
+
+    @Test
+    void testEntriesSurviveARestart() throws Exception {
+        // Given
+        DiskResultTier before = tier(1 << 20, 1 << 20);
+        before.put("k1", stored("t1", 20));
+        before.put("k2", stored("t2", 5));
+
+        // When
+        DiskResultTier after = tier(1 << 20, 1 << 20);
+
+        // Then
+        assertEquals(2, after.entries());
+        assertEquals(before.bytes(), after.bytes());
+        assertEquals(before.tenantBytes("t1"), after.tenantBytes("t1"));
+        ResultCodec.Stored restored = after.get("k1");
+        assertEquals("t1", restored.tenantId());
+        assertEquals(CacheServiceTest.result(20).getRows(), restored.result().getRows());
+        assertInstanceOf(OffHeapRows.class, restored.result().getRows());
+        assertEquals(2, segmentFiles());
+    }
+
+    @Test
+    void testTenantOverQuotaEvictsOnlyItsOwnSegments() throws Exception {
+        // Given: room for two segments per tenant
+        long segment = segmentBytes();
+        DiskResultTier tier = tier(1 << 20, 2 * segment + segment / 2);
+        tier.put("t2-k1", stored("t2", 20));
+        tier.put("t1-k1", stored("t1", 20));
+        tier.put("t1-k2", stored("t1", 20));
+
+        // When
+        tier.put("t1-k3", stored("t1", 20));
+
+        // Then
+        assertNull(tier.get("t1-k1"));
+        assertNotNull(tier.get("t1-k2"));
+        assertNotNull(tier.get("t1-k3"));
+        assertNotNull(tier.get("t2-k1"));
+        assertEquals(2 * segment, tier.tenantBytes("t1"));
+        assertEquals(segment, tier.tenantBytes("t2"));
+        assertEquals(3, segmentFiles());
+    }
+
+    @Test
+    void testSegmentLargerThanTenantQuotaIsNotWritten() throws Exception {
+        // Given
+        DiskResultTier tier = tier(1 << 20, 100);
+
+        // When
+        boolean written = tier.put("k1", stored("t1", 20));
+
+        // Then
+        assertFalse(written);
+        assertEquals(0, tier.tenantBytes("t1"));
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    void testExpiredSegmentIsDroppedOnRead() throws Exception {
+        // Given
+        DiskResultTier tier = tier(1 << 20, 1 << 20);
+        tier.put("k1", stored("t1", 20));
+
+        // When
+        clock.addAndGet(TTL.toMillis() + 1);
+
+        // Then
+        assertNull(tier.get("k1"));
+        assertEquals(0, tier.entries());
+        assertEquals(0, tier.tenantBytes("t1"));
+        assertEquals(0, segmentFiles());
+    }
+
+    @Test
+    void testExpiredAndOldFormatSegmentsAreDroppedOnLoad() throws Exception {
+        // Given: one expired segment, one fresh, and one in an older format
+        DiskResultTier before = tier(1 << 20, 1 << 20);
+        before.put("old", stored("t1", 20));
+        clock.addAndGet(TTL.toMillis() / 2 + 1);
+        before.put("new", stored("t1", 20));
+        clock.addAndGet(TTL.toMillis() / 2 + 1);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(directory.resolve("v1.seg")))) {
+            out.writeInt(0x53514331);
+            out.writeLong(clock.get());
+        }
+
+        // When
+        DiskResultTier after = tier(1 << 20, 1 << 20);
+
+        // Then
+        assertEquals(1, after.entries());
+        assertNull(after.get("old"));
+        assertNotNull(after.get("new"));
+        assertEquals(1, segmentFiles());
+    }
+
+    @Test
+    void testReplacedSegmentReleasesItsBytes() throws Exception {
+        // Given
+        DiskResultTier tier = tier(1 << 20, 1 << 20);
+        tier.put("k1", stored("t1", 20));
+
+        // When
+        tier.put("k1", stored("t1", 5));
+        tier.remove("missing");
+
+        // Then
+        assertEquals(tier.bytes(), tier.tenantBytes("t1"));
+        assertEquals(5, tier.get("k1").result().getRows().size());
+        assertEquals(1, segmentFiles());
+        tier.clear();
+        assertEquals(0, tier.tenantBytes("t1"));
+        assertEquals(0, segmentFiles());
+    }
+}
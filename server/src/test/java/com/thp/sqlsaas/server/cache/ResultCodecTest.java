@@ -0,0 +1,148 @@
+package com.thp.sqlsaas.server.cache;
+
+import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCodecTest {
+
+    private static Map<String, Object> row(Object... keysAndValues) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            row.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    private static List<Map<String, Object>> rows() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        rows.add(row("id", 1, "title", "Crash on start", "votes", 12L, "score", 0.75,
+                "open", true, "labels", List.of("bug", "p1"), "assignee", null));
+        rows.add(row("id", 2, "title", "Ünïcödé ✓", "votes", Long.MAX_VALUE, "score", -1.5,
+                "open", false, "labels", List.of(), "assignee", "bob"));
+        return rows;
+    }
+
+    private static ResultCodec.Stored stored(List<Map<String, Object>> rows) {
+        QueryExecutionResult result = QueryExecutionResult.success(rows, "2", 1_500L, "RATE_LIMIT_OK");
+        QueryShape shape = new QueryShape("github_issues", List.of("id", "title"),
+                List.of(new Connector.Predicate("state", "=", "open"), new Connector.Predicate("votes", ">", 10)),
+                50);
+        return new ResultCodec.Stored("t1", result, 1_234_567L, shape, Set.of("id", "title"), Set.of("email"));
+    }
+
+    @Test
+    void testRoundTripKeepsRowsAndMetadata() {
+        // Given
+        ResultCodec.Stored original = stored(rows());
+
+        // When
+        ResultCodec.Stored decoded = ResultCodec.decode(ResultCodec.encode(original));
+
+        // Then
+        assertEquals("t1", decoded.tenantId());
+        assertEquals(1_234_567L, decoded.timestamp());
+        assertEquals(original.shape(), decoded.shape());
+        assertEquals(Set.of("id", "title"), decoded.allowedColumns());
+        assertEquals(Set.of("email"), decoded.maskedColumns());
+        QueryExecutionResult result = decoded.result();
+        assertEquals(rows(), result.getRows());
+        assertEquals(original.result().getColumns(), result.getColumns());
+        assertEquals("2", result.getNextPageToken());
+        assertTrue(result.isTruncated());
+        assertEquals(1_500L, result.getFreshnessMs());
+        assertEquals("RATE_LIMIT_OK", result.getRateLimitStatus());
+    }
+
+    @Test
+    void testTruncatedFlagIsKeptWithoutAPageToken() {
+        // Given: a result cut inside a connector page
+        QueryExecutionResult cut = QueryExecutionResult.success(rows(), null, 0L, "RATE_LIMIT_OK");
+        cut.setTruncated(true);
+
+        // When
+        ResultCodec.Stored decoded = ResultCodec.decode(ResultCodec.encode(
+                new ResultCodec.Stored("t1", cut, 0L, null, Set.of(), Set.of())));
+
+        // Then
+        assertTrue(decoded.result().isTruncated());
+        assertNull(decoded.result().getNextPageToken());
+    }
+
+    @Test
+    void testMappedRowsDecodeInPlace() {
+        // Given: an entry at an offset inside a larger direct buffer
+        byte[] encoded = ResultCodec.encode(stored(rows()));
+        ByteBuffer buffer = ByteBuffer.allocateDirect(encoded.length + 16);
+        buffer.position(16);
+        buffer.put(encoded).position(16);
+
+        // When
+        ResultCodec.Stored decoded = ResultCodec.decode(buffer, true);
+
+        // Then
+        assertInstanceOf(OffHeapRows.class, decoded.result().getRows());
+        assertEquals(rows(), decoded.result().getRows());
+        assertEquals(rows().get(1), decoded.result().getRows().get(1));
+    }
+
+    @Test
+    void testEntryWithoutShapeOrRows() {
+        // Given
+        QueryExecutionResult result = QueryExecutionResult.success(List.of(), null, 0L, null);
+        ResultCodec.Stored original = new ResultCodec.Stored("t1", result, 1L, null, Set.of(), Set.of());
+
+        // When
+        ResultCodec.Stored decoded = ResultCodec.decode(ResultCodec.encode(original));
+
+        // Then
+        assertNull(decoded.shape());
+        assertNull(decoded.result().getNextPageToken());
+        assertTrue(decoded.result().getRows().isEmpty());
+    }
+
+    @Test
+    void testUnsupportedValueIsRejected() {
+        // Given: e.g. a masked cell
+        List<Map<String, Object>> rows = List.of(row("id", 1, "email", new Object()));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> ResultCodec.encode(stored(rows)));
+        assertThrows(IllegalArgumentException.class, () -> OffHeapRows.of(rows));
+    }
+
+    @Test
+    void testCorruptOrForeignBytesAreRejected() {
+        // Given
+        byte[] encoded = ResultCodec.encode(stored(rows()));
+        byte[] truncated = Arrays.copyOf(encoded, encoded.length / 2);
+        byte[] otherVersion = encoded.clone();
+        otherVersion[0] = 99;
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> ResultCodec.decode(truncated));
+        assertThrows(IllegalArgumentException.class, () -> ResultCodec.decode(otherVersion));
+    }
+
+    @Test
+    void testOffHeapRowsHoldEncodedRowsInDirectMemory() {
+        // When
+        OffHeapRows offHeap = OffHeapRows.of(rows());
+
+        // Then
+        assertEquals(2, offHeap.size());
+        assertEquals(rows(), offHeap);
+        assertTrue(offHeap.offHeapBytes() > 0);
+        assertThrows(UnsupportedOperationException.class, () -> offHeap.add(row("id", 3)));
+    }
+}
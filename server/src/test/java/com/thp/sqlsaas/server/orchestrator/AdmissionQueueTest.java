@@ -0,0 +1,183 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.ConnectorType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionQueueTest {
+
+    // One request per user every 50ms; tenants and the connector are not limiting
+    private static final Duration PERIOD = Duration.ofMillis(50);
+
+    // Rate limit clock: frozen unless a test advances it
+    private final AtomicLong ticker = new AtomicLong();
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "test-executor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<AdmissionQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        queues.forEach(AdmissionQueue::stop);
+        executor.shutdownNow();
+    }
+
+    private AdmissionQueue queue(int maxQueued) {
+        RateLimitService rateLimitService = new RateLimitService(tenantId -> Map.of(), PERIOD,
+                1_000, 1_000, 1, Duration.ofMinutes(1), Duration.ofMinutes(5), ticker::get);
+        AdmissionQueue queue = new AdmissionQueue(rateLimitService, executor, Duration.ofSeconds(30), maxQueued);
+        queues.add(queue);
+        return queue;
+    }
+
+    private static CompletableFuture<RateLimitDecision> admit(AdmissionQueue queue, String userId, long maxWaitMs) {
+        return queue.admit("t1", userId, ConnectorType.GITHUB, maxWaitMs);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 10s");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    void testParkedRequestsAreAdmittedInArrivalOrder() throws Exception {
+        // Given: the user's token is spent
+        AdmissionQueue queue = queue(100);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        List<String> threads = new CopyOnWriteArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            int position = i;
+            admit(queue, "alice", 5_000).thenAccept(decision -> {
+                assertTrue(decision.isAllowed());
+                threads.add(Thread.currentThread().getName());
+                order.add(position);
+            });
+        }
+        assertEquals(3, queue.getStats().parked());
+
+        // When: one token at a time
+        for (int admitted = 1; admitted <= 3; admitted++) {
+            ticker.addAndGet(PERIOD.toNanos());
+            int expected = admitted;
+            await(() -> order.size() == expected);
+        }
+
+        // Then: completed on the executor, not the admission timer thread
+        assertEquals(List.of(1, 2, 3), order);
+        assertEquals(List.of("test-executor", "test-executor", "test-executor"), threads);
+        AdmissionQueue.Stats stats = queue.getStats();
+        assertEquals(1, stats.admitted());
+        assertEquals(3, stats.admittedAfterWait());
+        assertEquals(0, stats.parked());
+    }
+
+    @Test
+    void testLaterRequestOfAQueuedUserWaitsBehindIt() throws Exception {
+        // Given
+        AdmissionQueue queue = queue(100);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+        CompletableFuture<RateLimitDecision> first = admit(queue, "alice", 5_000);
+
+        // When: a token is available again, but the first request is still queued
+        ticker.addAndGet(PERIOD.toNanos());
+        CompletableFuture<RateLimitDecision> second = admit(queue, "alice", 5_000);
+
+        // Then
+        assertTrue(first.get(10, TimeUnit.SECONDS).isAllowed());
+        assertFalse(second.isDone());
+        ticker.addAndGet(PERIOD.toNanos());
+        assertTrue(second.get(10, TimeUnit.SECONDS).isAllowed());
+    }
+
+    @Test
+    void testParkedRequestWithoutATokenExpiresAfterItsMaxWait() throws Exception {
+        // Given: the clock of the budgets is frozen, so no token comes back
+        AdmissionQueue queue = queue(100);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+
+        // When
+        long start = System.nanoTime();
+        CompletableFuture<RateLimitDecision> parked = admit(queue, "alice", 200);
+        RateLimitDecision decision = parked.get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertFalse(decision.isAllowed());
+        assertTrue(decision.getMessage().contains("no token within"));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        AdmissionQueue.Stats stats = queue.getStats();
+        assertEquals(1, stats.expired());
+        assertEquals(0, stats.parked());
+    }
+
+    @Test
+    void testRequestIsRejectedRightAwayWhenItCannotWait() {
+        // Given
+        AdmissionQueue queue = queue(100);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+
+        // When
+        RateLimitDecision noWait = admit(queue, "alice", 0).join();
+        RateLimitDecision tooShort = admit(queue, "alice", 10).join();
+
+        // Then: a token is predicted in 50ms
+        assertFalse(noWait.isAllowed());
+        assertFalse(tooShort.isAllowed());
+        assertTrue(tooShort.getMessage().contains("predicted wait exceeds the max wait of 10 ms"));
+        assertEquals(2, queue.getStats().rejected());
+        assertEquals(0, queue.getStats().parked());
+    }
+
+    @Test
+    void testRequestIsRejectedWhenTheQueueIsFull() {
+        // Given
+        AdmissionQueue queue = queue(1);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+        assertTrue(admit(queue, "bob", 0).join().isAllowed());
+        CompletableFuture<RateLimitDecision> parked = admit(queue, "alice", 5_000);
+
+        // When
+        RateLimitDecision decision = admit(queue, "bob", 5_000).join();
+
+        // Then
+        assertFalse(parked.isDone());
+        assertFalse(decision.isAllowed());
+        assertTrue(decision.getMessage().contains("admission queue is full"));
+    }
+
+    @Test
+    void testStopRejectsParkedRequests() throws Exception {
+        // Given
+        AdmissionQueue queue = queue(100);
+        assertTrue(admit(queue, "alice", 0).join().isAllowed());
+        CompletableFuture<RateLimitDecision> parked = admit(queue, "alice", 5_000);
+
+        // When
+        queue.stop();
+
+        // Then
+        RateLimitDecision decision = parked.get(10, TimeUnit.SECONDS);
+        assertFalse(decision.isAllowed());
+        assertTrue(decision.getMessage().contains("shutting down"));
+        assertEquals(0, queue.getStats().parked());
+    }
+}
@@ -0,0 +1,261 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.AdaptiveConcurrencyLimiter;
+import com.thp.sqlsaas.connector.ConnectorType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectorSchedulerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ConnectorScheduler scheduler(int maxConcurrency, int maxQueuedPerTenant,
+            Map<String, Integer> weights, Duration meterIdleTimeout) {
+        return scheduler(maxConcurrency, maxQueuedPerTenant, weights, meterIdleTimeout, () -> Integer.MAX_VALUE);
+    }
+
+    private ConnectorScheduler scheduler(int maxConcurrency, int maxQueuedPerTenant,
+            Map<String, Integer> weights, Duration meterIdleTimeout, IntSupplier adaptiveLimit) {
+        Map<ConnectorType, Integer> concurrency = new EnumMap<>(ConnectorType.class);
+        for (ConnectorType type : ConnectorType.values()) {
+            concurrency.put(type, maxConcurrency);
+        }
+        return new ConnectorScheduler(tenantId -> weights.getOrDefault(tenantId, 1), type -> adaptiveLimit,
+                registry, concurrency, maxQueuedPerTenant, Duration.ofMinutes(1), meterIdleTimeout);
+    }
+
+    private static CompletableFuture<ConnectorScheduler.Permit> acquire(ConnectorScheduler scheduler, String tenantId) {
+        return scheduler.acquire(tenantId, ConnectorType.GITHUB);
+    }
+
+    @Test
+    void testSlotsAreGrantedRightAwayUpToTheConcurrency() {
+        // Given
+        ConnectorScheduler scheduler = scheduler(2, 10, Map.of(), Duration.ofMinutes(5));
+
+        // When
+        CompletableFuture<ConnectorScheduler.Permit> first = acquire(scheduler, "t1");
+        CompletableFuture<ConnectorScheduler.Permit> second = acquire(scheduler, "t2");
+        CompletableFuture<ConnectorScheduler.Permit> third = acquire(scheduler, "t1");
+
+        // Then
+        assertTrue(first.isDone());
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        assertEquals(2, scheduler.getStats().running());
+        assertEquals(1, scheduler.getStats().waiting());
+
+        first.join().close();
+        assertTrue(third.isDone());
+        assertEquals(1, scheduler.getStats().queued());
+    }
+
+    @Test
+    void testSlotsAreSharedByTenantWeight() {
+        // Given: one slot, held, and t1 (weight 2) queued before t2 (weight 1)
+        ConnectorScheduler scheduler = scheduler(1, 100, Map.of("t1", 2), Duration.ofMinutes(5));
+        ConnectorScheduler.Permit held = acquire(scheduler, "t1").join();
+        List<String> tenants = new ArrayList<>();
+        List<ConnectorScheduler.Permit> granted = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            for (String tenantId : List.of("t1", "t2")) {
+                acquire(scheduler, tenantId).thenAccept(permit -> {
+                    tenants.add(tenantId);
+                    granted.add(permit);
+                });
+            }
+        }
+
+        // When: each granted execution finishes before the next
+        held.close();
+        for (int i = 0; i < 8; i++) {
+            granted.get(i).close();
+        }
+
+        // Then: two turns for t1 per turn of t2, even though both queued as much
+        assertEquals(List.of("t1", "t1", "t2", "t1", "t1", "t2", "t1", "t1", "t2"), tenants);
+    }
+
+    @Test
+    void testDeepQueueDoesNotStarveAnotherTenant() {
+        // Given
+        ConnectorScheduler scheduler = scheduler(1, 100, Map.of(), Duration.ofMinutes(5));
+        ConnectorScheduler.Permit held = acquire(scheduler, "t1").join();
+        List<CompletableFuture<ConnectorScheduler.Permit>> flood = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            flood.add(acquire(scheduler, "t1"));
+        }
+
+        // When
+        CompletableFuture<ConnectorScheduler.Permit> other = acquire(scheduler, "t2");
+        held.close();
+        flood.get(0).join().close();
+
+        // Then: t2 is served second, not after the 50 queued executions of t1
+        assertTrue(other.isDone());
+        assertEquals(49, flood.stream().filter(f -> !f.isDone()).count());
+    }
+
+    @Test
+    void testTenantQueueIsCapped() {
+        // Given
+        ConnectorScheduler scheduler = scheduler(1, 2, Map.of(), Duration.ofMinutes(5));
+        acquire(scheduler, "t1").join();
+        acquire(scheduler, "t1");
+        acquire(scheduler, "t1");
+
+        // When
+        CompletableFuture<ConnectorScheduler.Permit> overflow = acquire(scheduler, "t1");
+        CompletableFuture<ConnectorScheduler.Permit> otherTenant = acquire(scheduler, "t2");
+
+        // Then
+        CompletionException e = assertThrows(CompletionException.class, overflow::join);
+        assertInstanceOf(RejectedExecutionException.class, e.getCause());
+        assertFalse(otherTenant.isCompletedExceptionally());
+        assertEquals(1, scheduler.getStats().rejected());
+        assertEquals(3, scheduler.getStats().waiting());
+    }
+
+    @Test
+    void testPermitReleasesItsSlotOnce() throws Exception {
+        // Given
+        ConnectorScheduler scheduler = scheduler(1, 10, Map.of(), Duration.ofMinutes(5));
+        ConnectorScheduler.Permit permit = acquire(scheduler, "t1").join();
+        CompletableFuture<ConnectorScheduler.Permit> second = acquire(scheduler, "t2");
+        CompletableFuture<ConnectorScheduler.Permit> third = acquire(scheduler, "t3");
+
+        // When: closed twice, concurrently
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> closers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Thread closer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                permit.close();
+            });
+            closer.start();
+            closers.add(closer);
+        }
+        start.countDown();
+        for (Thread closer : closers) {
+            closer.join();
+        }
+
+        // Then
+        assertTrue(second.isDone());
+        assertFalse(third.isDone());
+        assertEquals(1, scheduler.getStats().running());
+    }
+
+    @Test
+    void testMetersOfIdleTenantsAreRemoved() {
+        // Given
+        ConnectorScheduler scheduler = scheduler(1, 10, Map.of(), Duration.ZERO);
+        ConnectorScheduler.Permit first = acquire(scheduler, "t1").join();
+        CompletableFuture<ConnectorScheduler.Permit> second = acquire(scheduler, "t2");
+        assertEquals(2, scheduler.meteredTenants(ConnectorType.GITHUB));
+        assertEquals(2, registry.find("sqlsaas.scheduler.wait").timers().size());
+
+        // When: t1 finishes, t2 is still running
+        first.close();
+
+        // Then
+        assertEquals(1, scheduler.meteredTenants(ConnectorType.GITHUB));
+        assertNotNull(registry.find("sqlsaas.scheduler.wait").tag("tenant", "t2").timer());
+        assertNull(registry.find("sqlsaas.scheduler.wait").tag("tenant", "t1").timer());
+        assertNull(registry.find("sqlsaas.scheduler.queue.depth").tag("tenant", "t1").gauge());
+
+        second.join().close();
+        assertEquals(0, scheduler.meteredTenants(ConnectorType.GITHUB));
+        assertTrue(registry.find("sqlsaas.scheduler.wait").timers().isEmpty());
+
+        // A returning tenant is metered again
+        acquire(scheduler, "t1").join();
+        assertEquals(1, registry.find("sqlsaas.scheduler.wait").tag("tenant", "t1").timer().count());
+    }
+
+    @Test
+    void testMetersAreKeptWithinTheIdleTimeout() {
+        // Given
+        ConnectorScheduler scheduler = scheduler(1, 10, Map.of(), Duration.ofMinutes(5));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            acquire(scheduler, "t1").join().close();
+        }
+
+        // Then
+        assertEquals(1, scheduler.meteredTenants(ConnectorType.GITHUB));
+        assertEquals(3, registry.find("sqlsaas.scheduler.wait").tag("tenant", "t1").timer().count());
+    }
+
+    @Test
+    void testConcurrencyFollowsTheAdaptiveLimit() {
+        // Given: a limiter with its default start, behind a scheduler capped at 8
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 1, 200, 1.5, 0.2, 600, clock::get);
+        ConnectorScheduler scheduler = scheduler(8, 100, Map.of(), Duration.ofMinutes(5), limiter::getLimit);
+
+        // When: full rounds of scans answering in 10ms, then in 100ms
+        for (int round = 0; round < 20; round++) {
+            scanRound(scheduler, limiter, clock, 10);
+        }
+        int healthyLimit = limiter.getLimit();
+        for (int round = 0; round < 5; round++) {
+            scanRound(scheduler, limiter, clock, 100);
+        }
+
+        // Then: the limit adapted both ways although the scheduler never ran more than 8,
+        // and the scheduler now holds back what the source cannot take
+        assertTrue(healthyLimit >= 8, "healthy limit was " + healthyLimit);
+        int degradedLimit = limiter.getLimit();
+        assertTrue(degradedLimit < 8, "degraded limit was " + degradedLimit);
+        List<CompletableFuture<ConnectorScheduler.Permit>> permits = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            permits.add(acquire(scheduler, "t" + i));
+        }
+        assertEquals(degradedLimit, permits.stream().filter(CompletableFuture::isDone).count());
+        assertEquals(8 - degradedLimit, scheduler.getStats().waiting());
+        assertEquals(0, limiter.getRejected());
+    }
+
+    /**
+     * Run as many scans as the scheduler grants at once, all taking the given latency.
+     */
+    private static void scanRound(ConnectorScheduler scheduler, AdaptiveConcurrencyLimiter limiter,
+            AtomicLong clock, long latencyMs) {
+        List<CompletableFuture<ConnectorScheduler.Permit>> permits = new ArrayList<>();
+        List<AdaptiveConcurrencyLimiter.Listener> calls = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            CompletableFuture<ConnectorScheduler.Permit> permit = acquire(scheduler, "t" + i);
+            permits.add(permit);
+            if (permit.isDone()) {
+                calls.add(limiter.tryAcquire());
+            }
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMs));
+        calls.forEach(AdaptiveConcurrencyLimiter.Listener::onSuccess);
+        for (CompletableFuture<ConnectorScheduler.Permit> permit : permits) {
+            // Queued scans are granted as earlier ones close, and not run
+            permit.join().close();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.Connector;
+import com.thp.sqlsaas.connector.ConnectorFactory;
+import com.thp.sqlsaas.connector.ConnectorType;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.entitlement.EntitlementService;
+import com.thp.sqlsaas.persistence.service.QueryExecutionRecorder;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import com.thp.sqlsaas.server.model.QueryPlan;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class QueryOrchestratorTest {
+
+    private final ConnectorFactory connectorFactory = new ConnectorFactory();
+    private final AdmissionQueue admissionQueue = new AdmissionQueue(
+            new RateLimitService(tenantId -> Map.of(), Duration.ofMinutes(1), 1_000, 1_000, 1_000,
+                    Duration.ofMinutes(1), Duration.ofMinutes(5), System::nanoTime),
+            Runnable::run, Duration.ofSeconds(30), 100);
+    private final QueryOrchestrator orchestrator = new QueryOrchestrator(
+            connectorFactory, mock(EntitlementService.class), admissionQueue, scheduler(),
+            mock(QueryExecutionRecorder.class), 3);
+
+    @AfterEach
+    void tearDown() {
+        admissionQueue.stop();
+        connectorFactory.shutdown();
+    }
+
+    private static ConnectorScheduler scheduler() {
+        Map<ConnectorType, Integer> concurrency = new EnumMap<>(ConnectorType.class);
+        for (ConnectorType type : ConnectorType.values()) {
+            concurrency.put(type, 8);
+        }
+        return new ConnectorScheduler(tenantId -> 1, type -> () -> Integer.MAX_VALUE, new SimpleMeterRegistry(),
+                concurrency, 100, Duration.ofMinutes(1), Duration.ofMinutes(5));
+    }
+
+    private static QueryPlan plan(List<Connector.Predicate> predicates, int limit) {
+        return new QueryPlan("t1", "alice", Set.of("analyst"), ConnectorType.GITHUB, Map.of(),
+                "SELECT * FROM github_issues", "issues", List.of("*"), predicates, limit, null,
+                UUID.randomUUID().toString());
+    }
+
+    private static List<Object> numbers(QueryExecutionResult result) {
+        return result.getRows().stream().map(row -> row.get("number")).toList();
+    }
+
+    @Test
+    void testScanCutInsideAPageIsTruncatedWithoutAToken() {
+        // Given: a residual predicate (number is not pushed down) dropping issue 1,
+        // so a limit of 3 is reached inside the second page of 3 issues
+        List<Connector.Predicate> predicates = List.of(new Connector.Predicate("number", ">=", 2));
+
+        // When
+        QueryExecutionResult result = orchestrator.execute(plan(predicates, 3), EntitlementDecision.allow());
+
+        // Then
+        assertEquals("SUCCESS", result.getStatus());
+        assertEquals(List.of(2, 3, 4), numbers(result));
+        assertTrue(result.isTruncated());
+        assertNull(result.getNextPageToken());
+        assertEquals(1, result.getRowsPrunedInEngine());
+    }
+
+    @Test
+    void testResidualScanStopsAfterMaxPages() {
+        // Given: a residual predicate no issue matches, one issue per page
+        List<Connector.Predicate> predicates = List.of(new Connector.Predicate("number", ">", 100));
+
+        // When
+        QueryExecutionResult result = orchestrator.execute(plan(predicates, 1), EntitlementDecision.allow());
+
+        // Then: three pages fetched, resumable after the third issue
+        assertEquals("SUCCESS", result.getStatus());
+        assertEquals(List.of(), result.getRows());
+        assertTrue(result.isTruncated());
+        assertEquals("3", result.getNextPageToken());
+        assertEquals(3, result.getRowsPrunedInEngine());
+    }
+
+    @Test
+    void testResidualScanOfTheWholeSourceIsNotTruncated() {
+        // Given: five of the eight issues match, all in the first page
+        List<Connector.Predicate> predicates = List.of(new Connector.Predicate("number", ">", 3));
+
+        // When
+        QueryExecutionResult result = orchestrator.execute(plan(predicates, 100), EntitlementDecision.allow());
+
+        // Then
+        assertEquals(List.of(4, 5, 6, 7, 8), numbers(result));
+        assertFalse(result.isTruncated());
+        assertNull(result.getNextPageToken());
+    }
+}
@@ -0,0 +1,218 @@
+package com.thp.sqlsaas.server.orchestrator;
+
+import com.thp.sqlsaas.connector.ConnectorType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimitServiceTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    // 10 requests per second: one token every 100ms
+    private static final long INTERVAL = SECOND / 10;
+
+    private final AtomicLong ticker = new AtomicLong();
+
+    /**
+     * One-minute budgets: {@code connector} requests for the connector type,
+     * {@code tenant} per tenant and {@code user} per user, unless a tenant has its own.
+     */
+    private RateLimitService service(int connector, int tenant, int user,
+            Map<String, Map<ConnectorType, RateLimitService.Limits>> tenantLimits) {
+        return new RateLimitService(tenantId -> tenantLimits.getOrDefault(tenantId, Map.of()),
+                Duration.ofMinutes(1), connector, tenant, user, Duration.ofMinutes(1), Duration.ofMinutes(5),
+                ticker::get);
+    }
+
+    private static boolean check(RateLimitService service, String tenantId, String userId) {
+        return service.checkRateLimit(tenantId, userId, ConnectorType.GITHUB).isAllowed();
+    }
+
+    private static RateLimitService.TokenBucket exhausted(long now) {
+        RateLimitService.TokenBucket bucket = new RateLimitService.TokenBucket(10, SECOND, now);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(bucket.tryConsume(now));
+        }
+        return bucket;
+    }
+
+    @Test
+    void testFullBucketAllowsABurstOfItsCapacity() {
+        // Given
+        RateLimitService.TokenBucket bucket = new RateLimitService.TokenBucket(10, SECOND, 0);
+        assertEquals(10, bucket.availableTokens(0));
+
+        // When
+        int allowed = 0;
+        while (bucket.tryConsume(0)) {
+            allowed++;
+        }
+
+        // Then
+        assertEquals(10, allowed);
+        assertEquals(0, bucket.availableTokens(0));
+    }
+
+    @Test
+    void testTokensRefillContinuously() {
+        // Given
+        RateLimitService.TokenBucket bucket = exhausted(0);
+
+        // When / Then: one token per interval, not a whole bucket per period
+        assertFalse(bucket.tryConsume(INTERVAL - 1));
+        assertTrue(bucket.tryConsume(INTERVAL));
+        assertFalse(bucket.tryConsume(INTERVAL));
+        assertEquals(5, bucket.availableTokens(6 * INTERVAL));
+    }
+
+    @Test
+    void testIdleBucketRefillsToCapacityOnly() {
+        // Given
+        RateLimitService.TokenBucket bucket = exhausted(0);
+        long later = 3_600 * SECOND;
+
+        // When
+        int allowed = 0;
+        while (bucket.tryConsume(later)) {
+            allowed++;
+        }
+
+        // Then
+        assertEquals(10, allowed);
+    }
+
+    @Test
+    void testWaitAndRetryAfterOfAnEmptyBucket() {
+        // Given
+        RateLimitService.TokenBucket bucket = exhausted(0);
+
+        // Then
+        assertEquals(INTERVAL, bucket.waitNanos(0, 1));
+        assertEquals(3 * INTERVAL, bucket.waitNanos(0, 3));
+        assertEquals(0, bucket.waitNanos(SECOND, 10));
+        // Rounded up to whole seconds, at least one
+        assertEquals(1, bucket.getRetryAfterSeconds(0));
+    }
+
+    @Test
+    void testRetryAfterOfASlowBucketRoundsUp() {
+        // Given: one request per 90 seconds
+        RateLimitService.TokenBucket bucket = new RateLimitService.TokenBucket(1, 90 * SECOND, 0);
+        assertTrue(bucket.tryConsume(0));
+
+        // Then
+        assertEquals(90, bucket.getRetryAfterSeconds(0));
+        assertEquals(31, bucket.getRetryAfterSeconds(59 * SECOND + 1));
+    }
+
+    @Test
+    void testRefundReturnsOneToken() {
+        // Given
+        RateLimitService.TokenBucket bucket = exhausted(0);
+
+        // When
+        bucket.refund();
+
+        // Then
+        assertEquals(1, bucket.availableTokens(0));
+        assertTrue(bucket.tryConsume(0));
+        assertFalse(bucket.tryConsume(0));
+    }
+
+    @Test
+    void testNonPositiveRateIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitService.TokenBucket(0, SECOND, 0));
+        assertThrows(IllegalArgumentException.class, () -> new RateLimitService.TokenBucket(10, 0, 0));
+    }
+
+    @Test
+    void testUserRejectionTakesNothingFromTheTenant() {
+        // Given
+        RateLimitService service = service(1_000, 2, 1, Map.of());
+        assertTrue(check(service, "t1", "alice"));
+
+        // When
+        boolean again = check(service, "t1", "alice");
+
+        // Then: the tenant still has a token for another user
+        assertFalse(again);
+        assertTrue(check(service, "t1", "bob"));
+        assertFalse(check(service, "t1", "carol"));
+        RateLimitService.Stats stats = service.getStats();
+        assertEquals(1, stats.userRejections());
+        assertEquals(1, stats.tenantRejections());
+    }
+
+    @Test
+    void testTenantRejectionRefundsTheUser() {
+        // Given: the tenant's two tokens are spent by other users
+        RateLimitService service = service(1_000, 2, 1, Map.of());
+        assertTrue(check(service, "t1", "alice"));
+        assertTrue(check(service, "t1", "bob"));
+
+        // When
+        assertFalse(check(service, "t1", "carol"));
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        // Then: one tenant token is back, and carol's own token was never spent
+        assertTrue(check(service, "t1", "carol"));
+        assertEquals(0, service.getStats().userRejections());
+        assertEquals(1, service.getStats().tenantRejections());
+    }
+
+    @Test
+    void testConnectorRejectionRefundsTenantAndUser() {
+        // Given: t3 may make one request per minute, and other tenants spend the connector's two
+        RateLimitService service = service(2, 100, 100,
+                Map.of("t3", Map.of(ConnectorType.GITHUB, new RateLimitService.Limits(1, 1, Duration.ofMinutes(1)))));
+        assertTrue(check(service, "t1", "alice"));
+        assertTrue(check(service, "t2", "bob"));
+
+        // When
+        assertFalse(check(service, "t3", "carol"));
+        ticker.addAndGet(TimeUnit.SECONDS.toNanos(30));
+
+        // Then: half a minute refills neither of t3's buckets, so both must have been refunded
+        assertTrue(check(service, "t3", "carol"));
+        RateLimitService.Stats stats = service.getStats();
+        assertEquals(1, stats.connectorRejections());
+        assertEquals(0, stats.tenantRejections());
+        assertEquals(0, stats.userRejections());
+        assertEquals(3, stats.allowed());
+    }
+
+    @Test
+    void testTenantsHaveSeparateBudgetsUnderTheConnector() {
+        // Given
+        RateLimitService service = service(1_000, 1, 10, Map.of());
+        assertTrue(check(service, "t1", "alice"));
+
+        // When / Then
+        assertFalse(check(service, "t1", "alice"));
+        assertTrue(check(service, "t2", "alice"));
+        assertEquals(2, service.getStats().tenants());
+    }
+
+    @Test
+    void testRejectionReportsRetryAfterOfTheExhaustedBudget() {
+        // Given
+        RateLimitService service = service(1_000, 2, 1, Map.of());
+        assertTrue(check(service, "t1", "alice"));
+        assertTrue(check(service, "t1", "bob"));
+
+        // When
+        RateLimitDecision decision = service.checkRateLimit("t1", "carol", ConnectorType.GITHUB);
+
+        // Then: the tenant refills a token every 30s
+        assertFalse(decision.isAllowed());
+        assertEquals(30, decision.getRetryAfterSeconds());
+        assertTrue(decision.getMessage().contains("tenant budget"));
+        assertEquals(TimeUnit.SECONDS.toNanos(30),
+                service.predictWaitNanos("t1", "carol", ConnectorType.GITHUB, 1));
+    }
+}
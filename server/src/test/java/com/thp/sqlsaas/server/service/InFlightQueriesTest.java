@@ -0,0 +1,111 @@
+package com.thp.sqlsaas.server.service;
+
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InFlightQueriesTest {
+
+    private static final String KEY = "t1:*:decision:SELECT * FROM github_issues";
+
+    private final InFlightQueries inFlightQueries = new InFlightQueries();
+    // Executions started so far, completed by the tests
+    private final List<CompletableFuture<QueryExecutionResult>> started = new ArrayList<>();
+
+    private CompletableFuture<InFlightQueries.Outcome> execute() {
+        return inFlightQueries.execute(KEY, () -> {
+            CompletableFuture<QueryExecutionResult> execution = new CompletableFuture<>();
+            started.add(execution);
+            return execution;
+        });
+    }
+
+    private static QueryExecutionResult success() {
+        return QueryExecutionResult.success(List.of(Map.of("id", 1)), null, 0L, "RATE_LIMIT_OK");
+    }
+
+    @Test
+    void testIdenticalQueriesInFlightShareOneExecution() {
+        // Given
+        CompletableFuture<InFlightQueries.Outcome> leader = execute();
+        CompletableFuture<InFlightQueries.Outcome> follower = execute();
+        assertEquals(1, started.size());
+
+        // When
+        QueryExecutionResult result = success();
+        started.get(0).complete(result);
+
+        // Then: the follower gets its own copy of the leader's result
+        assertSame(result, leader.join().result());
+        assertFalse(leader.join().coalesced());
+        assertTrue(follower.join().coalesced());
+        assertNotSame(result, follower.join().result());
+        assertEquals(result.getRows(), follower.join().result().getRows());
+        assertEquals(new InFlightQueries.Stats(1, 1, 0), inFlightQueries.getStats());
+    }
+
+    @Test
+    void testFailedLeaderHandsTheKeyToOneFollower() {
+        // Given
+        CompletableFuture<InFlightQueries.Outcome> leader = execute();
+        CompletableFuture<InFlightQueries.Outcome> first = execute();
+        CompletableFuture<InFlightQueries.Outcome> second = execute();
+
+        // When: the leader was rate limited on its own budget
+        started.get(0).complete(QueryExecutionResult.rateLimitExceeded(1L, "Rate limit exceeded"));
+
+        // Then: one follower runs, the other waits for it
+        assertEquals("RATE_LIMIT_EXCEEDED", leader.join().result().getStatus());
+        assertEquals(2, started.size());
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+
+        started.get(1).complete(success());
+        assertEquals(1, (first.join().coalesced() ? 1 : 0) + (second.join().coalesced() ? 1 : 0));
+        assertEquals("SUCCESS", first.join().result().getStatus());
+        assertEquals("SUCCESS", second.join().result().getStatus());
+        assertEquals(new InFlightQueries.Stats(2, 1, 0), inFlightQueries.getStats());
+    }
+
+    @Test
+    void testExceptionalLeaderHandsTheKeyToOneFollower() {
+        // Given
+        CompletableFuture<InFlightQueries.Outcome> leader = execute();
+        CompletableFuture<InFlightQueries.Outcome> follower = execute();
+
+        // When
+        started.get(0).completeExceptionally(new IllegalStateException("connector down"));
+
+        // Then
+        assertTrue(leader.isCompletedExceptionally());
+        assertEquals(2, started.size());
+        started.get(1).complete(success());
+        assertFalse(follower.join().coalesced());
+        assertEquals(0, inFlightQueries.getStats().coalesced());
+    }
+
+    @Test
+    void testKeyIsReleasedOnceTheExecutionCompletes() {
+        // Given
+        CompletableFuture<InFlightQueries.Outcome> first = execute();
+        assertEquals(1, inFlightQueries.getStats().inFlight());
+        started.get(0).complete(success());
+        first.join();
+
+        // When
+        CompletableFuture<InFlightQueries.Outcome> later = execute();
+
+        // Then: a later query runs its own execution
+        assertEquals(1, inFlightQueries.getStats().inFlight());
+        assertEquals(2, started.size());
+        started.get(1).complete(success());
+        assertFalse(later.join().coalesced());
+        assertEquals(new InFlightQueries.Stats(2, 0, 0), inFlightQueries.getStats());
+    }
+}
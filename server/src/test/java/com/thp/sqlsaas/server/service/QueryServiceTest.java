@@ -0,0 +1,146 @@
+package com.thp.sqlsaas.server.service;
+
+import com.thp.sqlsaas.entitlement.model.ColumnMask;
+import com.thp.sqlsaas.entitlement.model.EntitlementDecision;
+import com.thp.sqlsaas.entitlement.model.RowFilter;
+import com.thp.sqlsaas.persistence.service.UserService;
+import com.thp.sqlsaas.server.cache.CacheService;
+import com.thp.sqlsaas.server.cache.DiskResultTier;
+import com.thp.sqlsaas.server.cache.ResultCacheBackend;
+import com.thp.sqlsaas.server.model.QueryExecutionResult;
+import com.thp.sqlsaas.server.model.QueryPlan;
+import com.thp.sqlsaas.server.orchestrator.QueryOrchestrator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class QueryServiceTest {
+
+    private static final String SQL = "SELECT * FROM github_issues";
+
+    private final QueryOrchestrator orchestrator = mock(QueryOrchestrator.class);
+    private final UserService userService = mock(UserService.class);
+    // Decision returned by the orchestrator for each user
+    private final Map<String, EntitlementDecision> decisions = new HashMap<>();
+    private final AtomicInteger executions = new AtomicInteger();
+
+    private CacheService cache;
+    private QueryService queryService;
+
+    @BeforeEach
+    void setUp() {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        cache = new CacheService(1 << 20, 1 << 20, Duration.ofMinutes(10), CacheService.KeyMode.ENTITLEMENT,
+                Duration.ofSeconds(10), 0, Duration.ofSeconds(45), Duration.ofSeconds(15), 1,
+                CacheService.StorageMode.HEAP, 1 << 20,
+                beans.getBeanProvider(ResultCacheBackend.class), beans.getBeanProvider(DiskResultTier.class));
+        queryService = new QueryService(orchestrator, cache, userService, new InFlightQueries());
+
+        when(userService.getUserRoles(anyString(), anyString())).thenReturn(Set.of("developer"));
+        when(orchestrator.authorize(any())).thenAnswer(invocation ->
+                decisions.get(invocation.<QueryPlan>getArgument(0).getUserId()));
+        // Each execution returns rows tagged with the user it ran for
+        when(orchestrator.executeAsync(any(), any())).thenAnswer(invocation -> {
+            executions.incrementAndGet();
+            Map<String, Object> row = Map.of("id", 1, "executedFor", invocation.<QueryPlan>getArgument(0).getUserId());
+            return CompletableFuture.completedFuture(
+                    QueryExecutionResult.success(List.of(row), null, 0L, "RATE_LIMIT_OK"));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        cache.stop();
+    }
+
+    private static EntitlementDecision decision(String assignee, ColumnMask.MaskType emailMask) {
+        EntitlementDecision decision = EntitlementDecision.allow();
+        decision.getRowFilters().add(RowFilter.builder()
+                .columnName("assignee")
+                .operator(RowFilter.FilterOperator.EQUALS)
+                .value(assignee)
+                .policyId("own-issues")
+                .build());
+        if (emailMask != null) {
+            decision.getColumnMasks().put("email", ColumnMask.builder()
+                    .maskType(emailMask)
+                    .policyId("pii")
+                    .build());
+        }
+        return decision;
+    }
+
+    private QueryExecutionResult query(String userId) {
+        return queryService.executeQuery(SQL, "t1", userId, 60_000L, null).join();
+    }
+
+    @Test
+    void testUsersWithEqualDecisionsShareOneEntry() {
+        // Given: both users' filters substitute to the same team
+        decisions.put("alice", decision("team-a", ColumnMask.MaskType.HASH));
+        decisions.put("bob", decision("team-a", ColumnMask.MaskType.HASH));
+
+        // When
+        QueryExecutionResult first = query("alice");
+        QueryExecutionResult second = query("bob");
+
+        // Then: bob is served alice's execution from the shared entry
+        assertEquals(1, executions.get());
+        assertEquals(first.getRows(), second.getRows());
+        assertEquals(1, cache.getStats().entries());
+        assertEquals(1, cache.getStats().exactHits());
+    }
+
+    @Test
+    void testUsersWithDifferentRowFiltersNeverShare() {
+        // Given: ${user.id} substituted into each user's filter
+        decisions.put("alice", decision("alice", ColumnMask.MaskType.HASH));
+        decisions.put("bob", decision("bob", ColumnMask.MaskType.HASH));
+
+        // When
+        query("alice");
+        QueryExecutionResult bobs = query("bob");
+
+        // Then
+        assertEquals(2, executions.get());
+        assertEquals("bob", bobs.getRows().get(0).get("executedFor"));
+        assertEquals(2, cache.getStats().entries());
+        assertEquals(0, cache.getStats().exactHits());
+    }
+
+    @Test
+    void testUsersWithDifferentMasksNeverShare() {
+        // Given: same rows, but only bob has the email masked
+        decisions.put("alice", decision("team-a", null));
+        decisions.put("bob", decision("team-a", ColumnMask.MaskType.HASH));
+
+        // When
+        query("alice");
+        QueryExecutionResult bobs = query("bob");
+
+        // Then
+        assertEquals(2, executions.get());
+        assertEquals("bob", bobs.getRows().get(0).get("executedFor"));
+        assertEquals(2, cache.getStats().entries());
+
+        // A repeated query hits each user's own entry
+        assertEquals("alice", query("alice").getRows().get(0).get("executedFor"));
+        assertEquals("bob", query("bob").getRows().get(0).get("executedFor"));
+        assertEquals(2, executions.get());
+    }
+}
@@ -10,8 +10,11 @@ import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
 import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.Limit;
 import net.sf.jsqlparser.statement.select.PlainSelect;
 import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectItem;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -42,60 +45,91 @@ public class SqlToModelConverter {
             request.setTableName(table.getName());
         }
         
+        // Extract projected columns
+        request.setColumns(extractColumns(plainSelect.getSelectItems()));
+        
         // Extract filters from WHERE clause
         Expression where = plainSelect.getWhere();
         if (where != null) {
-            List<Filter> filters = extractFilters(where);
+            List<Filter> filters = new ArrayList<>();
+            List<String> unsupported = new ArrayList<>();
+            extractFilters(where, filters, unsupported);
             request.setFilters(filters);
+            request.setUnsupportedConditions(unsupported);
         }
         
+        // Extract LIMIT
+        request.setLimit(extractLimit(plainSelect.getLimit()));
+        
         return request;
     }
     
+    /**
+     * Extract projected column names in SELECT order. Returns an empty list for SELECT *.
+     */
+    private static List<String> extractColumns(List<SelectItem<?>> selectItems) {
+        List<String> columns = new ArrayList<>();
+        if (selectItems == null) {
+            return columns;
+        }
+        
+        for (SelectItem<?> item : selectItems) {
+            Expression expression = item.getExpression();
+            if (expression instanceof AllColumns) {
+                return new ArrayList<>();
+            } else if (expression instanceof Column) {
+                columns.add(((Column) expression).getColumnName());
+            } else {
+                columns.add(expression.toString());
+            }
+        }
+        
+        return columns;
+    }
+    
+    private static Integer extractLimit(Limit limit) {
+        if (limit == null || !(limit.getRowCount() instanceof LongValue)) {
+            return null;
+        }
+        return (int) ((LongValue) limit.getRowCount()).getValue();
+    }
+    
     /**
      * Recursively extract filters from WHERE expression.
+     * Conditions that cannot be expressed as a filter are collected as SQL text.
      */
-    private static List<Filter> extractFilters(Expression expression) {
-        List<Filter> filters = new ArrayList<>();
+    private static void extractFilters(Expression expression, List<Filter> filters, List<String> unsupported) {
+        Filter filter = null;
         
         if (expression instanceof AndExpression) {
             // Handle AND conditions
             AndExpression andExpr = (AndExpression) expression;
-            filters.addAll(extractFilters(andExpr.getLeftExpression()));
-            filters.addAll(extractFilters(andExpr.getRightExpression()));
+            extractFilters(andExpr.getLeftExpression(), filters, unsupported);
+            extractFilters(andExpr.getRightExpression(), filters, unsupported);
+            return;
         } else if (expression instanceof ComparisonOperator) {
             // Handle comparison operators (=, >, <, etc.)
-            Filter filter = extractComparisonFilter((ComparisonOperator) expression);
-            if (filter != null) {
-                filters.add(filter);
-            }
+            filter = extractComparisonFilter((ComparisonOperator) expression);
         } else if (expression instanceof LikeExpression) {
             // Handle LIKE
-            Filter filter = extractLikeFilter((LikeExpression) expression);
-            if (filter != null) {
-                filters.add(filter);
-            }
+            filter = extractLikeFilter((LikeExpression) expression);
         } else if (expression instanceof InExpression) {
             // Handle IN
-            Filter filter = extractInFilter((InExpression) expression);
-            if (filter != null) {
-                filters.add(filter);
-            }
+            filter = extractInFilter((InExpression) expression);
         } else if (expression instanceof Between) {
             // Handle BETWEEN
-            Filter filter = extractBetweenFilter((Between) expression);
-            if (filter != null) {
-                filters.add(filter);
-            }
+            filter = extractBetweenFilter((Between) expression);
         } else if (expression instanceof IsNullExpression) {
             // Handle IS NULL / IS NOT NULL
-            Filter filter = extractIsNullFilter((IsNullExpression) expression);
-            if (filter != null) {
-                filters.add(filter);
-            }
+            filter = extractIsNullFilter((IsNullExpression) expression);
         }
         
-        return filters;
+        if (filter != null) {
+            filters.add(filter);
+        } else {
+            // e.g. OR groups - keep them so the query is not mistaken for an unfiltered one
+            unsupported.add(expression.toString());
+        }
     }
     
     private static Filter extractComparisonFilter(ComparisonOperator expr) {
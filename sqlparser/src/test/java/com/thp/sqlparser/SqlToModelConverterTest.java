@@ -1,10 +1,13 @@
 package com.thp.sqlparser;
 
+import com.thp.sqlsaas.fingerprint.QueryFingerprint;
 import com.thp.sqlsaas.model.Filter;
 import com.thp.sqlsaas.model.FilterOperator;
 import com.thp.sqlsaas.model.SqlQueryRequest;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class SqlToModelConverterTest {
@@ -152,6 +155,46 @@ class SqlToModelConverterTest {
         assertEquals(FilterOperator.IS_NOT_NULL, filter.getOperator());
     }
     
+    @Test
+    void testSelectWithProjectionAndLimit() throws Exception {
+        String sql = "SELECT id, title FROM github_issues WHERE state = 'open' LIMIT 10";
+        
+        SqlQueryRequest request = SqlToModelConverter.parseAndConvert(sql);
+        
+        assertEquals(List.of("id", "title"), request.getColumns());
+        assertEquals(10, request.getLimit());
+        
+        SqlQueryRequest star = SqlToModelConverter.parseAndConvert("SELECT * FROM github_issues");
+        assertTrue(star.getColumns().isEmpty());
+        assertNull(star.getLimit());
+    }
+    
+    @Test
+    void testOrConditionKeptAsUnsupported() throws Exception {
+        String sql = "SELECT * FROM github_issues WHERE repo = 'api' AND (state = 'open' OR state = 'closed')";
+        
+        SqlQueryRequest request = SqlToModelConverter.parseAndConvert(sql);
+        
+        assertEquals(1, request.getFilters().size());
+        assertEquals(1, request.getUnsupportedConditions().size());
+    }
+    
+    @Test
+    void testEquivalentQueriesShareFingerprint() throws Exception {
+        QueryFingerprint first = QueryFingerprint.of(SqlToModelConverter.parseAndConvert(
+                "SELECT id FROM github_issues WHERE state = 'open' AND priority > 2 LIMIT 5"));
+        QueryFingerprint second = QueryFingerprint.of(SqlToModelConverter.parseAndConvert(
+                "select id\n  from GITHUB_ISSUES\n where priority > 2\n   and state = 'open'\n limit 5"));
+        QueryFingerprint different = QueryFingerprint.of(SqlToModelConverter.parseAndConvert(
+                "SELECT id FROM github_issues WHERE state = 'closed' AND priority > 2 LIMIT 5"));
+        QueryFingerprint orVariant = QueryFingerprint.of(SqlToModelConverter.parseAndConvert(
+                "SELECT id FROM github_issues WHERE state = 'open' AND (priority > 2 OR priority < 0) LIMIT 5"));
+        
+        assertEquals(first, second);
+        assertNotEquals(first, different);
+        assertNotEquals(first, orVariant);
+    }
+    
     @Test
     void testPrintRequestDetails() throws Exception {
         String sql = "SELECT * FROM customers WHERE age > 25 AND city = 'New York'";